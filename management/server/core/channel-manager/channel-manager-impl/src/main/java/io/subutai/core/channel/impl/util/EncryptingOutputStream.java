@@ -0,0 +1,114 @@
+package io.subutai.core.channel.impl.util;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+import io.subutai.core.security.api.SecurityManager;
+
+
+/**
+ * Encrypts everything written to it into the underlying stream. Encryption starts on the first written byte, so a
+ * message without body stays empty instead of becoming an encrypted empty literal, and the public key of the target
+ * host is needed only when there is a body to encrypt.
+ */
+class EncryptingOutputStream extends OutputStream
+{
+    private final SecurityManager securityManager;
+    private final String hostIdTarget;
+    private final OutputStream out;
+
+    private OutputStream encryptingStream;
+    private boolean closed = false;
+
+
+    EncryptingOutputStream( final SecurityManager securityManager, final String hostIdTarget,
+                            final OutputStream out )
+    {
+        this.securityManager = securityManager;
+        this.hostIdTarget = hostIdTarget;
+        this.out = out;
+    }
+
+
+    @Override
+    public void write( final int b ) throws IOException
+    {
+        getEncryptingStream().write( b );
+    }
+
+
+    @Override
+    public void write( final byte[] b, final int off, final int len ) throws IOException
+    {
+        if ( len > 0 )
+        {
+            getEncryptingStream().write( b, off, len );
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException
+    {
+        if ( encryptingStream != null )
+        {
+            encryptingStream.flush();
+        }
+    }
+
+
+    /**
+     * Writes the trailing encryption packets, if anything was written, and closes the underlying stream
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        closed = true;
+
+        try
+        {
+            if ( encryptingStream != null )
+            {
+                encryptingStream.close();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+
+    private OutputStream getEncryptingStream() throws IOException
+    {
+        if ( closed )
+        {
+            throw new IOException( "Stream closed" );
+        }
+
+        if ( encryptingStream == null )
+        {
+            try
+            {
+                PGPPublicKey publicKey = MessageContentUtil.getPublicKey( securityManager, hostIdTarget );
+
+                encryptingStream = securityManager.getEncryptionTool().encrypt( out, publicKey, true );
+            }
+            catch ( PGPException e )
+            {
+                throw new IOException( "Error encrypting content", e );
+            }
+        }
+
+        return encryptingStream;
+    }
+}
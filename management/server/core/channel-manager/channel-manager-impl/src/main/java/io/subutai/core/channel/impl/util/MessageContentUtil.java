@@ -1,9 +1,9 @@
 package io.subutai.core.channel.impl.util;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.AccessControlException;
@@ -17,9 +17,6 @@ import org.bouncycastle.openpgp.PGPSecretKeyRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.cxf.helpers.IOUtils;
-import org.apache.cxf.io.CachedOutputStream;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.transport.http.AbstractHTTPDestination;
 
@@ -95,21 +92,30 @@ public class MessageContentUtil
             return;
         }
 
-        CachedOutputStream os = new CachedOutputStream();
-
         LOG.debug( String.format( "Decrypting IDs: %s -> %s", hostIdSource, hostIdTarget ) );
         try
         {
-            int copied = IOUtils.copyAndCloseInput( is, os );
-            os.flush();
+            PushbackInputStream content = new PushbackInputStream( is, 1 );
+            int first = content.read();
 
-            byte[] data = copied > 0 ? decryptData( securityManager, hostIdSource, os.getBytes() ) : null;
-            org.apache.commons.io.IOUtils.closeQuietly( os );
+            if ( first == -1 )
+            {
+                LOG.debug( "Decrypted data is NULL!!!" );
+                return;
+            }
+
+            content.unread( first );
 
-            if ( !ArrayUtils.isEmpty( data ) )
+            InputStream data = decryptData( securityManager, hostIdSource, content );
+
+            if ( data != null )
             {
-                LOG.debug( String.format( "Decrypted payload: \"%s\"", new String( data ) ) );
-                message.setContent( InputStream.class, new ByteArrayInputStream( data ) );
+                if ( LOG.isDebugEnabled() )
+                {
+                    data = PayloadLogging.wrap( data, LOG, "Decrypted payload" );
+                }
+
+                message.setContent( InputStream.class, data );
             }
             else
             {
@@ -124,36 +130,28 @@ public class MessageContentUtil
 
 
     //***************************************************************************
-    private static byte[] decryptData( SecurityManager securityManager, String hostIdSource, byte[] data )
+    private static InputStream decryptData( SecurityManager securityManager, String hostIdSource, InputStream data )
             throws PGPException
     {
-
         try
         {
-            if ( ArrayUtils.isEmpty( data ) )
-            {
-                return ArrayUtils.EMPTY_BYTE_ARRAY;
-            }
-            else
-            {
-                EncryptionTool encTool = securityManager.getEncryptionTool();
+            EncryptionTool encTool = securityManager.getEncryptionTool();
 
 
-                KeyManager keyMan = securityManager.getKeyManager();
-                PGPSecretKeyRing secKey = keyMan.getSecretKeyRing( hostIdSource );
+            KeyManager keyMan = securityManager.getKeyManager();
+            PGPSecretKeyRing secKey = keyMan.getSecretKeyRing( hostIdSource );
 
-                if ( secKey != null )
-                {
-                    LOG.debug( " ****** Decrypting with: " + hostIdSource + " ****** " );
+            if ( secKey != null )
+            {
+                LOG.debug( " ****** Decrypting with: " + hostIdSource + " ****** " );
 
-                    return encTool.decrypt( data, secKey, "" );
-                }
-                else
-                {
-                    LOG.debug( String.format( " ****** Decryption error. Could not find Secret key : %s ****** ",
-                            hostIdSource ) );
-                    throw new PGPException( "Cannot find Secret Key" );
-                }
+                return encTool.decrypt( data, secKey, "" );
+            }
+            else
+            {
+                LOG.debug( String.format( " ****** Decryption error. Could not find Secret key : %s ****** ",
+                        hostIdSource ) );
+                throw new PGPException( "Cannot find Secret Key" );
             }
         }
         catch ( Exception ex )
@@ -168,83 +166,52 @@ public class MessageContentUtil
     {
         OutputStream os = message.getContent( OutputStream.class );
 
-        CachedStream cs = new CachedStream();
-        message.setContent( OutputStream.class, cs );
-
-        message.getInterceptorChain().doIntercept( message );
         LOG.debug( String.format( "Encrypting IDs: %s -> %s", hostIdSource, hostIdTarget ) );
 
-        try
-        {
-            cs.flush();
-            CachedOutputStream csnew = ( CachedOutputStream ) message.getContent( OutputStream.class );
-
-            byte[] originalMessage = org.apache.commons.io.IOUtils.toByteArray( csnew.getInputStream() );
-            LOG.debug( String.format( "Original payload: \"%s\"", new String( originalMessage ) ) );
-
-            csnew.flush();
-            org.apache.commons.io.IOUtils.closeQuietly( cs );
-            org.apache.commons.io.IOUtils.closeQuietly( csnew );
+        OutputStream content = new EncryptingOutputStream( securityManager, hostIdTarget, os );
 
-            //do something with original message to produce finalMessage
-            byte[] finalMessage =
-                    originalMessage.length > 0 ? encryptData( securityManager, hostIdTarget, originalMessage ) : null;
-
-            if ( !ArrayUtils.isEmpty( finalMessage ) )
-            {
-
-                InputStream replaceInStream = new ByteArrayInputStream( finalMessage );
-
-                org.apache.commons.io.IOUtils.copy( replaceInStream, os );
-                replaceInStream.close();
-                org.apache.commons.io.IOUtils.closeQuietly( replaceInStream );
+        if ( LOG.isDebugEnabled() )
+        {
+            content = PayloadLogging.wrap( content, LOG, "Original payload" );
+        }
 
-                os.flush();
-                message.setContent( OutputStream.class, os );
-            }
+        message.setContent( OutputStream.class, content );
 
+        message.getInterceptorChain().doIntercept( message );
 
-            org.apache.commons.io.IOUtils.closeQuietly( os );
+        try
+        {
+            //writes trailing packets unless the chain already closed the stream
+            content.close();
         }
         catch ( Exception ioe )
         {
             throw new ActionFailedException( "Error encrypting content", ioe );
         }
+        finally
+        {
+            org.apache.commons.io.IOUtils.closeQuietly( os );
+        }
     }
 
 
-    private static byte[] encryptData( SecurityManager securityManager, String hostIdTarget, byte[] data )
+    static PGPPublicKey getPublicKey( SecurityManager securityManager, String hostIdTarget )
             throws PGPException
     {
-        try
-        {
-            if ( ArrayUtils.isEmpty( data ) )
-            {
-                return ArrayUtils.EMPTY_BYTE_ARRAY;
-            }
-            else
-            {
-                EncryptionTool encTool = securityManager.getEncryptionTool();
-                KeyManager keyMan = securityManager.getKeyManager();
-                PGPPublicKey pubKey = keyMan.getRemoteHostPublicKey( hostIdTarget );
+        KeyManager keyMan = securityManager.getKeyManager();
+        PGPPublicKey pubKey = keyMan.getRemoteHostPublicKey( hostIdTarget );
 
-                if ( pubKey != null )
-                {
-                    LOG.debug( String.format( " ****** Encrypting with %s ****** ", hostIdTarget ) );
+        if ( pubKey != null )
+        {
+            LOG.debug( String.format( " ****** Encrypting with %s ****** ", hostIdTarget ) );
 
-                    return encTool.encrypt( data, pubKey, true );
-                }
-                else
-                {
-                    LOG.debug( String.format( " ****** Encryption error. Could not find Public key : %s ****** ",
-                            hostIdTarget ) );
-                    throw new PGPException( "Cannot find Public Key" );
-                }
-            }
+            return pubKey;
         }
-        catch ( Exception ex )
+        else
         {
-            throw new PGPException( "Error in encryptData", ex );
+            LOG.debug( String.format( " ****** Encryption error. Could not find Public key : %s ****** ",
+                    hostIdTarget ) );
+            throw new PGPException( "Cannot find Public Key" );
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package io.subutai.core.channel.impl.util;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+
+
+/**
+ * Wraps message streams to log the beginning of the payload passing through them, without buffering the whole
+ * message. Payload is logged once, when the stream is exhausted or closed.
+ */
+final class PayloadLogging
+{
+    static final int MAX_LOGGED_BYTES = 2048;
+
+
+    private PayloadLogging()
+    {
+        throw new IllegalAccessError( "Utility class" );
+    }
+
+
+    static InputStream wrap( final InputStream in, final Logger logger, final String title )
+    {
+        final Capture capture = new Capture( logger, title );
+
+        return new FilterInputStream( in )
+        {
+            @Override
+            public int read() throws IOException
+            {
+                int b = super.read();
+
+                if ( b == -1 )
+                {
+                    capture.log();
+                }
+                else
+                {
+                    capture.add( new byte[] { ( byte ) b }, 0, 1 );
+                }
+
+                return b;
+            }
+
+
+            @Override
+            public int read( final byte[] b, final int off, final int len ) throws IOException
+            {
+                int read = super.read( b, off, len );
+
+                if ( read == -1 )
+                {
+                    capture.log();
+                }
+                else
+                {
+                    capture.add( b, off, read );
+                }
+
+                return read;
+            }
+
+
+            @Override
+            public void close() throws IOException
+            {
+                capture.log();
+
+                super.close();
+            }
+        };
+    }
+
+
+    static OutputStream wrap( final OutputStream out, final Logger logger, final String title )
+    {
+        final Capture capture = new Capture( logger, title );
+
+        return new FilterOutputStream( out )
+        {
+            @Override
+            public void write( final int b ) throws IOException
+            {
+                out.write( b );
+                capture.add( new byte[] { ( byte ) b }, 0, 1 );
+            }
+
+
+            @Override
+            public void write( final byte[] b, final int off, final int len ) throws IOException
+            {
+                out.write( b, off, len );
+                capture.add( b, off, len );
+            }
+
+
+            @Override
+            public void close() throws IOException
+            {
+                capture.log();
+
+                out.close();
+            }
+        };
+    }
+
+
+    private static class Capture
+    {
+        private final Logger logger;
+        private final String title;
+        private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        private long total = 0;
+        private boolean logged = false;
+
+
+        Capture( final Logger logger, final String title )
+        {
+            this.logger = logger;
+            this.title = title;
+        }
+
+
+        void add( byte[] b, int off, int len )
+        {
+            int toCapture = ( int ) Math.min( len, Math.max( 0, MAX_LOGGED_BYTES - total ) );
+
+            captured.write( b, off, toCapture );
+            total += len;
+        }
+
+
+        void log()
+        {
+            if ( logged )
+            {
+                return;
+            }
+
+            logged = true;
+
+            logger.debug( String.format( "%s (%d bytes): \"%s\"%s", title, total,
+                    new String( captured.toByteArray(), StandardCharsets.UTF_8 ),
+                    total > MAX_LOGGED_BYTES ? "..." : "" ) );
+        }
+    }
+}
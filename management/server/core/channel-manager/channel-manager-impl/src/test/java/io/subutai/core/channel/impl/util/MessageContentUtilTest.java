@@ -2,6 +2,8 @@ package io.subutai.core.channel.impl.util;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.AccessControlException;
@@ -15,9 +17,12 @@ import org.bouncycastle.openpgp.PGPSecretKeyRing;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.io.CachedOutputStream;
@@ -29,12 +34,17 @@ import io.subutai.core.security.api.SecurityManager;
 import io.subutai.core.security.api.crypto.EncryptionTool;
 import io.subutai.core.security.api.crypto.KeyManager;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 
@@ -110,36 +120,118 @@ public class MessageContentUtilTest
     @Test
     public void testDecryptContent() throws Exception
     {
-        doReturn( "OK".getBytes() ).when( encryptionTool )
-                                   .decrypt( isA( byte[].class ), isA( PGPSecretKeyRing.class ), anyString() );
+        doReturn( new ByteArrayInputStream( "OK".getBytes() ) ).when( encryptionTool )
+                                                                .decrypt( isA( InputStream.class ),
+                                                                        isA( PGPSecretKeyRing.class ), anyString() );
 
         MessageContentUtil.decryptContent( securityManager, message, SRC, TARGET );
 
-        verify( encryptionTool ).decrypt( isA( byte[].class ), isA( PGPSecretKeyRing.class ), anyString() );
+        verify( encryptionTool ).decrypt( isA( InputStream.class ), isA( PGPSecretKeyRing.class ), anyString() );
 
         verify( message ).setContent( any( Class.class ), Matchers.anyObject() );
 
         //
 
         doReturn( null ).when( encryptionTool )
-                        .decrypt( isA( byte[].class ), isA( PGPSecretKeyRing.class ), anyString() );
+                        .decrypt( isA( InputStream.class ), isA( PGPSecretKeyRing.class ), anyString() );
 
         MessageContentUtil.decryptContent( securityManager, message, SRC, TARGET );
     }
 
 
+    @Test
+    public void testDecryptEmptyContent() throws Exception
+    {
+        doReturn( new ByteArrayInputStream( new byte[0] ) ).when( message ).getContent( InputStream.class );
+
+        MessageContentUtil.decryptContent( securityManager, message, SRC, TARGET );
+
+        verify( encryptionTool, never() )
+                .decrypt( isA( InputStream.class ), isA( PGPSecretKeyRing.class ), anyString() );
+        verify( message, never() ).setContent( any( Class.class ), Matchers.anyObject() );
+    }
+
+
     @Test
     public void testEncryptContent() throws Exception
     {
-        doReturn( new ByteArrayInputStream( "OK".getBytes() ) ).when( cachedOutputStream ).getInputStream();
+        final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
         doReturn( pgpPublicKey ).when( keyManager ).getRemoteHostPublicKey( anyString() );
+        doReturn( encrypted ).when( encryptionTool ).encrypt( isA( OutputStream.class ), isA( PGPPublicKey.class ),
+                eq( true ) );
+        doAnswer( new Answer()
+        {
+            @Override
+            public Object answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                ArgumentCaptor<OutputStream> captor = ArgumentCaptor.forClass( OutputStream.class );
+                verify( message ).setContent( eq( OutputStream.class ), captor.capture() );
+
+                captor.getValue().write( "OK".getBytes() );
 
-        doReturn( "OK".getBytes() ).when( encryptionTool )
-                                   .encrypt( isA( byte[].class ), isA( PGPPublicKey.class ), eq( true ) );
+                return null;
+            }
+        } ).when( interceptors ).doIntercept( message );
 
 
         MessageContentUtil.encryptContent( securityManager, SRC, TARGET, message );
 
-        verify( encryptionTool ).encrypt( isA( byte[].class ), eq( pgpPublicKey ), eq( true ) );
+        verify( encryptionTool ).encrypt( cachedOutputStream, pgpPublicKey, true );
+        assertEquals( "OK", encrypted.toString() );
+        verify( cachedOutputStream, atLeastOnce() ).close();
+    }
+
+
+    @Test
+    public void testEncryptEmptyContent() throws Exception
+    {
+        doReturn( pgpPublicKey ).when( keyManager ).getRemoteHostPublicKey( anyString() );
+
+        MessageContentUtil.encryptContent( securityManager, SRC, TARGET, message );
+
+        verify( encryptionTool, never() ).encrypt( isA( OutputStream.class ), isA( PGPPublicKey.class ), eq( true ) );
+        verify( cachedOutputStream, atLeastOnce() ).close();
+    }
+
+
+    @Test
+    public void testEncryptEmptyContentWithoutPublicKey() throws Exception
+    {
+        MessageContentUtil.encryptContent( securityManager, SRC, TARGET, message );
+
+        verify( keyManager, never() ).getRemoteHostPublicKey( anyString() );
+        verify( cachedOutputStream, atLeastOnce() ).close();
+    }
+
+
+    @Test
+    public void testEncryptContentWithoutPublicKey() throws Exception
+    {
+        final boolean[] failed = new boolean[1];
+        doAnswer( new Answer()
+        {
+            @Override
+            public Object answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                ArgumentCaptor<OutputStream> captor = ArgumentCaptor.forClass( OutputStream.class );
+                verify( message ).setContent( eq( OutputStream.class ), captor.capture() );
+
+                try
+                {
+                    captor.getValue().write( "OK".getBytes() );
+                }
+                catch ( IOException e )
+                {
+                    failed[0] = true;
+                }
+
+                return null;
+            }
+        } ).when( interceptors ).doIntercept( message );
+
+        MessageContentUtil.encryptContent( securityManager, SRC, TARGET, message );
+
+        assertTrue( failed[0] );
+        verify( cachedOutputStream, never() ).write( any( byte[].class ), anyInt(), anyInt() );
     }
 }
@@ -0,0 +1,19 @@
+package io.subutai.core.executor.api;
+
+
+import java.util.Set;
+
+
+/**
+ * Receives encrypted requests queued for a resource host. Used to hold a request of agent open until there is a
+ * command for it.
+ */
+public interface PendingRequestsCallback
+{
+    /**
+     * Passes requests to agent
+     *
+     * @return false if requests could not be passed, e.g. request of agent has already been answered
+     */
+    boolean onRequests( Set<String> requests );
+}
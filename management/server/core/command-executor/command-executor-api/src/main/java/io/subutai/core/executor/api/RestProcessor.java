@@ -1,6 +1,7 @@
 package io.subutai.core.executor.api;
 
 
+import java.util.List;
 import java.util.Set;
 
 import io.subutai.common.command.Response;
@@ -12,7 +13,22 @@ public interface RestProcessor
 
     void handleResponse( Response response );
 
+    /**
+     * Handles responses received from agent in one batch, in their order
+     */
+    void handleResponses( List<? extends Response> responses );
+
     Set<String> getRequests( String hostId );
 
+    /**
+     * Passes requests of the host to the callback once, as soon as there are any
+     */
+    void waitRequests( String hostId, PendingRequestsCallback callback );
+
+    /**
+     * Stops waiting for requests, returns false if the callback is already being called
+     */
+    boolean cancelWaitRequests( String hostId, PendingRequestsCallback callback );
+
     void handleHeartbeat( HeartBeat heartBeat );
 }
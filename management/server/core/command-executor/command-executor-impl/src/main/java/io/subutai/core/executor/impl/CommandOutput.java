@@ -0,0 +1,127 @@
+package io.subutai.core.executor.impl;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Accumulates command output stream (stdout or stderr) as a list of response chunks. Chunks are kept as received, so
+ * appending never copies previously received output. The joined string is materialized only on demand.
+ *
+ * Output exceeding the size cap is dropped to protect the heap from runaway commands.
+ */
+class CommandOutput
+{
+    private static final Logger LOG = LoggerFactory.getLogger( CommandOutput.class.getName() );
+
+    private final String name;
+    private final int maxLength;
+    private final List<String> chunks = new ArrayList<>();
+    private int length = 0;
+    private boolean truncated = false;
+
+
+    /**
+     * @param name - name of the stream, used in logs
+     * @param maxLength - maximum number of characters to keep
+     */
+    CommandOutput( final String name, final int maxLength )
+    {
+        Preconditions.checkArgument( maxLength > 0, "Max length must be greater than 0" );
+
+        this.name = name;
+        this.maxLength = maxLength;
+    }
+
+
+    /**
+     * Appends chunk of output
+     *
+     * @param chunk - output received in a single response
+     */
+    synchronized void append( String chunk )
+    {
+        if ( chunk == null || chunk.isEmpty() || truncated )
+        {
+            return;
+        }
+
+        if ( length + chunk.length() > maxLength )
+        {
+            chunk = chunk.substring( 0, maxLength - length );
+            truncated = true;
+
+            LOG.warn( "Command {} exceeded {} characters, the rest of it is discarded", name, maxLength );
+        }
+
+        chunks.add( chunk );
+        length += chunk.length();
+    }
+
+
+    /**
+     * Returns number of characters received so far. Together with {@link #toString(int)} allows to capture a
+     * consistent view of output at some point in time without copying it.
+     */
+    synchronized int length()
+    {
+        return length;
+    }
+
+
+    synchronized boolean isTruncated()
+    {
+        return truncated;
+    }
+
+
+    /**
+     * Returns the first {@code outputLength} characters of output. Materialized output replaces the chunks it was
+     * built from, so output is held in memory once and subsequent calls only append chunks received in between.
+     */
+    synchronized String toString( int outputLength )
+    {
+        Preconditions.checkArgument( outputLength >= 0 && outputLength <= length );
+
+        if ( chunks.isEmpty() )
+        {
+            return "";
+        }
+
+        String head = chunks.get( 0 );
+
+        if ( outputLength <= head.length() )
+        {
+            return outputLength == head.length() ? head : head.substring( 0, outputLength );
+        }
+
+        StringBuilder sb = new StringBuilder( length );
+
+        for ( String chunk : chunks )
+        {
+            sb.append( chunk );
+        }
+
+        String output = sb.toString();
+
+        //keep single copy of output
+
+        chunks.clear();
+        chunks.add( output );
+
+        return outputLength == output.length() ? output : output.substring( 0, outputLength );
+    }
+
+
+    @Override
+    public synchronized String toString()
+    {
+        return toString( length );
+    }
+}
@@ -1,16 +1,12 @@
 package io.subutai.core.executor.impl;
 
 
-import java.security.PrivilegedAction;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import javax.security.auth.Subject;
-
 import org.bouncycastle.openpgp.PGPException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,10 +37,14 @@ import io.subutai.core.security.api.SecurityManager;
 class CommandProcess
 {
     private static final Logger LOG = LoggerFactory.getLogger( CommandProcess.class.getName() );
+    /**
+     * maximum number of characters kept per output stream
+     */
+    static final int MAX_OUTPUT_LENGTH = 32 * 1024 * 1024;
 
     private CommandCallback callback;
-    private StringBuilder stdOut;
-    private StringBuilder stdErr;
+    private CommandOutput stdOut;
+    private CommandOutput stdErr;
     private Integer exitCode;
     private CommandProcessor commandProcessor;
     volatile CommandStatus status;
@@ -72,8 +72,8 @@ class CommandProcess
         this.commandProcessor = commandProcessor;
         this.callback = callback;
 
-        stdOut = new StringBuilder();
-        stdErr = new StringBuilder();
+        stdOut = new CommandOutput( request.getCommandId() + " stdout", MAX_OUTPUT_LENGTH );
+        stdErr = new CommandOutput( request.getCommandId() + " stderr", MAX_OUTPUT_LENGTH );
         status = CommandStatus.NEW;
         semaphore = new Semaphore( 0 );
 
@@ -165,31 +165,14 @@ class CommandProcess
 
     void processNextResponse( final Response response )
     {
-        final CommandProcess THIS = this;
-
-        if ( userSession != null )
+        try
         {
-
-            Subject.doAs( userSession.getSubject(), new PrivilegedAction<Void>()
-            {
-                @Override
-                public Void run()
-                {
-                    try
-                    {
-                        executor.execute( new ResponseProcessor( response, THIS, commandProcessor, request ) );
-                    }
-                    catch ( Exception e )
-                    {
-                        LOG.error( "Error in processResponse", e );
-                    }
-                    return null;
-                }
-            } );
+            executor.execute( new ResponseProcessor( response, this, commandProcessor, request,
+                    userSession != null ? userSession.getSubject() : null ) );
         }
-        else
+        catch ( Exception e )
         {
-            executor.execute( new ResponseProcessor( response, THIS, commandProcessor, request ) );
+            LOG.error( "Error in processResponse", e );
         }
     }
 
@@ -202,7 +185,7 @@ class CommandProcess
         }
 
         status = CommandStatus.RUNNING;
-        executor = Executors.newSingleThreadExecutor();
+        executor = commandProcessor.newResponseExecutor();
     }
 
 
@@ -252,12 +235,33 @@ class CommandProcess
     }
 
 
+    /**
+     * Returns result to pass to callback along with the latest response. Final result is materialized, intermediate
+     * ones only capture current output length and build output strings if callback asks for them.
+     */
+    CommandResult getCallbackResult()
+    {
+        if ( isDone() )
+        {
+            return getResult();
+        }
+
+        return new PartialCommandResult( exitCode, stdOut, stdErr, status );
+    }
+
+
     boolean markAsSent()
     {
         return isSent.compareAndSet( false, true );
     }
 
 
+    void markAsNotSent()
+    {
+        isSent.set( false );
+    }
+
+
     boolean isSent()
     {
         return isSent.get();
@@ -1,11 +1,15 @@
 package io.subutai.core.executor.impl;
 
 
-import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -19,9 +23,9 @@ import org.slf4j.LoggerFactory;
 import org.apache.cxf.jaxrs.client.WebClient;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
-import io.subutai.common.cache.CacheEntry;
 import io.subutai.common.cache.ExpiringCache;
 import io.subutai.common.command.CommandCallback;
 import io.subutai.common.command.CommandException;
@@ -37,6 +41,7 @@ import io.subutai.common.settings.Common;
 import io.subutai.common.util.IPUtil;
 import io.subutai.common.util.JsonUtil;
 import io.subutai.common.util.RestUtil;
+import io.subutai.core.executor.api.PendingRequestsCallback;
 import io.subutai.core.executor.api.RestProcessor;
 import io.subutai.core.hostregistry.api.HostDisconnectedException;
 import io.subutai.core.hostregistry.api.HostRegistry;
@@ -52,11 +57,24 @@ public class CommandProcessor implements RestProcessor
     private static final Logger LOG = LoggerFactory.getLogger( CommandProcessor.class.getName() );
     private static final int NOTIFIER_INTERVAL_MS = 300;
     private static final int EXTRA_TIMEOUT_SEC = 60;
+    private static final int METRICS_INTERVAL_SEC = 60;
+    // agent which polled recently is about to poll again, no need to notify it
+    private static final long POLL_GRACE_MS = 2000;
     private final HostRegistry hostRegistry;
     private IdentityManager identityManager;
-    ExpiringCache<UUID, CommandProcess> commands = new ExpiringCache<>();
+    ExpiringCache<UUID, CommandProcess> commands = new ExpiringCache<>( "Commands" );
+    /**
+     * commands not yet picked up by agents, indexed by resource host id
+     */
+    ConcurrentMap<String, Queue<CommandProcess>> pendingCommands = new ConcurrentHashMap<>();
+    /**
+     * open requests of agents waiting for commands, indexed by resource host id
+     */
+    ConcurrentMap<String, PendingRequestsCallback> waitingAgents = new ConcurrentHashMap<>();
+    ConcurrentMap<String, Long> lastPollTimes = new ConcurrentHashMap<>();
     private ScheduledExecutorService notifier = Executors.newSingleThreadScheduledExecutor();
     ExecutorService notifierPool = Executors.newCachedThreadPool();
+    ResponseExecutor responseExecutor = new ResponseExecutor( ResponseExecutor.DEFAULT_POOL_SIZE );
     Set<HeartbeatListener> listeners = Collections.newSetFromMap( new ConcurrentHashMap<HeartbeatListener, Boolean>() );
 
     JsonUtil jsonUtil = new JsonUtil();
@@ -85,9 +103,20 @@ public class CommandProcessor implements RestProcessor
     {
         commands.dispose();
 
+        pendingCommands.clear();
+
+        for ( PendingRequestsCallback callback : waitingAgents.values() )
+        {
+            callback.onRequests( Collections.<String>emptySet() );
+        }
+
+        waitingAgents.clear();
+
         notifier.shutdown();
 
         notifierPool.shutdown();
+
+        responseExecutor.dispose();
     }
 
 
@@ -114,6 +143,37 @@ public class CommandProcessor implements RestProcessor
                 }
             }
         }, 0, NOTIFIER_INTERVAL_MS, TimeUnit.MILLISECONDS );
+
+        notifier.scheduleWithFixedDelay( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                logMetrics();
+            }
+        }, METRICS_INTERVAL_SEC, METRICS_INTERVAL_SEC, TimeUnit.SECONDS );
+    }
+
+
+    private void logMetrics()
+    {
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( String.format(
+                    "%s; response processing: threads %d, queued %d, processed %d, avg wait %.2f ms, avg time %.2f ms",
+                    commands.getMetrics(), responseExecutor.getPoolSize(), responseExecutor.getQueueDepth(),
+                    responseExecutor.getProcessedResponses(), responseExecutor.getAverageWaitMs(),
+                    responseExecutor.getAverageProcessingMs() ) );
+        }
+    }
+
+
+    /**
+     * Returns executor processing responses of a single command in order on the shared response pool
+     */
+    ExecutorService newResponseExecutor()
+    {
+        return responseExecutor.newSerialExecutor();
     }
 
 
@@ -200,6 +260,63 @@ public class CommandProcessor implements RestProcessor
 
             throw new CommandException( e );
         }
+
+        //queue command for the agent
+        queueCommand( resourceHostInfo.getId(), commandProcess );
+
+        //hand it over to the agent right away if it is waiting
+        if ( waitingAgents.containsKey( resourceHostInfo.getId() ) )
+        {
+            final String rhId = resourceHostInfo.getId();
+
+            notifierPool.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    deliverRequests( rhId );
+                }
+            } );
+        }
+    }
+
+
+    /**
+     * Adds command to the queue of the host. Empty queues are removed from the map after draining, so if the queue was
+     * removed concurrently the command is added again to the current one. A command which ends up in two queues is
+     * still sent once, because it is marked as sent when taken
+     */
+    void queueCommand( String rhId, CommandProcess commandProcess )
+    {
+        Queue<CommandProcess> queue;
+
+        do
+        {
+            queue = getPendingCommands( rhId );
+
+            queue.add( commandProcess );
+        }
+        while ( pendingCommands.get( rhId ) != queue );
+    }
+
+
+    Queue<CommandProcess> getPendingCommands( String rhId )
+    {
+        Queue<CommandProcess> queue = pendingCommands.get( rhId );
+
+        if ( queue == null )
+        {
+            Queue<CommandProcess> newQueue = new ConcurrentLinkedQueue<>();
+
+            queue = pendingCommands.putIfAbsent( rhId, newQueue );
+
+            if ( queue == null )
+            {
+                queue = newQueue;
+            }
+        }
+
+        return queue;
     }
 
 
@@ -219,37 +336,135 @@ public class CommandProcessor implements RestProcessor
     @Override
     public Set<String> getRequests( final String hostId )
     {
-        Set<String> hostRequests = Sets.newHashSet();
+        return getEncryptedRequests( takeCommands( hostId ) );
+    }
+
+
+    /**
+     * Takes unsent commands of the host from its queue and marks them as sent
+     */
+    private List<CommandProcess> takeCommands( final String hostId )
+    {
+        List<CommandProcess> hostCommands = Lists.newArrayList();
 
-        Collection<CacheEntry<CommandProcess>> commandProcessEntries = commands.getEntries().values();
+        Queue<CommandProcess> queue = pendingCommands.get( hostId );
 
-        for ( CacheEntry<CommandProcess> commandProcessEntry : commandProcessEntries )
+        if ( queue != null )
         {
-            CommandProcess commandProcess = commandProcessEntry.getValue();
+            CommandProcess commandProcess;
 
-            if ( commandProcess.getRhId().equals( hostId ) && commandProcess.markAsSent() )
+            while ( ( commandProcess = queue.poll() ) != null )
             {
-                hostRequests.add( commandProcess.getEncryptedRequest() );
+                if ( !commandProcess.isDone() && commandProcess.markAsSent() )
+                {
+                    hostCommands.add( commandProcess );
+                }
             }
+
+            removeIfEmpty( hostId, queue );
+        }
+
+        return hostCommands;
+    }
+
+
+    private Set<String> getEncryptedRequests( final List<CommandProcess> hostCommands )
+    {
+        Set<String> hostRequests = Sets.newHashSet();
+
+        for ( CommandProcess commandProcess : hostCommands )
+        {
+            hostRequests.add( commandProcess.getEncryptedRequest() );
         }
 
         return hostRequests;
     }
 
 
-    private void notifyAgents()
+    @Override
+    public void waitRequests( final String hostId, final PendingRequestsCallback callback )
+    {
+        Preconditions.checkNotNull( hostId );
+        Preconditions.checkNotNull( callback );
+
+        lastPollTimes.put( hostId, System.currentTimeMillis() );
+
+        PendingRequestsCallback previous = waitingAgents.put( hostId, callback );
+
+        if ( previous != null )
+        {
+            //one open request per agent, release the older one
+            previous.onRequests( Collections.<String>emptySet() );
+        }
+
+        Queue<CommandProcess> queue = pendingCommands.get( hostId );
+
+        //commands queued before the callback was registered
+        if ( queue != null && hasUnsentCommands( queue ) )
+        {
+            deliverRequests( hostId );
+        }
+    }
+
+
+    @Override
+    public boolean cancelWaitRequests( final String hostId, final PendingRequestsCallback callback )
     {
-        Collection<CacheEntry<CommandProcess>> commandProcessEntries = commands.getEntries().values();
+        lastPollTimes.put( hostId, System.currentTimeMillis() );
+
+        return waitingAgents.remove( hostId, callback );
+    }
+
 
-        Set<String> notifiedRhIds = Sets.newHashSet();
+    void deliverRequests( String hostId )
+    {
+        //whoever removes the callback owns it, so requests are passed to it only once
+        PendingRequestsCallback callback = waitingAgents.remove( hostId );
 
-        for ( CacheEntry<CommandProcess> commandProcessEntry : commandProcessEntries )
+        if ( callback != null )
         {
-            final CommandProcess commandProcess = commandProcessEntry.getValue();
+            lastPollTimes.put( hostId, System.currentTimeMillis() );
 
-            if ( !commandProcess.isSent() && !notifiedRhIds.contains( commandProcess.getRhId() ) )
+            List<CommandProcess> hostCommands = takeCommands( hostId );
+
+            if ( !callback.onRequests( getEncryptedRequests( hostCommands ) ) )
             {
-                notifiedRhIds.add( commandProcess.getRhId() );
+                //request of agent has already been answered, e.g. timed out, keep commands for its next request
+                for ( CommandProcess commandProcess : hostCommands )
+                {
+                    commandProcess.markAsNotSent();
+
+                    queueCommand( hostId, commandProcess );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Checks if agent of the host waits for commands or is expected to ask for them shortly
+     */
+    private boolean isPolling( String rhId )
+    {
+        Long lastPollTime = lastPollTimes.get( rhId );
+
+        return waitingAgents.containsKey( rhId )
+                || lastPollTime != null && System.currentTimeMillis() - lastPollTime < POLL_GRACE_MS;
+    }
+
+
+    private void notifyAgents()
+    {
+        for ( Map.Entry<String, Queue<CommandProcess>> pendingEntry : pendingCommands.entrySet() )
+        {
+            if ( !hasUnsentCommands( pendingEntry.getValue() ) )
+            {
+                removeIfEmpty( pendingEntry.getKey(), pendingEntry.getValue() );
+            }
+            //agents without long polling support are notified to fetch their commands
+            else if ( !isPolling( pendingEntry.getKey() ) )
+            {
+                final String rhId = pendingEntry.getKey();
 
                 notifierPool.execute( new Runnable()
                 {
@@ -258,7 +473,7 @@ public class CommandProcessor implements RestProcessor
                     {
                         try
                         {
-                            ResourceHostInfo resourceHostInfo = getResourceHostInfo( commandProcess.getRhId() );
+                            ResourceHostInfo resourceHostInfo = getResourceHostInfo( rhId );
 
                             notifyAgent( resourceHostInfo );
                         }
@@ -273,6 +488,37 @@ public class CommandProcessor implements RestProcessor
     }
 
 
+    private void removeIfEmpty( String rhId, Queue<CommandProcess> queue )
+    {
+        if ( queue.isEmpty() )
+        {
+            pendingCommands.remove( rhId, queue );
+        }
+    }
+
+
+    /**
+     * Drops already sent or finished (e.g. expired) commands from the head of the queue and checks if any unsent
+     * command remains
+     */
+    private boolean hasUnsentCommands( Queue<CommandProcess> queue )
+    {
+        CommandProcess commandProcess;
+
+        while ( ( commandProcess = queue.peek() ) != null )
+        {
+            if ( !commandProcess.isSent() && !commandProcess.isDone() )
+            {
+                return true;
+            }
+
+            queue.remove( commandProcess );
+        }
+
+        return false;
+    }
+
+
     void notifyAgent( ResourceHostInfo resourceHostInfo )
     {
         WebClient webClient = null;
@@ -351,27 +597,78 @@ public class CommandProcessor implements RestProcessor
         {
             Preconditions.checkNotNull( response );
 
-            CommandProcess commandProcess = commands.get( response.getCommandId() );
+            dispatchResponse( response );
 
-            if ( commandProcess != null )
+            //update rh timestamp
+            ResourceHostInfo resourceHostInfo = getResourceHostInfo( response.getId() );
+
+            hostRegistry.updateResourceHostEntryTimestamp( resourceHostInfo.getId() );
+        }
+        catch ( Exception e )
+        {
+            LOG.error( "Error processing response", e );
+        }
+    }
+
+
+    @Override
+    public void handleResponses( final List<? extends Response> responses )
+    {
+        Preconditions.checkNotNull( responses );
+
+        Set<String> hostIds = Sets.newLinkedHashSet();
+
+        for ( Response response : responses )
+        {
+            try
             {
-                LOG.debug( "Response: {}", response );
+                Preconditions.checkNotNull( response );
+
+                dispatchResponse( response );
 
-                commandProcess.processResponse( response );
+                hostIds.add( response.getId() );
             }
-            else
+            catch ( Exception e )
             {
-                LOG.warn( String.format( "Callback not found for response: %s", jsonUtil.to( response ) ) );
+                LOG.error( "Error processing response", e );
             }
+        }
 
-            //update rh timestamp
-            ResourceHostInfo resourceHostInfo = getResourceHostInfo( response.getId() );
+        //update timestamp of each rh once per batch
+        Set<String> resourceHostIds = Sets.newHashSet();
 
-            hostRegistry.updateResourceHostEntryTimestamp( resourceHostInfo.getId() );
+        for ( String hostId : hostIds )
+        {
+            try
+            {
+                ResourceHostInfo resourceHostInfo = getResourceHostInfo( hostId );
+
+                if ( resourceHostIds.add( resourceHostInfo.getId() ) )
+                {
+                    hostRegistry.updateResourceHostEntryTimestamp( resourceHostInfo.getId() );
+                }
+            }
+            catch ( Exception e )
+            {
+                LOG.error( "Error processing response", e );
+            }
         }
-        catch ( Exception e )
+    }
+
+
+    private void dispatchResponse( final Response response )
+    {
+        CommandProcess commandProcess = commands.get( response.getCommandId() );
+
+        if ( commandProcess != null )
         {
-            LOG.error( "Error processing response", e );
+            LOG.debug( "Response: {}", response );
+
+            commandProcess.processResponse( response );
+        }
+        else
+        {
+            LOG.warn( String.format( "Callback not found for response: %s", jsonUtil.to( response ) ) );
         }
     }
 
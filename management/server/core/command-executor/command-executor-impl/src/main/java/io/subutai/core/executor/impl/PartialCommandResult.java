@@ -0,0 +1,92 @@
+package io.subutai.core.executor.impl;
+
+
+import com.google.common.base.MoreObjects;
+
+import io.subutai.common.command.CommandResult;
+import io.subutai.common.command.CommandStatus;
+
+
+/**
+ * Command result passed to callbacks with intermediate responses. Captures only the current length of command output,
+ * the output itself is materialized when requested, so callbacks interested only in the latest response do not pay
+ * for copying the whole output accumulated so far.
+ */
+class PartialCommandResult implements CommandResult
+{
+    private final Integer exitCode;
+    private final CommandStatus status;
+    private final CommandOutput stdOut;
+    private final int stdOutLength;
+    private final CommandOutput stdErr;
+    private final int stdErrLength;
+
+
+    PartialCommandResult( final Integer exitCode, final CommandOutput stdOut, final CommandOutput stdErr,
+                          final CommandStatus status )
+    {
+        this.exitCode = exitCode;
+        this.status = status;
+        this.stdOut = stdOut;
+        this.stdOutLength = stdOut.length();
+        this.stdErr = stdErr;
+        this.stdErrLength = stdErr.length();
+    }
+
+
+    @Override
+    public Integer getExitCode()
+    {
+        return exitCode;
+    }
+
+
+    @Override
+    public String getStdOut()
+    {
+        return stdOut.toString( stdOutLength );
+    }
+
+
+    @Override
+    public String getStdErr()
+    {
+        return stdErr.toString( stdErrLength );
+    }
+
+
+    @Override
+    public boolean hasSucceeded()
+    {
+        return status == CommandStatus.SUCCEEDED;
+    }
+
+
+    @Override
+    public boolean hasCompleted()
+    {
+        return status == CommandStatus.FAILED || status == CommandStatus.SUCCEEDED;
+    }
+
+
+    @Override
+    public boolean hasTimedOut()
+    {
+        return status == CommandStatus.TIMEOUT || status == CommandStatus.KILLED;
+    }
+
+
+    @Override
+    public CommandStatus getStatus()
+    {
+        return status;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this ).add( "exitCode", exitCode ).add( "stdOut", getStdOut() )
+                          .add( "stdErr", getStdErr() ).add( "status", status ).toString();
+    }
+}
@@ -0,0 +1,302 @@
+package io.subutai.core.executor.impl;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * Shared pool processing command responses. Each command gets its own serial executor on top of the pool, so responses
+ * of a command are processed one at a time and in order, while the total number of threads stays bounded no matter
+ * how many commands are running.
+ */
+class ResponseExecutor
+{
+    private static final Logger LOG = LoggerFactory.getLogger( ResponseExecutor.class.getName() );
+
+    static final int DEFAULT_POOL_SIZE = 64;
+
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicInteger queuedResponses = new AtomicInteger();
+    private final AtomicLong processedResponses = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalProcessingNanos = new AtomicLong();
+
+
+    ResponseExecutor( final int poolSize )
+    {
+        Preconditions.checkArgument( poolSize > 0, "Pool size must be greater than 0" );
+
+        pool = new ThreadPoolExecutor( poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat( "command-response-%d" ).setDaemon( true ).build() );
+        pool.allowCoreThreadTimeOut( true );
+    }
+
+
+    /**
+     * Returns executor which runs submitted tasks sequentially in submission order on the shared pool
+     */
+    ExecutorService newSerialExecutor()
+    {
+        return new SerialExecutor();
+    }
+
+
+    /**
+     * Returns number of responses waiting to be processed
+     */
+    int getQueueDepth()
+    {
+        return queuedResponses.get();
+    }
+
+
+    long getProcessedResponses()
+    {
+        return processedResponses.get();
+    }
+
+
+    /**
+     * Returns average time in milliseconds a response waits in queue before processing starts
+     */
+    double getAverageWaitMs()
+    {
+        long processed = processedResponses.get();
+
+        return processed == 0 ? 0 : totalWaitNanos.get() / ( double ) processed / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+
+    /**
+     * Returns average time in milliseconds spent processing a response
+     */
+    double getAverageProcessingMs()
+    {
+        long processed = processedResponses.get();
+
+        return processed == 0 ? 0 :
+               totalProcessingNanos.get() / ( double ) processed / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+
+    int getPoolSize()
+    {
+        return pool.getPoolSize();
+    }
+
+
+    void dispose()
+    {
+        pool.shutdown();
+    }
+
+
+    /**
+     * Task with its submission timestamp
+     */
+    private static class QueuedTask
+    {
+        private final Runnable task;
+        private final long queuedAt = System.nanoTime();
+
+
+        QueuedTask( final Runnable task )
+        {
+            this.task = task;
+        }
+    }
+
+
+    /**
+     * Queues tasks of a single command and keeps at most one of them running on the shared pool at any time
+     */
+    private class SerialExecutor extends AbstractExecutorService
+    {
+        private final Queue<QueuedTask> tasks = new ArrayDeque<>();
+        private boolean running = false;
+        private boolean shutdown = false;
+
+
+        @Override
+        public void execute( final Runnable command )
+        {
+            Preconditions.checkNotNull( command );
+
+            synchronized ( tasks )
+            {
+                if ( shutdown )
+                {
+                    throw new RejectedExecutionException( "Executor is shut down" );
+                }
+
+                tasks.add( new QueuedTask( command ) );
+                queuedResponses.incrementAndGet();
+
+                if ( running )
+                {
+                    return;
+                }
+
+                running = true;
+            }
+
+            try
+            {
+                pool.execute( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        drain();
+                    }
+                } );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                synchronized ( tasks )
+                {
+                    queuedResponses.addAndGet( -tasks.size() );
+                    tasks.clear();
+                    running = false;
+                    tasks.notifyAll();
+                }
+
+                throw e;
+            }
+        }
+
+
+        private void drain()
+        {
+            while ( true )
+            {
+                QueuedTask queuedTask;
+
+                synchronized ( tasks )
+                {
+                    queuedTask = tasks.poll();
+
+                    if ( queuedTask == null )
+                    {
+                        running = false;
+                        tasks.notifyAll();
+                        return;
+                    }
+                }
+
+                queuedResponses.decrementAndGet();
+
+                long startedAt = System.nanoTime();
+                totalWaitNanos.addAndGet( startedAt - queuedTask.queuedAt );
+
+                try
+                {
+                    queuedTask.task.run();
+                }
+                catch ( Exception e )
+                {
+                    LOG.error( "Error processing response", e );
+                }
+                finally
+                {
+                    totalProcessingNanos.addAndGet( System.nanoTime() - startedAt );
+                    processedResponses.incrementAndGet();
+                }
+            }
+        }
+
+
+        @Override
+        public void shutdown()
+        {
+            synchronized ( tasks )
+            {
+                shutdown = true;
+            }
+        }
+
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            List<Runnable> discarded = new ArrayList<>();
+
+            synchronized ( tasks )
+            {
+                shutdown = true;
+
+                for ( QueuedTask queuedTask : tasks )
+                {
+                    discarded.add( queuedTask.task );
+                }
+
+                queuedResponses.addAndGet( -tasks.size() );
+                tasks.clear();
+            }
+
+            return discarded;
+        }
+
+
+        @Override
+        public boolean isShutdown()
+        {
+            synchronized ( tasks )
+            {
+                return shutdown;
+            }
+        }
+
+
+        @Override
+        public boolean isTerminated()
+        {
+            synchronized ( tasks )
+            {
+                return shutdown && !running;
+            }
+        }
+
+
+        @Override
+        public boolean awaitTermination( final long timeout, final TimeUnit unit ) throws InterruptedException
+        {
+            long deadline = System.nanoTime() + unit.toNanos( timeout );
+
+            synchronized ( tasks )
+            {
+                while ( !( shutdown && !running ) )
+                {
+                    long remaining = deadline - System.nanoTime();
+
+                    if ( remaining <= 0 )
+                    {
+                        return false;
+                    }
+
+                    TimeUnit.NANOSECONDS.timedWait( tasks, remaining );
+                }
+
+                return true;
+            }
+        }
+    }
+}
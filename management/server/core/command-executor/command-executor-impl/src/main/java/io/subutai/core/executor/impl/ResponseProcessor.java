@@ -1,6 +1,10 @@
 package io.subutai.core.executor.impl;
 
 
+import java.security.PrivilegedAction;
+
+import javax.security.auth.Subject;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,10 +25,22 @@ public class ResponseProcessor implements Runnable
     private CommandProcess process;
     private CommandProcessor processor;
     private Request request;
+    private Subject subject;
 
 
     public ResponseProcessor( final Response response, final CommandProcess process, final CommandProcessor processor,
                               final Request request )
+    {
+        this( response, process, processor, request, null );
+    }
+
+
+    /**
+     * @param subject - subject on behalf of which the response is processed, since processing threads are shared among
+     * commands of different users
+     */
+    public ResponseProcessor( final Response response, final CommandProcess process, final CommandProcessor processor,
+                              final Request request, final Subject subject )
     {
         Preconditions.checkNotNull( response );
         Preconditions.checkNotNull( process );
@@ -34,17 +50,39 @@ public class ResponseProcessor implements Runnable
         this.process = process;
         this.processor = processor;
         this.request = request;
+        this.subject = subject;
     }
 
 
     @Override
     public void run()
+    {
+        if ( subject != null )
+        {
+            Subject.doAs( subject, new PrivilegedAction<Void>()
+            {
+                @Override
+                public Void run()
+                {
+                    process();
+                    return null;
+                }
+            } );
+        }
+        else
+        {
+            process();
+        }
+    }
+
+
+    private void process()
     {
         process.appendResponse( response );
 
         try
         {
-            process.getCallback().onResponse( response, process.getResult() );
+            process.getCallback().onResponse( response, process.getCallbackResult() );
 
             if ( process.isDone() )
             {
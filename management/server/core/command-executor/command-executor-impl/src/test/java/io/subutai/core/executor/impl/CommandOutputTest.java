@@ -0,0 +1,64 @@
+package io.subutai.core.executor.impl;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+
+public class CommandOutputTest
+{
+    private CommandOutput commandOutput;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        commandOutput = new CommandOutput( "test", 10 );
+    }
+
+
+    @Test
+    public void testAppend() throws Exception
+    {
+        commandOutput.append( "abc" );
+        commandOutput.append( null );
+        commandOutput.append( "def" );
+
+        assertEquals( 6, commandOutput.length() );
+        assertEquals( "abcdef", commandOutput.toString() );
+        assertFalse( commandOutput.isTruncated() );
+    }
+
+
+    @Test
+    public void testSnapshot() throws Exception
+    {
+        commandOutput.append( "abc" );
+        int snapshot = commandOutput.length();
+        commandOutput.append( "def" );
+
+        assertEquals( "abc", commandOutput.toString( snapshot ) );
+        assertEquals( "abcdef", commandOutput.toString() );
+        assertEquals( "abc", commandOutput.toString( snapshot ) );
+
+        commandOutput.append( "gh" );
+
+        assertEquals( "abcdefgh", commandOutput.toString() );
+    }
+
+
+    @Test
+    public void testTruncate() throws Exception
+    {
+        commandOutput.append( "abcdef" );
+        commandOutput.append( "ghijkl" );
+        commandOutput.append( "mn" );
+
+        assertTrue( commandOutput.isTruncated() );
+        assertEquals( "abcdefghij", commandOutput.toString() );
+    }
+}
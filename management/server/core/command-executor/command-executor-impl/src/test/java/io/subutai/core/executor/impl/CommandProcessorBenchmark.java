@@ -0,0 +1,141 @@
+package io.subutai.core.executor.impl;
+
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.subutai.common.command.CommandException;
+import io.subutai.common.command.Request;
+import io.subutai.core.hostregistry.api.HostRegistry;
+import io.subutai.core.identity.api.IdentityManager;
+
+import static org.mockito.Mockito.mock;
+
+
+/**
+ * Models many resource hosts polling {@code CommandProcessor} for requests concurrently while lots of commands are in
+ * flight. Run with {@code main} from the test classpath.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@Threads( 16 )
+public class CommandProcessorBenchmark
+{
+    private static final long TTL_MS = TimeUnit.HOURS.toMillis( 1 );
+
+    @Param( { "100", "500" } )
+    int resourceHosts;
+
+    @Param( { "10000" } )
+    int inFlightCommands;
+
+    private CommandProcessor commandProcessor;
+    private Request request;
+    private String[] rhIds;
+
+
+    @Setup
+    public void setUp() throws CommandException
+    {
+        commandProcessor = new CommandProcessor( mock( HostRegistry.class ), mock( IdentityManager.class ) );
+        request = mock( Request.class );
+
+        rhIds = new String[resourceHosts];
+        for ( int i = 0; i < resourceHosts; i++ )
+        {
+            rhIds[i] = UUID.randomUUID().toString();
+        }
+
+        //commands already delivered to agents and waiting for responses
+        for ( int i = 0; i < inFlightCommands; i++ )
+        {
+            CommandProcess commandProcess = createCommandProcess( rhIds[i % resourceHosts] );
+            commandProcess.markAsSent();
+            commandProcessor.commands.put( UUID.randomUUID(), commandProcess, TTL_MS );
+        }
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        commandProcessor.dispose();
+    }
+
+
+    /**
+     * Agent poll when there is no new work for the host, the most common case
+     */
+    @Benchmark
+    public Set<String> idlePoll()
+    {
+        return commandProcessor.getRequests( rhIds[ThreadLocalRandom.current().nextInt( resourceHosts )] );
+    }
+
+
+    /**
+     * Agent poll picking up a single freshly queued command
+     */
+    @Benchmark
+    public Set<String> pollQueuedCommand() throws CommandException
+    {
+        String rhId = rhIds[ThreadLocalRandom.current().nextInt( resourceHosts )];
+        UUID commandId = UUID.randomUUID();
+
+        CommandProcess commandProcess = createCommandProcess( rhId );
+        commandProcessor.commands.put( commandId, commandProcess, TTL_MS );
+        commandProcessor.getPendingCommands( rhId ).add( commandProcess );
+
+        Set<String> requests = commandProcessor.getRequests( rhId );
+
+        commandProcessor.commands.remove( commandId );
+
+        return requests;
+    }
+
+
+    private CommandProcess createCommandProcess( final String rhId ) throws CommandException
+    {
+        CommandProcess commandProcess = new CommandProcess( commandProcessor, new DummyCallback(), request, rhId, null )
+        {
+            @Override
+            protected String encrypt( final Request request )
+            {
+                return rhId;
+            }
+        };
+
+        commandProcess.start();
+
+        return commandProcess;
+    }
+
+
+    public static void main( String[] args ) throws RunnerException
+    {
+        new Runner( new OptionsBuilder().include( CommandProcessorBenchmark.class.getSimpleName() ).build() ).run();
+    }
+}
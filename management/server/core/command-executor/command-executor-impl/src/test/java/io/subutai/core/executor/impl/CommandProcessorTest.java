@@ -11,11 +11,13 @@ import javax.ws.rs.core.Response;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import org.apache.cxf.jaxrs.client.WebClient;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import io.subutai.common.cache.ExpiringCache;
@@ -28,6 +30,7 @@ import io.subutai.common.host.HeartbeatListener;
 import io.subutai.common.host.ResourceHostInfo;
 import io.subutai.common.util.IPUtil;
 import io.subutai.common.util.JsonUtil;
+import io.subutai.core.executor.api.PendingRequestsCallback;
 import io.subutai.core.hostregistry.api.HostDisconnectedException;
 import io.subutai.core.hostregistry.api.HostRegistry;
 import io.subutai.core.identity.api.IdentityManager;
@@ -35,14 +38,19 @@ import io.subutai.core.identity.api.model.Session;
 import io.subutai.core.identity.api.model.User;
 import io.subutai.core.security.api.SecurityManager;
 
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -236,6 +244,90 @@ public class CommandProcessorTest
         Set<String> requests = commandProcessor.getRequests( HOST_ID );
 
         assertNotNull( requests );
+
+        doReturn( "REQUEST" ).when( commandProcess ).getEncryptedRequest();
+        doReturn( true ).when( commandProcess ).markAsSent();
+        commandProcessor.getPendingCommands( HOST_ID ).add( commandProcess );
+
+        requests = commandProcessor.getRequests( HOST_ID );
+
+        assertTrue( requests.contains( "REQUEST" ) );
+        assertTrue( commandProcessor.getRequests( HOST_ID ).isEmpty() );
+        assertFalse( commandProcessor.pendingCommands.containsKey( HOST_ID ) );
+    }
+
+
+    @Test
+    public void testWaitRequests() throws Exception
+    {
+        PendingRequestsCallback pendingRequestsCallback = mock( PendingRequestsCallback.class );
+        doReturn( true ).when( pendingRequestsCallback ).onRequests( anySetOf( String.class ) );
+
+        commandProcessor.waitRequests( HOST_ID, pendingRequestsCallback );
+
+        verify( pendingRequestsCallback, never() ).onRequests( anySetOf( String.class ) );
+
+        doReturn( "REQUEST" ).when( commandProcess ).getEncryptedRequest();
+        doReturn( true ).when( commandProcess ).markAsSent();
+        commandProcessor.getPendingCommands( HOST_ID ).add( commandProcess );
+
+        commandProcessor.deliverRequests( HOST_ID );
+
+        verify( pendingRequestsCallback ).onRequests( Sets.newHashSet( "REQUEST" ) );
+        assertFalse( commandProcessor.cancelWaitRequests( HOST_ID, pendingRequestsCallback ) );
+    }
+
+
+    @Test
+    public void testWaitRequestsWithPendingCommands() throws Exception
+    {
+        PendingRequestsCallback pendingRequestsCallback = mock( PendingRequestsCallback.class );
+        doReturn( true ).when( pendingRequestsCallback ).onRequests( anySetOf( String.class ) );
+        doReturn( "REQUEST" ).when( commandProcess ).getEncryptedRequest();
+        doReturn( true ).when( commandProcess ).markAsSent();
+        commandProcessor.getPendingCommands( HOST_ID ).add( commandProcess );
+
+        commandProcessor.waitRequests( HOST_ID, pendingRequestsCallback );
+
+        verify( pendingRequestsCallback ).onRequests( Sets.newHashSet( "REQUEST" ) );
+        verify( commandProcess, never() ).markAsNotSent();
+    }
+
+
+    @Test
+    public void testDeliverRequestsToAnsweredAgent() throws Exception
+    {
+        PendingRequestsCallback pendingRequestsCallback = mock( PendingRequestsCallback.class );
+        doReturn( false ).when( pendingRequestsCallback ).onRequests( anySetOf( String.class ) );
+        doReturn( "REQUEST" ).when( commandProcess ).getEncryptedRequest();
+        doReturn( true ).when( commandProcess ).markAsSent();
+
+        commandProcessor.waitRequests( HOST_ID, pendingRequestsCallback );
+        commandProcessor.getPendingCommands( HOST_ID ).add( commandProcess );
+
+        commandProcessor.deliverRequests( HOST_ID );
+
+        verify( pendingRequestsCallback ).onRequests( Sets.newHashSet( "REQUEST" ) );
+        verify( commandProcess ).markAsNotSent();
+        assertTrue( commandProcessor.pendingCommands.get( HOST_ID ).contains( commandProcess ) );
+
+        //next request of agent gets the command
+        assertTrue( commandProcessor.getRequests( HOST_ID ).contains( "REQUEST" ) );
+    }
+
+
+    @Test
+    public void testCancelWaitRequests() throws Exception
+    {
+        PendingRequestsCallback pendingRequestsCallback = mock( PendingRequestsCallback.class );
+
+        commandProcessor.waitRequests( HOST_ID, pendingRequestsCallback );
+
+        assertTrue( commandProcessor.cancelWaitRequests( HOST_ID, pendingRequestsCallback ) );
+
+        commandProcessor.deliverRequests( HOST_ID );
+
+        verify( pendingRequestsCallback, never() ).onRequests( anySetOf( String.class ) );
     }
 
 
@@ -285,4 +377,23 @@ public class CommandProcessorTest
 
         verify( hostRegistry, times( 2 ) ).updateResourceHostEntryTimestamp( anyString() );
     }
+
+
+    @Test
+    public void testHandleResponses() throws Exception
+    {
+        io.subutai.common.command.Response response = mock( io.subutai.common.command.Response.class );
+        io.subutai.common.command.Response response2 = mock( io.subutai.common.command.Response.class );
+        doReturn( resourceHostInfo ).when( commandProcessor ).getResourceHostInfo( anyString() );
+        doReturn( process ).when( commands ).get( anyString() );
+        doReturn( HOST_ID ).when( response ).getId();
+        doReturn( HOST_ID ).when( response2 ).getId();
+
+        commandProcessor.handleResponses( Lists.newArrayList( response, response2 ) );
+
+        InOrder inOrder = inOrder( process );
+        inOrder.verify( process ).processResponse( response );
+        inOrder.verify( process ).processResponse( response2 );
+        verify( hostRegistry ).updateResourceHostEntryTimestamp( anyString() );
+    }
 }
@@ -0,0 +1,92 @@
+package io.subutai.core.executor.impl;
+
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+
+public class ResponseExecutorTest
+{
+    private static final int POOL_SIZE = 2;
+    private static final int COMMANDS = 10;
+    private static final int RESPONSES = 100;
+
+    private ResponseExecutor responseExecutor;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        responseExecutor = new ResponseExecutor( POOL_SIZE );
+    }
+
+
+    @After
+    public void tearDown() throws Exception
+    {
+        responseExecutor.dispose();
+    }
+
+
+    @Test
+    public void testOrderPerCommand() throws Exception
+    {
+        List<ExecutorService> executors = Lists.newArrayList();
+        List<List<Integer>> results = Lists.newArrayList();
+
+        for ( int i = 0; i < COMMANDS; i++ )
+        {
+            executors.add( responseExecutor.newSerialExecutor() );
+            results.add( new CopyOnWriteArrayList<Integer>() );
+        }
+
+        for ( int j = 0; j < RESPONSES; j++ )
+        {
+            for ( int i = 0; i < COMMANDS; i++ )
+            {
+                final List<Integer> result = results.get( i );
+                final int responseNumber = j;
+
+                executors.get( i ).execute( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        result.add( responseNumber );
+                    }
+                } );
+            }
+        }
+
+        for ( ExecutorService executor : executors )
+        {
+            executor.shutdown();
+            assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+        }
+
+        for ( List<Integer> result : results )
+        {
+            assertEquals( RESPONSES, result.size() );
+
+            for ( int j = 0; j < RESPONSES; j++ )
+            {
+                assertEquals( j, result.get( j ).intValue() );
+            }
+        }
+
+        assertEquals( COMMANDS * RESPONSES, responseExecutor.getProcessedResponses() );
+        assertEquals( 0, responseExecutor.getQueueDepth() );
+        assertTrue( responseExecutor.getPoolSize() <= POOL_SIZE );
+    }
+}
@@ -39,7 +39,7 @@ public class RestServiceImpl implements RestService
     private EnvironmentManager environmentManager;
     private IdentityManager identityManager;
     private LocalPeer localPeer;
-    private ExpiringCache<String, CommandResult> resultCache = new ExpiringCache<>();
+    private ExpiringCache<String, CommandResult> resultCache = new ExpiringCache<>( "CommandResults" );
 
 
     public RestServiceImpl( final EnvironmentManager environmentManager, final IdentityManager identityManager,
@@ -117,7 +117,7 @@ public class RestServiceImpl implements RestService
 
             if ( result != null )
             {
-                return Response.ok().entity( JsonUtil.toJson( result ) ).build();
+                return Response.ok().entity( JsonUtil.toJson( new CommandResultImpl( result ) ) ).build();
             }
             else
             {
@@ -8,6 +8,8 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -25,11 +27,21 @@ public interface RestService
     @Consumes( { MediaType.APPLICATION_FORM_URLENCODED } )
     Response processResponse( @FormParam( "response" ) String response );
 
+    @POST
+    @Path( "responses" )
+    @Consumes( { MediaType.APPLICATION_FORM_URLENCODED } )
+    Response processResponses( @FormParam( "responses" ) String responses );
+
     @GET
     @Path( "requests/{hostId}" )
     @Produces( { MediaType.APPLICATION_JSON } )
     Response getRequests( @PathParam( "hostId" ) String hostId );
 
+    @GET
+    @Path( "requests/{hostId}/wait" )
+    @Produces( { MediaType.APPLICATION_JSON } )
+    void waitRequests( @PathParam( "hostId" ) String hostId, @Suspended AsyncResponse asyncResponse );
+
     @GET
     @Path( "check/{hostId}" )
     Response check( @PathParam( "hostId" ) String hostId );
@@ -1,9 +1,13 @@
 package io.subutai.core.executor.rest;
 
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
 import javax.ws.rs.core.Response;
 
 import org.bouncycastle.openpgp.PGPException;
@@ -11,12 +15,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 import io.subutai.common.command.ResponseImpl;
 import io.subutai.common.command.ResponseWrapper;
 import io.subutai.common.host.HeartBeat;
 import io.subutai.common.util.CollectionUtil;
 import io.subutai.common.util.JsonUtil;
+import io.subutai.core.executor.api.PendingRequestsCallback;
 import io.subutai.core.executor.api.RestProcessor;
 import io.subutai.core.security.api.SecurityManager;
 
@@ -26,6 +32,8 @@ public class RestServiceImpl implements RestService
     private final static String INVALID_RESPONSE = "Invalid response";
     private final static String INVALID_HEARTBEAT = "Invalid heartbeat";
     private static final Logger LOG = LoggerFactory.getLogger( RestServiceImpl.class.getName() );
+    private static final long WAIT_REQUESTS_TIMEOUT_SEC = 30;
+    private static final long WAIT_REQUESTS_GRACE_SEC = 5;
     private final SecurityManager securityManager;
     private final RestProcessor restProcessor;
 
@@ -108,26 +116,58 @@ public class RestServiceImpl implements RestService
     }
 
 
-    @RolesAllowed( "Resource-Management|Read" )
+    /**
+     * Accepts array of responses encrypted as a whole, so a batch costs one decryption and verification
+     */
+    @RolesAllowed( "Resource-Management|Write" )
     @Override
-    public Response getRequests( String hostId )
+    public Response processResponses( final String responses )
     {
         try
         {
-            Set<String> hostRequests = restProcessor.getRequests( hostId );
+            Preconditions.checkArgument( responses != null && !responses.trim().isEmpty(), INVALID_RESPONSE );
 
-            if ( CollectionUtil.isCollectionEmpty( hostRequests ) )
-            {
-                LOG.debug( String.format( "Requested commands for RH %s. No requests", hostId ) );
+            String decryptedResponses = decrypt( responses );
 
-                return Response.noContent().build();
-            }
-            else
+            Preconditions.checkArgument( decryptedResponses != null && !decryptedResponses.trim().isEmpty(),
+                    INVALID_RESPONSE );
+
+            ResponseWrapper[] responseWrappers = JsonUtil.fromJson( decryptedResponses, ResponseWrapper[].class );
+
+            Preconditions.checkNotNull( responseWrappers, INVALID_RESPONSE );
+
+            List<ResponseImpl> responseList = Lists.newArrayListWithCapacity( responseWrappers.length );
+
+            for ( ResponseWrapper responseWrapper : responseWrappers )
             {
-                LOG.debug( String.format( "Requested commands for RH %s. %d requests", hostId, hostRequests.size() ) );
+                Preconditions.checkNotNull( responseWrapper, INVALID_RESPONSE );
+
+                Preconditions.checkNotNull( responseWrapper.getResponse(), INVALID_RESPONSE );
 
-                return Response.ok( hostRequests.toString() ).build();
+                responseList.add( responseWrapper.getResponse() );
             }
+
+            restProcessor.handleResponses( responseList );
+
+            return Response.accepted().build();
+        }
+        catch ( Exception e )
+        {
+            LOG.error( "Error processing command responses from agent: {}", e.getMessage() );
+
+            return Response.status( Response.Status.INTERNAL_SERVER_ERROR ).
+                    entity( e.getMessage() ).build();
+        }
+    }
+
+
+    @RolesAllowed( "Resource-Management|Read" )
+    @Override
+    public Response getRequests( String hostId )
+    {
+        try
+        {
+            return buildRequestsResponse( hostId, restProcessor.getRequests( hostId ) );
         }
         catch ( Exception e )
         {
@@ -139,6 +179,74 @@ public class RestServiceImpl implements RestService
     }
 
 
+    /**
+     * Holds request of agent until a command is queued for its host or until timeout, when agent should ask again
+     */
+    @RolesAllowed( "Resource-Management|Read" )
+    @Override
+    public void waitRequests( final String hostId, final AsyncResponse asyncResponse )
+    {
+        final PendingRequestsCallback callback = new PendingRequestsCallback()
+        {
+            @Override
+            public boolean onRequests( final Set<String> requests )
+            {
+                return asyncResponse.resume( buildRequestsResponse( hostId, requests ) );
+            }
+        };
+
+        asyncResponse.setTimeoutHandler( new TimeoutHandler()
+        {
+            @Override
+            public void handleTimeout( final AsyncResponse response )
+            {
+                if ( restProcessor.cancelWaitRequests( hostId, callback ) )
+                {
+                    response.resume( Response.noContent().build() );
+                }
+                else
+                {
+                    //requests are being passed to the callback
+                    response.setTimeout( WAIT_REQUESTS_GRACE_SEC, TimeUnit.SECONDS );
+                }
+            }
+        } );
+
+        asyncResponse.setTimeout( WAIT_REQUESTS_TIMEOUT_SEC, TimeUnit.SECONDS );
+
+        try
+        {
+            restProcessor.waitRequests( hostId, callback );
+        }
+        catch ( Exception e )
+        {
+            LOG.error( "Error feeding commands to agent", e );
+
+            restProcessor.cancelWaitRequests( hostId, callback );
+
+            asyncResponse.resume( Response.status( Response.Status.INTERNAL_SERVER_ERROR ).
+                    entity( e.getMessage() ).build() );
+        }
+    }
+
+
+    private Response buildRequestsResponse( String hostId, Set<String> hostRequests )
+    {
+        if ( CollectionUtil.isCollectionEmpty( hostRequests ) )
+        {
+            LOG.debug( String.format( "Requested commands for RH %s. No requests", hostId ) );
+
+            return Response.noContent().build();
+        }
+        else
+        {
+            LOG.debug( String.format( "Requested commands for RH %s. %d requests", hostId, hostRequests.size() ) );
+
+            return Response.ok( hostRequests.toString() ).build();
+        }
+    }
+
+
     @RolesAllowed( "Resource-Management|Read" )
     @Override
     public Response check( final String hostId )
@@ -17,6 +17,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import javax.security.auth.Subject;
 import javax.ws.rs.WebApplicationException;
@@ -33,6 +34,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 
 import io.subutai.bazaar.share.common.BazaaarAdapter;
 import io.subutai.bazaar.share.common.BazaarEventListener;
@@ -149,6 +151,7 @@ public class EnvironmentManagerImpl extends HostListener
     private static final String REMOTE_OWNER_NAME = "remote";
     private static final String UKNOWN_OWNER_NAME = "unknown";
     private static final long CONTAINER_DISK_USAGE_CHECK_INTERVAL_MIN = 6 * 60; // 6 hrs
+    private static final int ENVIRONMENT_LOCK_STRIPES = 64;
 
     private final IdentityManager identityManager;
     private final RelationManager relationManager;
@@ -166,6 +169,9 @@ public class EnvironmentManagerImpl extends HostListener
     private SystemManager systemManager;
     private EnvironmentAdapter environmentAdapter;
     private EnvironmentService environmentService;
+    private EnvironmentUploadQueue environmentUploadQueue;
+    // guards persisting of one environment, updates of different environments do not wait for each other
+    private final Striped<Lock> environmentLocks = Striped.lock( ENVIRONMENT_LOCK_STRIPES );
     protected JsonUtil jsonUtil = new JsonUtil();
     protected PGPKeyUtil pgpKeyUtil = new PGPKeyUtil();
     private volatile long lastP2pSecretKeyResetTs = 0L;
@@ -211,6 +217,8 @@ public class EnvironmentManagerImpl extends HostListener
 
         environmentAdapter = getEnvironmentAdapter( bazaaarAdapter );
 
+        environmentUploadQueue = new EnvironmentUploadQueue( this, environmentAdapter, getSingleThreadExecutor() );
+
         this.environmentService = environmentService;
     }
 
@@ -227,6 +235,12 @@ public class EnvironmentManagerImpl extends HostListener
     }
 
 
+    protected ExecutorService getSingleThreadExecutor()
+    {
+        return Executors.newSingleThreadExecutor();
+    }
+
+
     protected EnvironmentAdapter getEnvironmentAdapter( BazaaarAdapter bazaaarAdapter )
     {
         return new EnvironmentAdapter( this, peerManager, bazaaarAdapter, identityManager );
@@ -244,6 +258,7 @@ public class EnvironmentManagerImpl extends HostListener
     {
         executor.shutdown();
         backgroundTasksExecutorService.shutdown();
+        environmentUploadQueue.dispose();
 
         for ( CancellableWorkflow cancellableWorkflow : activeWorkflows.values() )
         {
@@ -1675,7 +1690,7 @@ public class EnvironmentManagerImpl extends HostListener
     }
 
 
-    public synchronized LocalEnvironment update( LocalEnvironment environment )
+    public LocalEnvironment update( LocalEnvironment environment )
     {
         if ( environment instanceof BazaarEnvironment )
         {
@@ -1683,25 +1698,69 @@ public class EnvironmentManagerImpl extends HostListener
             return environment;
         }
 
-        environment = environmentService.merge( environment );
-
-        setTransientFields( Sets.<Environment>newHashSet( environment ) );
+        Lock lock = environmentLocks.get( environment.getId() );
 
-        boolean uploaded = environmentAdapter.uploadEnvironment( environment );
+        lock.lock();
 
-        if ( !uploaded )
+        try
         {
-            environment.markAsNotUploaded();
-
             environment = environmentService.merge( environment );
 
             setTransientFields( Sets.<Environment>newHashSet( environment ) );
         }
+        finally
+        {
+            lock.unlock();
+        }
+
+        environmentUploadQueue.enqueue( environment );
 
         return environment;
     }
 
 
+    Lock getEnvironmentLock( final String environmentId )
+    {
+        return environmentLocks.get( environmentId );
+    }
+
+
+    /**
+     * Called by upload queue when environment could not be uploaded to Bazaar
+     */
+    void markAsNotUploaded( final String environmentId )
+    {
+        Lock lock = environmentLocks.get( environmentId );
+
+        lock.lock();
+
+        try
+        {
+            LocalEnvironment environment = environmentService.find( environmentId );
+
+            if ( environment != null && environment.isUploaded() )
+            {
+                environment.markAsNotUploaded();
+
+                environmentService.merge( environment );
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns number of environments waiting for upload to Bazaar
+     */
+    public int getPendingEnvironmentUploadsCount()
+    {
+        return environmentUploadQueue.size();
+    }
+
+
     public void remove( final LocalEnvironment environment )
     {
         if ( !environmentAdapter.isRegisteredWithBazaar() || environmentAdapter.removeEnvironment( environment ) )
@@ -1717,19 +1776,30 @@ public class EnvironmentManagerImpl extends HostListener
     }
 
 
-    public synchronized EnvironmentContainerImpl update( final EnvironmentContainerImpl container )
+    public EnvironmentContainerImpl update( final EnvironmentContainerImpl container )
     {
         Environment environment = container.getEnvironment();
 
-        EnvironmentContainerImpl envContainer = environmentService.mergeContainer( container );
+        Lock lock = environmentLocks.get( environment.getId() );
 
-        envContainer.setEnvironmentManager( this );
+        lock.lock();
+
+        try
+        {
+            EnvironmentContainerImpl envContainer = environmentService.mergeContainer( container );
 
-        //update cache
-        ( ( LocalEnvironment ) environment ).removeContainer( envContainer );
-        ( ( LocalEnvironment ) environment ).addContainers( Sets.newHashSet( envContainer ) );
+            envContainer.setEnvironmentManager( this );
 
-        return envContainer;
+            //update cache
+            ( ( LocalEnvironment ) environment ).removeContainer( envContainer );
+            ( ( LocalEnvironment ) environment ).addContainers( Sets.newHashSet( envContainer ) );
+
+            return envContainer;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -2249,6 +2319,8 @@ public class EnvironmentManagerImpl extends HostListener
 
             checkContainerDiskUsage();
 
+            LOG.debug( "Environments waiting for upload to Bazaar: {}", getPendingEnvironmentUploadsCount() );
+
             LOG.debug( "Environment background tasks finished." );
         }
     }
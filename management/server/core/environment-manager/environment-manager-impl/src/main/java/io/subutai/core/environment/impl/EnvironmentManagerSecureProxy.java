@@ -3,7 +3,9 @@ package io.subutai.core.environment.impl;
 
 import java.security.AccessControlException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -184,17 +186,28 @@ public class EnvironmentManagerSecureProxy extends HostListener
     }
 
 
+    /**
+     * Removes targets the source has no relation to. All targets are checked in one walk over relations
+     */
     protected void check( RelationLink source, Collection<? extends RelationLink> targets, Map<String, String> traits )
     {
+        RelationInfoMeta meta = new RelationInfoMeta();
+        meta.setRelationTraits( traits );
+        RelationInfoManager relationInfoManager = relationManager.getRelationInfoManager();
 
-        for ( Iterator<?> it = targets.iterator(); it.hasNext(); )
+        List<? extends RelationLink> permitted = relationInfoManager.filterPermitted( source, targets, meta );
+
+        if ( permitted.size() == targets.size() )
         {
-            RelationLink target = ( RelationLink ) it.next();
-            try
-            {
-                check( source, target, traits );
-            }
-            catch ( RelationVerificationException ex )
+            return;
+        }
+
+        Set<RelationLink> permittedTargets = Collections.newSetFromMap( new IdentityHashMap<RelationLink, Boolean>() );
+        permittedTargets.addAll( permitted );
+
+        for ( Iterator<? extends RelationLink> it = targets.iterator(); it.hasNext(); )
+        {
+            if ( !permittedTargets.contains( it.next() ) )
             {
                 it.remove();
             }
@@ -0,0 +1,129 @@
+package io.subutai.core.environment.impl;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.subutai.core.environment.impl.adapter.EnvironmentAdapter;
+import io.subutai.core.environment.impl.entity.LocalEnvironment;
+
+
+/**
+ * Uploads environments to Bazaar in background. Waiting environments are keyed by id, so an environment updated
+ * several times before its upload started is uploaded once, in its latest state.
+ */
+class EnvironmentUploadQueue
+{
+    private static final Logger LOG = LoggerFactory.getLogger( EnvironmentUploadQueue.class );
+
+    private final EnvironmentManagerImpl environmentManager;
+    private final EnvironmentAdapter environmentAdapter;
+    // single thread, so uploads of the same environment do not overtake each other
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, LocalEnvironment> pending = new ConcurrentHashMap<>();
+
+
+    EnvironmentUploadQueue( final EnvironmentManagerImpl environmentManager,
+                            final EnvironmentAdapter environmentAdapter, final ExecutorService executor )
+    {
+        this.environmentManager = environmentManager;
+        this.environmentAdapter = environmentAdapter;
+        this.executor = executor;
+    }
+
+
+    void enqueue( final LocalEnvironment environment )
+    {
+        final String environmentId = environment.getId();
+
+        if ( pending.put( environmentId, environment ) == null )
+        {
+            executor.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    upload( environmentId );
+                }
+            } );
+        }
+    }
+
+
+    void upload( final String environmentId )
+    {
+        LocalEnvironment environment = pending.remove( environmentId );
+
+        if ( environment == null )
+        {
+            return;
+        }
+
+        try
+        {
+            String envJson = null;
+
+            if ( environmentAdapter.canWorkWithBazaar() )
+            {
+                // environment is shared with workflows, serialize it under its lock and post outside of it
+                Lock lock = environmentManager.getEnvironmentLock( environmentId );
+
+                lock.lock();
+
+                try
+                {
+                    envJson = environmentAdapter.getUploadJson( environment );
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+
+            if ( envJson == null || !environmentAdapter.uploadEnvironment( envJson ) )
+            {
+                markAsNotUploaded( environment );
+            }
+        }
+        catch ( Exception e )
+        {
+            LOG.error( "Error uploading environment {} to Bazaar: {}", environmentId, e.getMessage() );
+        }
+    }
+
+
+    private void markAsNotUploaded( final LocalEnvironment environment )
+    {
+        Lock lock = environmentManager.getEnvironmentLock( environment.getId() );
+
+        lock.lock();
+
+        try
+        {
+            environment.markAsNotUploaded();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        environmentManager.markAsNotUploaded( environment.getId() );
+    }
+
+
+    int size()
+    {
+        return pending.size();
+    }
+
+
+    void dispose()
+    {
+        executor.shutdown();
+    }
+}
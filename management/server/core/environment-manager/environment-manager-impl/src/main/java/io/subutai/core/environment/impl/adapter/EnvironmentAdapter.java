@@ -247,16 +247,14 @@ public class EnvironmentAdapter
     }
 
 
-    public boolean uploadEnvironment( LocalEnvironment env )
+    /**
+     * Returns json of environment to upload to Bazaar or null if environment can not be uploaded
+     */
+    public String getUploadJson( LocalEnvironment env )
     {
-        if ( !canWorkWithBazaar() )
-        {
-            return false;
-        }
-
         if ( env.getStatus() != EnvironmentStatus.HEALTHY )
         {
-            return false;
+            return null;
         }
 
         try
@@ -267,7 +265,25 @@ public class EnvironmentAdapter
 
             environmentContainersToJson( env, envJson );
 
-            bazaaarAdapter.uploadEnvironment( envJson.toString() );
+            return envJson.toString();
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Error to prepare local environment for Bazaar: ", e );
+
+            return null;
+        }
+    }
+
+
+    /**
+     * Uploads environment json obtained by {@link #getUploadJson(LocalEnvironment)}
+     */
+    public boolean uploadEnvironment( String envJson )
+    {
+        try
+        {
+            bazaaarAdapter.uploadEnvironment( envJson );
 
             return true;
         }
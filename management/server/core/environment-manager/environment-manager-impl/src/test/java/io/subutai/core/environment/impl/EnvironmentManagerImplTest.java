@@ -104,7 +104,6 @@ import static org.mockito.Matchers.anySet;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
-import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -145,6 +144,8 @@ public class EnvironmentManagerImplTest
     @Mock
     ExecutorService cachedExecutor;
     @Mock
+    ExecutorService singleThreadExecutor;
+    @Mock
     Session session;
 
     Subject systemUser = new Subject();
@@ -221,6 +222,12 @@ public class EnvironmentManagerImplTest
         {
             return cachedExecutor;
         }
+
+
+        protected ExecutorService getSingleThreadExecutor()
+        {
+            return singleThreadExecutor;
+        }
     }
 
 
@@ -279,6 +286,7 @@ public class EnvironmentManagerImplTest
         environmentManager.dispose();
 
         verify( cachedExecutor ).shutdown();
+        verify( singleThreadExecutor ).shutdown();
         verify( scheduledExecutor ).shutdown();
         verify( checkWorkflow ).cancel();
     }
@@ -1083,7 +1091,15 @@ public class EnvironmentManagerImplTest
 
         environmentManager.update( environment );
 
-        verify( environmentService, atLeastOnce() ).merge( environment );
+        verify( environmentService ).merge( environment );
+        verify( singleThreadExecutor ).execute( isA( Runnable.class ) );
+        assertEquals( 1, environmentManager.getPendingEnvironmentUploadsCount() );
+
+        //not uploaded environment is coalesced with the waiting one
+        environmentManager.update( environment );
+
+        verify( singleThreadExecutor ).execute( isA( Runnable.class ) );
+        assertEquals( 1, environmentManager.getPendingEnvironmentUploadsCount() );
 
         //-----
 
@@ -1096,6 +1112,18 @@ public class EnvironmentManagerImplTest
     }
 
 
+    @Test
+    public void testMarkAsNotUploaded() throws Exception
+    {
+        doReturn( true ).when( environment ).isUploaded();
+
+        environmentManager.markAsNotUploaded( TestHelper.ENV_ID );
+
+        verify( environment ).markAsNotUploaded();
+        verify( environmentService ).merge( environment );
+    }
+
+
     @Test
     public void testRemove() throws Exception
     {
@@ -2,7 +2,6 @@ package io.subutai.core.environment.impl;
 
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -12,6 +11,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -49,6 +49,7 @@ import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
@@ -195,15 +196,20 @@ public class EnvironmentManagerSecureProxyTest
         doCallRealMethod().when( proxy ).check( any( RelationLink.class ), any( Collection.class ), anyMap() );
         RelationLink source = mock( RelationLink.class );
         RelationLink target = mock( RelationLink.class );
-        Collection<? extends RelationLink> targets = Collections.singleton( target );
+        RelationLink deniedTarget = mock( RelationLink.class );
+        Collection<RelationLink> targets = Lists.newArrayList( target, deniedTarget );
         Map<String, String> traits = Maps.newHashMap();
         traits.put( "a", "b" );
         RelationInfoManager relationInfoManager = mock( RelationInfoManager.class );
         doReturn( relationInfoManager ).when( relationManager ).getRelationInfoManager();
+        doReturn( Lists.newArrayList( target ) ).when( relationInfoManager )
+                                                .filterPermitted( eq( source ), eq( targets ),
+                                                        isA( RelationInfoMeta.class ) );
 
         proxy.check( source, targets, traits );
 
-        verify( proxy ).check( source, target, traits );
+        assertEquals( Lists.newArrayList( target ), targets );
+        verify( proxy, never() ).check( eq( source ), any( RelationLink.class ), anyMap() );
     }
 
 
@@ -0,0 +1,142 @@
+package io.subutai.core.environment.impl;
+
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import io.subutai.core.environment.impl.adapter.EnvironmentAdapter;
+import io.subutai.core.environment.impl.entity.LocalEnvironment;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class EnvironmentUploadQueueTest
+{
+    private static final String ENV_JSON = "{}";
+
+    @Mock
+    EnvironmentManagerImpl environmentManager;
+    @Mock
+    EnvironmentAdapter environmentAdapter;
+    @Mock
+    ExecutorService executor;
+    @Mock
+    LocalEnvironment environment;
+
+    EnvironmentUploadQueue environmentUploadQueue;
+    ReentrantLock lock = new ReentrantLock();
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        environmentUploadQueue = new EnvironmentUploadQueue( environmentManager, environmentAdapter, executor );
+
+        doReturn( TestHelper.ENV_ID ).when( environment ).getId();
+        doReturn( lock ).when( environmentManager ).getEnvironmentLock( TestHelper.ENV_ID );
+        doReturn( true ).when( environmentAdapter ).canWorkWithBazaar();
+        doReturn( ENV_JSON ).when( environmentAdapter ).getUploadJson( any( LocalEnvironment.class ) );
+    }
+
+
+    @Test
+    public void testEnqueue() throws Exception
+    {
+        LocalEnvironment newerEnvironment = mock( LocalEnvironment.class );
+        doReturn( TestHelper.ENV_ID ).when( newerEnvironment ).getId();
+        doReturn( true ).when( environmentAdapter ).uploadEnvironment( ENV_JSON );
+
+        environmentUploadQueue.enqueue( environment );
+        environmentUploadQueue.enqueue( newerEnvironment );
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass( Runnable.class );
+        verify( executor ).execute( captor.capture() );
+        assertEquals( 1, environmentUploadQueue.size() );
+
+        captor.getValue().run();
+
+        verify( environmentAdapter ).getUploadJson( newerEnvironment );
+        verify( environmentAdapter, never() ).getUploadJson( environment );
+        verify( environmentAdapter ).uploadEnvironment( ENV_JSON );
+        verify( environmentManager, never() ).markAsNotUploaded( anyString() );
+        assertEquals( 0, environmentUploadQueue.size() );
+    }
+
+
+    @Test
+    public void testUploadFailed() throws Exception
+    {
+        doReturn( false ).when( environmentAdapter ).uploadEnvironment( anyString() );
+
+        environmentUploadQueue.enqueue( environment );
+        environmentUploadQueue.upload( TestHelper.ENV_ID );
+
+        verify( environment ).markAsNotUploaded();
+        verify( environmentManager ).markAsNotUploaded( TestHelper.ENV_ID );
+    }
+
+
+    @Test
+    public void testEnvironmentIsSerializedUnderLock() throws Exception
+    {
+        doAnswer( new Answer<String>()
+        {
+            @Override
+            public String answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                assertTrue( lock.isHeldByCurrentThread() );
+
+                return ENV_JSON;
+            }
+        } ).when( environmentAdapter ).getUploadJson( environment );
+        doAnswer( new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                assertTrue( !lock.isHeldByCurrentThread() );
+
+                return true;
+            }
+        } ).when( environmentAdapter ).uploadEnvironment( ENV_JSON );
+
+        environmentUploadQueue.enqueue( environment );
+        environmentUploadQueue.upload( TestHelper.ENV_ID );
+
+        verify( environmentAdapter ).uploadEnvironment( ENV_JSON );
+        verify( environment, never() ).markAsNotUploaded();
+    }
+
+
+    @Test
+    public void testBazaarNotAvailable() throws Exception
+    {
+        doReturn( false ).when( environmentAdapter ).canWorkWithBazaar();
+
+        environmentUploadQueue.enqueue( environment );
+        environmentUploadQueue.upload( TestHelper.ENV_ID );
+
+        verify( environmentAdapter, never() ).getUploadJson( environment );
+        verify( environmentAdapter, never() ).uploadEnvironment( anyString() );
+        verify( environment ).markAsNotUploaded();
+        verify( environmentManager ).markAsNotUploaded( TestHelper.ENV_ID );
+    }
+}
@@ -54,7 +54,7 @@ public class HostRegistrationManagerImpl extends HostListener implements HostReg
     private DaoManager daoManager;
     ServiceLocator serviceLocator = new ServiceLocator();
     private ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor();
-    ExpiringCache<String, Boolean> tokenCache = new ExpiringCache<>();
+    ExpiringCache<String, Boolean> tokenCache = new ExpiringCache<>( "RegistrationTokens" );
 
 
     public HostRegistrationManagerImpl( final SecurityManager securityManager, final DaoManager daoManager )
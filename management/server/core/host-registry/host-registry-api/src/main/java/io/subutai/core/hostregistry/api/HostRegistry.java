@@ -59,6 +59,17 @@ public interface HostRegistry
     ContainerHostInfo getContainerHostInfoByContainerName( final String containerName )
             throws HostDisconnectedException;
 
+    /**
+     * Returns container host info by ip of its default interface
+     *
+     * @param ip - ip of container host
+     *
+     * @return - container host info
+     *
+     * @throws HostDisconnectedException - thrown if container host is not present on any of connected resource hosts
+     */
+    ContainerHostInfo getContainerHostInfoByIp( String ip ) throws HostDisconnectedException;
+
     /**
      * Returns all present container hosts info on all connected resource hosts
      */
@@ -0,0 +1,149 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.ContainerHostState;
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.metric.QuotaAlertValue;
+
+
+/**
+ * Immutable difference between two consecutive states of a resource host. Computed once per heartbeat and shared by
+ * all host listeners
+ */
+class HeartbeatDiff
+{
+    private final ResourceHostInfo resourceHostInfo;
+    private final Set<QuotaAlertValue> alerts;
+    private final boolean connected;
+    private final boolean disconnected;
+    private final List<ContainerHostInfo> createdContainers;
+    private final List<ContainerHostInfo> destroyedContainers;
+    private final List<StateChange> stateChanges;
+    private final List<HostnameChange> hostnameChanges;
+
+
+    private HeartbeatDiff( final ResourceHostInfo resourceHostInfo, final Set<QuotaAlertValue> alerts,
+                           final boolean connected, final boolean disconnected,
+                           final List<ContainerHostInfo> createdContainers,
+                           final List<ContainerHostInfo> destroyedContainers, final List<StateChange> stateChanges,
+                           final List<HostnameChange> hostnameChanges )
+    {
+        this.resourceHostInfo = resourceHostInfo;
+        this.alerts = alerts == null ? ImmutableSet.<QuotaAlertValue>of() : ImmutableSet.copyOf( alerts );
+        this.connected = connected;
+        this.disconnected = disconnected;
+        this.createdContainers = ImmutableList.copyOf( createdContainers );
+        this.destroyedContainers = ImmutableList.copyOf( destroyedContainers );
+        this.stateChanges = ImmutableList.copyOf( stateChanges );
+        this.hostnameChanges = ImmutableList.copyOf( hostnameChanges );
+    }
+
+
+    static HeartbeatDiff connected( ResourceHostInfo resourceHostInfo, Set<QuotaAlertValue> alerts )
+    {
+        return new HeartbeatDiff( resourceHostInfo, alerts, true, false, ImmutableList.<ContainerHostInfo>of(),
+                ImmutableList.<ContainerHostInfo>of(), ImmutableList.<StateChange>of(),
+                ImmutableList.<HostnameChange>of() );
+    }
+
+
+    static HeartbeatDiff disconnected( ResourceHostInfo resourceHostInfo )
+    {
+        return new HeartbeatDiff( resourceHostInfo, null, false, true, ImmutableList.<ContainerHostInfo>of(),
+                ImmutableList.<ContainerHostInfo>of(), ImmutableList.<StateChange>of(),
+                ImmutableList.<HostnameChange>of() );
+    }
+
+
+    static HeartbeatDiff changed( ResourceHostInfo resourceHostInfo, Set<QuotaAlertValue> alerts,
+                                  List<ContainerHostInfo> createdContainers,
+                                  List<ContainerHostInfo> destroyedContainers, List<StateChange> stateChanges,
+                                  List<HostnameChange> hostnameChanges )
+    {
+        return new HeartbeatDiff( resourceHostInfo, alerts, false, false, createdContainers, destroyedContainers,
+                stateChanges, hostnameChanges );
+    }
+
+
+    ResourceHostInfo getResourceHostInfo()
+    {
+        return resourceHostInfo;
+    }
+
+
+    Set<QuotaAlertValue> getAlerts()
+    {
+        return alerts;
+    }
+
+
+    boolean isConnected()
+    {
+        return connected;
+    }
+
+
+    boolean isDisconnected()
+    {
+        return disconnected;
+    }
+
+
+    List<ContainerHostInfo> getCreatedContainers()
+    {
+        return createdContainers;
+    }
+
+
+    List<ContainerHostInfo> getDestroyedContainers()
+    {
+        return destroyedContainers;
+    }
+
+
+    List<StateChange> getStateChanges()
+    {
+        return stateChanges;
+    }
+
+
+    List<HostnameChange> getHostnameChanges()
+    {
+        return hostnameChanges;
+    }
+
+
+    static class StateChange
+    {
+        final ContainerHostInfo containerInfo;
+        final ContainerHostState previousState;
+
+
+        StateChange( final ContainerHostInfo containerInfo, final ContainerHostState previousState )
+        {
+            this.containerInfo = containerInfo;
+            this.previousState = previousState;
+        }
+    }
+
+
+    static class HostnameChange
+    {
+        final ContainerHostInfo containerInfo;
+        final String previousHostname;
+
+
+        HostnameChange( final ContainerHostInfo containerInfo, final String previousHostname )
+        {
+            this.containerInfo = containerInfo;
+            this.previousHostname = previousHostname;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.metric.QuotaAlertValue;
+import io.subutai.common.peer.HostNotFoundException;
+import io.subutai.common.peer.LocalPeer;
+import io.subutai.common.peer.ResourceHost;
+import io.subutai.common.util.ServiceLocator;
+import io.subutai.core.hostregistry.api.HostListener;
+
+
+/**
+ * Delivers heartbeat events to host listeners.
+ *
+ * Events of the same resource host are processed one at a time in arrival order, events of different hosts are
+ * processed in parallel on a bounded pool. The difference between consecutive states of a host is computed once and
+ * handed to all listeners. If listeners fall behind, waiting heartbeats of a host are coalesced into the latest one, so
+ * listeners see the net change since the last delivered state and never a stale state after a newer one.
+ *
+ * A container missing in a heartbeat is reported as destroyed only after a later heartbeat, at least
+ * {@link #DESTROY_CONFIRM_DELAY_MS} after it went missing, still lacks it and the resource host confirms it is gone.
+ * This lets filesystem recover in case of snapshot rollback without holding a pipeline thread.
+ */
+class HeartbeatPipeline
+{
+    private static final Logger LOG = LoggerFactory.getLogger( HeartbeatPipeline.class.getName() );
+    static final long DESTROY_CONFIRM_DELAY_MS = TimeUnit.SECONDS.toMillis( 10 );
+
+    private final Set<HostListener> listeners;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedHeartbeats = new AtomicLong();
+
+
+    HeartbeatPipeline( final Set<HostListener> listeners, final ExecutorService executor )
+    {
+        this.listeners = listeners;
+        this.executor = executor;
+    }
+
+
+    void offerHeartbeat( ResourceHostInfo resourceHostInfo, Set<QuotaAlertValue> alerts )
+    {
+        offer( resourceHostInfo.getId(), new Event( resourceHostInfo, alerts, false ) );
+    }
+
+
+    void offerDisconnect( ResourceHostInfo resourceHostInfo )
+    {
+        offer( resourceHostInfo.getId(), new Event( resourceHostInfo, null, true ) );
+    }
+
+
+    /**
+     * Returns number of heartbeats dropped because a newer heartbeat of the same host arrived before delivery
+     */
+    long getCoalescedHeartbeatsCount()
+    {
+        return coalescedHeartbeats.get();
+    }
+
+
+    void dispose()
+    {
+        executor.shutdown();
+    }
+
+
+    private void offer( String resourceHostId, Event event )
+    {
+        while ( true )
+        {
+            Channel channel = getChannel( resourceHostId );
+
+            boolean schedule;
+
+            synchronized ( channel )
+            {
+                if ( channel.removed )
+                {
+                    //channel of disconnected host has just been released, use a new one
+                    continue;
+                }
+
+                Event last = channel.events.peekLast();
+
+                if ( last != null && !last.disconnect && !event.disconnect )
+                {
+                    //superseded heartbeat is dropped, its alerts are carried over
+                    channel.events.pollLast();
+
+                    event.alerts.addAll( last.alerts );
+
+                    coalescedHeartbeats.incrementAndGet();
+                }
+
+                channel.events.addLast( event );
+
+                schedule = !channel.scheduled;
+
+                channel.scheduled = true;
+            }
+
+            if ( schedule )
+            {
+                schedule( channel );
+            }
+
+            return;
+        }
+    }
+
+
+    private Channel getChannel( String resourceHostId )
+    {
+        Channel channel = channels.get( resourceHostId );
+
+        if ( channel == null )
+        {
+            Channel newChannel = new Channel( resourceHostId );
+            channel = channels.putIfAbsent( resourceHostId, newChannel );
+            if ( channel == null )
+            {
+                channel = newChannel;
+            }
+        }
+
+        return channel;
+    }
+
+
+    /**
+     * Returns number of resource hosts with a channel
+     */
+    int getChannelsCount()
+    {
+        return channels.size();
+    }
+
+
+    private void schedule( final Channel channel )
+    {
+        try
+        {
+            executor.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    drain( channel );
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            LOG.warn( "Heartbeat pipeline is stopped: {}", e.getMessage() );
+        }
+    }
+
+
+    private void drain( Channel channel )
+    {
+        while ( true )
+        {
+            Event event;
+
+            synchronized ( channel )
+            {
+                event = channel.events.pollFirst();
+
+                if ( event == null )
+                {
+                    channel.scheduled = false;
+
+                    //host is disconnected, release its channel
+                    if ( channel.lastInfo == null )
+                    {
+                        channel.removed = true;
+
+                        channels.remove( channel.resourceHostId, channel );
+                    }
+
+                    return;
+                }
+            }
+
+            try
+            {
+                process( channel, event );
+            }
+            catch ( Exception e )
+            {
+                LOG.error( "Error processing heartbeat of host {}: {}", event.resourceHostInfo.getId(),
+                        e.getMessage() );
+            }
+        }
+    }
+
+
+    private void process( Channel channel, Event event )
+    {
+        HeartbeatDiff diff;
+
+        if ( event.disconnect )
+        {
+            diff = HeartbeatDiff.disconnected( event.resourceHostInfo );
+
+            channel.lastInfo = null;
+
+            channel.missingContainers.clear();
+        }
+        else
+        {
+            diff = diff( channel.lastInfo, event.resourceHostInfo, event.alerts, channel.missingContainers,
+                    System.currentTimeMillis() );
+
+            channel.lastInfo = event.resourceHostInfo;
+        }
+
+        for ( HostListener listener : listeners )
+        {
+            new HostNotifier( listener, diff ).run();
+        }
+    }
+
+
+    /**
+     * Computes difference between states of a host
+     *
+     * @param missingContainers - containers missing in previous heartbeats and not yet confirmed as destroyed, keyed
+     * by lower case id; updated by this method
+     * @param now - time of the new heartbeat
+     */
+    HeartbeatDiff diff( ResourceHostInfo oldRhInfo, ResourceHostInfo newRhInfo, Set<QuotaAlertValue> alerts,
+                        Map<String, MissingContainer> missingContainers, long now )
+    {
+        if ( oldRhInfo == null )
+        {
+            return HeartbeatDiff.connected( newRhInfo, alerts );
+        }
+
+        Map<String, ContainerHostInfo> oldContainers = Maps.newHashMap();
+
+        for ( ContainerHostInfo oldContainerInfo : oldRhInfo.getContainers() )
+        {
+            oldContainers.put( oldContainerInfo.getId().toLowerCase(), oldContainerInfo );
+        }
+
+        List<ContainerHostInfo> created = Lists.newArrayList();
+        List<HeartbeatDiff.StateChange> stateChanges = Lists.newArrayList();
+        List<HeartbeatDiff.HostnameChange> hostnameChanges = Lists.newArrayList();
+
+        for ( ContainerHostInfo newContainerInfo : newRhInfo.getContainers() )
+        {
+            String containerId = newContainerInfo.getId().toLowerCase();
+
+            ContainerHostInfo oldContainerInfo = oldContainers.remove( containerId );
+
+            if ( oldContainerInfo == null )
+            {
+                MissingContainer missingContainer = missingContainers.remove( containerId );
+
+                if ( missingContainer == null )
+                {
+                    created.add( newContainerInfo );
+
+                    continue;
+                }
+
+                //container is back before its removal was confirmed
+                oldContainerInfo = missingContainer.containerInfo;
+            }
+
+            if ( newContainerInfo.getState() != oldContainerInfo.getState() )
+            {
+                stateChanges.add( new HeartbeatDiff.StateChange( newContainerInfo, oldContainerInfo.getState() ) );
+            }
+
+            if ( !newContainerInfo.getHostname().equalsIgnoreCase( oldContainerInfo.getHostname() ) )
+            {
+                hostnameChanges
+                        .add( new HeartbeatDiff.HostnameChange( newContainerInfo, oldContainerInfo.getHostname() ) );
+            }
+        }
+
+        //containers left are missing in the new heartbeat, their removal is confirmed with later heartbeats
+        for ( Map.Entry<String, ContainerHostInfo> oldContainerEntry : oldContainers.entrySet() )
+        {
+            missingContainers
+                    .put( oldContainerEntry.getKey(), new MissingContainer( oldContainerEntry.getValue(), now ) );
+        }
+
+        List<ContainerHostInfo> destroyed = Lists.newArrayList();
+
+        for ( Iterator<MissingContainer> iterator = missingContainers.values().iterator(); iterator.hasNext(); )
+        {
+            MissingContainer missingContainer = iterator.next();
+
+            if ( now - missingContainer.missingSince >= DESTROY_CONFIRM_DELAY_MS )
+            {
+                iterator.remove();
+
+                if ( !containerStillExists( missingContainer.containerInfo ) )
+                {
+                    destroyed.add( missingContainer.containerInfo );
+                }
+            }
+        }
+
+        return HeartbeatDiff.changed( newRhInfo, alerts, created, destroyed, stateChanges, hostnameChanges );
+    }
+
+
+    /**
+     * Checks on RH once more that container missing in heartbeat is really gone
+     */
+    boolean containerStillExists( ContainerHostInfo containerInfo )
+    {
+        LocalPeer localPeer = ServiceLocator.lookup( LocalPeer.class );
+        try
+        {
+            ResourceHost resourceHost = localPeer.getResourceHostByContainerId( containerInfo.getId() );
+            try
+            {
+                return resourceHost.lxcExists( containerInfo.getContainerName() );
+            }
+            catch ( Exception e )
+            {
+                //just in case skip container removal in this round since we can not check
+                return true;
+            }
+        }
+        catch ( HostNotFoundException ignore )
+        {
+            return false;
+        }
+    }
+
+
+    private static class Channel
+    {
+        private final String resourceHostId;
+        private final Deque<Event> events = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean removed;
+        //written only by the thread currently draining the channel
+        private volatile ResourceHostInfo lastInfo;
+        private final Map<String, MissingContainer> missingContainers = Maps.newHashMap();
+
+
+        private Channel( final String resourceHostId )
+        {
+            this.resourceHostId = resourceHostId;
+        }
+    }
+
+
+    static class MissingContainer
+    {
+        private final ContainerHostInfo containerInfo;
+        private final long missingSince;
+
+
+        MissingContainer( final ContainerHostInfo containerInfo, final long missingSince )
+        {
+            this.containerInfo = containerInfo;
+            this.missingSince = missingSince;
+        }
+    }
+
+
+    private static class Event
+    {
+        private final ResourceHostInfo resourceHostInfo;
+        private final Set<QuotaAlertValue> alerts;
+        private final boolean disconnect;
+
+
+        private Event( final ResourceHostInfo resourceHostInfo, final Set<QuotaAlertValue> alerts,
+                       final boolean disconnect )
+        {
+            this.resourceHostInfo = resourceHostInfo;
+            this.alerts = alerts == null ? Sets.<QuotaAlertValue>newHashSet() : Sets.newHashSet( alerts );
+            this.disconnect = disconnect;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.collect.Lists;
+
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.HostInterfaceModel;
+import io.subutai.common.host.HostInterfaces;
+import io.subutai.common.host.NullHostInterface;
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.settings.Common;
+
+
+/**
+ * Secondary indexes over registered resource hosts and their containers.
+ *
+ * Lookups are plain reads of concurrent maps and never block. Updates are serialized and replace a resource host as a
+ * whole: entries of the new version are published first, then entries of the previous version are dropped unless they
+ * have been overwritten already. This way a container which stays on its host never disappears from the index, and
+ * an update costs as much as the number of containers on the host, not in the registry.
+ */
+class HostIndex
+{
+    private final ConcurrentMap<String, IndexedHost> resourceHostsById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IndexedHost> resourceHostsByHostname = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IndexedContainer> containersById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IndexedContainer> containersByHostname = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IndexedContainer> containersByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IndexedContainer> containersByIp = new ConcurrentHashMap<>();
+
+
+    /**
+     * Indexes resource host replacing index entries of its previous version
+     */
+    synchronized void index( ResourceHostInfo resourceHostInfo )
+    {
+        IndexedHost host = new IndexedHost( resourceHostInfo );
+
+        IndexedHost oldHost = resourceHostsById.put( resourceHostInfo.getId(), host );
+
+        putIfNotBlank( resourceHostsByHostname, host.hostname, host );
+
+        for ( IndexedContainer container : host.containers )
+        {
+            putIfNotBlank( containersById, container.id, container );
+            putIfNotBlank( containersByHostname, container.hostname, container );
+            putIfNotBlank( containersByName, container.name, container );
+            putIfNotBlank( containersByIp, container.ip, container );
+        }
+
+        if ( oldHost != null )
+        {
+            drop( oldHost );
+        }
+    }
+
+
+    /**
+     * Removes resource host from index unless it has been replaced by a newer version in the meantime
+     */
+    synchronized void unindex( ResourceHostInfo resourceHostInfo )
+    {
+        IndexedHost host = resourceHostsById.get( resourceHostInfo.getId() );
+
+        if ( host != null && host.info == resourceHostInfo )
+        {
+            resourceHostsById.remove( resourceHostInfo.getId(), host );
+
+            drop( host );
+        }
+    }
+
+
+    synchronized void clear()
+    {
+        resourceHostsById.clear();
+        resourceHostsByHostname.clear();
+        containersById.clear();
+        containersByHostname.clear();
+        containersByName.clear();
+        containersByIp.clear();
+    }
+
+
+    IndexedHost getResourceHostById( String id )
+    {
+        return resourceHostsById.get( id );
+    }
+
+
+    IndexedHost getResourceHostByHostname( String hostname )
+    {
+        return resourceHostsByHostname.get( normalize( hostname ) );
+    }
+
+
+    IndexedContainer getContainerById( String id )
+    {
+        return containersById.get( id );
+    }
+
+
+    IndexedContainer getContainerByHostname( String hostname )
+    {
+        return containersByHostname.get( normalize( hostname ) );
+    }
+
+
+    IndexedContainer getContainerByName( String containerName )
+    {
+        return containersByName.get( normalize( containerName ) );
+    }
+
+
+    IndexedContainer getContainerByIp( String ip )
+    {
+        return containersByIp.get( ip );
+    }
+
+
+    /**
+     * Removes entries of the given host version which have not been overwritten by a newer one
+     */
+    private void drop( IndexedHost host )
+    {
+        removeIfNotBlank( resourceHostsByHostname, host.hostname, host );
+
+        for ( IndexedContainer container : host.containers )
+        {
+            removeIfNotBlank( containersById, container.id, container );
+            removeIfNotBlank( containersByHostname, container.hostname, container );
+            removeIfNotBlank( containersByName, container.name, container );
+            removeIfNotBlank( containersByIp, container.ip, container );
+        }
+    }
+
+
+    private <V> void putIfNotBlank( ConcurrentMap<String, V> index, String key, V value )
+    {
+        if ( !StringUtils.isBlank( key ) )
+        {
+            index.put( key, value );
+        }
+    }
+
+
+    private <V> void removeIfNotBlank( ConcurrentMap<String, V> index, String key, V value )
+    {
+        if ( !StringUtils.isBlank( key ) )
+        {
+            index.remove( key, value );
+        }
+    }
+
+
+    private static String normalize( String name )
+    {
+        return name == null ? null : name.toLowerCase();
+    }
+
+
+    /**
+     * Returns ip of container interface or null if container has none. Containers without interface report loopback
+     * ip, which is not indexed since it does not identify a container
+     */
+    private static String getIp( ContainerHostInfo containerHostInfo )
+    {
+        HostInterfaces hostInterfaces = containerHostInfo.getHostInterfaces();
+
+        if ( hostInterfaces == null )
+        {
+            return null;
+        }
+
+        HostInterfaceModel hostInterface = hostInterfaces.findByName( Common.DEFAULT_CONTAINER_INTERFACE );
+
+        if ( hostInterface instanceof NullHostInterface || Common.LOCAL_HOST_IP.equals( hostInterface.getIp() ) )
+        {
+            return null;
+        }
+
+        return hostInterface.getIp();
+    }
+
+
+    /**
+     * Indexed version of resource host. Keys are captured at indexing time, so the exact entries can be dropped later
+     * on. Compared by identity, so that a newer version of the same host is never mistaken for the stale one.
+     */
+    static class IndexedHost
+    {
+        final ResourceHostInfo info;
+        final String hostname;
+        final List<IndexedContainer> containers = Lists.newArrayList();
+
+
+        IndexedHost( final ResourceHostInfo info )
+        {
+            this.info = info;
+            this.hostname = normalize( info.getHostname() );
+
+            for ( ContainerHostInfo containerHostInfo : info.getContainers() )
+            {
+                containers.add( new IndexedContainer( containerHostInfo, info.getId() ) );
+            }
+        }
+    }
+
+
+    /**
+     * Indexed container along with id of its resource host. Compared by identity.
+     */
+    static class IndexedContainer
+    {
+        final ContainerHostInfo info;
+        final String resourceHostId;
+        final String id;
+        final String hostname;
+        final String name;
+        final String ip;
+
+
+        IndexedContainer( final ContainerHostInfo info, final String resourceHostId )
+        {
+            this.info = info;
+            this.resourceHostId = resourceHostId;
+            this.id = info.getId();
+            this.hostname = normalize( info.getHostname() );
+            this.name = normalize( info.getContainerName() );
+            this.ip = getIp( info );
+        }
+    }
+}
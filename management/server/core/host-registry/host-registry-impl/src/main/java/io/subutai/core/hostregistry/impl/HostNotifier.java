@@ -1,19 +1,10 @@
 package io.subutai.core.hostregistry.impl;
 
 
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.subutai.common.host.ContainerHostInfo;
-import io.subutai.common.host.ResourceHostInfo;
-import io.subutai.common.metric.QuotaAlertValue;
-import io.subutai.common.peer.HostNotFoundException;
-import io.subutai.common.peer.LocalPeer;
-import io.subutai.common.peer.ResourceHost;
-import io.subutai.common.util.ServiceLocator;
 import io.subutai.core.hostregistry.api.HostListener;
 
 
@@ -25,46 +16,26 @@ public class HostNotifier implements Runnable
     private static final Logger LOG = LoggerFactory.getLogger( HostNotifier.class.getName() );
     private static final String ERR_MSG_TEMPLATE = "Error notifying host listener: {}";
 
-    private HostListener listener;
-    private ResourceHostInfo oldRhInfo;
-    private ResourceHostInfo newRhInfo;
-    private Set<QuotaAlertValue> alerts;
-    private boolean rhDisconnected = false;
-
-
-    HostNotifier( final HostListener listener, final ResourceHostInfo oldRhInfo, final ResourceHostInfo newRhInfo,
-                  final Set<QuotaAlertValue> alerts )
-    {
-        this.listener = listener;
-        this.oldRhInfo = oldRhInfo;
-        this.newRhInfo = newRhInfo;
-        this.alerts = alerts;
-    }
+    private final HostListener listener;
+    private final HeartbeatDiff diff;
 
 
-    HostNotifier( final HostListener listener, final ResourceHostInfo oldRhInfo )
+    HostNotifier( final HostListener listener, final HeartbeatDiff diff )
     {
         this.listener = listener;
-        this.oldRhInfo = oldRhInfo;
-        this.rhDisconnected = true;
+        this.diff = diff;
     }
 
 
     @Override
     public void run()
     {
-        processHeartbeat( oldRhInfo, newRhInfo, alerts );
-    }
-
-
-    private void processHeartbeat( ResourceHostInfo oldRhInfo, ResourceHostInfo newRhInfo, Set<QuotaAlertValue> alerts )
-    {
-        if ( rhDisconnected )
+        if ( diff.isDisconnected() )
         {
             // notify on RH disconnection
             try
             {
-                listener.onRhDisconnected( oldRhInfo );
+                listener.onRhDisconnected( diff.getResourceHostInfo() );
             }
             catch ( Exception e )
             {
@@ -78,7 +49,7 @@ public class HostNotifier implements Runnable
         // 0. notify on heartbeat
         try
         {
-            listener.onHeartbeat( newRhInfo, alerts );
+            listener.onHeartbeat( diff.getResourceHostInfo(), diff.getAlerts() );
         }
         catch ( Exception e )
         {
@@ -86,12 +57,12 @@ public class HostNotifier implements Runnable
         }
 
 
-        if ( oldRhInfo == null )
+        if ( diff.isConnected() )
         {
             // notify on RH connection
             try
             {
-                listener.onRhConnected( newRhInfo );
+                listener.onRhConnected( diff.getResourceHostInfo() );
             }
             catch ( Exception e )
             {
@@ -102,114 +73,57 @@ public class HostNotifier implements Runnable
         }
 
 
-        for ( final ContainerHostInfo newContainerInfo : newRhInfo.getContainers() )
+        // 1. notify that container state has changed
+        for ( HeartbeatDiff.StateChange change : diff.getStateChanges() )
         {
-            boolean containerExistedBefore = false;
-
-            for ( final ContainerHostInfo oldContainerInfo : oldRhInfo.getContainers() )
+            try
             {
-                if ( newContainerInfo.getId().equalsIgnoreCase( oldContainerInfo.getId() ) )
-                {
-                    // 1. check if container state has changed
-                    if ( newContainerInfo.getState() != oldContainerInfo.getState() )
-                    {
-                        try
-                        {
-                            listener.onContainerStateChanged( newContainerInfo, oldContainerInfo.getState(),
-                                    newContainerInfo.getState() );
-                        }
-                        catch ( Exception e )
-                        {
-                            LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
-                        }
-                    }
-
-                    // 2. check if container hostname has changed
-                    if ( !newContainerInfo.getHostname().equalsIgnoreCase( oldContainerInfo.getHostname() ) )
-                    {
-                        try
-                        {
-                            listener.onContainerHostnameChanged( newContainerInfo, oldContainerInfo.getHostname(),
-                                    newContainerInfo.getHostname() );
-                        }
-                        catch ( Exception e )
-                        {
-                            LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
-                        }
-                    }
-
-
-                    containerExistedBefore = true;
-
-                    break;
-                }
+                listener.onContainerStateChanged( change.containerInfo, change.previousState,
+                        change.containerInfo.getState() );
             }
-
-            // 3. notify that container has been created
-            if ( !containerExistedBefore )
+            catch ( Exception e )
             {
-                try
-                {
-                    listener.onContainerCreated( newContainerInfo );
-                }
-                catch ( Exception e )
-                {
-                    LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
-                }
+                LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
             }
         }
 
-        // 4. check if container has been destroyed
-        for ( final ContainerHostInfo oldContainerInfo : oldRhInfo.getContainers() )
+        // 2. notify that container hostname has changed
+        for ( HeartbeatDiff.HostnameChange change : diff.getHostnameChanges() )
         {
-            boolean containerStillExists = false;
-
-            for ( final ContainerHostInfo newContainerInfo : newRhInfo.getContainers() )
+            try
             {
-                if ( oldContainerInfo.getId().equalsIgnoreCase( newContainerInfo.getId() ) )
-                {
-                    containerStillExists = true;
-
-                    break;
-                }
+                listener.onContainerHostnameChanged( change.containerInfo, change.previousHostname,
+                        change.containerInfo.getHostname() );
+            }
+            catch ( Exception e )
+            {
+                LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
             }
+        }
 
-            //check on RH once more to make sure
-            if ( !containerStillExists )
+        // 3. notify that container has been created
+        for ( ContainerHostInfo containerInfo : diff.getCreatedContainers() )
+        {
+            try
+            {
+                listener.onContainerCreated( containerInfo );
+            }
+            catch ( Exception e )
             {
-                LocalPeer localPeer = ServiceLocator.lookup( LocalPeer.class );
-                try
-                {
-                    ResourceHost resourceHost = localPeer.getResourceHostByContainerId( oldContainerInfo.getId() );
-                    try
-                    {
-                        //sleep 10 sec to let filesystem recover in case of snapshot rollback
-                        TimeUnit.SECONDS.sleep( 10 );
-
-                        containerStillExists = resourceHost.lxcExists( oldContainerInfo.getContainerName() );
-                    }
-                    catch ( Exception e )
-                    {
-                        //just in case skip container removal in this round since we can not check
-                        containerStillExists = true;
-                    }
-                }
-                catch ( HostNotFoundException ignore )
-                {
-                    //no-op
-                }
+                LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
             }
+        }
 
-            if ( !containerStillExists )
+        // 4. notify that container has been destroyed
+        for ( ContainerHostInfo containerInfo : diff.getDestroyedContainers() )
+        {
+            try
+            {
+                listener.onContainerDestroyed( containerInfo );
+            }
+            catch ( Exception e )
             {
-                try
-                {
-                    listener.onContainerDestroyed( oldContainerInfo );
-                }
-                catch ( Exception e )
-                {
-                    LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
-                }
+                LOG.warn( ERR_MSG_TEMPLATE, e.getMessage() );
             }
         }
     }
@@ -2,9 +2,9 @@ package io.subutai.core.hostregistry.impl;
 
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -23,7 +23,9 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import io.subutai.common.host.ContainerHostInfo;
 import io.subutai.common.host.HostInfo;
@@ -34,7 +36,6 @@ import io.subutai.common.peer.HostNotFoundException;
 import io.subutai.common.peer.LocalPeer;
 import io.subutai.common.peer.ResourceHost;
 import io.subutai.common.settings.Common;
-import io.subutai.common.util.CollectionUtil;
 import io.subutai.common.util.IPUtil;
 import io.subutai.common.util.RestUtil;
 import io.subutai.common.util.ServiceLocator;
@@ -51,14 +52,23 @@ public class HostRegistryImpl implements HostRegistry
     private static final Logger LOG = LoggerFactory.getLogger( HostRegistryImpl.class.getName() );
 
     private static final String HOST_NOT_CONNECTED_MSG = "Host %s is not connected";
-    //timeout after which host expires in seconds
 
     private static final long HOST_UPDATER_INTERVAL_SEC = 10;
 
+    private static final int HEARTBEAT_PIPELINE_THREADS = 8;
+
+    //pings of a round are spread over the first half of the round
+    private static final long PROBE_SPREAD_MS = TimeUnit.SECONDS.toMillis( HOST_UPDATER_INTERVAL_SEC ) / 2;
+
     Set<HostListener> hostListeners = Collections.newSetFromMap( new ConcurrentHashMap<HostListener, Boolean>() );
     ScheduledExecutorService hostUpdater = Executors.newSingleThreadScheduledExecutor();
-    ExecutorService threadPool = Executors.newCachedThreadPool();
     Cache<String, ResourceHostInfo> hosts;
+    HostIndex hostIndex = new HostIndex();
+    HeartbeatPipeline heartbeatPipeline = new HeartbeatPipeline( hostListeners, Executors
+            .newFixedThreadPool( HEARTBEAT_PIPELINE_THREADS,
+                    new ThreadFactoryBuilder().setNameFormat( "host-heartbeat-%d" ).setDaemon( true ).build() ) );
+
+    LivenessProber livenessProber = new LivenessProber( this, hostUpdater );
 
     IPUtil ipUtil = new IPUtil();
 
@@ -77,15 +87,11 @@ public class HostRegistryImpl implements HostRegistry
     {
         Preconditions.checkNotNull( id, "Id is null" );
 
-        for ( ResourceHostInfo resourceHostInfo : hosts.asMap().values() )
+        HostIndex.IndexedContainer container = hostIndex.getContainerById( id );
+
+        if ( isConnected( container ) )
         {
-            for ( ContainerHostInfo containerHostInfo : resourceHostInfo.getContainers() )
-            {
-                if ( id.equals( containerHostInfo.getId() ) )
-                {
-                    return containerHostInfo;
-                }
-            }
+            return container.info;
         }
 
         throw new HostDisconnectedException( String.format( HOST_NOT_CONNECTED_MSG, id ) );
@@ -97,15 +103,11 @@ public class HostRegistryImpl implements HostRegistry
     {
         Preconditions.checkArgument( !StringUtils.isBlank( hostname ), "Invalid hostname" );
 
-        for ( ResourceHostInfo resourceHostInfo : hosts.asMap().values() )
+        HostIndex.IndexedContainer container = hostIndex.getContainerByHostname( hostname );
+
+        if ( isConnected( container ) )
         {
-            for ( ContainerHostInfo containerHostInfo : resourceHostInfo.getContainers() )
-            {
-                if ( hostname.equalsIgnoreCase( containerHostInfo.getHostname() ) )
-                {
-                    return containerHostInfo;
-                }
-            }
+            return container.info;
         }
 
         throw new HostDisconnectedException( String.format( HOST_NOT_CONNECTED_MSG, hostname ) );
@@ -118,21 +120,33 @@ public class HostRegistryImpl implements HostRegistry
     {
         Preconditions.checkArgument( !StringUtils.isBlank( containerName ), "Invalid container name" );
 
-        for ( ResourceHostInfo resourceHostInfo : hosts.asMap().values() )
+        HostIndex.IndexedContainer container = hostIndex.getContainerByName( containerName );
+
+        if ( isConnected( container ) )
         {
-            for ( ContainerHostInfo containerHostInfo : resourceHostInfo.getContainers() )
-            {
-                if ( containerName.equalsIgnoreCase( containerHostInfo.getContainerName() ) )
-                {
-                    return containerHostInfo;
-                }
-            }
+            return container.info;
         }
 
         throw new HostDisconnectedException( String.format( HOST_NOT_CONNECTED_MSG, containerName ) );
     }
 
 
+    @Override
+    public ContainerHostInfo getContainerHostInfoByIp( final String ip ) throws HostDisconnectedException
+    {
+        Preconditions.checkArgument( !StringUtils.isBlank( ip ), "Invalid ip" );
+
+        HostIndex.IndexedContainer container = hostIndex.getContainerByIp( ip );
+
+        if ( isConnected( container ) )
+        {
+            return container.info;
+        }
+
+        throw new HostDisconnectedException( String.format( HOST_NOT_CONNECTED_MSG, ip ) );
+    }
+
+
     @Override
     public Set<ContainerHostInfo> getContainerHostsInfo()
     {
@@ -152,12 +166,11 @@ public class HostRegistryImpl implements HostRegistry
     {
         Preconditions.checkNotNull( id, "Id is null" );
 
-        for ( ResourceHostInfo resourceHostInfo : hosts.asMap().values() )
+        HostIndex.IndexedHost host = hostIndex.getResourceHostById( id );
+
+        if ( host != null && isConnected( id ) )
         {
-            if ( id.equals( resourceHostInfo.getId() ) )
-            {
-                return resourceHostInfo;
-            }
+            return host.info;
         }
 
         throw new HostDisconnectedException( String.format( HOST_NOT_CONNECTED_MSG, id ) );
@@ -169,12 +182,11 @@ public class HostRegistryImpl implements HostRegistry
     {
         Preconditions.checkArgument( !StringUtils.isBlank( hostname ), "Invalid hostname" );
 
-        for ( ResourceHostInfo resourceHostInfo : hosts.asMap().values() )
+        HostIndex.IndexedHost host = hostIndex.getResourceHostByHostname( hostname );
+
+        if ( host != null && isConnected( host.info.getId() ) )
         {
-            if ( hostname.equalsIgnoreCase( resourceHostInfo.getHostname() ) )
-            {
-                return resourceHostInfo;
-            }
+            return host.info;
         }
 
         throw new HostDisconnectedException( String.format( HOST_NOT_CONNECTED_MSG, hostname ) );
@@ -194,14 +206,15 @@ public class HostRegistryImpl implements HostRegistry
     {
         Preconditions.checkNotNull( containerHostInfo, "Container host info is null" );
 
-        for ( ResourceHostInfo resourceHostInfo : hosts.asMap().values() )
+        HostIndex.IndexedContainer container = hostIndex.getContainerById( containerHostInfo.getId() );
+
+        if ( isConnected( container ) )
         {
-            for ( ContainerHostInfo containerHostInfo1 : resourceHostInfo.getContainers() )
+            HostIndex.IndexedHost host = hostIndex.getResourceHostById( container.resourceHostId );
+
+            if ( host != null )
             {
-                if ( containerHostInfo.getId().equals( containerHostInfo1.getId() ) )
-                {
-                    return resourceHostInfo;
-                }
+                return host.info;
             }
         }
 
@@ -209,6 +222,21 @@ public class HostRegistryImpl implements HostRegistry
     }
 
 
+    private boolean isConnected( HostIndex.IndexedContainer container )
+    {
+        return container != null && isConnected( container.resourceHostId );
+    }
+
+
+    /**
+     * Checks that resource host has not expired. Unlike {@code getIfPresent} this does not prolong its entry
+     */
+    private boolean isConnected( String resourceHostId )
+    {
+        return hosts.asMap().containsKey( resourceHostId );
+    }
+
+
     @Override
     public HostInfo getHostInfoById( final String hostId ) throws HostDisconnectedException
     {
@@ -268,12 +296,14 @@ public class HostRegistryImpl implements HostRegistry
             ( ( ResourceHostInfoModel ) newRhInfo ).setDateCreated( System.currentTimeMillis() );
         }
 
-        hosts.put( newRhInfo.getId(), newRhInfo );
-
-        //notify listeners
-        for ( HostListener listener : hostListeners )
+        //keep cache, index and listener notifications in the same order for concurrent heartbeats of the host
+        synchronized ( hostIndex )
         {
-            threadPool.execute( new HostNotifier( listener, oldRhInfo, newRhInfo, alerts ) );
+            hosts.put( newRhInfo.getId(), newRhInfo );
+
+            hostIndex.index( newRhInfo );
+
+            heartbeatPipeline.offerHeartbeat( newRhInfo, alerts );
         }
     }
 
@@ -288,13 +318,14 @@ public class HostRegistryImpl implements HostRegistry
                                         public void onRemoval(
                                                 final RemovalNotification<String, ResourceHostInfo> notification )
                                         {
+                                            if ( notification.getCause() != RemovalCause.REPLACED )
+                                            {
+                                                hostIndex.unindex( notification.getValue() );
+                                            }
+
                                             if ( notification.getCause() == RemovalCause.EXPIRED )
                                             {
-                                                for ( HostListener listener : hostListeners )
-                                                {
-                                                    threadPool.execute(
-                                                            new HostNotifier( listener, notification.getValue() ) );
-                                                }
+                                                heartbeatPipeline.offerDisconnect( notification.getValue() );
                                             }
                                         }
                                     } ).
@@ -315,7 +346,9 @@ public class HostRegistryImpl implements HostRegistry
     {
         hosts.invalidateAll();
 
-        threadPool.shutdown();
+        hostIndex.clear();
+
+        heartbeatPipeline.dispose();
 
         hostUpdater.shutdown();
     }
@@ -325,6 +358,10 @@ public class HostRegistryImpl implements HostRegistry
     {
         try
         {
+            LOG.debug( "Heartbeats coalesced before delivery: {}", heartbeatPipeline.getCoalescedHeartbeatsCount() );
+
+            LOG.debug( "Host ping stats: {}", livenessProber.getStats() );
+
             Set<ResourceHostInfo> cachedResourceHosts = getResourceHostsInfo();
 
             Set<ResourceHost> registeredResourceHosts = Sets.newHashSet();
@@ -336,11 +373,24 @@ public class HostRegistryImpl implements HostRegistry
                 registeredResourceHosts.addAll( localPeer.getResourceHosts() );
             }
 
+            //each host is checked once even if it is both cached and registered, cached info is the most recent one
+            Map<String, ResourceHostInfo> allHosts = Maps.newHashMap();
+
+            for ( ResourceHostInfo resourceHostInfo : registeredResourceHosts )
+            {
+                allHosts.put( resourceHostInfo.getId(), resourceHostInfo );
+            }
+
+            for ( ResourceHostInfo resourceHostInfo : cachedResourceHosts )
+            {
+                allHosts.put( resourceHostInfo.getId(), resourceHostInfo );
+            }
+
             //if local peer has not received heartbeat because it was initialized after the first heartbeat had arrived
             //we need to re-request heartbeat from agent based on cache entries
             if ( cachedResourceHosts.size() > registeredResourceHosts.size() )
             {
-                requestHeartbeats( cachedResourceHosts );
+                livenessProber.requestHeartbeats( cachedResourceHosts, PROBE_SPREAD_MS );
 
                 return;
             }
@@ -359,27 +409,13 @@ public class HostRegistryImpl implements HostRegistry
 
                 if ( noManagement )
                 {
-                    Set<ResourceHostInfo> allHosts = Sets.newHashSet();
-
-                    allHosts.addAll( registeredResourceHosts );
-
-                    allHosts.addAll( cachedResourceHosts );
-
-                    requestHeartbeats( allHosts );
+                    livenessProber.requestHeartbeats( allHosts.values(), PROBE_SPREAD_MS );
 
                     return;
                 }
             }
 
-            if ( !CollectionUtil.isCollectionEmpty( cachedResourceHosts ) )
-            {
-                checkAndUpdateHosts( cachedResourceHosts );
-            }
-
-            if ( !CollectionUtil.isCollectionEmpty( registeredResourceHosts ) )
-            {
-                checkAndUpdateHosts( Sets.<ResourceHostInfo>newHashSet( registeredResourceHosts ) );
-            }
+            livenessProber.ping( allHosts, PROBE_SPREAD_MS );
         }
         catch ( Exception e )
         {
@@ -388,96 +424,18 @@ public class HostRegistryImpl implements HostRegistry
     }
 
 
-    private void requestHeartbeats( Set<ResourceHostInfo> resourceHosts )
-    {
-        for ( final ResourceHostInfo resourceHostInfo : resourceHosts )
-        {
-            threadPool.execute( new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    requestHeartbeat( resourceHostInfo );
-                }
-            } );
-        }
-    }
-
-
-    void checkAndUpdateHosts( Set<ResourceHostInfo> resourceHosts )
-    {
-        for ( final ResourceHostInfo resourceHostInfo : resourceHosts )
-        {
-            threadPool.execute( new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    updateHost( resourceHostInfo );
-                }
-            } );
-        }
-    }
-
-
-    void updateHost( ResourceHostInfo resourceHostInfo )
-    {
-        WebClient webClient = null;
-        Response response = null;
-
-        try
-        {
-            webClient = getWebClient( resourceHostInfo.getAddress(), "ping" );
-
-            response = webClient.get();
-
-            if ( response.getStatus() == Response.Status.OK.getStatusCode() )
-            {
-                if ( resourceHostInfo instanceof ResourceHost )
-                {
-                    try
-                    {
-                        getResourceHostInfoById( resourceHostInfo.getId() );
-                    }
-                    catch ( HostDisconnectedException e )
-                    {
-                        requestHeartbeat( resourceHostInfo );
-                    }
-                }
-                else
-                {
-                    updateResourceHostEntryTimestamp( resourceHostInfo.getId() );
-                }
-            }
-        }
-        catch ( Exception e )
-        {
-            LOG.error( "Error checking host {}: {}", resourceHostInfo, e.getMessage() );
-        }
-        finally
-        {
-            RestUtil.close( response, webClient );
-        }
-    }
-
-
-    void requestHeartbeat( ResourceHostInfo resourceHostInfo )
+    /**
+     * Called when host has answered ping. Prolongs entry of connected host, asks disconnected one for heartbeat
+     */
+    void onHostAlive( ResourceHostInfo resourceHostInfo )
     {
-        WebClient webClient = null;
-        Response response = null;
-
-        try
-        {
-            webClient = getWebClient( resourceHostInfo.getAddress(), "heartbeat" );
-            response = webClient.get();
-        }
-        catch ( Exception e )
+        if ( isConnected( resourceHostInfo.getId() ) )
         {
-            LOG.warn( "Error requesting heartbeat: {}", e.getMessage() );
+            updateResourceHostEntryTimestamp( resourceHostInfo.getId() );
         }
-        finally
+        else
         {
-            RestUtil.close( response, webClient );
+            livenessProber.requestHeartbeat( resourceHostInfo );
         }
     }
 
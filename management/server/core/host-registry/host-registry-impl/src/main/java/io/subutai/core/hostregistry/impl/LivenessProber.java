@@ -0,0 +1,290 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.util.RestUtil;
+
+
+/**
+ * Checks liveness of resource hosts. Requests are sent over the asynchronous CXF conduit, which keeps a shared pool of
+ * connections and needs no thread per request. Requests of a round are spread randomly over a part of the round, and
+ * a host is skipped while its previous request is still in flight.
+ */
+class LivenessProber
+{
+    private static final Logger LOG = LoggerFactory.getLogger( LivenessProber.class.getName() );
+
+    private static final String USE_ASYNC_CONDUIT = "use.async.http.conduit";
+
+    private final HostRegistryImpl registry;
+    private final ScheduledExecutorService scheduler;
+    private final Set<String> inFlight = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+    private final ConcurrentMap<String, ProbeStats> stats = new ConcurrentHashMap<>();
+
+
+    LivenessProber( final HostRegistryImpl registry, final ScheduledExecutorService scheduler )
+    {
+        this.registry = registry;
+        this.scheduler = scheduler;
+    }
+
+
+    /**
+     * Pings hosts within {@code spreadMs}. Hosts that answer are passed to {@code HostRegistryImpl.onHostAlive}
+     *
+     * @param hosts - hosts keyed by id
+     */
+    void ping( Map<String, ? extends ResourceHostInfo> hosts, long spreadMs )
+    {
+        //drop stats of hosts that are gone
+        stats.keySet().retainAll( hosts.keySet() );
+
+        for ( ResourceHostInfo resourceHostInfo : hosts.values() )
+        {
+            schedule( resourceHostInfo, true, spreadMs );
+        }
+    }
+
+
+    /**
+     * Asks hosts to send heartbeat within {@code spreadMs}
+     */
+    void requestHeartbeats( Collection<? extends ResourceHostInfo> hosts, long spreadMs )
+    {
+        for ( ResourceHostInfo resourceHostInfo : hosts )
+        {
+            schedule( resourceHostInfo, false, spreadMs );
+        }
+    }
+
+
+    void requestHeartbeat( ResourceHostInfo resourceHostInfo )
+    {
+        send( resourceHostInfo, false );
+    }
+
+
+    /**
+     * Returns probe statistics keyed by resource host id
+     */
+    Map<String, ProbeStats> getStats()
+    {
+        return Collections.<String, ProbeStats>unmodifiableMap( stats );
+    }
+
+
+    private void schedule( final ResourceHostInfo resourceHostInfo, final boolean ping, long spreadMs )
+    {
+        long delay = spreadMs > 0 ? ThreadLocalRandom.current().nextLong( spreadMs ) : 0;
+
+        scheduler.schedule( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                send( resourceHostInfo, ping );
+            }
+        }, delay, TimeUnit.MILLISECONDS );
+    }
+
+
+    void send( final ResourceHostInfo resourceHostInfo, final boolean ping )
+    {
+        final String hostId = resourceHostInfo.getId();
+
+        if ( !inFlight.add( hostId ) )
+        {
+            LOG.debug( "Previous request to host {} is still in progress", hostId );
+
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+
+        WebClient webClient = null;
+
+        try
+        {
+            webClient = getWebClient( resourceHostInfo, ping ? "ping" : "heartbeat" );
+
+            final WebClient client = webClient;
+
+            webClient.async().get( new InvocationCallback<Response>()
+            {
+                @Override
+                public void completed( final Response response )
+                {
+                    //released first, so that alive host which is not connected can be asked for heartbeat
+                    inFlight.remove( hostId );
+
+                    try
+                    {
+                        boolean alive = response.getStatus() == Response.Status.OK.getStatusCode();
+
+                        if ( ping )
+                        {
+                            record( hostId, startTime, alive );
+
+                            if ( alive )
+                            {
+                                registry.onHostAlive( resourceHostInfo );
+                            }
+                        }
+                    }
+                    catch ( Exception e )
+                    {
+                        LOG.error( "Error checking host {}: {}", resourceHostInfo, e.getMessage() );
+                    }
+                    finally
+                    {
+                        RestUtil.close( response, client );
+                    }
+                }
+
+
+                @Override
+                public void failed( final Throwable throwable )
+                {
+                    inFlight.remove( hostId );
+
+                    RestUtil.close( client );
+
+                    onFailure( resourceHostInfo, ping, startTime, throwable );
+                }
+            } );
+        }
+        catch ( Exception e )
+        {
+            inFlight.remove( hostId );
+
+            RestUtil.close( webClient );
+
+            onFailure( resourceHostInfo, ping, startTime, e );
+        }
+    }
+
+
+    WebClient getWebClient( ResourceHostInfo resourceHostInfo, String action )
+    {
+        WebClient webClient = registry.getWebClient( resourceHostInfo.getAddress(), action );
+
+        WebClient.getConfig( webClient ).getRequestContext().put( USE_ASYNC_CONDUIT, Boolean.TRUE );
+
+        return webClient;
+    }
+
+
+    private void onFailure( ResourceHostInfo resourceHostInfo, boolean ping, long startTime, Throwable throwable )
+    {
+        if ( ping )
+        {
+            record( resourceHostInfo.getId(), startTime, false );
+
+            LOG.error( "Error checking host {}: {}", resourceHostInfo, throwable.getMessage() );
+        }
+        else
+        {
+            LOG.warn( "Error requesting heartbeat: {}", throwable.getMessage() );
+        }
+    }
+
+
+    private void record( String hostId, long startTime, boolean success )
+    {
+        ProbeStats probeStats = stats.get( hostId );
+
+        if ( probeStats == null )
+        {
+            ProbeStats newStats = new ProbeStats();
+            probeStats = stats.putIfAbsent( hostId, newStats );
+            if ( probeStats == null )
+            {
+                probeStats = newStats;
+            }
+        }
+
+        probeStats.record( System.currentTimeMillis() - startTime, success );
+    }
+
+
+    /**
+     * Ping statistics of a resource host
+     */
+    static class ProbeStats
+    {
+        private final AtomicLong pings = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private volatile long lastLatencyMs;
+
+
+        void record( long latencyMs, boolean success )
+        {
+            pings.incrementAndGet();
+
+            if ( success )
+            {
+                totalLatencyMs.addAndGet( latencyMs );
+
+                lastLatencyMs = latencyMs;
+            }
+            else
+            {
+                failures.incrementAndGet();
+            }
+        }
+
+
+        long getPings()
+        {
+            return pings.get();
+        }
+
+
+        long getFailures()
+        {
+            return failures.get();
+        }
+
+
+        long getLastLatencyMs()
+        {
+            return lastLatencyMs;
+        }
+
+
+        long getAverageLatencyMs()
+        {
+            long successes = pings.get() - failures.get();
+
+            return successes > 0 ? totalLatencyMs.get() / successes : 0;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return String.format( "{pings: %d, failures: %d, last: %dms, avg: %dms}", getPings(), getFailures(),
+                    getLastLatencyMs(), getAverageLatencyMs() );
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.ContainerHostState;
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.metric.QuotaAlertValue;
+import io.subutai.core.hostregistry.api.HostListener;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class HeartbeatPipelineTest
+{
+    private static final String HOST_ID = UUID.randomUUID().toString();
+    private static final String CONTAINER_ID = UUID.randomUUID().toString();
+
+    @Mock
+    HostListener listener;
+    @Mock
+    HostListener listener2;
+    @Mock
+    ExecutorService executor;
+    @Mock
+    QuotaAlertValue quotaAlertValue;
+    @Mock
+    QuotaAlertValue quotaAlertValue2;
+
+    HeartbeatPipeline pipeline;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        pipeline = spy( new HeartbeatPipeline( Sets.newHashSet( listener, listener2 ), executor ) );
+    }
+
+
+    private ResourceHostInfo resourceHostInfo( ContainerHostInfo... containers )
+    {
+        ResourceHostInfo resourceHostInfo = mock( ResourceHostInfo.class );
+        doReturn( HOST_ID ).when( resourceHostInfo ).getId();
+        doReturn( Sets.newHashSet( containers ) ).when( resourceHostInfo ).getContainers();
+        return resourceHostInfo;
+    }
+
+
+    private ContainerHostInfo containerHostInfo( ContainerHostState state, String hostname )
+    {
+        ContainerHostInfo containerHostInfo = mock( ContainerHostInfo.class );
+        doReturn( CONTAINER_ID ).when( containerHostInfo ).getId();
+        doReturn( state ).when( containerHostInfo ).getState();
+        doReturn( hostname ).when( containerHostInfo ).getHostname();
+        return containerHostInfo;
+    }
+
+
+    private void runScheduled( int times )
+    {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass( Runnable.class );
+        verify( executor, times( times ) ).execute( captor.capture() );
+        captor.getValue().run();
+    }
+
+
+    @Test
+    public void testCoalesceHeartbeats() throws Exception
+    {
+        ResourceHostInfo first = resourceHostInfo();
+        ResourceHostInfo second = resourceHostInfo();
+
+        pipeline.offerHeartbeat( first, Sets.newHashSet( quotaAlertValue ) );
+        pipeline.offerHeartbeat( second, Sets.newHashSet( quotaAlertValue2 ) );
+
+        runScheduled( 1 );
+
+        Set<QuotaAlertValue> alerts = Sets.newHashSet( quotaAlertValue, quotaAlertValue2 );
+        verify( listener ).onHeartbeat( second, alerts );
+        verify( listener ).onRhConnected( second );
+        verify( listener2 ).onRhConnected( second );
+        verify( listener, times( 0 ) ).onHeartbeat( first, Sets.newHashSet( quotaAlertValue ) );
+        assertEquals( 1, pipeline.getCoalescedHeartbeatsCount() );
+    }
+
+
+    @Test
+    public void testKeepOrderWithDisconnect() throws Exception
+    {
+        ResourceHostInfo first = resourceHostInfo();
+        ResourceHostInfo second = resourceHostInfo();
+
+        pipeline.offerHeartbeat( first, null );
+        pipeline.offerDisconnect( first );
+        pipeline.offerHeartbeat( second, null );
+
+        runScheduled( 1 );
+
+        InOrder inOrder = inOrder( listener );
+        inOrder.verify( listener ).onRhConnected( first );
+        inOrder.verify( listener ).onRhDisconnected( first );
+        inOrder.verify( listener ).onRhConnected( second );
+        assertEquals( 0, pipeline.getCoalescedHeartbeatsCount() );
+
+        //channel is released, next heartbeat is scheduled again
+        pipeline.offerHeartbeat( second, null );
+
+        runScheduled( 2 );
+    }
+
+
+    @Test
+    public void testDiff() throws Exception
+    {
+        ContainerHostInfo oldContainer = containerHostInfo( ContainerHostState.STOPPED, "old" );
+        ContainerHostInfo newContainer = containerHostInfo( ContainerHostState.RUNNING, "new" );
+        Map<String, HeartbeatPipeline.MissingContainer> missingContainers = Maps.newHashMap();
+
+        HeartbeatDiff diff =
+                pipeline.diff( resourceHostInfo( oldContainer ), resourceHostInfo( newContainer ), null,
+                        missingContainers, 0 );
+
+        assertEquals( 1, diff.getStateChanges().size() );
+        assertEquals( ContainerHostState.STOPPED, diff.getStateChanges().get( 0 ).previousState );
+        assertEquals( 1, diff.getHostnameChanges().size() );
+        assertEquals( "old", diff.getHostnameChanges().get( 0 ).previousHostname );
+        assertTrue( diff.getCreatedContainers().isEmpty() );
+        assertTrue( diff.getDestroyedContainers().isEmpty() );
+
+        diff = pipeline.diff( resourceHostInfo(), resourceHostInfo( newContainer ), null, missingContainers, 0 );
+
+        assertEquals( newContainer, diff.getCreatedContainers().get( 0 ) );
+    }
+
+
+    @Test
+    public void testDestroyIsConfirmedByLaterHeartbeat() throws Exception
+    {
+        ContainerHostInfo container = containerHostInfo( ContainerHostState.RUNNING, "name" );
+        Map<String, HeartbeatPipeline.MissingContainer> missingContainers = Maps.newHashMap();
+        doReturn( false ).when( pipeline ).containerStillExists( any( ContainerHostInfo.class ) );
+
+        HeartbeatDiff diff =
+                pipeline.diff( resourceHostInfo( container ), resourceHostInfo(), null, missingContainers, 0 );
+
+        assertTrue( diff.getDestroyedContainers().isEmpty() );
+        verify( pipeline, never() ).containerStillExists( any( ContainerHostInfo.class ) );
+
+        diff = pipeline.diff( resourceHostInfo(), resourceHostInfo(), null, missingContainers,
+                HeartbeatPipeline.DESTROY_CONFIRM_DELAY_MS );
+
+        assertEquals( container, diff.getDestroyedContainers().get( 0 ) );
+        assertTrue( missingContainers.isEmpty() );
+    }
+
+
+    @Test
+    public void testMissingContainerReappears() throws Exception
+    {
+        ContainerHostInfo container = containerHostInfo( ContainerHostState.RUNNING, "name" );
+        ContainerHostInfo stoppedContainer = containerHostInfo( ContainerHostState.STOPPED, "name" );
+        Map<String, HeartbeatPipeline.MissingContainer> missingContainers = Maps.newHashMap();
+
+        pipeline.diff( resourceHostInfo( container ), resourceHostInfo(), null, missingContainers, 0 );
+
+        HeartbeatDiff diff =
+                pipeline.diff( resourceHostInfo(), resourceHostInfo( stoppedContainer ), null, missingContainers, 1 );
+
+        assertTrue( diff.getCreatedContainers().isEmpty() );
+        assertTrue( diff.getDestroyedContainers().isEmpty() );
+        assertEquals( ContainerHostState.RUNNING, diff.getStateChanges().get( 0 ).previousState );
+        assertTrue( missingContainers.isEmpty() );
+        verify( pipeline, never() ).containerStillExists( any( ContainerHostInfo.class ) );
+    }
+
+
+    @Test
+    public void testChannelIsRemovedOnDisconnect() throws Exception
+    {
+        ResourceHostInfo first = resourceHostInfo();
+
+        pipeline.offerHeartbeat( first, null );
+
+        runScheduled( 1 );
+
+        assertEquals( 1, pipeline.getChannelsCount() );
+
+        pipeline.offerDisconnect( first );
+
+        runScheduled( 2 );
+
+        verify( listener ).onRhDisconnected( first );
+        assertEquals( 0, pipeline.getChannelsCount() );
+
+        //host connects again on a new channel
+        pipeline.offerHeartbeat( first, null );
+
+        runScheduled( 3 );
+
+        verify( listener, times( 2 ) ).onRhConnected( first );
+    }
+}
@@ -0,0 +1,138 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.Sets;
+
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.ContainerHostInfoModel;
+import io.subutai.common.host.ContainerHostState;
+import io.subutai.common.host.HostArchitecture;
+import io.subutai.common.host.HostInterfaceModel;
+import io.subutai.common.host.HostInterfaces;
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.settings.Common;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class HostIndexTest
+{
+    private static final String HOST_ID = UUID.randomUUID().toString();
+    private static final String HOST_HOSTNAME = "Host";
+
+    @Mock
+    ResourceHostInfo resourceHostInfo;
+
+    ContainerHostInfo containerHostInfo;
+
+    HostIndex hostIndex;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        containerHostInfo = createContainer( "Container", "172.16.1.2" );
+
+        when( resourceHostInfo.getId() ).thenReturn( HOST_ID );
+        when( resourceHostInfo.getHostname() ).thenReturn( HOST_HOSTNAME );
+        when( resourceHostInfo.getContainers() ).thenReturn( Sets.newHashSet( containerHostInfo ) );
+
+        hostIndex = new HostIndex();
+        hostIndex.index( resourceHostInfo );
+    }
+
+
+    @Test
+    public void testLookups() throws Exception
+    {
+        assertSame( resourceHostInfo, hostIndex.getResourceHostById( HOST_ID ).info );
+        assertSame( resourceHostInfo, hostIndex.getResourceHostByHostname( "host" ).info );
+        assertSame( containerHostInfo, hostIndex.getContainerById( containerHostInfo.getId() ).info );
+        assertSame( containerHostInfo, hostIndex.getContainerByHostname( "CONTAINER" ).info );
+        assertSame( containerHostInfo, hostIndex.getContainerByName( "container" ).info );
+        assertSame( containerHostInfo, hostIndex.getContainerByIp( "172.16.1.2" ).info );
+        assertEquals( HOST_ID, hostIndex.getContainerById( containerHostInfo.getId() ).resourceHostId );
+    }
+
+
+    @Test
+    public void testReindex() throws Exception
+    {
+        ContainerHostInfo newContainer = createContainer( "new-container", "172.16.1.3" );
+        ResourceHostInfo newResourceHostInfo = mock( ResourceHostInfo.class );
+        when( newResourceHostInfo.getId() ).thenReturn( HOST_ID );
+        when( newResourceHostInfo.getHostname() ).thenReturn( HOST_HOSTNAME );
+        when( newResourceHostInfo.getContainers() ).thenReturn( Sets.newHashSet( newContainer ) );
+
+        hostIndex.index( newResourceHostInfo );
+
+        assertSame( newResourceHostInfo, hostIndex.getResourceHostByHostname( HOST_HOSTNAME ).info );
+        assertSame( newContainer, hostIndex.getContainerByIp( "172.16.1.3" ).info );
+        assertNull( hostIndex.getContainerById( containerHostInfo.getId() ) );
+        assertNull( hostIndex.getContainerByName( "container" ) );
+        assertNull( hostIndex.getContainerByIp( "172.16.1.2" ) );
+
+        //stale version must not remove the current one
+        hostIndex.unindex( resourceHostInfo );
+
+        assertSame( newResourceHostInfo, hostIndex.getResourceHostById( HOST_ID ).info );
+        assertSame( newContainer, hostIndex.getContainerById( newContainer.getId() ).info );
+    }
+
+
+    @Test
+    public void testUnindex() throws Exception
+    {
+        hostIndex.unindex( resourceHostInfo );
+
+        assertNull( hostIndex.getResourceHostById( HOST_ID ) );
+        assertNull( hostIndex.getResourceHostByHostname( HOST_HOSTNAME ) );
+        assertNull( hostIndex.getContainerById( containerHostInfo.getId() ) );
+        assertNull( hostIndex.getContainerByHostname( "container" ) );
+        assertNull( hostIndex.getContainerByIp( "172.16.1.2" ) );
+    }
+
+
+    @Test
+    public void testContainersWithoutInterface() throws Exception
+    {
+        String id = UUID.randomUUID().toString();
+        String id2 = UUID.randomUUID().toString();
+        ContainerHostInfo container = new ContainerHostInfoModel( id, "no-interface", "no-interface",
+                new HostInterfaces( id, Sets.<HostInterfaceModel>newHashSet() ), HostArchitecture.AMD64,
+                ContainerHostState.RUNNING, null, null );
+        ContainerHostInfo container2 = new ContainerHostInfoModel( id2, "no-interface2", "no-interface2",
+                new HostInterfaces( id2, Sets.<HostInterfaceModel>newHashSet() ), HostArchitecture.AMD64,
+                ContainerHostState.RUNNING, null, null );
+        when( resourceHostInfo.getContainers() ).thenReturn( Sets.newHashSet( container, container2 ) );
+
+        hostIndex.index( resourceHostInfo );
+
+        assertNull( hostIndex.getContainerByIp( Common.LOCAL_HOST_IP ) );
+        assertSame( container, hostIndex.getContainerById( id ).info );
+        assertSame( container2, hostIndex.getContainerByName( "no-interface2" ).info );
+    }
+
+
+    private ContainerHostInfo createContainer( String name, String ip )
+    {
+        String id = UUID.randomUUID().toString();
+
+        return new ContainerHostInfoModel( id, name, name, new HostInterfaces( id, Sets.newHashSet(
+                new HostInterfaceModel( Common.DEFAULT_CONTAINER_INTERFACE, ip ) ) ), HostArchitecture.AMD64,
+                ContainerHostState.RUNNING, null, null );
+    }
+}
@@ -10,15 +10,20 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.ContainerHostState;
 import io.subutai.common.host.ResourceHostInfo;
 import io.subutai.common.metric.QuotaAlertValue;
 import io.subutai.core.hostregistry.api.HostListener;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 
@@ -29,9 +34,9 @@ public class HostNotifierTest
     @Mock
     HostListener listener;
     @Mock
-    ResourceHostInfo oldRhInfo;
-    @Mock
     ResourceHostInfo newRhInfo;
+    @Mock
+    ContainerHostInfo containerHostInfo;
 
     @Mock
     QuotaAlertValue quotaAlertValue;
@@ -45,7 +50,7 @@ public class HostNotifierTest
     public void setUp() throws Exception
     {
         alerts = Sets.newHashSet( quotaAlertValue );
-        notifier = new HostNotifier( listener, oldRhInfo, newRhInfo, alerts );
+        notifier = new HostNotifier( listener, HeartbeatDiff.connected( newRhInfo, alerts ) );
     }
 
 
@@ -55,6 +60,7 @@ public class HostNotifierTest
         notifier.run();
 
         verify( listener ).onHeartbeat( newRhInfo, alerts );
+        verify( listener ).onRhConnected( newRhInfo );
 
         RuntimeException exception = mock( RuntimeException.class );
         doThrow( exception ).when( listener ).onHeartbeat( newRhInfo, alerts );
@@ -63,4 +69,36 @@ public class HostNotifierTest
 
         verify( exception ).printStackTrace( any( PrintStream.class ) );
     }
+
+
+    @Test
+    public void testRunWithChanges() throws Exception
+    {
+        doReturn( ContainerHostState.RUNNING ).when( containerHostInfo ).getState();
+        doReturn( "hostname" ).when( containerHostInfo ).getHostname();
+
+        HeartbeatDiff diff = HeartbeatDiff.changed( newRhInfo, alerts, Lists.newArrayList( containerHostInfo ),
+                Lists.<ContainerHostInfo>newArrayList(), Lists.newArrayList(
+                        new HeartbeatDiff.StateChange( containerHostInfo, ContainerHostState.STOPPED ) ),
+                Lists.newArrayList( new HeartbeatDiff.HostnameChange( containerHostInfo, "old" ) ) );
+
+        new HostNotifier( listener, diff ).run();
+
+        verify( listener ).onHeartbeat( newRhInfo, alerts );
+        verify( listener, never() ).onRhConnected( newRhInfo );
+        verify( listener ).onContainerCreated( containerHostInfo );
+        verify( listener ).onContainerStateChanged( containerHostInfo, ContainerHostState.STOPPED,
+                ContainerHostState.RUNNING );
+        verify( listener ).onContainerHostnameChanged( containerHostInfo, "old", "hostname" );
+    }
+
+
+    @Test
+    public void testRunDisconnected() throws Exception
+    {
+        new HostNotifier( listener, HeartbeatDiff.disconnected( newRhInfo ) ).run();
+
+        verify( listener ).onRhDisconnected( newRhInfo );
+        verify( listener, never() ).onHeartbeat( any( ResourceHostInfo.class ), any( Set.class ) );
+    }
 }
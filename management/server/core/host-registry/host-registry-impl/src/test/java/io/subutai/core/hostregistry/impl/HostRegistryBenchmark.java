@@ -0,0 +1,171 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.ContainerHostInfoModel;
+import io.subutai.common.host.ContainerHostState;
+import io.subutai.common.host.HostArchitecture;
+import io.subutai.common.host.HostInterfaceModel;
+import io.subutai.common.host.HostInterfaces;
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.common.host.ResourceHostInfoModel;
+import io.subutai.common.metric.QuotaAlertValue;
+import io.subutai.common.settings.Common;
+import io.subutai.core.hostregistry.api.HostDisconnectedException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Measures {@code HostRegistryImpl} lookups against a fully populated registry, compared to a scan over all resource
+ * hosts and their containers. Run with {@code main} from the test classpath.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@Threads( 8 )
+public class HostRegistryBenchmark
+{
+    @Param( { "500" } )
+    int resourceHosts;
+
+    @Param( { "100" } )
+    int containersPerHost;
+
+    private HostRegistryImpl registry;
+    private ContainerHostInfo[] containers;
+
+
+    @Setup
+    public void setUp()
+    {
+        registry = new HostRegistryImpl();
+        registry.hosts = CacheBuilder.newBuilder().build();
+        containers = new ContainerHostInfo[resourceHosts * containersPerHost];
+
+        for ( int i = 0; i < resourceHosts; i++ )
+        {
+            Set<ContainerHostInfo> hostContainers = Sets.newHashSet();
+
+            for ( int j = 0; j < containersPerHost; j++ )
+            {
+                String id = UUID.randomUUID().toString();
+                String name = String.format( "container-%d-%d", i, j );
+                String ip = String.format( "172.%d.%d.%d", 16 + i / 256, i % 256, j + 1 );
+
+                ContainerHostInfo container = new ContainerHostInfoModel( id, name, name, new HostInterfaces( id,
+                        Sets.newHashSet( new HostInterfaceModel( Common.DEFAULT_CONTAINER_INTERFACE, ip ) ) ),
+                        HostArchitecture.AMD64, ContainerHostState.RUNNING, null, null );
+
+                hostContainers.add( container );
+                containers[i * containersPerHost + j] = container;
+            }
+
+            ResourceHostInfoModel resourceHostInfo = mock( ResourceHostInfoModel.class );
+            when( resourceHostInfo.getId() ).thenReturn( UUID.randomUUID().toString() );
+            when( resourceHostInfo.getHostname() ).thenReturn( "rh" + i );
+            when( resourceHostInfo.getContainers() ).thenReturn( hostContainers );
+
+            registry.registerHost( resourceHostInfo, Sets.<QuotaAlertValue>newHashSet() );
+        }
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        registry.dispose();
+    }
+
+
+    @Benchmark
+    public ContainerHostInfo containerById() throws HostDisconnectedException
+    {
+        return registry.getContainerHostInfoById( randomContainer().getId() );
+    }
+
+
+    @Benchmark
+    public ContainerHostInfo containerByHostname() throws HostDisconnectedException
+    {
+        return registry.getContainerHostInfoByHostname( randomContainer().getHostname() );
+    }
+
+
+    @Benchmark
+    public ContainerHostInfo containerByName() throws HostDisconnectedException
+    {
+        return registry.getContainerHostInfoByContainerName( randomContainer().getContainerName() );
+    }
+
+
+    @Benchmark
+    public ResourceHostInfo resourceHostByContainer() throws HostDisconnectedException
+    {
+        return registry.getResourceHostByContainerHost( randomContainer() );
+    }
+
+
+    /**
+     * Lookup by id the way it was done before indexing, for comparison
+     */
+    @Benchmark
+    public ContainerHostInfo containerByIdScan()
+    {
+        String id = randomContainer().getId();
+
+        for ( ResourceHostInfo resourceHostInfo : registry.hosts.asMap().values() )
+        {
+            for ( ContainerHostInfo containerHostInfo : resourceHostInfo.getContainers() )
+            {
+                if ( id.equals( containerHostInfo.getId() ) )
+                {
+                    return containerHostInfo;
+                }
+            }
+        }
+
+        return null;
+    }
+
+
+    private ContainerHostInfo randomContainer()
+    {
+        return containers[ThreadLocalRandom.current().nextInt( containers.length )];
+    }
+
+
+    public static void main( String[] args ) throws RunnerException
+    {
+        new Runner( new OptionsBuilder().include( HostRegistryBenchmark.class.getSimpleName() ).build() ).run();
+    }
+}
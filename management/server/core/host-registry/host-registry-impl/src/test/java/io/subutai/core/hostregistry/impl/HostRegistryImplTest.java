@@ -2,10 +2,10 @@ package io.subutai.core.hostregistry.impl;
 
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -14,6 +14,7 @@ import javax.ws.rs.core.Response;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -23,15 +24,19 @@ import com.google.common.cache.Cache;
 import com.google.common.collect.Sets;
 
 import io.subutai.common.host.ContainerHostInfo;
+import io.subutai.common.host.HostInterfaceModel;
+import io.subutai.common.host.HostInterfaces;
 import io.subutai.common.host.ResourceHostInfo;
 import io.subutai.common.host.ResourceHostInfoModel;
 import io.subutai.common.metric.QuotaAlertValue;
 import io.subutai.common.peer.LocalPeer;
 import io.subutai.common.peer.ResourceHost;
+import io.subutai.common.settings.Common;
 import io.subutai.common.util.IPUtil;
 import io.subutai.core.hostregistry.api.HostDisconnectedException;
 import io.subutai.core.hostregistry.api.HostListener;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotSame;
 import static junit.framework.Assert.assertTrue;
@@ -39,14 +44,11 @@ import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
-import static org.mockito.Matchers.anySet;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -61,13 +63,11 @@ public class HostRegistryImplTest
     private static final String CONTAINER_HOSTNAME = "container";
     private static final String DUMMY_HOSTNAME = "dummy";
     private static final String HOST_IP = "127.0.0.1";
+    private static final String CONTAINER_IP = "172.16.1.2";
 
     @Mock
     Set<HostListener> hostListeners;
 
-    @Mock
-    ExecutorService notifier;
-
 
     @Mock
     Cache<String, ResourceHostInfo> hosts;
@@ -87,6 +87,12 @@ public class HostRegistryImplTest
     @Mock
     ScheduledExecutorService hostUpdater;
 
+    @Mock
+    HeartbeatPipeline heartbeatPipeline;
+
+    @Mock
+    LivenessProber livenessProber;
+
     @Mock
     QuotaAlertValue quotaAlertValue;
 
@@ -107,10 +113,11 @@ public class HostRegistryImplTest
     {
         registry = spy( new HostRegistryImpl() );
         registry.hostListeners = hostListeners;
-        registry.threadPool = notifier;
         registry.hosts = hosts;
         registry.hostUpdater = hostUpdater;
         registry.ipUtil = ipUtil;
+        registry.heartbeatPipeline = heartbeatPipeline;
+        registry.livenessProber = livenessProber;
         when( hosts.asMap() ).thenReturn( map );
         when( map.values() ).thenReturn( Sets.newHashSet( resourceHostInfo ) );
         when( resourceHostInfo.getContainers() ).thenReturn( Sets.newHashSet( containerHostInfo ) );
@@ -119,6 +126,10 @@ public class HostRegistryImplTest
         when( containerHostInfo.getId() ).thenReturn( CONTAINER_ID );
         when( containerHostInfo.getHostname() ).thenReturn( CONTAINER_HOSTNAME );
         when( containerHostInfo.getContainerName() ).thenReturn( CONTAINER_HOSTNAME );
+        when( containerHostInfo.getHostInterfaces() ).thenReturn( new HostInterfaces( CONTAINER_ID, Sets
+                .newHashSet( new HostInterfaceModel( Common.DEFAULT_CONTAINER_INTERFACE, CONTAINER_IP ) ) ) );
+        when( map.containsKey( HOST_ID ) ).thenReturn( true );
+        registry.hostIndex.index( resourceHostInfo );
         Iterator<HostListener> hostListenerIterator = mock( Iterator.class );
         when( hostListeners.iterator() ).thenReturn( hostListenerIterator );
         when( hostListenerIterator.hasNext() ).thenReturn( true ).thenReturn( false );
@@ -182,6 +193,31 @@ public class HostRegistryImplTest
     }
 
 
+    @Test
+    public void testGetContainerInfoByIp() throws Exception
+    {
+        assertEquals( containerHostInfo, registry.getContainerHostInfoByIp( CONTAINER_IP ) );
+
+        try
+        {
+            registry.getContainerHostInfoByIp( HOST_IP );
+            fail( "Expected HostDisconnectedException" );
+        }
+        catch ( HostDisconnectedException e )
+        {
+        }
+    }
+
+
+    @Test( expected = HostDisconnectedException.class )
+    public void testGetContainerInfoOfExpiredHost() throws Exception
+    {
+        when( map.containsKey( HOST_ID ) ).thenReturn( false );
+
+        registry.getContainerHostInfoById( CONTAINER_ID );
+    }
+
+
     @Test
     public void testGetContainersInfo() throws Exception
     {
@@ -284,7 +320,7 @@ public class HostRegistryImplTest
         registry.registerHost( resourceHostInfo, alerts );
 
         verify( hosts ).put( resourceHostInfo.getId(), resourceHostInfo );
-        verify( notifier ).execute( isA( HostNotifier.class ) );
+        verify( heartbeatPipeline ).offerHeartbeat( resourceHostInfo, alerts );
     }
 
 
@@ -294,6 +330,7 @@ public class HostRegistryImplTest
         registry.dispose();
 
         verify( hosts ).invalidateAll();
+        verify( heartbeatPipeline ).dispose();
     }
 
 
@@ -335,40 +372,31 @@ public class HostRegistryImplTest
 
         LocalPeer localPeer = mock( LocalPeer.class );
         ResourceHost resourceHost = mock( ResourceHost.class );
+        doReturn( HOST_ID ).when( resourceHost ).getId();
         doReturn( localPeer ).when( registry ).getLocalPeer();
         doReturn( Sets.newHashSet( resourceHost ) ).when( localPeer ).getResourceHosts();
 
         registry.updateHosts();
 
-        verify( registry, times( 2 ) ).checkAndUpdateHosts( anySet() );
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass( Map.class );
+        verify( livenessProber ).ping( captor.capture(), anyLong() );
+        assertEquals( 1, captor.getValue().size() );
+        assertEquals( resourceHostInfo, captor.getValue().get( HOST_ID ) );
     }
 
 
     @Test
-    public void testUpdateHost() throws Exception
+    public void testOnHostAlive() throws Exception
     {
-        WebClient webClient = mock( WebClient.class );
-        doReturn( webClient ).when( registry ).getWebClient( anyString(), anyString() );
-        Response response = mock( Response.class );
-        doReturn( response ).when( webClient ).get();
-        doReturn( Response.Status.OK.getStatusCode() ).when( response ).getStatus();
-
-        registry.updateHost( resourceHostInfo );
+        registry.onHostAlive( resourceHostInfo );
 
         verify( registry ).updateResourceHostEntryTimestamp( HOST_ID );
 
-        ResourceHost resourceHost = mock( ResourceHost.class );
-        doReturn( HOST_ID ).when( resourceHost ).getId();
-
-        registry.updateHost( resourceHost );
-
-        verify( registry ).getResourceHostInfoById( HOST_ID );
-
-        doThrow( new HostDisconnectedException( null ) ).when( registry ).getResourceHostInfoById( HOST_ID );
+        when( map.containsKey( HOST_ID ) ).thenReturn( false );
 
-        registry.updateHost( resourceHost );
+        registry.onHostAlive( resourceHostInfo );
 
-        verify( registry ).requestHeartbeat( resourceHost );
+        verify( livenessProber ).requestHeartbeat( resourceHostInfo );
     }
 
 
@@ -399,6 +427,7 @@ public class HostRegistryImplTest
         assertNotNull( registry.getContainerHostInfoByContainerName( CONTAINER_HOSTNAME ) );
 
         doReturn( "" ).when( containerHostInfo ).getContainerName();
+        registry.hostIndex.index( resourceHostInfo );
 
         registry.getContainerHostInfoByContainerName( CONTAINER_HOSTNAME );
     }
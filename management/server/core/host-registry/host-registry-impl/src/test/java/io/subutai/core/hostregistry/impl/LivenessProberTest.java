@@ -0,0 +1,150 @@
+package io.subutai.core.hostregistry.impl;
+
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.subutai.common.host.ResourceHostInfo;
+
+import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class LivenessProberTest
+{
+    private static final String HOST_ID = UUID.randomUUID().toString();
+    private static final String HOST_IP = "127.0.0.1";
+
+    @Mock
+    HostRegistryImpl registry;
+    @Mock
+    ScheduledExecutorService scheduler;
+    @Mock
+    ResourceHostInfo resourceHostInfo;
+    @Mock
+    WebClient webClient;
+    @Mock
+    AsyncInvoker asyncInvoker;
+    @Mock
+    Response response;
+
+    LivenessProber prober;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        prober = spy( new LivenessProber( registry, scheduler ) );
+
+        doReturn( HOST_ID ).when( resourceHostInfo ).getId();
+        doReturn( HOST_IP ).when( resourceHostInfo ).getAddress();
+        doReturn( webClient ).when( prober ).getWebClient( any( ResourceHostInfo.class ), anyString() );
+        doReturn( asyncInvoker ).when( webClient ).async();
+    }
+
+
+    private InvocationCallback<Response> captureCallback( int times )
+    {
+        ArgumentCaptor<InvocationCallback> captor = ArgumentCaptor.forClass( InvocationCallback.class );
+        verify( asyncInvoker, times( times ) ).get( captor.capture() );
+        return captor.getValue();
+    }
+
+
+    @Test
+    public void testPing() throws Exception
+    {
+        Map<String, ResourceHostInfo> hosts = ImmutableMap.of( HOST_ID, resourceHostInfo );
+
+        prober.ping( hosts, 5000 );
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass( Runnable.class );
+        verify( scheduler ).schedule( captor.capture(), anyLong(), any( TimeUnit.class ) );
+
+        captor.getValue().run();
+
+        verify( prober ).getWebClient( resourceHostInfo, "ping" );
+
+        //host is not pinged again while previous ping is in flight
+        prober.send( resourceHostInfo, true );
+
+        InvocationCallback<Response> callback = captureCallback( 1 );
+
+        doReturn( Response.Status.OK.getStatusCode() ).when( response ).getStatus();
+
+        callback.completed( response );
+
+        verify( registry ).onHostAlive( resourceHostInfo );
+        verify( response ).close();
+        assertEquals( 1, prober.getStats().get( HOST_ID ).getPings() );
+
+        prober.send( resourceHostInfo, true );
+
+        captureCallback( 2 ).failed( new RuntimeException() );
+
+        assertEquals( 2, prober.getStats().get( HOST_ID ).getPings() );
+        assertEquals( 1, prober.getStats().get( HOST_ID ).getFailures() );
+
+        prober.ping( ImmutableMap.<String, ResourceHostInfo>of(), 5000 );
+
+        assertEquals( 0, prober.getStats().size() );
+    }
+
+
+    @Test
+    public void testRequestHeartbeat() throws Exception
+    {
+        prober.requestHeartbeat( resourceHostInfo );
+
+        verify( prober ).getWebClient( resourceHostInfo, "heartbeat" );
+
+        doReturn( Response.Status.OK.getStatusCode() ).when( response ).getStatus();
+
+        captureCallback( 1 ).completed( response );
+
+        verify( registry, never() ).onHostAlive( resourceHostInfo );
+        assertEquals( 0, prober.getStats().size() );
+    }
+
+
+    @Test
+    public void testSendError() throws Exception
+    {
+        doThrow( new RuntimeException() ).when( prober ).getWebClient( any( ResourceHostInfo.class ), anyString() );
+
+        prober.send( resourceHostInfo, true );
+
+        assertEquals( 1, prober.getStats().get( HOST_ID ).getFailures() );
+
+        //failed host is not left in flight
+        prober.send( resourceHostInfo, true );
+
+        verify( prober, times( 2 ) ).getWebClient( resourceHostInfo, "ping" );
+    }
+}
@@ -62,10 +62,12 @@ public class AuthorizationBeanProcessor implements BeanProcessor
     public Object beforeInit( Object bean, String beanName, BeanCreator beanCreator, BeanMetadata beanData )
     {
         Class<?> c = bean.getClass();
-        if ( new SecurityAnnotationParser().isSecured( c ) )
+        SecurityAnnotationParser parser = new SecurityAnnotationParser();
+        if ( parser.isSecured( c ) )
         {
             LOGGER.debug( "Adding annotation based authorization interceptor for bean {} with class {}", beanName, c );
-            cdr.registerInterceptorWithComponent( beanData, new AuthorizationInterceptor( bean ) );
+            cdr.registerInterceptorWithComponent( beanData,
+                    new AuthorizationInterceptor( bean, new AuthorizationPlans( c, parser ) ) );
         }
         return bean;
     }
@@ -19,18 +19,13 @@
 package io.subutai.core.blueprint.auth;
 
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.security.AccessControlContext;
 import java.security.AccessControlException;
 import java.security.AccessController;
 import java.security.Principal;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 
-import javax.annotation.security.PermitAll;
-import javax.annotation.security.RolesAllowed;
 import javax.security.auth.Subject;
 
 import org.osgi.service.blueprint.reflect.ComponentMetadata;
@@ -39,21 +34,25 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.aries.blueprint.Interceptor;
 
-import io.subutai.common.security.relation.RelationCredibility;
-
 
 public class AuthorizationInterceptor implements Interceptor
 {
     private static final Logger logger = LoggerFactory.getLogger( AuthorizationInterceptor.class );
-    private Class<?> beanClass;
-    private Object bean;
-    private MethodWalker methodWalker;
+    private final Object bean;
+    private final AuthorizationPlans plans;
+    private final MethodWalker methodWalker;
 
 
     public AuthorizationInterceptor( Object bean )
+    {
+        this( bean, new AuthorizationPlans( bean.getClass(), new SecurityAnnotationParser() ) );
+    }
+
+
+    AuthorizationInterceptor( Object bean, AuthorizationPlans plans )
     {
         this.bean = bean;
-        this.beanClass = bean.getClass();
+        this.plans = plans;
         this.methodWalker = new MethodWalker( logger );
     }
 
@@ -81,28 +80,13 @@ public class AuthorizationInterceptor implements Interceptor
     @Override
     public Object preCall( ComponentMetadata cm, Method method, Object... parameters ) throws Throwable
     {
-        Annotation ann = new SecurityAnnotationParser().getEffectiveAnnotation( beanClass, method );
-        if ( ann == null )
-        {
-            return null;
-        }
-
-        if ( ann instanceof PermitAll )
-        {
-            return null;
-        }
-        String[] rolesAr = new String[] {}; // Also applies for @DenyAll
-        if ( ann instanceof RolesAllowed )
-        {
-            rolesAr = ( ( RolesAllowed ) ann ).value();
-        }
-
-        if ( ann instanceof RelationCredibility )
+        AuthorizationPlan plan = plans.get( method );
+        if ( plan.getType() != AuthorizationPlan.Type.ROLES_ALLOWED )
         {
             return null;
         }
 
-        Set<String> roles = new HashSet<>( Arrays.asList( rolesAr ) );
+        Set<String> roles = plan.getRoles();
         AccessControlContext acc = AccessController.getContext();
         Subject subject = Subject.getSubject( acc );
         if ( subject == null )
@@ -0,0 +1,89 @@
+package io.subutai.core.blueprint.auth;
+
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
+
+import io.subutai.common.security.relation.RelationCredibility;
+
+
+/**
+ * Authorization rules of one bean method, resolved from security annotations once so that method calls do not need
+ * reflection. Immutable, shared by all concurrent calls of the method.
+ */
+class AuthorizationPlan
+{
+    enum Type
+    {
+        NOT_SECURED, PERMIT_ALL, ROLES_ALLOWED, RELATION
+    }
+
+
+    private final Type type;
+    private final Set<String> roles;
+
+
+    private AuthorizationPlan( final Type type, final Set<String> roles )
+    {
+        this.type = type;
+        this.roles = roles;
+    }
+
+
+    /**
+     * Resolves effective security annotation of the method
+     *
+     * @throws IllegalStateException from {@link SecurityAnnotationParser#getEffectiveAnnotation(Class, Method)} if the
+     * bean class has no public method with the same name and parameter types
+     */
+    static AuthorizationPlan compile( final SecurityAnnotationParser parser, final Class<?> beanClass,
+                                      final Method method )
+    {
+        Annotation ann = parser.getEffectiveAnnotation( beanClass, method );
+
+        if ( ann == null )
+        {
+            return new AuthorizationPlan( Type.NOT_SECURED, Collections.<String>emptySet() );
+        }
+        else if ( ann instanceof PermitAll )
+        {
+            return new AuthorizationPlan( Type.PERMIT_ALL, Collections.<String>emptySet() );
+        }
+        else if ( ann instanceof RelationCredibility )
+        {
+            return new AuthorizationPlan( Type.RELATION, Collections.<String>emptySet() );
+        }
+        else if ( ann instanceof RolesAllowed )
+        {
+            return new AuthorizationPlan( Type.ROLES_ALLOWED, Collections.unmodifiableSet(
+                    new HashSet<>( Arrays.asList( ( ( RolesAllowed ) ann ).value() ) ) ) );
+        }
+        else
+        {
+            // @DenyAll
+            return new AuthorizationPlan( Type.ROLES_ALLOWED, Collections.<String>emptySet() );
+        }
+    }
+
+
+    Type getType()
+    {
+        return type;
+    }
+
+
+    /**
+     * Roles allowed to call the method, empty for @DenyAll
+     */
+    Set<String> getRoles()
+    {
+        return roles;
+    }
+}
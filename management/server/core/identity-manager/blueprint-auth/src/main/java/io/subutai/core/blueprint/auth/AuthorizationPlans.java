@@ -0,0 +1,88 @@
+package io.subutai.core.blueprint.auth;
+
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Authorization plans of all methods of a secured bean class, compiled when the bean is processed. Calls come in with
+ * either bean class or interface methods, so plans are registered under both. Methods which can not be resolved on
+ * the bean class get no plan and are evaluated on every call, as they would be without plans.
+ */
+class AuthorizationPlans
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger( AuthorizationPlans.class );
+
+    private final Class<?> beanClass;
+    private final SecurityAnnotationParser parser;
+    private final ConcurrentMap<Method, AuthorizationPlan> plans = new ConcurrentHashMap<>();
+
+
+    AuthorizationPlans( final Class<?> beanClass, final SecurityAnnotationParser parser )
+    {
+        this.beanClass = beanClass;
+        this.parser = parser;
+
+        for ( Method method : beanClass.getMethods() )
+        {
+            precompile( method );
+        }
+
+        for ( Class<?> c = beanClass; c != null; c = c.getSuperclass() )
+        {
+            for ( Class<?> iface : c.getInterfaces() )
+            {
+                for ( Method method : iface.getMethods() )
+                {
+                    if ( !plans.containsKey( method ) )
+                    {
+                        precompile( method );
+                    }
+                }
+            }
+        }
+    }
+
+
+    private void precompile( Method method )
+    {
+        try
+        {
+            plans.put( method, AuthorizationPlan.compile( parser, beanClass, method ) );
+        }
+        catch ( IllegalStateException e )
+        {
+            LOGGER.debug( "Method {} is left to be evaluated on call: {}", method, e.getMessage() );
+        }
+    }
+
+
+    /**
+     * Returns plan of the method
+     *
+     * @throws IllegalStateException if the method can not be resolved on the bean class
+     */
+    AuthorizationPlan get( Method method )
+    {
+        AuthorizationPlan plan = plans.get( method );
+
+        if ( plan == null )
+        {
+            // method of a type not known at compile time, e.g. of a proxy
+            plan = AuthorizationPlan.compile( parser, beanClass, method );
+
+            AuthorizationPlan existing = plans.putIfAbsent( method, plan );
+            if ( existing != null )
+            {
+                plan = existing;
+            }
+        }
+
+        return plan;
+    }
+}
@@ -0,0 +1,101 @@
+package io.subutai.core.blueprint.auth;
+
+
+import java.lang.reflect.Method;
+
+import javax.annotation.security.DenyAll;
+import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import io.subutai.common.security.relation.RelationCredibility;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+
+public class AuthorizationPlanTest
+{
+    private SecurityAnnotationParser parser = new SecurityAnnotationParser();
+
+
+    @RolesAllowed( "Class-Role" )
+    public static class SecuredBean
+    {
+        public void classLevel()
+        {
+        }
+
+
+        @RolesAllowed( { "Role-A", "Role-B" } )
+        public void rolesAllowed()
+        {
+        }
+
+
+        @PermitAll
+        public void permitAll()
+        {
+        }
+
+
+        @DenyAll
+        public void denyAll()
+        {
+        }
+
+
+        @RelationCredibility( target = "return" )
+        public Object relation()
+        {
+            return null;
+        }
+    }
+
+
+    public static class PlainBean
+    {
+        public void plain()
+        {
+        }
+    }
+
+
+    private AuthorizationPlan compile( Class<?> beanClass, String methodName ) throws Exception
+    {
+        return AuthorizationPlan.compile( parser, beanClass, beanClass.getMethod( methodName ) );
+    }
+
+
+    @Test
+    public void testCompile() throws Exception
+    {
+        AuthorizationPlan plan = compile( SecuredBean.class, "rolesAllowed" );
+        assertEquals( AuthorizationPlan.Type.ROLES_ALLOWED, plan.getType() );
+        assertEquals( Sets.newHashSet( "Role-A", "Role-B" ), plan.getRoles() );
+
+        plan = compile( SecuredBean.class, "classLevel" );
+        assertEquals( AuthorizationPlan.Type.ROLES_ALLOWED, plan.getType() );
+        assertEquals( Sets.newHashSet( "Class-Role" ), plan.getRoles() );
+
+        plan = compile( SecuredBean.class, "denyAll" );
+        assertEquals( AuthorizationPlan.Type.ROLES_ALLOWED, plan.getType() );
+        assertTrue( plan.getRoles().isEmpty() );
+
+        assertEquals( AuthorizationPlan.Type.PERMIT_ALL, compile( SecuredBean.class, "permitAll" ).getType() );
+        assertEquals( AuthorizationPlan.Type.RELATION, compile( SecuredBean.class, "relation" ).getType() );
+        assertEquals( AuthorizationPlan.Type.NOT_SECURED, compile( PlainBean.class, "plain" ).getType() );
+    }
+
+
+    @Test( expected = IllegalStateException.class )
+    public void testCompileUnknownMethod() throws Exception
+    {
+        Method method = PlainBean.class.getMethod( "plain" );
+
+        AuthorizationPlan.compile( parser, SecuredBean.class, method );
+    }
+}
@@ -0,0 +1,111 @@
+package io.subutai.core.blueprint.auth;
+
+
+import java.lang.reflect.Method;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.fail;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class AuthorizationPlansTest
+{
+    public interface Service
+    {
+        void call();
+    }
+
+
+    public static class ServiceBean implements Service
+    {
+        @Override
+        @RolesAllowed( "Role" )
+        public void call()
+        {
+        }
+    }
+
+
+    public interface OtherService
+    {
+        void other();
+    }
+
+
+    private SecurityAnnotationParser parser;
+    private Method interfaceMethod;
+    private Method beanMethod;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        parser = spy( new SecurityAnnotationParser() );
+        interfaceMethod = Service.class.getMethod( "call" );
+        beanMethod = ServiceBean.class.getMethod( "call" );
+    }
+
+
+    @Test
+    public void testPlansAreCompiledOnce() throws Exception
+    {
+        AuthorizationPlans plans = new AuthorizationPlans( ServiceBean.class, parser );
+
+        AuthorizationPlan plan = plans.get( interfaceMethod );
+
+        assertEquals( AuthorizationPlan.Type.ROLES_ALLOWED, plan.getType() );
+        assertSame( plan, plans.get( interfaceMethod ) );
+        assertEquals( plan.getRoles(), plans.get( beanMethod ).getRoles() );
+
+        verify( parser, times( 1 ) ).getEffectiveAnnotation( ServiceBean.class, interfaceMethod );
+        verify( parser, times( 1 ) ).getEffectiveAnnotation( ServiceBean.class, beanMethod );
+    }
+
+
+    @Test
+    public void testUnresolvedMethodFallsBackToCallTime() throws Exception
+    {
+        doThrow( new IllegalStateException() ).when( parser )
+                                              .getEffectiveAnnotation( ServiceBean.class, interfaceMethod );
+
+        // bean is still processed
+        AuthorizationPlans plans = new AuthorizationPlans( ServiceBean.class, parser );
+
+        doCallRealMethod().when( parser ).getEffectiveAnnotation( ServiceBean.class, interfaceMethod );
+
+        assertEquals( AuthorizationPlan.Type.ROLES_ALLOWED, plans.get( interfaceMethod ).getType() );
+    }
+
+
+    @Test
+    public void testUnknownMethodIsNotCached() throws Exception
+    {
+        AuthorizationPlans plans = new AuthorizationPlans( ServiceBean.class, parser );
+        Method otherMethod = OtherService.class.getMethod( "other" );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                plans.get( otherMethod );
+                fail( "Expected IllegalStateException" );
+            }
+            catch ( IllegalStateException e )
+            {
+                // same as evaluating annotations on call
+            }
+        }
+
+        verify( parser, times( 2 ) ).getEffectiveAnnotation( ServiceBean.class, otherMethod );
+    }
+}
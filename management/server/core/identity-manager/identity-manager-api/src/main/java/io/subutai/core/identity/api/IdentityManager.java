@@ -10,6 +10,8 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.apache.cxf.message.Message;
 
+import com.google.common.cache.CacheStats;
+
 import io.subutai.common.host.SubutaiOrigin;
 import io.subutai.common.security.exception.SystemSecurityException;
 import io.subutai.common.security.objects.PermissionObject;
@@ -62,6 +64,21 @@ public interface IdentityManager
      */
     Session login( HttpServletRequest request, Message message );
 
+    /**
+     * Returns hit and miss counts of sessions cached by token
+     */
+    CacheStats getTokenSessionCacheStats();
+
+    /**
+     * Returns average time in microseconds of token login served from cache
+     */
+    long getAverageCachedTokenLoginMicros();
+
+    /**
+     * Returns average time in microseconds of token login which went through JAAS
+     */
+    long getAverageTokenLoginMicros();
+
     /* *************************************************
      */
     void removeRolePermission( long roleId, Permission permission );
@@ -5,6 +5,7 @@ import java.util.List;
 
 import io.subutai.core.identity.api.model.Permission;
 import io.subutai.core.identity.api.model.Role;
+import io.subutai.core.identity.api.model.Session;
 import io.subutai.core.identity.api.model.User;
 import io.subutai.core.identity.api.model.UserDelegate;
 import io.subutai.core.identity.api.model.UserToken;
@@ -266,4 +267,28 @@ public interface IdentityDataService
      *
      */
     void removeUserDelegate( String id );
+
+
+    /* ******Session *********************************
+     *
+     */
+    List<Session> getValidSessions();
+
+
+    /* *************************************************
+     *
+     */
+    void persistSession( Session item );
+
+
+    /* *************************************************
+     *
+     */
+    void removeSession( String id );
+
+
+    /* *************************************************
+     *
+     */
+    void removeExpiredSessions();
 }
@@ -18,6 +18,7 @@ import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
@@ -44,6 +45,7 @@ import org.apache.cxf.message.Message;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import io.subutai.common.dao.DaoManager;
 import io.subutai.common.host.SubutaiOrigin;
@@ -122,6 +124,13 @@ public class IdentityManagerImpl implements IdentityManager
     private DaoManager daoManager = null;
     private SecurityManager securityManager = null;
     private SessionManager sessionManager = null;
+    private TokenSessionCache tokenSessionCache = null;
+    private volatile String systemUserToken = null;
+    private boolean persistentSessions = false;
+
+    // permission matrices of session users, rebuilt when generation changes
+    private final Cache<User, PermissionMatrix> permissionMatrices = CacheBuilder.newBuilder().weakKeys().build();
+    private final AtomicInteger permissionGeneration = new AtomicInteger();
 
     private Cache<String, Boolean> signTokensCache =
             CacheBuilder.newBuilder().expireAfterWrite( SIGN_TOKEN_TTL_SEC, TimeUnit.SECONDS ).build();
@@ -141,7 +150,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void init()
     {
         identityDataService = new IdentityDataServiceImpl( daoManager );
-        sessionManager = new SessionManagerImpl( identityDataService );
+        sessionManager = new SessionManagerImpl( identityDataService, persistentSessions );
+        tokenSessionCache = new TokenSessionCache( sessionManager );
         securityController = new SecurityControllerImpl();
         sessionManager.startSessionController();
         jwtTokenCache =
@@ -309,7 +319,23 @@ public class IdentityManagerImpl implements IdentityManager
     @Override
     public Session loginSystemUser()
     {
-        return login( TOKEN_ID, getSystemUserToken() );
+        String token = systemUserToken;
+
+        if ( token != null )
+        {
+            Session session = login( TOKEN_ID, token );
+
+            if ( session != null )
+            {
+                return session;
+            }
+        }
+
+        // token was renewed or not read yet
+        token = getSystemUserToken();
+        systemUserToken = token;
+
+        return login( TOKEN_ID, token );
     }
 
 
@@ -395,6 +421,21 @@ public class IdentityManagerImpl implements IdentityManager
     @Override
     public Session login( String userName, String password )
     {
+        boolean tokenLogin = TOKEN_ID.equalsIgnoreCase( userName ) && password != null;
+
+        if ( tokenLogin )
+        {
+            Session cachedSession = tokenSessionCache.get( password );
+
+            if ( cachedSession != null )
+            {
+                return cachedSession;
+            }
+        }
+
+        long start = System.nanoTime();
+        long generation = tokenSessionCache.getGeneration();
+
         try
         {
             Session userSession = null;
@@ -416,12 +457,45 @@ public class IdentityManagerImpl implements IdentityManager
                 }
             }
 
+            if ( tokenLogin )
+            {
+                tokenSessionCache.put( password, userSession, generation );
+            }
+
             return userSession;
         }
         catch ( Exception ex )
         {
             return null;
         }
+        finally
+        {
+            if ( tokenLogin )
+            {
+                tokenSessionCache.recordLogin( start );
+            }
+        }
+    }
+
+
+    @Override
+    public CacheStats getTokenSessionCacheStats()
+    {
+        return tokenSessionCache.getStats();
+    }
+
+
+    @Override
+    public long getAverageCachedTokenLoginMicros()
+    {
+        return tokenSessionCache.getAverageCachedLoginMicros();
+    }
+
+
+    @Override
+    public long getAverageTokenLoginMicros()
+    {
+        return tokenSessionCache.getAverageLoginMicros();
     }
 
 
@@ -477,6 +551,11 @@ public class IdentityManagerImpl implements IdentityManager
 
         session = sessionManager.startSession( sessionId, session, user );
 
+        if ( user != null && user.getType() != UserType.SYSTEM.getId() )
+        {
+            getPermissionMatrix( user );
+        }
+
         return session;
     }
 
@@ -541,7 +620,12 @@ public class IdentityManagerImpl implements IdentityManager
     @Override
     public void logout()
     {
-        //reserved for future
+        User user = getActiveUser();
+
+        if ( user != null )
+        {
+            tokenSessionCache.invalidateUser( user.getId() );
+        }
     }
 
 
@@ -1006,6 +1090,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void assignUserRole( long userId, Role role )
     {
         identityDataService.assignUserRole( userId, role );
+        tokenSessionCache.invalidateUser( userId );
+        invalidatePermissions();
     }
 
 
@@ -1016,6 +1102,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void assignUserRole( User user, Role role )
     {
         identityDataService.assignUserRole( user, role );
+        tokenSessionCache.invalidateUser( user.getId() );
+        invalidatePermissions();
     }
 
 
@@ -1492,6 +1580,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void removeUserRole( long userId, Role role )
     {
         identityDataService.removeUserRole( userId, role );
+        tokenSessionCache.invalidateUser( userId );
+        invalidatePermissions();
     }
 
 
@@ -1502,6 +1592,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void removeUserRole( User user, Role role )
     {
         identityDataService.removeUserRole( user, role );
+        tokenSessionCache.invalidateUser( user.getId() );
+        invalidatePermissions();
     }
 
 
@@ -1567,6 +1659,7 @@ public class IdentityManagerImpl implements IdentityManager
             //user.setAuthId( UUID.randomUUID().toString() ); //Update AuthID also
             user.setValidDate( DateUtils.addDays( new Date( System.currentTimeMillis() ), IDENTITY_LIFETIME ) );
             identityDataService.updateUser( user );
+            tokenSessionCache.invalidateUser( user.getId() );
         }
         catch ( NoSuchAlgorithmException | NoSuchProviderException e )
         {
@@ -1622,6 +1715,7 @@ public class IdentityManagerImpl implements IdentityManager
             user.setPassword( newPassword );
             user.setValidDate( DateUtils.addDays( new Date( System.currentTimeMillis() ), IDENTITY_LIFETIME ) );
             identityDataService.updateUser( user );
+            tokenSessionCache.invalidateUser( user.getId() );
         }
         catch ( NoSuchAlgorithmException | NoSuchProviderException e )
         {
@@ -1655,6 +1749,7 @@ public class IdentityManagerImpl implements IdentityManager
         //***********************************************
 
         identityDataService.updateUser( user );
+        tokenSessionCache.invalidateUser( user.getId() );
     }
 
 
@@ -1672,6 +1767,7 @@ public class IdentityManagerImpl implements IdentityManager
         //***********************************************
 
         identityDataService.updateUser( user );
+        tokenSessionCache.invalidateUser( user.getId() );
     }
 
 
@@ -1695,6 +1791,7 @@ public class IdentityManagerImpl implements IdentityManager
         }
 
         identityDataService.removeUser( userId );
+        tokenSessionCache.invalidateUser( userId );
     }
 
 
@@ -1806,33 +1903,31 @@ public class IdentityManagerImpl implements IdentityManager
             return true;
         }
 
-        List<Role> roles = user.getRoles();
+        return getPermissionMatrix( user ).isPermitted( permObj, permScope, permOp );
+    }
+
 
-        for ( Role role : roles )
+    private PermissionMatrix getPermissionMatrix( User user )
+    {
+        int generation = permissionGeneration.get();
+        PermissionMatrix matrix = permissionMatrices.getIfPresent( user );
+
+        if ( matrix == null || matrix.getGeneration() != generation )
         {
-            for ( Permission permission : role.getPermissions() )
-            {
-                if ( permission.getObject() == permObj.getId() && permission.getScope() == permScope.getId() )
-                {
-                    switch ( permOp )
-                    {
-                        case READ:
-                            return permission.isRead();
-                        case WRITE:
-                            return permission.isWrite();
-                        case UPDATE:
-                            return permission.isUpdate();
-                        case DELETE:
-                            return permission.isDelete();
-                        default:
-                            // no-op
-                            break;
-                    }
-                }
-            }
+            matrix = new PermissionMatrix( user.getRoles(), generation );
+            permissionMatrices.put( user, matrix );
         }
 
-        return false;
+        return matrix;
+    }
+
+
+    /**
+     * Makes permission matrices be rebuilt from current roles on next check
+     */
+    private void invalidatePermissions()
+    {
+        permissionGeneration.incrementAndGet();
     }
 
 
@@ -1917,6 +2012,8 @@ public class IdentityManagerImpl implements IdentityManager
         //*********************************
 
         identityDataService.updateRole( role );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -1936,6 +2033,8 @@ public class IdentityManagerImpl implements IdentityManager
         //***********************************************
 
         identityDataService.removeRole( roleId );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -1967,6 +2066,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void assignRolePermission( long roleId, Permission permission )
     {
         identityDataService.assignRolePermission( roleId, permission );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -1977,6 +2078,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void assignRolePermission( Role role, Permission permission )
     {
         identityDataService.assignRolePermission( role, permission );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -1987,6 +2090,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void removeAllRolePermissions( long roleId )
     {
         identityDataService.removeAllRolePermissions( roleId );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -1997,6 +2102,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void removePermission( long permissionId )
     {
         identityDataService.removePermission( permissionId );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -2007,6 +2114,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void removeRolePermission( long roleId, Permission permission )
     {
         identityDataService.removeRolePermission( roleId, permission );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -2027,6 +2136,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void updatePermission( Permission permission )
     {
         identityDataService.updatePermission( permission );
+        tokenSessionCache.invalidateAll();
+        invalidatePermissions();
     }
 
 
@@ -2071,6 +2182,7 @@ public class IdentityManagerImpl implements IdentityManager
     public void updateUserToken( UserToken token )
     {
         identityDataService.updateUserToken( token );
+        tokenSessionCache.invalidateToken( token.getTokenId() );
     }
 
 
@@ -2082,6 +2194,7 @@ public class IdentityManagerImpl implements IdentityManager
                                  Date validDate )
     {
         identityDataService.removeUserToken( tokenId );
+        tokenSessionCache.invalidateToken( tokenId );
         createUserToken( user, token, secret, issuer, tokenType, validDate );
     }
 
@@ -2093,6 +2206,8 @@ public class IdentityManagerImpl implements IdentityManager
     public void removeUserToken( String tokenId )
     {
         identityDataService.removeUserToken( tokenId );
+        tokenSessionCache.invalidateToken( tokenId );
+        systemUserToken = null;
     }
 
 
@@ -2104,6 +2219,15 @@ public class IdentityManagerImpl implements IdentityManager
     }
 
 
+    /* *************************************************
+     * Keeps sessions in database as well, so they survive restart
+     */
+    public void setPersistentSessions( final boolean persistentSessions )
+    {
+        this.persistentSessions = persistentSessions;
+    }
+
+
     /* *************************************************
      */
     public void setSecurityManager( final SecurityManager securityManager )
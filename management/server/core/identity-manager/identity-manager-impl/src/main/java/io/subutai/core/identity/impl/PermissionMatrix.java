@@ -0,0 +1,95 @@
+package io.subutai.core.identity.impl;
+
+
+import java.util.List;
+
+import io.subutai.common.security.objects.PermissionObject;
+import io.subutai.common.security.objects.PermissionOperation;
+import io.subutai.common.security.objects.PermissionScope;
+import io.subutai.core.identity.api.model.Permission;
+import io.subutai.core.identity.api.model.Role;
+
+
+/**
+ * Operations a user may perform, one bit per {@link PermissionOperation} for every pair of {@link PermissionObject}
+ * and {@link PermissionScope}. Built once from roles of the user, so a check is an array lookup.
+ */
+final class PermissionMatrix
+{
+    private static final PermissionObject[] OBJECTS = PermissionObject.values();
+    private static final PermissionScope[] SCOPES = PermissionScope.values();
+
+    private final byte[] operations = new byte[OBJECTS.length * SCOPES.length];
+    private final int generation;
+
+
+    PermissionMatrix( final List<Role> roles, final int generation )
+    {
+        this.generation = generation;
+
+        // as before, first permission of a pair decides, later roles do not override it
+        boolean[] defined = new boolean[operations.length];
+
+        for ( Role role : roles )
+        {
+            for ( Permission permission : role.getPermissions() )
+            {
+                int index = indexOf( permission.getObject(), permission.getScope() );
+
+                if ( index >= 0 && !defined[index] )
+                {
+                    defined[index] = true;
+                    operations[index] = toBits( permission );
+                }
+            }
+        }
+    }
+
+
+    boolean isPermitted( PermissionObject permObj, PermissionScope permScope, PermissionOperation permOp )
+    {
+        return ( operations[permObj.ordinal() * SCOPES.length + permScope.ordinal()] & ( 1 << permOp.ordinal() ) )
+                != 0;
+    }
+
+
+    int getGeneration()
+    {
+        return generation;
+    }
+
+
+    private static int indexOf( int objectId, int scopeId )
+    {
+        int objectIndex = -1;
+        for ( PermissionObject object : OBJECTS )
+        {
+            if ( object.getId() == objectId )
+            {
+                objectIndex = object.ordinal();
+                break;
+            }
+        }
+
+        for ( PermissionScope scope : SCOPES )
+        {
+            if ( objectIndex >= 0 && scope.getId() == scopeId )
+            {
+                return objectIndex * SCOPES.length + scope.ordinal();
+            }
+        }
+
+        return -1;
+    }
+
+
+    private static byte toBits( Permission permission )
+    {
+        int bits = 0;
+        bits |= permission.isRead() ? 1 << PermissionOperation.READ.ordinal() : 0;
+        bits |= permission.isWrite() ? 1 << PermissionOperation.WRITE.ordinal() : 0;
+        bits |= permission.isUpdate() ? 1 << PermissionOperation.UPDATE.ordinal() : 0;
+        bits |= permission.isDelete() ? 1 << PermissionOperation.DELETE.ordinal() : 0;
+        return ( byte ) bits;
+    }
+}
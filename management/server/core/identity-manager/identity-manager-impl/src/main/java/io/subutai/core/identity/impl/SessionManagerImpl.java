@@ -4,6 +4,9 @@ package io.subutai.core.identity.impl;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -15,7 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang3.time.DateUtils;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import io.subutai.core.identity.api.SessionManager;
 import io.subutai.core.identity.api.dao.IdentityDataService;
@@ -25,7 +28,9 @@ import io.subutai.core.identity.impl.model.SessionEntity;
 
 
 /**
- * Implementation of SessionManager
+ * Implementation of SessionManager. Sessions are kept in a concurrent map, each one expires on its own end date which
+ * slides on every use, the periodic task only frees memory of sessions nobody asked for. In persistent mode sessions
+ * are also stored in database, so they survive restart.
  */
 public class SessionManagerImpl implements SessionManager
 {
@@ -37,8 +42,12 @@ public class SessionManagerImpl implements SessionManager
 
     //****************************************
     private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
-    private Map<String, Session> sessionContext = Maps.newTreeMap();
+    private ConcurrentMap<String, Session> sessionContext = new ConcurrentHashMap<>();
     private IdentityDataService identityDataService = null;
+    private boolean persistent = false;
+
+    // ids of persisted sessions whose end date was extended since last store
+    private Set<String> extendedSessions = Sets.newConcurrentHashSet();
     //****************************************
 
 
@@ -49,10 +58,23 @@ public class SessionManagerImpl implements SessionManager
     }
 
 
+    //*****************************************
+    public SessionManagerImpl( IdentityDataService identityDataService, boolean persistent )
+    {
+        this.identityDataService = identityDataService;
+        this.persistent = persistent && identityDataService != null;
+    }
+
+
     //*****************************************
     @Override
     public void startSessionController()
     {
+        if ( persistent )
+        {
+            loadSessions();
+        }
+
         executorService.scheduleWithFixedDelay( new Runnable()
         {
             @Override
@@ -62,6 +84,7 @@ public class SessionManagerImpl implements SessionManager
                 {
 //                    removeInvalidTokens();
                     invalidateSessions( null );
+                    storeExtendedSessions();
                 }
                 catch ( Exception e )
                 {
@@ -80,6 +103,11 @@ public class SessionManagerImpl implements SessionManager
         {
             executorService.shutdown();
         }
+
+        if ( persistent )
+        {
+            storeExtendedSessions();
+        }
     }
 
 
@@ -95,11 +123,17 @@ public class SessionManagerImpl implements SessionManager
                 Date currentDate = new Date( System.currentTimeMillis() );
 
                 userSession = new SessionEntity();
+                userSession.setId( sessionId );
                 userSession.setUser( user );
                 userSession.setStatus( 1 );
                 userSession.setStartDate( currentDate );
                 userSession.setEndDate( DateUtils.addMinutes( currentDate, SESSION_TIMEOUT ) );
                 sessionContext.put( sessionId, userSession );
+
+                if ( persistent )
+                {
+                    identityDataService.persistSession( userSession );
+                }
             }
             else
             {
@@ -124,14 +158,13 @@ public class SessionManagerImpl implements SessionManager
     {
         Session sc = sessionContext.get( sessionId );
 
-        if ( sc != null )
-        {
-            return sc;
-        }
-        else
+        if ( sc != null && isExpired( sc, System.currentTimeMillis() ) )
         {
+            removeSession( sessionId, sc );
             return null;
         }
+
+        return sc;
     }
 
 
@@ -143,6 +176,11 @@ public class SessionManagerImpl implements SessionManager
     {
         Date currentDate = new Date( System.currentTimeMillis() );
         userSession.setEndDate( DateUtils.addMinutes( currentDate, SESSION_TIMEOUT ) );
+
+        if ( persistent && userSession.getId() != null )
+        {
+            extendedSessions.add( userSession.getId() );
+        }
     }
 
 
@@ -152,7 +190,7 @@ public class SessionManagerImpl implements SessionManager
     @Override
     public void extendSessionTime( String sessionId )
     {
-        Session sc = sessionContext.get( sessionId );
+        Session sc = getValidSession( sessionId );
 
         if ( sc != null )
         {
@@ -169,7 +207,13 @@ public class SessionManagerImpl implements SessionManager
     {
         try
         {
-            sessionContext.remove( sessionId );
+            Session session = sessionContext.remove( sessionId );
+
+            if ( session != null && persistent )
+            {
+                extendedSessions.remove( sessionId );
+                identityDataService.removeSession( sessionId );
+            }
         }
         catch ( Exception e )
         {
@@ -190,12 +234,69 @@ public class SessionManagerImpl implements SessionManager
             currentDate = new Date( System.currentTimeMillis() );
         }
 
-        for ( Iterator<Session> iterator = sessionContext.values().iterator(); iterator.hasNext(); )
+        for ( Iterator<Map.Entry<String, Session>> iterator = sessionContext.entrySet().iterator();
+              iterator.hasNext(); )
         {
-            final Session session = iterator.next();
-            if ( session.getEndDate().getTime() <= currentDate.getTime() )
+            final Map.Entry<String, Session> entry = iterator.next();
+            if ( isExpired( entry.getValue(), currentDate.getTime() ) )
             {
                 iterator.remove();
+                extendedSessions.remove( entry.getKey() );
+            }
+        }
+
+        if ( persistent )
+        {
+            identityDataService.removeExpiredSessions();
+        }
+    }
+
+
+    private static boolean isExpired( Session session, long currentTime )
+    {
+        return session.getEndDate().getTime() <= currentTime;
+    }
+
+
+    private void removeSession( String sessionId, Session session )
+    {
+        // another thread may have replaced the session meanwhile
+        if ( sessionContext.remove( sessionId, session ) && persistent )
+        {
+            extendedSessions.remove( sessionId );
+            identityDataService.removeSession( sessionId );
+        }
+    }
+
+
+    /* *************************************************
+     * Loads sessions which were valid at shutdown. Subject is not stored, it is set again by next login of session
+     */
+    private void loadSessions()
+    {
+        for ( Session session : identityDataService.getValidSessions() )
+        {
+            sessionContext.putIfAbsent( session.getId(), session );
+        }
+
+        LOG.info( "{} sessions restored", sessionContext.size() );
+    }
+
+
+    /* *************************************************
+     * Stores end dates of extended sessions at once instead of writing on every request
+     */
+    void storeExtendedSessions()
+    {
+        for ( Iterator<String> iterator = extendedSessions.iterator(); iterator.hasNext(); )
+        {
+            String sessionId = iterator.next();
+            iterator.remove();
+
+            Session session = sessionContext.get( sessionId );
+            if ( session != null )
+            {
+                identityDataService.persistSession( session );
             }
         }
     }
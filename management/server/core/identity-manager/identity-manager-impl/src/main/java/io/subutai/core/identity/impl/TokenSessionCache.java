@@ -0,0 +1,230 @@
+package io.subutai.core.identity.impl;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+
+import io.subutai.common.security.token.TokenUtil;
+import io.subutai.core.identity.api.SessionManager;
+import io.subutai.core.identity.api.model.Session;
+
+
+/**
+ * Sessions of users authenticated by token, keyed by token hash, so that requests carrying the same token skip JAAS
+ * login and database lookups. An entry is valid until token expiration, at most {@link #TTL_SEC}, and only while the
+ * session manager still holds the session.
+ */
+class TokenSessionCache
+{
+    static final int MAX_SIZE = 10000;
+    static final long TTL_SEC = 300;
+
+    private final SessionManager sessionManager;
+    private final Cache<String, Entry> entries =
+            CacheBuilder.newBuilder().maximumSize( MAX_SIZE ).expireAfterWrite( TTL_SEC, TimeUnit.SECONDS )
+                        .recordStats().build();
+
+    // bumped by every invalidation, so that sessions obtained before it are not cached after it
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong loginNanos = new AtomicLong();
+    private final AtomicLong cachedLogins = new AtomicLong();
+    private final AtomicLong cachedLoginNanos = new AtomicLong();
+
+
+    TokenSessionCache( final SessionManager sessionManager )
+    {
+        this.sessionManager = sessionManager;
+    }
+
+
+    /**
+     * Returns cached session of token, extending its time as a new login would, or null if there is no valid one
+     */
+    Session get( String token )
+    {
+        long start = System.nanoTime();
+        String key = hash( token );
+        Entry entry = entries.getIfPresent( key );
+
+        if ( entry == null )
+        {
+            return null;
+        }
+
+        if ( entry.expiresAt > 0 && entry.expiresAt < System.currentTimeMillis()
+                || sessionManager.getValidSession( token ) != entry.session )
+        {
+            entries.invalidate( key );
+            return null;
+        }
+
+        sessionManager.extendSessionTime( entry.session );
+
+        cachedLogins.incrementAndGet();
+        cachedLoginNanos.addAndGet( System.nanoTime() - start );
+
+        return entry.session;
+    }
+
+
+    /**
+     * Returns current generation, to be obtained before login and passed to {@link #put(String, Session, long)}
+     */
+    long getGeneration()
+    {
+        return generation.get();
+    }
+
+
+    /**
+     * Caches session of token, unless sessions were invalidated since the given generation was obtained
+     */
+    void put( String token, Session session, long loginGeneration )
+    {
+        long expiresAt = TokenUtil.getDate( token );
+
+        if ( session == null || session.getSubject() == null || ( expiresAt > 0
+                && expiresAt <= System.currentTimeMillis() ) || generation.get() != loginGeneration )
+        {
+            return;
+        }
+
+        String key = hash( token );
+        Entry entry = new Entry( token, TokenUtil.getSubject( token ), session, expiresAt );
+
+        entries.put( key, entry );
+
+        // invalidation may have run between the check above and the put
+        if ( generation.get() != loginGeneration )
+        {
+            entries.asMap().remove( key, entry );
+        }
+    }
+
+
+    /**
+     * Records time of login which was not served from cache
+     */
+    void recordLogin( long startNanos )
+    {
+        logins.incrementAndGet();
+        loginNanos.addAndGet( System.nanoTime() - startNanos );
+    }
+
+
+    /**
+     * Drops sessions of user, next requests of the user are authenticated against database again
+     */
+    void invalidateUser( long userId )
+    {
+        generation.incrementAndGet();
+
+        for ( Map.Entry<String, Entry> mapEntry : entries.asMap().entrySet() )
+        {
+            Session session = mapEntry.getValue().session;
+
+            if ( session.getUser() != null && session.getUser().getId() == userId )
+            {
+                invalidate( mapEntry.getKey(), mapEntry.getValue() );
+            }
+        }
+    }
+
+
+    /**
+     * Drops sessions of token with the given id (token subject)
+     */
+    void invalidateToken( String tokenId )
+    {
+        generation.incrementAndGet();
+
+        for ( Map.Entry<String, Entry> mapEntry : entries.asMap().entrySet() )
+        {
+            if ( tokenId != null && tokenId.equals( mapEntry.getValue().tokenId ) )
+            {
+                invalidate( mapEntry.getKey(), mapEntry.getValue() );
+            }
+        }
+    }
+
+
+    /**
+     * Drops all cached sessions, e.g. when role permissions change
+     */
+    void invalidateAll()
+    {
+        generation.incrementAndGet();
+
+        for ( Map.Entry<String, Entry> mapEntry : entries.asMap().entrySet() )
+        {
+            invalidate( mapEntry.getKey(), mapEntry.getValue() );
+        }
+    }
+
+
+    private void invalidate( String key, Entry entry )
+    {
+        entries.invalidate( key );
+
+        // session keeps subject with principals, so it has to be rebuilt as well
+        sessionManager.endSession( entry.token );
+    }
+
+
+    CacheStats getStats()
+    {
+        return entries.stats();
+    }
+
+
+    long getAverageLoginMicros()
+    {
+        return average( loginNanos, logins );
+    }
+
+
+    long getAverageCachedLoginMicros()
+    {
+        return average( cachedLoginNanos, cachedLogins );
+    }
+
+
+    private static long average( AtomicLong nanos, AtomicLong count )
+    {
+        long n = count.get();
+
+        return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros( nanos.get() / n );
+    }
+
+
+    private static String hash( String token )
+    {
+        return Hashing.sha256().hashString( token, StandardCharsets.UTF_8 ).toString();
+    }
+
+
+    private static class Entry
+    {
+        private final String token;
+        private final String tokenId;
+        private final Session session;
+        private final long expiresAt;
+
+
+        Entry( final String token, final String tokenId, final Session session, final long expiresAt )
+        {
+            this.token = token;
+            this.tokenId = tokenId;
+            this.session = session;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
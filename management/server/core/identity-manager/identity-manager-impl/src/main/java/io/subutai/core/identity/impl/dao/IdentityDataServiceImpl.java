@@ -10,6 +10,7 @@ import io.subutai.common.dao.DaoManager;
 import io.subutai.core.identity.api.dao.IdentityDataService;
 import io.subutai.core.identity.api.model.Permission;
 import io.subutai.core.identity.api.model.Role;
+import io.subutai.core.identity.api.model.Session;
 import io.subutai.core.identity.api.model.User;
 import io.subutai.core.identity.api.model.UserDelegate;
 import io.subutai.core.identity.api.model.UserToken;
@@ -27,6 +28,7 @@ public class IdentityDataServiceImpl implements IdentityDataService
     private PermissionDAO permissionDAOService = null;
     private UserTokenDAO userTokenDAOService = null;
     private UserDelegateDAO userDelegateDAOService = null;
+    private SessionDAO sessionDAOService = null;
 
 
     /* *************************************************
@@ -41,6 +43,7 @@ public class IdentityDataServiceImpl implements IdentityDataService
             permissionDAOService = new PermissionDAO( daoManager );
             userTokenDAOService = new UserTokenDAO( daoManager );
             userDelegateDAOService = new UserDelegateDAO( daoManager );
+            sessionDAOService = new SessionDAO( daoManager );
         }
         else
         {
@@ -494,4 +497,44 @@ public class IdentityDataServiceImpl implements IdentityDataService
     {
         userDelegateDAOService.remove( id );
     }
+
+
+    /* ******Session *********************************
+     *
+     */
+    @Override
+    public List<Session> getValidSessions()
+    {
+        return sessionDAOService.getValid();
+    }
+
+
+    /* *************************************************
+     *
+     */
+    @Override
+    public void persistSession( final Session item )
+    {
+        sessionDAOService.merge( item );
+    }
+
+
+    /* *************************************************
+     *
+     */
+    @Override
+    public void removeSession( final String id )
+    {
+        sessionDAOService.remove( id );
+    }
+
+
+    /* *************************************************
+     *
+     */
+    @Override
+    public void removeExpiredSessions()
+    {
+        sessionDAOService.removeExpired();
+    }
 }
@@ -0,0 +1,143 @@
+package io.subutai.core.identity.impl.dao;
+
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import io.subutai.common.dao.DaoManager;
+import io.subutai.core.identity.api.model.Session;
+import io.subutai.core.identity.impl.model.SessionEntity;
+
+
+/**
+ *
+ */
+class SessionDAO
+{
+    private static final Logger logger = LoggerFactory.getLogger( SessionDAO.class );
+    private DaoManager daoManager = null;
+
+
+    /* *************************************************
+     *
+     */
+    SessionDAO( final DaoManager daoManager )
+    {
+        this.daoManager = daoManager;
+    }
+
+
+    /* *************************************************
+     *
+     */
+    List<Session> getValid()
+    {
+        EntityManager em = daoManager.getEntityManagerFromFactory();
+
+        List<Session> result = Lists.newArrayList();
+        try
+        {
+            TypedQuery<SessionEntity> query =
+                    em.createQuery( "select s from SessionEntity s where s.endDate>:CurrentDate",
+                            SessionEntity.class );
+            query.setParameter( "CurrentDate", new Date( System.currentTimeMillis() ) );
+            result.addAll( query.getResultList() );
+        }
+        catch ( Exception e )
+        {
+            logger.error( "**** Error in SessionDAO:", e );
+        }
+        finally
+        {
+            daoManager.closeEntityManager( em );
+        }
+        return result;
+    }
+
+
+    /* *************************************************
+     * Inserts or updates session
+     */
+    void merge( final Session item )
+    {
+        EntityManager em = daoManager.getEntityManagerFromFactory();
+        try
+        {
+            daoManager.startTransaction( em );
+            em.merge( item );
+            daoManager.commitTransaction( em );
+        }
+        catch ( Exception e )
+        {
+            daoManager.rollBackTransaction( em );
+            logger.error( "**** Error in SessionDAO:", e );
+        }
+        finally
+        {
+            daoManager.closeEntityManager( em );
+        }
+    }
+
+
+    /* *************************************************
+     *
+     */
+    void remove( final String id )
+    {
+        EntityManager em = daoManager.getEntityManagerFromFactory();
+        try
+        {
+            daoManager.startTransaction( em );
+            SessionEntity item = em.find( SessionEntity.class, id );
+            if ( item != null )
+            {
+                em.remove( item );
+            }
+            daoManager.commitTransaction( em );
+        }
+        catch ( Exception e )
+        {
+            daoManager.rollBackTransaction( em );
+            logger.error( "**** Error in SessionDAO:", e );
+        }
+        finally
+        {
+            daoManager.closeEntityManager( em );
+        }
+    }
+
+
+    /* *************************************************
+     *
+     */
+    void removeExpired()
+    {
+        EntityManager em = daoManager.getEntityManagerFromFactory();
+        try
+        {
+            daoManager.startTransaction( em );
+            Query query = em.createQuery( "delete from SessionEntity s where s.endDate<=:CurrentDate" );
+            query.setParameter( "CurrentDate", new Date( System.currentTimeMillis() ) );
+            query.executeUpdate();
+            daoManager.commitTransaction( em );
+        }
+        catch ( Exception e )
+        {
+            daoManager.rollBackTransaction( em );
+            logger.error( "**** Error in SessionDAO:", e );
+        }
+        finally
+        {
+            daoManager.closeEntityManager( em );
+        }
+    }
+}
@@ -28,7 +28,7 @@ import io.subutai.core.identity.api.model.User;
 public class SessionEntity implements Session
 {
     @Id
-    @Column( name = "id" )
+    @Column( name = "id", length = 1024 )
     private String id;
 
     @Column( name = "status" )
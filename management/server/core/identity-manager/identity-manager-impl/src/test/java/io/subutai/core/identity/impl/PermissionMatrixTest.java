@@ -0,0 +1,79 @@
+package io.subutai.core.identity.impl;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import io.subutai.common.security.objects.PermissionObject;
+import io.subutai.common.security.objects.PermissionOperation;
+import io.subutai.common.security.objects.PermissionScope;
+import io.subutai.core.identity.api.model.Permission;
+import io.subutai.core.identity.api.model.Role;
+import io.subutai.core.identity.impl.model.PermissionEntity;
+import io.subutai.core.identity.impl.model.RoleEntity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class PermissionMatrixTest
+{
+    private Role role;
+    private Role otherRole;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        role = new RoleEntity();
+        role.setPermissions( Lists.newArrayList(
+                permission( PermissionObject.PEER_MANAGEMENT, PermissionScope.ALL_SCOPE, true, false, true, false ) ) );
+
+        otherRole = new RoleEntity();
+        otherRole.setPermissions( Lists.newArrayList(
+                permission( PermissionObject.PEER_MANAGEMENT, PermissionScope.ALL_SCOPE, true, true, true, true ),
+                permission( PermissionObject.TENANT_MANAGEMENT, PermissionScope.OWNER_SCOPE, false, false, false,
+                        true ) ) );
+    }
+
+
+    private Permission permission( PermissionObject object, PermissionScope scope, boolean read, boolean write,
+                                   boolean update, boolean delete )
+    {
+        Permission permission = new PermissionEntity();
+        permission.setObject( object.getId() );
+        permission.setScope( scope.getId() );
+        permission.setRead( read );
+        permission.setWrite( write );
+        permission.setUpdate( update );
+        permission.setDelete( delete );
+        return permission;
+    }
+
+
+    @Test
+    public void testIsPermitted() throws Exception
+    {
+        PermissionMatrix matrix = new PermissionMatrix( Lists.newArrayList( role, otherRole ), 3 );
+
+        assertEquals( 3, matrix.getGeneration() );
+
+        // first permission of a pair decides
+        assertTrue( matrix.isPermitted( PermissionObject.PEER_MANAGEMENT, PermissionScope.ALL_SCOPE,
+                PermissionOperation.READ ) );
+        assertFalse( matrix.isPermitted( PermissionObject.PEER_MANAGEMENT, PermissionScope.ALL_SCOPE,
+                PermissionOperation.WRITE ) );
+        assertTrue( matrix.isPermitted( PermissionObject.PEER_MANAGEMENT, PermissionScope.ALL_SCOPE,
+                PermissionOperation.UPDATE ) );
+
+        assertTrue( matrix.isPermitted( PermissionObject.TENANT_MANAGEMENT, PermissionScope.OWNER_SCOPE,
+                PermissionOperation.DELETE ) );
+        assertFalse( matrix.isPermitted( PermissionObject.TENANT_MANAGEMENT, PermissionScope.ALL_SCOPE,
+                PermissionOperation.DELETE ) );
+        assertFalse( matrix.isPermitted( PermissionObject.IDENTITY_MANAGEMENT, PermissionScope.ALL_SCOPE,
+                PermissionOperation.READ ) );
+    }
+}
@@ -6,11 +6,13 @@ import java.util.Date;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import org.apache.commons.lang3.time.DateUtils;
 
 import io.subutai.core.identity.api.SessionManager;
+import io.subutai.core.identity.api.dao.IdentityDataService;
 import io.subutai.core.identity.api.model.Session;
 import io.subutai.core.identity.impl.model.UserEntity;
 
@@ -18,6 +20,9 @@ import static junit.framework.Assert.assertTrue;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 
 /**
@@ -33,6 +38,9 @@ public class SessionManagerImplTest
     //@Mock
     private SessionManager sessionManager = null;
 
+    @Mock
+    private IdentityDataService identityDataService;
+
 
     /* *************************************************
      */
@@ -99,4 +107,50 @@ public class SessionManagerImplTest
     }
 
 
+    /* *************************************************
+     */
+    @Test
+    public void testExpiredSessionIsNotValid()
+    {
+        session.setEndDate( new Date( System.currentTimeMillis() - 1 ) );
+
+        assertNull( sessionManager.getValidSession( sessionId ) );
+        assertTrue( sessionManager.getSessionContext().isEmpty() );
+    }
+
+
+    /* *************************************************
+     */
+    @Test
+    public void testPersistentSession()
+    {
+        SessionManagerImpl persistentManager = new SessionManagerImpl( identityDataService, true );
+
+        Session persistentSession = persistentManager.startSession( sessionId, null, new UserEntity() );
+
+        assertEquals( sessionId, persistentSession.getId() );
+        verify( identityDataService ).persistSession( persistentSession );
+
+        persistentManager.extendSessionTime( sessionId );
+        persistentManager.storeExtendedSessions();
+        persistentManager.storeExtendedSessions();
+
+        verify( identityDataService, times( 2 ) ).persistSession( persistentSession );
+
+        persistentManager.endSession( sessionId );
+
+        verify( identityDataService ).removeSession( sessionId );
+    }
+
+
+    /* *************************************************
+     */
+    @Test
+    public void testNotPersistentSession()
+    {
+        sessionManager.endSession( sessionId );
+
+        verify( identityDataService, never() ).removeSession( sessionId );
+        assertNull( sessionManager.getValidSession( sessionId ) );
+    }
 }
@@ -0,0 +1,154 @@
+package io.subutai.core.identity.impl;
+
+
+import java.util.UUID;
+
+import javax.security.auth.Subject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.subutai.common.security.token.TokenUtil;
+import io.subutai.core.identity.api.SessionManager;
+import io.subutai.core.identity.api.model.Session;
+import io.subutai.core.identity.api.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class TokenSessionCacheTest
+{
+    private static final String TOKEN_ID = "token-id";
+    private static final long USER_ID = 5;
+
+    @Mock
+    SessionManager sessionManager;
+    @Mock
+    Session session;
+    @Mock
+    User user;
+
+    private TokenSessionCache tokenSessionCache;
+    private String token;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        tokenSessionCache = new TokenSessionCache( sessionManager );
+        token = createToken( System.currentTimeMillis() + 60000 );
+
+        doReturn( new Subject() ).when( session ).getSubject();
+        doReturn( user ).when( session ).getUser();
+        doReturn( USER_ID ).when( user ).getId();
+        doReturn( session ).when( sessionManager ).getValidSession( token );
+    }
+
+
+    private String createToken( long expiresAt )
+    {
+        return TokenUtil.createToken( "{\"typ\":\"JWT\",\"alg\":\"HS256\"}",
+                "{\"iss\":\"io.subutai\",\"exp\":" + expiresAt + ",\"sub\":\"" + TOKEN_ID + "\"}",
+                UUID.randomUUID().toString() );
+    }
+
+
+    @Test
+    public void testGet() throws Exception
+    {
+        assertNull( tokenSessionCache.get( token ) );
+
+        tokenSessionCache.put( token, session, tokenSessionCache.getGeneration() );
+
+        assertSame( session, tokenSessionCache.get( token ) );
+        verify( sessionManager ).extendSessionTime( session );
+        assertEquals( 1, tokenSessionCache.getStats().hitCount() );
+    }
+
+
+    @Test
+    public void testExpiredTokenIsNotCached() throws Exception
+    {
+        String expiredToken = createToken( System.currentTimeMillis() - 1000 );
+        doReturn( session ).when( sessionManager ).getValidSession( expiredToken );
+
+        tokenSessionCache.put( expiredToken, session, tokenSessionCache.getGeneration() );
+
+        assertNull( tokenSessionCache.get( expiredToken ) );
+    }
+
+
+    @Test
+    public void testEndedSessionIsNotReturned() throws Exception
+    {
+        tokenSessionCache.put( token, session, tokenSessionCache.getGeneration() );
+
+        doReturn( null ).when( sessionManager ).getValidSession( token );
+
+        assertNull( tokenSessionCache.get( token ) );
+    }
+
+
+    @Test
+    public void testInvalidateUser() throws Exception
+    {
+        tokenSessionCache.put( token, session, tokenSessionCache.getGeneration() );
+
+        tokenSessionCache.invalidateUser( USER_ID );
+
+        verify( sessionManager ).endSession( token );
+        assertNull( tokenSessionCache.get( token ) );
+    }
+
+
+    @Test
+    public void testInvalidateToken() throws Exception
+    {
+        tokenSessionCache.put( token, session, tokenSessionCache.getGeneration() );
+
+        tokenSessionCache.invalidateToken( TOKEN_ID );
+
+        verify( sessionManager ).endSession( token );
+        assertNull( tokenSessionCache.get( token ) );
+    }
+
+
+    @Test
+    public void testInvalidationDuringLogin() throws Exception
+    {
+        // login obtains generation, then user is invalidated while JAAS login is in progress
+        long generation = tokenSessionCache.getGeneration();
+
+        tokenSessionCache.invalidateUser( USER_ID );
+
+        tokenSessionCache.put( token, session, generation );
+
+        assertNull( tokenSessionCache.get( token ) );
+
+        // next login is cached
+        tokenSessionCache.put( token, session, tokenSessionCache.getGeneration() );
+
+        assertSame( session, tokenSessionCache.get( token ) );
+    }
+
+
+    @Test
+    public void testInvalidateUserKeepsOtherUsers() throws Exception
+    {
+        tokenSessionCache.put( token, session, tokenSessionCache.getGeneration() );
+
+        tokenSessionCache.invalidateUser( USER_ID + 1 );
+
+        verify( sessionManager, never() ).endSession( token );
+        assertSame( session, tokenSessionCache.get( token ) );
+    }
+}
@@ -166,10 +166,12 @@ import io.subutai.core.localpeer.impl.command.CommandRequestListener;
 import io.subutai.core.localpeer.impl.container.CreateEnvironmentContainersRequestListener;
 import io.subutai.core.localpeer.impl.container.ImportTemplateTask;
 import io.subutai.core.localpeer.impl.container.PrepareTemplateRequestListener;
+import io.subutai.core.localpeer.impl.dao.HeartbeatPersister;
 import io.subutai.core.localpeer.impl.dao.NetworkResourceDaoImpl;
 import io.subutai.core.localpeer.impl.dao.ResourceHostDataService;
 import io.subutai.core.localpeer.impl.entity.AbstractSubutaiHost;
 import io.subutai.core.localpeer.impl.entity.ContainerHostEntity;
+import io.subutai.core.localpeer.impl.entity.ContainerHostIndex;
 import io.subutai.core.localpeer.impl.entity.NetworkResourceEntity;
 import io.subutai.core.localpeer.impl.entity.ResourceHostEntity;
 import io.subutai.core.localpeer.impl.tasks.CleanupEnvironmentTask;
@@ -211,9 +213,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     private transient HealthService healthService;
     private transient TemplateManager templateManager;
     transient Set<ResourceHost> resourceHosts = Sets.newConcurrentHashSet();
+    transient ContainerHostIndex containerHostIndex = new ContainerHostIndex();
     private transient CommandExecutor commandExecutor;
     private transient Monitor monitor;
     transient ResourceHostDataService resourceHostDataService;
+    transient HeartbeatPersister heartbeatPersister;
     private transient HostRegistry hostRegistry;
     transient CommandUtil commandUtil = new CommandUtil();
     transient ExceptionUtil exceptionUtil = new ExceptionUtil();
@@ -281,6 +285,8 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
 
             resourceHostDataService = createResourceHostDataService();
 
+            heartbeatPersister = new HeartbeatPersister( resourceHostDataService );
+
             resourceHosts.clear();
 
             resourceHosts.addAll( resourceHostDataService.getAll() );
@@ -298,6 +304,22 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
                     removeStaleContainers();
                 }
             }, 30, 5, TimeUnit.MINUTES );
+
+            cleaner.scheduleWithFixedDelay( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        heartbeatPersister.flush();
+                    }
+                    catch ( Exception e )
+                    {
+                        LOG.error( "Error persisting heartbeats", e );
+                    }
+                }
+            }, HeartbeatPersister.FLUSH_INTERVAL_SEC, HeartbeatPersister.FLUSH_INTERVAL_SEC, TimeUnit.SECONDS );
         }
         catch ( Exception e )
         {
@@ -366,6 +388,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     @Override
     public void dispose()
     {
+        if ( heartbeatPersister != null )
+        {
+            heartbeatPersister.flush();
+        }
+
         for ( ResourceHost resourceHost : getResourceHosts() )
         {
             ( ( Disposable ) resourceHost ).dispose();
@@ -382,6 +409,8 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
         for ( ResourceHost resourceHost : resourceHosts )
         {
             ( ( AbstractSubutaiHost ) resourceHost ).setPeer( this );
+
+            ( ( ResourceHostEntity ) resourceHost ).setContainerHostIndex( containerHostIndex );
         }
     }
 
@@ -1079,10 +1108,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
             cal.add( Calendar.MINUTE, -60 );
             Date startTime = cal.getTime();
 
-            try
-            {
-                ContainerHost containerHost = getContainerHostById( containerHostInfo.getId() );
+            //skip unregistered containers, b/c their quotas are not considered
+            ContainerHost containerHost = containerHostIndex.getById( containerHostInfo.getId() );
 
+            if ( containerHost != null )
+            {
                 HistoricalMetrics historicalMetrics = monitor.getMetricsSeries( containerHost, startTime, endTime );
                 HostMetricsDto hostMetricsDto = historicalMetrics.getHostMetrics();
 
@@ -1109,10 +1139,6 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
                     }
                 }
             }
-            catch ( HostNotFoundException e )
-            {
-                //skip unregistered containers, b/c their quotas are not considered
-            }
 
             ResourceHostCapacity resourceHostCapacity = requestedResources.get( resourceHost );
 
@@ -1406,13 +1432,7 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkNotNull( environmentId, "Invalid environment id" );
 
-        Set<ContainerHost> result = new HashSet<>();
-
-        for ( ResourceHost resourceHost : getResourceHosts() )
-        {
-            result.addAll( resourceHost.getContainerHostsByEnvironmentId( environmentId ) );
-        }
-        return result;
+        return new HashSet<>( containerHostIndex.getByEnvironmentId( environmentId ) );
     }
 
 
@@ -1422,16 +1442,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkArgument( !StringUtils.isBlank( hostname ), "Container hostname shouldn't be null" );
 
-        for ( ResourceHost resourceHost : getResourceHosts() )
+        ContainerHost containerHost = containerHostIndex.getByHostname( hostname );
+
+        if ( containerHost != null )
         {
-            try
-            {
-                return resourceHost.getContainerHostByHostName( hostname );
-            }
-            catch ( HostNotFoundException ignore )
-            {
-                //ignore
-            }
+            return containerHost;
         }
 
         throw new HostNotFoundException( String.format( "No container host found for hostname %s", hostname ) );
@@ -1444,16 +1459,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkArgument( !StringUtils.isBlank( containerName ), "Container name shouldn't be null" );
 
-        for ( ResourceHost resourceHost : getResourceHosts() )
+        ContainerHost containerHost = containerHostIndex.getByContainerName( containerName );
+
+        if ( containerHost != null )
         {
-            try
-            {
-                return resourceHost.getContainerHostByContainerName( containerName );
-            }
-            catch ( HostNotFoundException ignore )
-            {
-                //ignore
-            }
+            return containerHost;
         }
 
         throw new HostNotFoundException( String.format( "No container host found for name %s", containerName ) );
@@ -1466,16 +1476,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkNotNull( hostId, "Invalid container host id" );
 
-        for ( ResourceHost resourceHost : getResourceHosts() )
+        ContainerHost containerHost = containerHostIndex.getById( hostId );
+
+        if ( containerHost != null )
         {
-            try
-            {
-                return resourceHost.getContainerHostById( hostId );
-            }
-            catch ( HostNotFoundException e )
-            {
-                //ignore
-            }
+            return containerHost;
         }
 
         throw new HostNotFoundException( String.format( "Container host not found by id %s", hostId ) );
@@ -1488,16 +1493,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkNotNull( hostIp, "Invalid container host ip" );
 
-        for ( ResourceHost resourceHost : getResourceHosts() )
+        ContainerHost containerHost = containerHostIndex.getByIp( hostIp );
+
+        if ( containerHost != null )
         {
-            try
-            {
-                return resourceHost.getContainerHostByIp( hostIp );
-            }
-            catch ( HostNotFoundException e )
-            {
-                //ignore
-            }
+            return containerHost;
         }
 
         throw new HostNotFoundException( String.format( "Container host not found by ip %s", hostIp ) );
@@ -1579,23 +1579,19 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkNotNull( id );
 
+        ContainerHost containerHost = containerHostIndex.getById( id );
+
+        if ( containerHost != null )
+        {
+            return containerHost;
+        }
+
         for ( ResourceHost resourceHost : getResourceHosts() )
         {
             if ( resourceHost.getId().equals( id ) )
             {
                 return resourceHost;
             }
-            else
-            {
-                try
-                {
-                    return resourceHost.getContainerHostById( id );
-                }
-                catch ( HostNotFoundException ignore )
-                {
-                    //ignore
-                }
-            }
         }
 
         throw new HostNotFoundException( String.format( "Host by id %s is not registered", id ) );
@@ -1613,13 +1609,14 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
             {
                 return resourceHost;
             }
-            for ( ContainerHost containerHost : resourceHost.getContainerHosts() )
-            {
-                if ( containerHost.getHostname().equals( hostname ) )
-                {
-                    return containerHost;
-                }
-            }
+        }
+
+        //index is case insensitive while this lookup is not
+        ContainerHost containerHost = containerHostIndex.getByHostname( hostname );
+
+        if ( containerHost != null && containerHost.getHostname().equals( hostname ) )
+        {
+            return containerHost;
         }
 
         throw new HostNotFoundException( "Host by name '" + hostname + "' is not registered." );
@@ -1868,6 +1865,11 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
     {
         Preconditions.checkNotNull( host, "Resource host could not be null." );
 
+        if ( host instanceof ResourceHostEntity )
+        {
+            ( ( ResourceHostEntity ) host ).setContainerHostIndex( containerHostIndex );
+        }
+
         resourceHosts.add( host );
     }
 
@@ -1888,6 +1890,8 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
         keyManager.removeKeyData( rhId );
 
         //remove rh from db
+        heartbeatPersister.discard( rhId );
+
         resourceHostDataService.remove( rhId );
 
         //remove from host registry cache
@@ -1903,6 +1907,16 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
 
         //remove rh from local cache
         resourceHosts.remove( resourceHost );
+
+        for ( final ContainerHost containerHost : resourceHost.getContainerHosts() )
+        {
+            containerHostIndex.remove( containerHost );
+        }
+
+        if ( resourceHost instanceof ResourceHostEntity )
+        {
+            ( ( ResourceHostEntity ) resourceHost ).setContainerHostIndex( null );
+        }
     }
 
 
@@ -2038,6 +2052,8 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
         {
             boolean firstMhRegistration = false;
 
+            boolean newHost = false;
+
             ResourceHostEntity host;
 
             try
@@ -2049,6 +2065,8 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
                 //register new RH
                 host = new ResourceHostEntity( getId(), resourceHostInfo );
 
+                newHost = true;
+
                 resourceHostDataService.persist( host );
 
                 addResourceHost( host );
@@ -2077,9 +2095,17 @@ public class LocalPeerImpl extends HostListener implements LocalPeer, Disposable
             }
 
             //update host info from heartbeat
-            host.updateHostInfo( resourceHostInfo );
+            if ( newHost )
+            {
+                host.updateHostInfo( resourceHostInfo );
 
-            resourceHostDataService.update( host );
+                resourceHostDataService.update( host );
+            }
+            else
+            {
+                //changes if any are written in batches
+                heartbeatPersister.onHeartbeat( host, resourceHostInfo );
+            }
 
             LOG.debug( String.format( "Resource host %s updated.", resourceHostInfo.getHostname() ) );
 
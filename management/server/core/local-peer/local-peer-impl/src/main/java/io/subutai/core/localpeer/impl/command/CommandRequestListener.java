@@ -1,9 +1,15 @@
 package io.subutai.core.localpeer.impl.command;
 
 
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import io.subutai.common.command.CommandCallback;
 import io.subutai.common.command.CommandRequest;
 import io.subutai.common.command.CommandResponse;
@@ -27,6 +33,10 @@ public class CommandRequestListener extends RequestListener
 {
     private static final Logger LOG = LoggerFactory.getLogger( CommandRequestListener.class.getName() );
 
+    // ids of accepted requests, a request may arrive twice if its direct delivery failed after it was received
+    private final Cache<UUID, Boolean> acceptedRequests = CacheBuilder.newBuilder().expireAfterWrite(
+            Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT * 2, TimeUnit.SECONDS ).build();
+
 
     protected PeerManager getPeerManager()
     {
@@ -47,6 +57,14 @@ public class CommandRequestListener extends RequestListener
 
         if ( commandRequest != null )
         {
+            if ( commandRequest.getRequestId() != null
+                    && acceptedRequests.asMap().putIfAbsent( commandRequest.getRequestId(), true ) != null )
+            {
+                LOG.debug( "Duplicate command request {}", commandRequest.getRequestId() );
+
+                return null;
+            }
+
             try
             {
                 Peer sourcePeer = getPeerManager().getPeer( payload.getSourcePeerId() );
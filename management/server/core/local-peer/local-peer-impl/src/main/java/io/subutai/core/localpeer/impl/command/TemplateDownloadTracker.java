@@ -47,7 +47,7 @@ public class TemplateDownloadTracker implements CommandCallback
         {
 
             //download in progress, update current percentage
-            StringTokenizer stringTokenizer = new StringTokenizer( commandResult.getStdOut(), "\n\r\f" );
+            StringTokenizer stringTokenizer = new StringTokenizer( response.getStdOut(), "\n\r\f" );
 
             while ( stringTokenizer.hasMoreTokens() )
             {
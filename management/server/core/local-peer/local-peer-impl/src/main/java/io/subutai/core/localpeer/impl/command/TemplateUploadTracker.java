@@ -44,7 +44,13 @@ public class TemplateUploadTracker implements CommandCallback
     @Override
     public void onResponse( final Response response, final CommandResult commandResult )
     {
-        StringTokenizer stringTokenizer = new StringTokenizer( commandResult.getStdOut(), "\n\r\f" );
+        if ( response == null || response.getStdOut() == null )
+        {
+            return;
+        }
+
+        //only output of the latest response is parsed, progress reported earlier is already applied
+        StringTokenizer stringTokenizer = new StringTokenizer( response.getStdOut(), "\n\r\f" );
 
         while ( stringTokenizer.hasMoreTokens() )
         {
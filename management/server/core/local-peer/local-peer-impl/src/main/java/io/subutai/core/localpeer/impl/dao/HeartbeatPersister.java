@@ -0,0 +1,203 @@
+package io.subutai.core.localpeer.impl.dao;
+
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.core.localpeer.impl.entity.ContainerHostEntity;
+import io.subutai.core.localpeer.impl.entity.ResourceHostEntity;
+
+
+/**
+ * Applies heartbeats to resource host entities and persists only what has changed.
+ *
+ * Unchanged heartbeats are not written at all. Changes are collected and written by {@link #flush()} in a single
+ * transaction: a resource host is merged as a whole only if its own state or set of its containers has changed,
+ * otherwise only its changed containers are merged.
+ *
+ * Entities are changed by heartbeats and copied for writing under the lock of the persister, so a write never sees a
+ * half applied heartbeat. Changes of a failed write are kept pending and written by the next flush.
+ */
+public class HeartbeatPersister
+{
+    private static final Logger LOG = LoggerFactory.getLogger( HeartbeatPersister.class );
+
+    public static final long FLUSH_INTERVAL_SEC = 5;
+
+    private final ResourceHostDataService resourceHostDataService;
+
+    private Map<String, ResourceHostEntity> changedHosts = Maps.newHashMap();
+    private Map<String, ContainerHostEntity> changedContainers = Maps.newHashMap();
+
+    private final AtomicLong receivedHeartbeats = new AtomicLong();
+    private final AtomicLong skippedHeartbeats = new AtomicLong();
+    private final AtomicLong writtenHosts = new AtomicLong();
+    private final AtomicLong writtenContainers = new AtomicLong();
+
+
+    public HeartbeatPersister( final ResourceHostDataService resourceHostDataService )
+    {
+        Preconditions.checkNotNull( resourceHostDataService );
+
+        this.resourceHostDataService = resourceHostDataService;
+    }
+
+
+    /**
+     * Updates host with heartbeat info and schedules write of changes if any
+     */
+    public void onHeartbeat( ResourceHostEntity host, ResourceHostInfo resourceHostInfo )
+    {
+        Set<ContainerHostEntity> containers = Sets.newHashSet();
+
+        receivedHeartbeats.incrementAndGet();
+
+        synchronized ( this )
+        {
+            boolean hostChanged = host.updateHostInfo( resourceHostInfo, containers );
+
+            if ( !hostChanged && containers.isEmpty() )
+            {
+                skippedHeartbeats.incrementAndGet();
+
+                return;
+            }
+
+            if ( hostChanged )
+            {
+                changedHosts.put( host.getId(), host );
+            }
+
+            for ( ContainerHostEntity container : containers )
+            {
+                changedContainers.put( container.getId(), container );
+            }
+        }
+    }
+
+
+    /**
+     * Drops pending changes of removed resource host
+     */
+    public synchronized void discard( String hostId )
+    {
+        changedHosts.remove( hostId );
+
+        for ( ContainerHostEntity container : Sets.newHashSet( changedContainers.values() ) )
+        {
+            if ( container.getParent() == null || hostId.equals( container.getParent().getId() ) )
+            {
+                changedContainers.remove( container.getId() );
+            }
+        }
+    }
+
+
+    /**
+     * Writes collected changes
+     */
+    public void flush()
+    {
+        Map<String, ResourceHostEntity> hosts;
+        Map<String, ContainerHostEntity> containers;
+
+        synchronized ( this )
+        {
+            if ( changedHosts.isEmpty() && changedContainers.isEmpty() )
+            {
+                return;
+            }
+
+            hosts = changedHosts;
+            containers = changedContainers;
+
+            changedHosts = Maps.newHashMap();
+            changedContainers = Maps.newHashMap();
+        }
+
+        //containers of merged hosts are merged along with them
+        for ( ContainerHostEntity container : Sets.newHashSet( containers.values() ) )
+        {
+            if ( container.getParent() != null && hosts.containsKey( container.getParent().getId() ) )
+            {
+                containers.remove( container.getId() );
+            }
+        }
+
+        if ( !resourceHostDataService.update( hosts.values(), containers.values(), this ) )
+        {
+            restore( hosts, containers );
+
+            return;
+        }
+
+        writtenHosts.addAndGet( hosts.size() );
+        writtenContainers.addAndGet( containers.size() );
+
+        LOG.debug( "Heartbeats received: {}, skipped: {}; written hosts: {}, containers: {}",
+                receivedHeartbeats.get(), skippedHeartbeats.get(), writtenHosts.get(), writtenContainers.get() );
+    }
+
+
+    /**
+     * Puts back changes of a failed write. Entries collected meanwhile are newer and are kept
+     */
+    private synchronized void restore( Map<String, ResourceHostEntity> hosts,
+                                       Map<String, ContainerHostEntity> containers )
+    {
+        for ( Map.Entry<String, ResourceHostEntity> entry : hosts.entrySet() )
+        {
+            if ( !changedHosts.containsKey( entry.getKey() ) )
+            {
+                changedHosts.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        for ( Map.Entry<String, ContainerHostEntity> entry : containers.entrySet() )
+        {
+            if ( !changedContainers.containsKey( entry.getKey() ) )
+            {
+                changedContainers.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        LOG.warn( "Failed to write heartbeat changes of {} hosts and {} containers, will retry", hosts.size(),
+                containers.size() );
+    }
+
+
+    public long getReceivedHeartbeats()
+    {
+        return receivedHeartbeats.get();
+    }
+
+
+    /**
+     * Returns number of heartbeats which did not change anything and were not written
+     */
+    public long getSkippedHeartbeats()
+    {
+        return skippedHeartbeats.get();
+    }
+
+
+    public long getWrittenHosts()
+    {
+        return writtenHosts.get();
+    }
+
+
+    public long getWrittenContainers()
+    {
+        return writtenContainers.get();
+    }
+}
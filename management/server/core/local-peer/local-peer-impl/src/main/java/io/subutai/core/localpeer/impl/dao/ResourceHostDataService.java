@@ -2,6 +2,8 @@ package io.subutai.core.localpeer.impl.dao;
 
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -10,8 +12,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
+import io.subutai.common.peer.Host;
 import io.subutai.common.protocol.api.DataService;
+import io.subutai.core.localpeer.impl.entity.ContainerHostEntity;
 import io.subutai.core.localpeer.impl.entity.ResourceHostEntity;
 
 
@@ -156,4 +161,89 @@ public class ResourceHostDataService implements DataService<String, ResourceHost
             em.close();
         }
     }
+
+
+    /**
+     * Merges changed resource hosts and containers in a single transaction. Entities which have been removed from
+     * database meanwhile are skipped, so that a late write does not bring them back.
+     *
+     * State of entities is copied into the persistence context under {@code snapshotLock}, so that it is not read
+     * while being changed by heartbeats holding the same lock. The transaction is committed without holding it.
+     *
+     * @param hosts - resource hosts whose own state or set of containers has changed
+     * @param containers - containers whose state has changed, not including containers of {@code hosts}
+     * @param snapshotLock - lock guarding changes of the entities
+     *
+     * @return true if changes have been written, false if the transaction failed
+     */
+    public synchronized boolean update( final Collection<ResourceHostEntity> hosts,
+                                        final Collection<ContainerHostEntity> containers, final Object snapshotLock )
+    {
+        if ( hosts.isEmpty() && containers.isEmpty() )
+        {
+            return true;
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try
+        {
+            em.getTransaction().begin();
+
+            Set<String> existingHostIds = hosts.isEmpty() ? Sets.<String>newHashSet() : getExistingIds( em,
+                    "select h.hostId from ResourceHostEntity h where h.hostId in :ids", hosts );
+
+            Set<String> existingContainerIds = containers.isEmpty() ? Sets.<String>newHashSet() : getExistingIds( em,
+                    "select c.hostId from ContainerHostEntity c where c.hostId in :ids", containers );
+
+            synchronized ( snapshotLock )
+            {
+                for ( ResourceHostEntity host : hosts )
+                {
+                    if ( existingHostIds.contains( host.getId() ) )
+                    {
+                        em.merge( host );
+                    }
+                }
+
+                for ( ContainerHostEntity container : containers )
+                {
+                    if ( container.getParent() != null && existingContainerIds.contains( container.getId() ) )
+                    {
+                        em.merge( container );
+                    }
+                }
+            }
+
+            em.getTransaction().commit();
+
+            return true;
+        }
+        catch ( Exception e )
+        {
+            LOG.error( e.toString(), e );
+            if ( em.getTransaction().isActive() )
+            {
+                em.getTransaction().rollback();
+            }
+
+            return false;
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+
+    private Set<String> getExistingIds( EntityManager em, String query, Collection<? extends Host> hosts )
+    {
+        List<String> ids = Lists.newArrayList();
+
+        for ( Host host : hosts )
+        {
+            ids.add( host.getId() );
+        }
+
+        return Sets.newHashSet( em.createQuery( query, String.class ).setParameter( "ids", ids ).getResultList() );
+    }
 }
@@ -159,13 +159,22 @@ public abstract class AbstractSubutaiHost implements Host
     }
 
 
-    public void updateHostInfo( final HostInfo hostInfo )
+    /**
+     * Updates host with heartbeat info
+     *
+     * @return true if persistent state of host has changed
+     */
+    public boolean updateHostInfo( final HostInfo hostInfo )
     {
         Preconditions.checkNotNull( hostInfo );
 
         this.lastHeartbeat = System.currentTimeMillis();
 
+        boolean changed = !StringUtils.equals( this.hostname, hostInfo.getHostname() );
+
         this.hostname = hostInfo.getHostname();
+
+        return changed;
     }
 
 
@@ -2,6 +2,7 @@ package io.subutai.core.localpeer.impl.entity;
 
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.Access;
@@ -21,9 +22,12 @@ import javax.persistence.Transient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.lang3.StringUtils;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import io.subutai.bazaar.share.quota.ContainerQuota;
@@ -329,13 +333,55 @@ public class ContainerHostEntity extends AbstractSubutaiHost implements Containe
 
 
     @Override
-    public void updateHostInfo( final HostInfo hostInfo )
+    public boolean updateHostInfo( final HostInfo hostInfo )
     {
-        super.updateHostInfo( hostInfo );
+        boolean changed = super.updateHostInfo( hostInfo );
+
+        ContainerHostInfo containerHostInfo = ( ContainerHostInfo ) hostInfo;
+
+        if ( !StringUtils.equals( this.containerName, containerHostInfo.getContainerName() ) )
+        {
+            this.containerName = containerHostInfo.getContainerName();
 
-        this.containerName = ( ( ContainerHostInfo ) hostInfo ).getContainerName();
+            changed = true;
+        }
+
+        //recreating interfaces replaces their rows, so do it only if they actually changed
+        if ( !hasSameInterfaces( containerHostInfo.getHostInterfaces() ) )
+        {
+            setSavedHostInterfaces( containerHostInfo.getHostInterfaces() );
 
-        setSavedHostInterfaces( ( ( ContainerHostInfo ) hostInfo ).getHostInterfaces() );
+            changed = true;
+        }
+
+        return changed;
+    }
+
+
+    private boolean hasSameInterfaces( HostInterfaces newInterfaces )
+    {
+        if ( newInterfaces == null || newInterfaces.getAll().size() != hostInterfaces.size() )
+        {
+            return false;
+        }
+
+        Map<String, String> ipsByName = Maps.newHashMap();
+
+        for ( HostInterface hostInterface : hostInterfaces )
+        {
+            ipsByName.put( hostInterface.getName(), hostInterface.getIp() );
+        }
+
+        for ( HostInterface hostInterface : newInterfaces.getAll() )
+        {
+            if ( !ipsByName.containsKey( hostInterface.getName() ) || !StringUtils
+                    .equals( ipsByName.get( hostInterface.getName() ), hostInterface.getIp() ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
     }
 
 
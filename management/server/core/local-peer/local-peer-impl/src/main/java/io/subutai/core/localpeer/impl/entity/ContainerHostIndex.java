@@ -0,0 +1,252 @@
+package io.subutai.core.localpeer.impl.entity;
+
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.peer.ContainerHost;
+
+
+/**
+ * Peer-wide index of container hosts of all resource hosts by id, hostname, container name, ip and environment id.
+ *
+ * Lookups are reads of concurrent maps and do not allocate. Updates are serialized, the keys a container was indexed
+ * with are remembered so that its stale entries are dropped when it is reindexed or removed.
+ */
+public class ContainerHostIndex
+{
+    private final ConcurrentMap<String, ContainerHostEntity> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ContainerHostEntity> byHostname = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ContainerHostEntity> byContainerName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ContainerHostEntity> byIp = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<ContainerHost>> byEnvironmentId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Keys> keys = new ConcurrentHashMap<>();
+
+
+    /**
+     * Adds container to index or updates its entries if its hostname, name or ip has changed
+     */
+    public synchronized void add( ContainerHostEntity containerHost )
+    {
+        Preconditions.checkNotNull( containerHost, "Invalid container host" );
+
+        Keys newKeys = new Keys( containerHost );
+        Keys oldKeys = keys.get( newKeys.id );
+
+        if ( newKeys.equals( oldKeys ) && byId.get( newKeys.id ) == containerHost )
+        {
+            return;
+        }
+
+        byId.put( newKeys.id, containerHost );
+        putIfNotBlank( byHostname, newKeys.hostname, containerHost );
+        putIfNotBlank( byContainerName, newKeys.containerName, containerHost );
+        putIfNotBlank( byIp, newKeys.ip, containerHost );
+
+        if ( !StringUtils.isBlank( newKeys.environmentId ) )
+        {
+            Set<ContainerHost> environmentContainers = byEnvironmentId.get( newKeys.environmentId );
+
+            if ( environmentContainers == null )
+            {
+                environmentContainers = Sets.newConcurrentHashSet();
+                byEnvironmentId.put( newKeys.environmentId, environmentContainers );
+            }
+
+            //containers are compared by id, replace possibly different instance
+            environmentContainers.remove( containerHost );
+            environmentContainers.add( containerHost );
+        }
+
+        keys.put( newKeys.id, newKeys );
+
+        if ( oldKeys != null )
+        {
+            removeStale( oldKeys, newKeys );
+        }
+    }
+
+
+    public synchronized void remove( ContainerHost containerHost )
+    {
+        Preconditions.checkNotNull( containerHost, "Invalid container host" );
+
+        Keys oldKeys = keys.remove( containerHost.getId() );
+
+        if ( oldKeys != null )
+        {
+            byId.remove( oldKeys.id );
+
+            removeStale( oldKeys, null );
+        }
+    }
+
+
+    public ContainerHostEntity getById( String id )
+    {
+        return byId.get( id );
+    }
+
+
+    public ContainerHostEntity getByHostname( String hostname )
+    {
+        return byHostname.get( hostname.toLowerCase() );
+    }
+
+
+    public ContainerHostEntity getByContainerName( String containerName )
+    {
+        return byContainerName.get( containerName.toLowerCase() );
+    }
+
+
+    public ContainerHostEntity getByIp( String ip )
+    {
+        return byIp.get( ip );
+    }
+
+
+    /**
+     * Returns live read-only view of containers of environment
+     */
+    public Set<ContainerHost> getByEnvironmentId( String environmentId )
+    {
+        Set<ContainerHost> environmentContainers = byEnvironmentId.get( environmentId );
+
+        return environmentContainers == null ? Collections.<ContainerHost>emptySet() :
+               Collections.unmodifiableSet( environmentContainers );
+    }
+
+
+    /**
+     * Drops entries of old keys which do not match new keys
+     */
+    private void removeStale( Keys oldKeys, Keys newKeys )
+    {
+        if ( newKeys == null || !Objects.equals( oldKeys.hostname, newKeys.hostname ) )
+        {
+            removeIfNotBlank( byHostname, oldKeys.hostname, oldKeys.id );
+        }
+        if ( newKeys == null || !Objects.equals( oldKeys.containerName, newKeys.containerName ) )
+        {
+            removeIfNotBlank( byContainerName, oldKeys.containerName, oldKeys.id );
+        }
+        if ( newKeys == null || !Objects.equals( oldKeys.ip, newKeys.ip ) )
+        {
+            removeIfNotBlank( byIp, oldKeys.ip, oldKeys.id );
+        }
+        if ( !StringUtils.isBlank( oldKeys.environmentId ) && ( newKeys == null || !Objects
+                .equals( oldKeys.environmentId, newKeys.environmentId ) ) )
+        {
+            Set<ContainerHost> environmentContainers = byEnvironmentId.get( oldKeys.environmentId );
+
+            if ( environmentContainers != null )
+            {
+                for ( ContainerHost containerHost : environmentContainers )
+                {
+                    if ( containerHost.getId().equals( oldKeys.id ) )
+                    {
+                        environmentContainers.remove( containerHost );
+                    }
+                }
+
+                if ( environmentContainers.isEmpty() )
+                {
+                    byEnvironmentId.remove( oldKeys.environmentId );
+                }
+            }
+        }
+    }
+
+
+    private void putIfNotBlank( ConcurrentMap<String, ContainerHostEntity> index, String key,
+                                ContainerHostEntity containerHost )
+    {
+        if ( !StringUtils.isBlank( key ) )
+        {
+            index.put( key, containerHost );
+        }
+    }
+
+
+    /**
+     * Removes entry unless it has been taken over by another container meanwhile
+     */
+    private void removeIfNotBlank( ConcurrentMap<String, ContainerHostEntity> index, String key, String id )
+    {
+        if ( !StringUtils.isBlank( key ) )
+        {
+            ContainerHostEntity containerHost = index.get( key );
+
+            if ( containerHost != null && containerHost.getId().equals( id ) )
+            {
+                index.remove( key, containerHost );
+            }
+        }
+    }
+
+
+    /**
+     * Keys container is indexed with
+     */
+    private static class Keys
+    {
+        private final String id;
+        private final String hostname;
+        private final String containerName;
+        private final String ip;
+        private final String environmentId;
+
+
+        Keys( final ContainerHostEntity containerHost )
+        {
+            this.id = containerHost.getId();
+            this.hostname = lowerCase( containerHost.getHostname() );
+            this.containerName = lowerCase( containerHost.getContainerName() );
+            this.ip = containerHost.getIp();
+            this.environmentId =
+                    containerHost.getEnvironmentId() == null ? null : containerHost.getEnvironmentId().getId();
+        }
+
+
+        private static String lowerCase( String value )
+        {
+            return value == null ? null : value.toLowerCase();
+        }
+
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof Keys ) )
+            {
+                return false;
+            }
+
+            final Keys that = ( Keys ) o;
+
+            return Objects.equals( id, that.id ) && Objects.equals( hostname, that.hostname ) && Objects
+                    .equals( containerName, that.containerName ) && Objects.equals( ip, that.ip ) && Objects
+                    .equals( environmentId, that.environmentId );
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( id, hostname, containerName, ip, environmentId );
+        }
+    }
+}
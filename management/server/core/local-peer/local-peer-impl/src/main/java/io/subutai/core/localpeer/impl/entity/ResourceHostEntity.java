@@ -134,6 +134,15 @@ public class ResourceHostEntity extends AbstractSubutaiHost implements ResourceH
 
     @Transient
     protected int numberOfCpuCores = -1;
+
+    @Transient
+    private transient ContainerHostIndex containerHostIndex;
+
+    /**
+     * set when containers are added or removed, so that the next heartbeat persists the change
+     */
+    @Transient
+    private transient volatile boolean containersChanged = false;
     private String rhVersion = null;
     private String p2pVersion = null;
     private String osName = null;
@@ -1002,13 +1011,40 @@ public class ResourceHostEntity extends AbstractSubutaiHost implements ResourceH
     {
         Preconditions.checkNotNull( containerHost, PRECONDITION_CONTAINER_IS_NULL_MSG );
 
-        if ( getContainerHosts().contains( containerHost ) )
+        boolean removed;
+
+        synchronized ( containersHosts )
+        {
+            removed = containersHosts.remove( containerHost );
+        }
+
+        if ( removed )
         {
-            synchronized ( containersHosts )
+            containersChanged = true;
+
+            ( ( ContainerHostEntity ) containerHost ).setParent( null );
+
+            if ( containerHostIndex != null )
             {
-                containersHosts.remove( containerHost );
+                containerHostIndex.remove( containerHost );
+            }
+        }
+    }
+
+
+    /**
+     * Sets peer-wide index to keep in sync with containers of this host, and indexes current containers
+     */
+    public void setContainerHostIndex( final ContainerHostIndex containerHostIndex )
+    {
+        this.containerHostIndex = containerHostIndex;
+
+        if ( containerHostIndex != null )
+        {
+            for ( ContainerHost containerHost : getContainerHosts() )
+            {
+                containerHostIndex.add( ( ContainerHostEntity ) containerHost );
             }
-            ( ( ContainerHostEntity ) containerHost ).setParent( null );
         }
     }
 
@@ -1110,6 +1146,13 @@ public class ResourceHostEntity extends AbstractSubutaiHost implements ResourceH
         {
             containersHosts.add( host );
         }
+
+        containersChanged = true;
+
+        if ( containerHostIndex != null )
+        {
+            containerHostIndex.add( containerHostEntity );
+        }
     }
 
 
@@ -1526,13 +1569,34 @@ public class ResourceHostEntity extends AbstractSubutaiHost implements ResourceH
 
 
     @Override
-    public void updateHostInfo( final HostInfo hostInfo )
+    public boolean updateHostInfo( final HostInfo hostInfo )
+    {
+        Set<ContainerHostEntity> changedContainers = Sets.newHashSet();
+
+        return updateHostInfo( hostInfo, changedContainers ) || !changedContainers.isEmpty();
+    }
+
+
+    /**
+     * Updates host and its containers with heartbeat info
+     *
+     * @param hostInfo - heartbeat info
+     * @param changedContainers - collects containers whose persistent state has changed
+     *
+     * @return true if persistent state of resource host itself or set of its containers has changed
+     */
+    public boolean updateHostInfo( final HostInfo hostInfo, final Set<ContainerHostEntity> changedContainers )
     {
-        super.updateHostInfo( hostInfo );
+        boolean changed = super.updateHostInfo( hostInfo );
 
         ResourceHostInfo resourceHostInfo = ( ResourceHostInfo ) hostInfo;
 
-        this.address = resourceHostInfo.getAddress();
+        if ( !StringUtils.equals( this.address, resourceHostInfo.getAddress() ) )
+        {
+            this.address = resourceHostInfo.getAddress();
+
+            changed = true;
+        }
 
         for ( ContainerHostInfo info : resourceHostInfo.getContainers() )
         {
@@ -1540,7 +1604,16 @@ public class ResourceHostEntity extends AbstractSubutaiHost implements ResourceH
             try
             {
                 containerHost = ( ContainerHostEntity ) getContainerHostById( info.getId() );
-                containerHost.updateHostInfo( info );
+
+                if ( containerHost.updateHostInfo( info ) )
+                {
+                    changedContainers.add( containerHost );
+
+                    if ( containerHostIndex != null )
+                    {
+                        containerHostIndex.add( containerHost );
+                    }
+                }
             }
             catch ( HostNotFoundException e )
             {
@@ -1591,6 +1664,15 @@ public class ResourceHostEntity extends AbstractSubutaiHost implements ResourceH
                 LOG.warn( "Error updating container info {}", e.getMessage() );
             }
         }
+
+        if ( containersChanged )
+        {
+            containersChanged = false;
+
+            changed = true;
+        }
+
+        return changed;
     }
 
 
@@ -64,6 +64,7 @@ import io.subutai.core.hostregistry.api.HostDisconnectedException;
 import io.subutai.core.hostregistry.api.HostRegistry;
 import io.subutai.core.identity.api.IdentityManager;
 import io.subutai.core.identity.api.model.User;
+import io.subutai.core.localpeer.impl.dao.HeartbeatPersister;
 import io.subutai.core.localpeer.impl.dao.ResourceHostDataService;
 import io.subutai.core.localpeer.impl.entity.ContainerHostEntity;
 import io.subutai.core.localpeer.impl.entity.ResourceHostEntity;
@@ -81,7 +82,9 @@ import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySet;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -256,6 +259,7 @@ public class LocalPeerImplTest
 
         localPeer.peerInfo = peerInfo;
         localPeer.resourceHostDataService = resourceHostDataService;
+        localPeer.heartbeatPersister = new HeartbeatPersister( resourceHostDataService );
         localPeer.resourceHosts = Sets.newHashSet( ( ResourceHost ) resourceHost );
         localPeer.commandUtil = commandUtil;
         localPeer.exceptionUtil = exceptionUtil;
@@ -304,6 +308,8 @@ public class LocalPeerImplTest
         when( identityManager.getUserByKeyId( anyString() ) ).thenReturn( user );
         when( relationManager.buildRelation( any( RelationInfoMeta.class ), any( RelationMeta.class ) ) )
                 .thenReturn( relation );
+
+        localPeer.containerHostIndex.add( containerHost );
     }
 
 
@@ -358,8 +364,7 @@ public class LocalPeerImplTest
     {
         assertEquals( containerHost, localPeer.getContainerHostByHostName( CONTAINER_HOST_NAME ) );
 
-        doThrow( new HostNotFoundException( "" ) ).when( resourceHost )
-                                                  .getContainerHostByHostName( CONTAINER_HOST_NAME );
+        localPeer.containerHostIndex.remove( containerHost );
 
         localPeer.getContainerHostByHostName( CONTAINER_HOST_NAME );
     }
@@ -370,7 +375,7 @@ public class LocalPeerImplTest
     {
         assertEquals( containerHost, localPeer.getContainerHostById( CONTAINER_HOST_ID ) );
 
-        doThrow( new HostNotFoundException( "" ) ).when( resourceHost ).getContainerHostById( CONTAINER_HOST_ID );
+        localPeer.containerHostIndex.remove( containerHost );
 
         localPeer.getContainerHostById( CONTAINER_HOST_ID );
     }
@@ -627,7 +632,7 @@ public class LocalPeerImplTest
 
         localPeer.onHeartbeat( resourceHostInfo, Sets.newHashSet( quotaAlertValue ) );
 
-        verify( resourceHost ).updateHostInfo( resourceHostInfo );
+        verify( resourceHost ).updateHostInfo( eq( resourceHostInfo ), anySet() );
 
         doThrow( new HostNotFoundException( "" ) ).when( localPeer ).getResourceHostById( anyString() );
     }
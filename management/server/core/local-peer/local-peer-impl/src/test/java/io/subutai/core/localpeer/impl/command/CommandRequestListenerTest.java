@@ -99,6 +99,18 @@ public class CommandRequestListenerTest
     }
 
 
+    @Test
+    public void testOnDuplicateRequest() throws Exception
+    {
+        when( commandRequest.getRequestId() ).thenReturn( UUID.randomUUID() );
+
+        listener.onRequest( payload );
+        listener.onRequest( payload );
+
+        verify( localPeer ).executeAsync( any( RequestBuilder.class ), eq( host ), any( CommandCallback.class ) );
+    }
+
+
     @Test
     public void testCommandRequestCallback() throws Exception
     {
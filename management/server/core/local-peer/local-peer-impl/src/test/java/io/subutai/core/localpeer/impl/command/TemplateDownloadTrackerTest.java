@@ -76,7 +76,7 @@ public class TemplateDownloadTrackerTest
                 + " 164.84 MiB / 209.08 MiB   78.84% 29s\n" + " 165.14 MiB / 209.08 MiB   78.99% 29s\n"
                 + " 165.47 MiB / 209.08 MiB   79.14% 29s\n" + " 165.77 MiB / 209.08 MiB   79.28% 28s\n"
                 + " 166.08 MiB / 209.08 MiB   79.43% 28s\n" + " 166.41 MiB / 209.08 MiB   79.59% 28s" )
-                .when( commandResult ).getStdOut();
+                .when( response ).getStdOut();
         tracker.onResponse( response, commandResult );
 
         verify( resourceHostEntity, atLeastOnce() ).updateTemplateDownloadProgress( ENV_ID, "cassandra", 78 );
@@ -0,0 +1,166 @@
+package io.subutai.core.localpeer.impl.dao;
+
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import io.subutai.common.host.ResourceHostInfo;
+import io.subutai.core.localpeer.impl.entity.ContainerHostEntity;
+import io.subutai.core.localpeer.impl.entity.ResourceHostEntity;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class HeartbeatPersisterTest
+{
+    private static final String HOST_ID = "host-id";
+    private static final String CONTAINER_ID = "container-id";
+
+    @Mock
+    ResourceHostDataService resourceHostDataService;
+    @Mock
+    ResourceHostEntity host;
+    @Mock
+    ContainerHostEntity container;
+    @Mock
+    ResourceHostInfo resourceHostInfo;
+    @Captor
+    ArgumentCaptor<Collection<ResourceHostEntity>> hostsCaptor;
+    @Captor
+    ArgumentCaptor<Collection<ContainerHostEntity>> containersCaptor;
+
+    HeartbeatPersister persister;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when( host.getId() ).thenReturn( HOST_ID );
+        when( container.getId() ).thenReturn( CONTAINER_ID );
+        when( container.getParent() ).thenReturn( host );
+
+        persister = new HeartbeatPersister( resourceHostDataService );
+
+        doReturn( true ).when( resourceHostDataService ).update( anyCollection(), anyCollection(), any() );
+    }
+
+
+    @Test
+    public void testUnchangedHeartbeatIsSkipped() throws Exception
+    {
+        persister.onHeartbeat( host, resourceHostInfo );
+        persister.flush();
+
+        assertEquals( 1, persister.getReceivedHeartbeats() );
+        assertEquals( 1, persister.getSkippedHeartbeats() );
+        verify( resourceHostDataService, never() ).update( anyCollection(), anyCollection(), any() );
+    }
+
+
+    @Test
+    public void testChangedContainerIsWrittenAlone() throws Exception
+    {
+        reportChanges( false );
+
+        persister.onHeartbeat( host, resourceHostInfo );
+        persister.flush();
+
+        verify( resourceHostDataService ).update( hostsCaptor.capture(), containersCaptor.capture(), eq( persister ) );
+        assertTrue( hostsCaptor.getValue().isEmpty() );
+        assertEquals( 1, containersCaptor.getValue().size() );
+        assertTrue( containersCaptor.getValue().contains( container ) );
+        assertEquals( 0, persister.getSkippedHeartbeats() );
+    }
+
+
+    @Test
+    public void testContainerOfChangedHostIsMergedWithHost() throws Exception
+    {
+        reportChanges( true );
+
+        persister.onHeartbeat( host, resourceHostInfo );
+        persister.onHeartbeat( host, resourceHostInfo );
+        persister.flush();
+
+        verify( resourceHostDataService ).update( hostsCaptor.capture(), containersCaptor.capture(), eq( persister ) );
+        assertEquals( 1, hostsCaptor.getValue().size() );
+        assertTrue( containersCaptor.getValue().isEmpty() );
+        assertEquals( 1, persister.getWrittenHosts() );
+        assertEquals( 0, persister.getWrittenContainers() );
+    }
+
+
+    @Test
+    public void testDiscard() throws Exception
+    {
+        reportChanges( true );
+
+        persister.onHeartbeat( host, resourceHostInfo );
+        persister.discard( HOST_ID );
+        persister.flush();
+
+        verify( resourceHostDataService, never() ).update( anyCollection(), anyCollection(), any() );
+    }
+
+
+    @Test
+    public void testFailedWriteIsRetried() throws Exception
+    {
+        reportChanges( true );
+        doReturn( false ).doReturn( true ).when( resourceHostDataService )
+                                          .update( anyCollection(), anyCollection(), any() );
+
+        persister.onHeartbeat( host, resourceHostInfo );
+        persister.flush();
+
+        assertEquals( 0, persister.getWrittenHosts() );
+
+        persister.flush();
+
+        verify( resourceHostDataService, times( 2 ) )
+                .update( hostsCaptor.capture(), containersCaptor.capture(), eq( persister ) );
+        assertTrue( hostsCaptor.getValue().contains( host ) );
+        assertEquals( 1, persister.getWrittenHosts() );
+    }
+
+
+    /**
+     * Makes host report changed container and optionally its own change on heartbeat
+     */
+    private void reportChanges( final boolean hostChanged )
+    {
+        doAnswer( new Answer<Boolean>()
+        {
+            @Override
+            @SuppressWarnings( "unchecked" )
+            public Boolean answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                ( ( Set<ContainerHostEntity> ) invocation.getArguments()[1] ).add( container );
+
+                return hostChanged;
+            }
+        } ).when( host ).updateHostInfo( eq( resourceHostInfo ), anySet() );
+    }
+}
@@ -0,0 +1,89 @@
+package io.subutai.core.localpeer.impl.entity;
+
+
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.subutai.common.peer.EnvironmentId;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Mockito.when;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class ContainerHostIndexTest
+{
+    private static final String HOST_ID = UUID.randomUUID().toString();
+    private static final String HOSTNAME = "Hostname";
+    private static final String CONTAINER_NAME = "Container";
+    private static final String IP = "172.16.1.2";
+    private static final String ENVIRONMENT_ID = UUID.randomUUID().toString();
+
+    @Mock
+    ContainerHostEntity containerHost;
+
+    private ContainerHostIndex index;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when( containerHost.getId() ).thenReturn( HOST_ID );
+        when( containerHost.getHostname() ).thenReturn( HOSTNAME );
+        when( containerHost.getContainerName() ).thenReturn( CONTAINER_NAME );
+        when( containerHost.getIp() ).thenReturn( IP );
+        when( containerHost.getEnvironmentId() ).thenReturn( new EnvironmentId( ENVIRONMENT_ID ) );
+
+        index = new ContainerHostIndex();
+        index.add( containerHost );
+    }
+
+
+    @Test
+    public void testLookups() throws Exception
+    {
+        assertSame( containerHost, index.getById( HOST_ID ) );
+        assertSame( containerHost, index.getByHostname( "hostname" ) );
+        assertSame( containerHost, index.getByContainerName( "CONTAINER" ) );
+        assertSame( containerHost, index.getByIp( IP ) );
+        assertTrue( index.getByEnvironmentId( ENVIRONMENT_ID ).contains( containerHost ) );
+    }
+
+
+    @Test
+    public void testReindex() throws Exception
+    {
+        when( containerHost.getHostname() ).thenReturn( "new-hostname" );
+        when( containerHost.getIp() ).thenReturn( "172.16.1.3" );
+
+        index.add( containerHost );
+
+        assertNull( index.getByHostname( HOSTNAME ) );
+        assertNull( index.getByIp( IP ) );
+        assertSame( containerHost, index.getByHostname( "new-hostname" ) );
+        assertSame( containerHost, index.getByIp( "172.16.1.3" ) );
+        assertSame( containerHost, index.getByContainerName( CONTAINER_NAME ) );
+        assertEquals( 1, index.getByEnvironmentId( ENVIRONMENT_ID ).size() );
+    }
+
+
+    @Test
+    public void testRemove() throws Exception
+    {
+        index.remove( containerHost );
+
+        assertNull( index.getById( HOST_ID ) );
+        assertNull( index.getByHostname( HOSTNAME ) );
+        assertNull( index.getByContainerName( CONTAINER_NAME ) );
+        assertNull( index.getByIp( IP ) );
+        assertTrue( index.getByEnvironmentId( ENVIRONMENT_ID ).isEmpty() );
+    }
+}
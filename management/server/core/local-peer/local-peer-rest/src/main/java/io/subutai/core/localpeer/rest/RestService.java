@@ -123,6 +123,11 @@ interface RestService
     @Produces( MediaType.APPLICATION_JSON )
     Response updateResourceHost( @PathParam( "resourceHostId" ) String resourceHostId );
 
+    @POST
+    @Path( "commands" )
+    @Consumes( MediaType.APPLICATION_JSON )
+    Response processCommandMessage( String messageRequest );
+
     @POST
     @Path( "alert" )
     @Consumes( MediaType.APPLICATION_JSON )
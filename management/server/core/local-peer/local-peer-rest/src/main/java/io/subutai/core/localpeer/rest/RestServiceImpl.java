@@ -22,8 +22,11 @@ import io.subutai.common.peer.AlertEvent;
 import io.subutai.common.peer.EnvironmentId;
 import io.subutai.common.peer.HostNotFoundException;
 import io.subutai.common.peer.LocalPeer;
+import io.subutai.common.peer.MessageRequest;
 import io.subutai.common.peer.PeerId;
 import io.subutai.common.peer.PeerInfo;
+import io.subutai.common.peer.RecipientType;
+import io.subutai.common.peer.RequestListener;
 import io.subutai.common.peer.ResourceHost;
 import io.subutai.common.protocol.P2PConfig;
 import io.subutai.common.protocol.P2PCredentials;
@@ -336,6 +339,44 @@ public class RestServiceImpl implements RestService
     }
 
 
+    @Override
+    public Response processCommandMessage( final String messageRequest )
+    {
+        try
+        {
+            Preconditions.checkArgument( !StringUtils.isBlank( messageRequest ) );
+
+            MessageRequest request = JsonUtil.fromJson( messageRequest, MessageRequest.class );
+
+            String recipient = request.getRecipient();
+
+            // only command traffic is accepted directly, other requests still go through the messenger
+            if ( !RecipientType.COMMAND_REQUEST.name().equalsIgnoreCase( recipient ) && !RecipientType.COMMAND_RESPONSE
+                    .name().equalsIgnoreCase( recipient ) )
+            {
+                return Response.status( Response.Status.BAD_REQUEST ).build();
+            }
+
+            for ( RequestListener listener : localPeer.getRequestListeners() )
+            {
+                if ( recipient.equalsIgnoreCase( listener.getRecipient() ) )
+                {
+                    listener.onRequest( request.getPayload() );
+
+                    return Response.accepted().build();
+                }
+            }
+
+            return Response.status( Response.Status.NOT_FOUND ).build();
+        }
+        catch ( Exception e )
+        {
+            LOGGER.error( e.getMessage(), e );
+            throw new WebApplicationException( Response.serverError().entity( e.getMessage() ).build() );
+        }
+    }
+
+
     @Override
     public Response putAlert( final AlertEvent alertEvent )
     {
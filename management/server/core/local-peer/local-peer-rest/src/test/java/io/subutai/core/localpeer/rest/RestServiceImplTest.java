@@ -0,0 +1,100 @@
+package io.subutai.core.localpeer.rest;
+
+
+import java.util.UUID;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.peer.LocalPeer;
+import io.subutai.common.peer.MessageRequest;
+import io.subutai.common.peer.Payload;
+import io.subutai.common.peer.RecipientType;
+import io.subutai.common.peer.RequestListener;
+import io.subutai.common.util.JsonUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class RestServiceImplTest
+{
+    private static final String SOURCE_PEER_ID = UUID.randomUUID().toString();
+    private static final String MESSAGE = "message";
+
+    @Mock
+    LocalPeer localPeer;
+    @Mock
+    RequestListener commandRequestListener;
+    @Mock
+    RequestListener commandResponseListener;
+
+    RestServiceImpl restService;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        restService = new RestServiceImpl( localPeer );
+
+        doReturn( RecipientType.COMMAND_REQUEST.name() ).when( commandRequestListener ).getRecipient();
+        doReturn( RecipientType.COMMAND_RESPONSE.name() ).when( commandResponseListener ).getRecipient();
+        doReturn( Sets.newHashSet( commandRequestListener, commandResponseListener ) ).when( localPeer )
+                                                                                      .getRequestListeners();
+    }
+
+
+    private String createMessageRequest( String recipient )
+    {
+        return JsonUtil.toJson( new MessageRequest( new Payload( MESSAGE, SOURCE_PEER_ID ), recipient,
+                Maps.<String, String>newHashMap() ) );
+    }
+
+
+    @Test
+    public void testProcessCommandMessage() throws Exception
+    {
+        Response response =
+                restService.processCommandMessage( createMessageRequest( RecipientType.COMMAND_RESPONSE.name() ) );
+
+        assertEquals( Response.Status.ACCEPTED.getStatusCode(), response.getStatus() );
+        verify( commandResponseListener ).onRequest( any( Payload.class ) );
+        verify( commandRequestListener, never() ).onRequest( any( Payload.class ) );
+    }
+
+
+    @Test
+    public void testProcessCommandMessageRejectsOtherRecipients() throws Exception
+    {
+        Response response =
+                restService.processCommandMessage( createMessageRequest( RecipientType.PEER_REQUEST_LISTENER.name() ) );
+
+        assertEquals( Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus() );
+        verify( commandRequestListener, never() ).onRequest( any( Payload.class ) );
+        verify( commandResponseListener, never() ).onRequest( any( Payload.class ) );
+    }
+
+
+    @Test
+    public void testProcessCommandMessageWithoutListener() throws Exception
+    {
+        doReturn( Sets.newHashSet( commandRequestListener ) ).when( localPeer ).getRequestListeners();
+
+        Response response =
+                restService.processCommandMessage( createMessageRequest( RecipientType.COMMAND_RESPONSE.name() ) );
+
+        assertEquals( Response.Status.NOT_FOUND.getStatusCode(), response.getStatus() );
+    }
+}
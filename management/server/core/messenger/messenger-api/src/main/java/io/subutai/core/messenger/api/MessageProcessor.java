@@ -7,4 +7,9 @@ package io.subutai.core.messenger.api;
 public interface MessageProcessor
 {
     public void processMessage( String envelope ) throws MessageException;
+
+    /**
+     * Processes JSON array of envelopes sent in one request
+     */
+    public void processMessages( String envelopes ) throws MessageException;
 }
@@ -27,6 +27,9 @@ public class LocalPeerMessageSender implements Callable<Boolean>
         for ( Envelope envelope : envelopes )
         {
             messenger.notifyListeners( envelope );
+            envelope.setSent( true );
+
+            // marked one by one, so that delivered envelopes are not delivered again if a later one fails
             messengerDataService.markAsSent( envelope );
         }
         return true;
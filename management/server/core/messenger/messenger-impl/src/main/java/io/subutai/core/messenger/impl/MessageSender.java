@@ -1,41 +1,47 @@
 package io.subutai.core.messenger.impl;
 
 
-import java.util.Comparator;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Maps;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import io.subutai.common.peer.Peer;
 import io.subutai.common.peer.PeerException;
 
 
 /**
- * Background message sender
+ * Background message sender. New envelopes are queued to per peer outboxes in memory, DB is read only periodically to
+ * pick up envelopes which did not fit into outboxes or were left from previous run.
  */
 public class MessageSender
 {
     public static final int SLEEP_BETWEEN_ITERATIONS_SEC = 1;
+    public static final int RELOAD_INTERVAL_SEC = 30;
+    public static final int BATCH_UNSUPPORTED_TTL_MIN = 60;
     private final MessengerDataService messengerDataService;
     private final MessengerImpl messenger;
 
     protected static Logger LOG = LoggerFactory.getLogger( MessageSender.class.getName() );
     protected ScheduledExecutorService mainLoopExecutor = Executors.newSingleThreadScheduledExecutor();
     protected ExecutorService restExecutor = Executors.newCachedThreadPool();
-    protected CompletionService<Boolean> completer = new ExecutorCompletionService<>( restExecutor );
+    protected final ConcurrentMap<String, PeerOutbox> outboxes = new ConcurrentHashMap<>();
+    // peers of older version which accept one message per request, checked again after a while in case of upgrade
+    private final Cache<String, Boolean> batchUnsupportedPeers =
+            CacheBuilder.newBuilder().expireAfterWrite( BATCH_UNSUPPORTED_TTL_MIN, TimeUnit.MINUTES ).build();
+    private volatile boolean reloadRequested = true;
+    private long nextReloadTime = 0;
 
 
     public MessageSender( final MessengerDataService messengerDataService, final MessengerImpl messenger )
@@ -81,75 +87,138 @@ public class MessageSender
     }
 
 
-    protected void deliverMessages()
+    /**
+     * Queues envelope for delivery. If outbox of the peer is full, the envelope is delivered after it is read from DB.
+     */
+    public void enqueue( Envelope envelope )
+    {
+        if ( !getOutbox( envelope.getTargetPeerId() ).offer( envelope ) )
+        {
+            reloadRequested = true;
+        }
+    }
+
+
+    private PeerOutbox getOutbox( String peerId )
     {
-        //get next messages to send
-        Set<Envelope> envelopes = messengerDataService.getEnvelopes();
+        PeerOutbox outbox = outboxes.get( peerId );
 
-        Map<String, Set<Envelope>> peerEnvelopesMap = Maps.newHashMap();
-        int maxTimeToLive = 0;
-        //distribute envelops to peers
-        for ( Envelope envelope : envelopes )
+        if ( outbox == null )
         {
-            if ( envelope.getTimeToLive() > maxTimeToLive )
-            {
-                maxTimeToLive = envelope.getTimeToLive();
-            }
-            Set<Envelope> peerEnvelopes = peerEnvelopesMap.get( envelope.getTargetPeerId() );
-            if ( peerEnvelopes == null )
+            outbox = new PeerOutbox();
+
+            PeerOutbox existing = outboxes.putIfAbsent( peerId, outbox );
+            if ( existing != null )
             {
-                //sort by createDate asc once more
-                peerEnvelopes = new TreeSet<>( new Comparator<Envelope>()
-                {
-                    @Override
-                    public int compare( final Envelope o1, final Envelope o2 )
-                    {
-                        return o1.getCreateDate().compareTo( o2.getCreateDate() );
-                    }
-                } );
-                peerEnvelopesMap.put( envelope.getTargetPeerId(), peerEnvelopes );
+                outbox = existing;
             }
+        }
 
-            peerEnvelopes.add( envelope );
+        return outbox;
+    }
+
+
+    protected void loadEnvelopes()
+    {
+        for ( Envelope envelope : messengerDataService.getEnvelopes() )
+        {
+            enqueue( envelope );
         }
+    }
+
+
+    protected void deliverMessages()
+    {
+        long now = System.currentTimeMillis();
+
+        if ( reloadRequested || now >= nextReloadTime )
+        {
+            reloadRequested = false;
+            nextReloadTime = now + TimeUnit.SECONDS.toMillis( RELOAD_INTERVAL_SEC );
 
+            loadEnvelopes();
+        }
 
-        //try to send messages in parallel - one thread per peer
-        try
+        //send messages in parallel - one batch per peer, peers do not wait for each other
+        for ( Map.Entry<String, PeerOutbox> outboxEntry : outboxes.entrySet() )
         {
-            for ( Map.Entry<String, Set<Envelope>> envelopsPerPeer : peerEnvelopesMap.entrySet() )
+            PeerOutbox outbox = outboxEntry.getValue();
+
+            Set<Envelope> batch = outbox.nextBatch( now );
+
+            if ( batch == null )
             {
-                Peer targetPeer = messenger.getPeerManager().getPeer( envelopsPerPeer.getKey() );
-                if ( targetPeer.isLocal() )
-                {
-                    completer.submit(
-                            new LocalPeerMessageSender( messenger, messengerDataService, envelopsPerPeer.getValue() ) );
-                }
-                else
-                {
-                    completer.submit(
-                            new RemotePeerMessageSender(
-                                    messengerDataService, targetPeer, envelopsPerPeer.getValue() ) );
-                }
+                continue;
             }
 
-            //wait for completion
             try
             {
-                for ( int i = 0; i < peerEnvelopesMap.size(); i++ )
-                {
-                    Future<Boolean> future = completer.take();
-                    future.get();
-                }
+                Peer targetPeer = messenger.getPeerManager().getPeer( outboxEntry.getKey() );
+
+                restExecutor.execute( new OutboxDelivery( outbox, batch, createSender( targetPeer, batch ) ) );
             }
-            catch ( InterruptedException | ExecutionException e )
+            catch ( PeerException e )
             {
-                LOG.warn( "ignore", e );
+                LOG.error( e.getMessage(), e );
+
+                outbox.complete( batch, now );
             }
         }
-        catch ( PeerException e )
+    }
+
+
+    protected Callable<Boolean> createSender( Peer targetPeer, Set<Envelope> batch )
+    {
+        if ( targetPeer.isLocal() )
+        {
+            return new LocalPeerMessageSender( messenger, messengerDataService, batch );
+        }
+        else
+        {
+            return new RemotePeerMessageSender( messengerDataService, targetPeer, batch, batchUnsupportedPeers );
+        }
+    }
+
+
+    /**
+     * Sends batch and releases outbox for the next one
+     */
+    static class OutboxDelivery implements Runnable
+    {
+        private final PeerOutbox outbox;
+        private final Set<Envelope> batch;
+        private final Callable<Boolean> sender;
+
+
+        OutboxDelivery( final PeerOutbox outbox, final Set<Envelope> batch, final Callable<Boolean> sender )
+        {
+            this.outbox = outbox;
+            this.batch = batch;
+            this.sender = sender;
+        }
+
+
+        Callable<Boolean> getSender()
+        {
+            return sender;
+        }
+
+
+        @Override
+        public void run()
         {
-            LOG.error( e.getMessage(), e );
+            try
+            {
+                sender.call();
+            }
+            catch ( Exception e )
+            {
+                LOG.error( "Error delivering messages", e );
+            }
+            finally
+            {
+                outbox.complete( batch, System.currentTimeMillis() );
+            }
         }
     }
 }
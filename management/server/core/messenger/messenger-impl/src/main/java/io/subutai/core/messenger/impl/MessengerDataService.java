@@ -1,6 +1,8 @@
 package io.subutai.core.messenger.impl;
 
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -12,6 +14,7 @@ import io.subutai.core.messenger.impl.dao.MessageDao;
 import io.subutai.core.messenger.impl.entity.MessageEntity;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 
@@ -21,7 +24,7 @@ import com.google.common.collect.Sets;
 public class MessengerDataService
 {
     private static final int WIDENING_INTERVAL_SEC = 5;
-    private static final int MESSAGE_LIMIT_PER_PEER = 10;
+    private static final int MESSAGE_LIMIT_PER_PEER = PeerOutbox.MAX_BATCH_SIZE;
 
     protected MessageDao messageDao;
 
@@ -79,15 +82,39 @@ public class MessengerDataService
     }
 
 
+    public void markAsSent( Collection<Envelope> envelopes )
+    {
+        messageDao.markAsSent( getMessageIds( envelopes ) );
+    }
+
+
     public void incrementDeliveryAttempts( Envelope envelope )
     {
         messageDao.incrementDeliveryAttempts( envelope.getMessage().getId().toString() );
     }
 
 
+    public void incrementDeliveryAttempts( Collection<Envelope> envelopes )
+    {
+        messageDao.incrementDeliveryAttempts( getMessageIds( envelopes ) );
+    }
+
+
+    private List<String> getMessageIds( Collection<Envelope> envelopes )
+    {
+        List<String> ids = Lists.newArrayList();
+        for ( final Envelope envelope : envelopes )
+        {
+            ids.add( envelope.getMessage().getId().toString() );
+        }
+        return ids;
+    }
+
+
     public void saveEnvelope( Envelope envelope )
     {
         MessageEntity messageEntity = new MessageEntity( envelope );
+        envelope.setCreateDate( new Timestamp( messageEntity.getCreateDate() ) );
         messageDao.persist( messageEntity );
     }
 
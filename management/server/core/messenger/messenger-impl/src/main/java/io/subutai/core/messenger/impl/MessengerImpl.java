@@ -2,6 +2,7 @@ package io.subutai.core.messenger.impl;
 
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -16,6 +17,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
 
 import io.subutai.common.dao.DaoManager;
 import io.subutai.common.peer.Peer;
@@ -106,6 +108,8 @@ public class MessengerImpl implements Messenger, MessageProcessor
             Envelope envelope = new Envelope( message, peer.getId(), recipient, timeToLive, headers );
 
             messengerDataService.saveEnvelope( envelope );
+
+            messageSender.enqueue( envelope );
         }
         catch ( Exception e )
         {
@@ -167,6 +171,28 @@ public class MessengerImpl implements Messenger, MessageProcessor
     }
 
 
+    @Override
+    public void processMessages( final String envelopesString ) throws MessageException
+    {
+        try
+        {
+            List<Envelope> envelopes = JsonUtil.fromJson( envelopesString, new TypeToken<List<Envelope>>()
+            {
+            }.getType() );
+
+            for ( Envelope envelope : envelopes )
+            {
+                notifyListeners( envelope );
+            }
+        }
+        catch ( NullPointerException | JsonSyntaxException e )
+        {
+            LOG.error( "Error in processMessages", e );
+            throw new MessageException( e );
+        }
+    }
+
+
     protected void notifyListeners( Envelope envelope )
     {
         Message message = envelope.getMessage();
@@ -0,0 +1,161 @@
+package io.subutai.core.messenger.impl;
+
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+
+/**
+ * Envelopes waiting for delivery to one peer. One batch per peer is in flight at a time, after a failed batch next
+ * attempt is delayed exponentially. Ids of sent envelopes are remembered for a while, since a DB reload which started
+ * before they were marked as sent may offer them again.
+ */
+class PeerOutbox
+{
+    static final int MAX_PENDING = 1000;
+    static final int MAX_BATCH_SIZE = 50;
+    static final long INITIAL_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 60000;
+    static final long SENT_RETENTION_MS = TimeUnit.SECONDS.toMillis( MessageSender.RELOAD_INTERVAL_SEC * 2L );
+
+    private static final Comparator<Envelope> CREATE_DATE_ORDER = new Comparator<Envelope>()
+    {
+        @Override
+        public int compare( final Envelope o1, final Envelope o2 )
+        {
+            return o1.getCreateDate().compareTo( o2.getCreateDate() );
+        }
+    };
+
+    // envelopes by message id, including the batch in flight
+    private final Map<String, Envelope> pending = new LinkedHashMap<>();
+    // send time by message id, oldest first
+    private final Map<String, Long> sent = new LinkedHashMap<>();
+    private boolean inFlight = false;
+    private int failures = 0;
+    private long nextAttemptTime = 0;
+
+
+    /**
+     * Adds envelope unless it is already queued, in flight or recently sent, returns false if the outbox is full
+     */
+    synchronized boolean offer( Envelope envelope )
+    {
+        String id = envelope.getMessage().getId().toString();
+
+        forgetSent( System.currentTimeMillis() );
+
+        if ( pending.containsKey( id ) || sent.containsKey( id ) )
+        {
+            return true;
+        }
+
+        if ( pending.size() >= MAX_PENDING )
+        {
+            return false;
+        }
+
+        pending.put( id, envelope );
+
+        return true;
+    }
+
+
+    /**
+     * Returns oldest envelopes to send now, or null if a batch is in flight, peer is backed off or nothing is pending.
+     * Envelopes whose time-to-live passed are dropped.
+     */
+    synchronized Set<Envelope> nextBatch( long now )
+    {
+        if ( inFlight || now < nextAttemptTime )
+        {
+            return null;
+        }
+
+        for ( Iterator<Envelope> iterator = pending.values().iterator(); iterator.hasNext(); )
+        {
+            Envelope envelope = iterator.next();
+            if ( envelope.getCreateDate().getTime() + envelope.getTimeToLive() * 1000L < now )
+            {
+                iterator.remove();
+            }
+        }
+
+        if ( pending.isEmpty() )
+        {
+            return null;
+        }
+
+        List<Envelope> envelopes = Lists.newArrayList( pending.values() );
+        Collections.sort( envelopes, CREATE_DATE_ORDER );
+
+        inFlight = true;
+
+        return new LinkedHashSet<>( envelopes.subList( 0, Math.min( MAX_BATCH_SIZE, envelopes.size() ) ) );
+    }
+
+
+    /**
+     * Removes sent envelopes of the batch, backs off if any of them was not sent
+     */
+    synchronized void complete( Set<Envelope> batch, long now )
+    {
+        inFlight = false;
+
+        boolean failed = false;
+        for ( Envelope envelope : batch )
+        {
+            if ( envelope.isSent() )
+            {
+                String id = envelope.getMessage().getId().toString();
+
+                pending.remove( id );
+                sent.put( id, now );
+            }
+            else
+            {
+                failed = true;
+            }
+        }
+
+        if ( failed )
+        {
+            failures++;
+            nextAttemptTime = now + Math.min( MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min( failures - 1, 16 ) );
+        }
+        else
+        {
+            failures = 0;
+            nextAttemptTime = 0;
+        }
+    }
+
+
+    private void forgetSent( long now )
+    {
+        for ( Iterator<Long> iterator = sent.values().iterator(); iterator.hasNext(); )
+        {
+            if ( iterator.next() + SENT_RETENTION_MS >= now )
+            {
+                break;
+            }
+
+            iterator.remove();
+        }
+    }
+
+
+    synchronized int size()
+    {
+        return pending.size();
+    }
+}
@@ -1,6 +1,7 @@
 package io.subutai.core.messenger.impl;
 
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
@@ -11,6 +12,9 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cxf.jaxrs.client.WebClient;
 
+import com.google.common.cache.Cache;
+import com.google.common.collect.Lists;
+
 import io.subutai.common.peer.Peer;
 import io.subutai.common.peer.PeerInfo;
 import io.subutai.common.security.WebClientBuilder;
@@ -23,18 +27,23 @@ import io.subutai.common.util.JsonUtil;
 public class RemotePeerMessageSender implements Callable<Boolean>
 {
     private static final Logger LOG = LoggerFactory.getLogger( RemotePeerMessageSender.class.getName() );
+    private static final String BATCH_PATH = "/messenger/messages";
+    private static final String SINGLE_PATH = "/messenger/message";
 
     private Peer targetPeer;
     private Set<Envelope> envelopes;
 
     private MessengerDataService messengerDataService;
+    private Cache<String, Boolean> batchUnsupportedPeers;
 
 
-    public RemotePeerMessageSender( MessengerDataService messengerDataService, final Peer targetPeer, final Set<Envelope> envelopes )
+    public RemotePeerMessageSender( MessengerDataService messengerDataService, final Peer targetPeer,
+                                    final Set<Envelope> envelopes, final Cache<String, Boolean> batchUnsupportedPeers )
     {
         this.targetPeer = targetPeer;
         this.envelopes = envelopes;
         this.messengerDataService = messengerDataService;
+        this.batchUnsupportedPeers = batchUnsupportedPeers;
     }
 
 
@@ -44,45 +53,112 @@ public class RemotePeerMessageSender implements Callable<Boolean>
         WebClient client = null;
         try
         {
-            client = getWebClient( targetPeer.getPeerInfo() );
-            for ( Envelope envelope : envelopes )
+            boolean batchSupported = batchUnsupportedPeers.getIfPresent( targetPeer.getId() ) == null;
+
+            if ( batchSupported )
             {
-                Response response = null;
-                try
+                client = getWebClient( targetPeer.getPeerInfo(), BATCH_PATH );
+
+                Response response = client.post( JsonUtil.toJson( envelopes ) );
+
+                if ( response.getStatus() == Response.Status.NOT_FOUND.getStatusCode() )
                 {
-                    response = client.post( JsonUtil.toJson( envelope ) );
+                    // peer of older version accepts only one message per request
+                    batchUnsupportedPeers.put( targetPeer.getId(), Boolean.TRUE );
+                    batchSupported = false;
 
+                    WebClientBuilder.close( client );
+                }
+                else
+                {
                     WebClientBuilder.checkResponse( response, Response.Status.ACCEPTED );
 
-                    messengerDataService.markAsSent( envelope );
+                    for ( Envelope envelope : envelopes )
+                    {
+                        envelope.setSent( true );
+                    }
                 }
-                catch ( Exception e )
-                {
-                    messengerDataService.incrementDeliveryAttempts( envelope );
+            }
 
-                    LOG.error( "Error in RemotePeerMessageSender", e );
+            if ( !batchSupported )
+            {
+                client = getWebClient( targetPeer.getPeerInfo(), SINGLE_PATH );
 
-                    //break transmission of all subsequent messages for this peer in this round
-                    break;
-                }
+                sendOneByOne( client );
             }
-            return true;
         }
         catch ( Exception e )
         {
-            LOG.error( e.getMessage() );
+            LOG.error( "Error in RemotePeerMessageSender", e );
         }
         finally
         {
             WebClientBuilder.close( client );
         }
 
-        return false;
+        return acknowledge();
+    }
+
+
+    private void sendOneByOne( WebClient client )
+    {
+        for ( Envelope envelope : envelopes )
+        {
+            try
+            {
+                Response response = client.post( JsonUtil.toJson( envelope ) );
+
+                WebClientBuilder.checkResponse( response, Response.Status.ACCEPTED );
+
+                envelope.setSent( true );
+            }
+            catch ( Exception e )
+            {
+                LOG.error( "Error in RemotePeerMessageSender", e );
+
+                //break transmission of all subsequent messages for this peer in this round
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Stores delivery results of all envelopes at once, returns true if all were delivered
+     */
+    private boolean acknowledge()
+    {
+        List<Envelope> sent = Lists.newArrayList();
+        List<Envelope> notSent = Lists.newArrayList();
+
+        for ( Envelope envelope : envelopes )
+        {
+            if ( envelope.isSent() )
+            {
+                sent.add( envelope );
+            }
+            else
+            {
+                notSent.add( envelope );
+            }
+        }
+
+        if ( !sent.isEmpty() )
+        {
+            messengerDataService.markAsSent( sent );
+        }
+
+        if ( !notSent.isEmpty() )
+        {
+            messengerDataService.incrementDeliveryAttempts( notSent );
+        }
+
+        return notSent.isEmpty();
     }
 
 
-    protected WebClient getWebClient( PeerInfo peerInfo )
+    protected WebClient getWebClient( PeerInfo peerInfo, String path )
     {
-        return WebClientBuilder.buildPeerWebClient( peerInfo, "/messenger/message" );
+        return WebClientBuilder.buildPeerWebClient( peerInfo, path );
     }
 }
@@ -313,4 +313,53 @@ public class MessageDao implements DataService<String, MessageEntity>
             em.close();
         }
     }
+
+
+    /**
+     * Marks messages as sent in one transaction
+     */
+    public void markAsSent( Collection<String> messageIds )
+    {
+        updateMessages( "update MessageEntity e set e.isSent = true where e.id in :ids", messageIds );
+    }
+
+
+    /**
+     * Increments delivery attempts of messages in one transaction
+     */
+    public void incrementDeliveryAttempts( Collection<String> messageIds )
+    {
+        updateMessages( "update MessageEntity e set e.attempts = e.attempts + 1 where e.id in :ids", messageIds );
+    }
+
+
+    private void updateMessages( String update, Collection<String> messageIds )
+    {
+        if ( messageIds.isEmpty() )
+        {
+            return;
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try
+        {
+            em.getTransaction().begin();
+            Query query = em.createQuery( update ).setParameter( "ids", messageIds );
+
+            query.executeUpdate();
+            em.getTransaction().commit();
+        }
+        catch ( Exception e )
+        {
+            LOG.error( e.toString(), e );
+            if ( em.getTransaction().isActive() )
+            {
+                em.getTransaction().rollback();
+            }
+        }
+        finally
+        {
+            em.close();
+        }
+    }
 }
@@ -7,10 +7,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -45,6 +49,28 @@ public class LocalPeerMessageSenderTest
 
         assertTrue( result );
         verify( messenger, times( 2 ) ).notifyListeners( isA( Envelope.class ) );
-        verify( messengerDataService, times( 2 ) ).markAsSent( isA( Envelope.class ) );
+        verify( messengerDataService ).markAsSent( envelope1 );
+        verify( messengerDataService ).markAsSent( envelope2 );
+    }
+
+
+    @Test
+    public void testDeliveredEnvelopesAreMarkedOnFailure() throws Exception
+    {
+        localPeerMessageSender =
+                new LocalPeerMessageSender( messenger, messengerDataService, Sets.newLinkedHashSet(
+                        Lists.newArrayList( envelope1, envelope2 ) ) );
+        doThrow( new RuntimeException() ).when( messenger ).notifyListeners( envelope2 );
+
+        try
+        {
+            localPeerMessageSender.call();
+            fail( "Expected RuntimeException" );
+        }
+        catch ( RuntimeException e )
+        {
+            verify( messengerDataService ).markAsSent( envelope1 );
+            verify( messengerDataService, never() ).markAsSent( envelope2 );
+        }
     }
 }
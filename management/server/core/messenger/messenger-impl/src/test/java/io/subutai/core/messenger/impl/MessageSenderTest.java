@@ -3,15 +3,14 @@ package io.subutai.core.messenger.impl;
 
 import java.sql.Timestamp;
 import java.util.UUID;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.slf4j.Logger;
@@ -20,13 +19,16 @@ import com.google.common.collect.Sets;
 
 import io.subutai.common.peer.LocalPeer;
 import io.subutai.common.peer.Peer;
+import io.subutai.common.peer.PeerException;
 import io.subutai.common.peer.PeerInfo;
 import io.subutai.core.peer.api.PeerManager;
 
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -36,7 +38,6 @@ public class MessageSenderTest
 {
     private static final String TARGET_PEER_ID = UUID.randomUUID().toString();
     private static final int TIME_TO_LIVE = 5;
-    private static final Timestamp CREATE_DATE = new Timestamp( System.currentTimeMillis() );
     @Mock
     PeerManager peerManager;
     @Mock
@@ -50,6 +51,8 @@ public class MessageSenderTest
     @Mock
     Envelope envelope;
     @Mock
+    MessageImpl message;
+    @Mock
     Peer peer;
     @Mock
     LocalPeer localPeer;
@@ -57,10 +60,6 @@ public class MessageSenderTest
     Logger logger;
     @Mock
     PeerInfo peerInfo;
-    @Mock
-    CompletionService completer;
-    @Mock
-    Future future;
 
     MessageSender messageSender;
 
@@ -72,7 +71,6 @@ public class MessageSenderTest
         messageSender.mainLoopExecutor = mainLoopExecutor;
         messageSender.restExecutor = restExecutor;
         messageSender.LOG = logger;
-        messageSender.completer = completer;
     }
 
 
@@ -109,33 +107,54 @@ public class MessageSenderTest
     public void testDeliverMessages() throws Exception
     {
         when( messengerDataService.getEnvelopes() ).thenReturn( Sets.newHashSet( envelope ) );
+        when( envelope.getMessage() ).thenReturn( message );
+        when( message.getId() ).thenReturn( UUID.randomUUID() );
         when( envelope.getTimeToLive() ).thenReturn( TIME_TO_LIVE );
         when( envelope.getTargetPeerId() ).thenReturn( TARGET_PEER_ID );
-        when( envelope.getCreateDate() ).thenReturn( CREATE_DATE );
+        when( envelope.getCreateDate() ).thenReturn( new Timestamp( System.currentTimeMillis() ) );
         when( peerManager.getPeer( TARGET_PEER_ID ) ).thenReturn( peer );
-        when( peer.getId() ).thenReturn( TARGET_PEER_ID );
-        when( peerManager.getLocalPeer() ).thenReturn( localPeer );
-//        when( peerManager.getLocalPeerInfo() ).thenReturn( peerInfo );
-        when( peerInfo.getId() ).thenReturn( UUID.randomUUID().toString() );
-        when( localPeer.isLocal() ).thenReturn( false );
-        when( localPeer.getId() ).thenReturn( UUID.randomUUID().toString() );
-        when( completer.take() ).thenReturn( future );
         when( messenger.getPeerManager() ).thenReturn( peerManager );
 
         messageSender.deliverMessages();
 
-        verify( completer ).submit( isA( RemotePeerMessageSender.class ) );
+        ArgumentCaptor<MessageSender.OutboxDelivery> captor =
+                ArgumentCaptor.forClass( MessageSender.OutboxDelivery.class );
+        verify( restExecutor ).execute( captor.capture() );
+        assertTrue( captor.getValue().getSender() instanceof RemotePeerMessageSender );
+
+        //next batch of the peer waits until the one in flight is completed
+        messageSender.deliverMessages();
+
+        verify( restExecutor ).execute( isA( Runnable.class ) );
+    }
+
+
+    @Test
+    public void testCreateSender() throws Exception
+    {
+        assertTrue( messageSender.createSender( peer, Sets.newHashSet( envelope ) ) instanceof RemotePeerMessageSender );
 
         when( peer.isLocal() ).thenReturn( true );
 
-        messageSender.deliverMessages();
+        assertTrue( messageSender.createSender( peer, Sets.newHashSet( envelope ) ) instanceof LocalPeerMessageSender );
+    }
 
-        verify( completer ).submit( isA( LocalPeerMessageSender.class ) );
 
-        doThrow( new InterruptedException() ).when( completer ).take();
+    @Test
+    public void testDeliverMessagesPeerNotFound() throws Exception
+    {
+        when( messengerDataService.getEnvelopes() ).thenReturn( Sets.newHashSet( envelope ) );
+        when( envelope.getMessage() ).thenReturn( message );
+        when( message.getId() ).thenReturn( UUID.randomUUID() );
+        when( envelope.getTimeToLive() ).thenReturn( TIME_TO_LIVE );
+        when( envelope.getTargetPeerId() ).thenReturn( TARGET_PEER_ID );
+        when( envelope.getCreateDate() ).thenReturn( new Timestamp( System.currentTimeMillis() ) );
+        when( messenger.getPeerManager() ).thenReturn( peerManager );
+        doThrow( new PeerException( "" ) ).when( peerManager ).getPeer( TARGET_PEER_ID );
 
         messageSender.deliverMessages();
 
-        verify( logger ).warn( anyString(), isA( InterruptedException.class ) );
+        verify( logger ).error( anyString(), isA( PeerException.class ) );
+        verify( restExecutor, never() ).execute( isA( Runnable.class ) );
     }
 }
@@ -0,0 +1,168 @@
+package io.subutai.core.messenger.impl;
+
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class PeerOutboxTest
+{
+    private static final String SOURCE_PEER_ID = UUID.randomUUID().toString();
+    private static final String TARGET_PEER_ID = UUID.randomUUID().toString();
+    private static final String RECIPIENT = "recipient";
+    private static final int TIME_TO_LIVE = 60;
+    private static final Map<String, String> HEADERS = Maps.newHashMap();
+
+    PeerOutbox outbox;
+    long now;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        outbox = new PeerOutbox();
+        now = System.currentTimeMillis();
+    }
+
+
+    private Envelope createEnvelope( long createDate, int timeToLive )
+    {
+        Envelope envelope =
+                new Envelope( new MessageImpl( SOURCE_PEER_ID, "payload" ), TARGET_PEER_ID, RECIPIENT, timeToLive,
+                        HEADERS );
+        envelope.setCreateDate( new Timestamp( createDate ) );
+        return envelope;
+    }
+
+
+    @Test
+    public void testOffer() throws Exception
+    {
+        Envelope envelope = createEnvelope( now, TIME_TO_LIVE );
+
+        assertTrue( outbox.offer( envelope ) );
+        assertTrue( outbox.offer( envelope ) );
+        assertEquals( 1, outbox.size() );
+
+        for ( int i = 1; i < PeerOutbox.MAX_PENDING; i++ )
+        {
+            assertTrue( outbox.offer( createEnvelope( now, TIME_TO_LIVE ) ) );
+        }
+
+        assertFalse( outbox.offer( createEnvelope( now, TIME_TO_LIVE ) ) );
+    }
+
+
+    @Test
+    public void testNextBatch() throws Exception
+    {
+        Envelope newer = createEnvelope( now, TIME_TO_LIVE );
+        Envelope older = createEnvelope( now - 1000, TIME_TO_LIVE );
+        Envelope expired = createEnvelope( now - 10000, 1 );
+        outbox.offer( newer );
+        outbox.offer( older );
+        outbox.offer( expired );
+
+        Set<Envelope> batch = outbox.nextBatch( now );
+
+        assertEquals( 2, batch.size() );
+        assertEquals( older, batch.iterator().next() );
+
+        //one batch in flight
+        assertNull( outbox.nextBatch( now ) );
+
+        for ( Envelope envelope : batch )
+        {
+            envelope.setSent( true );
+        }
+        outbox.complete( batch, now );
+
+        assertEquals( 0, outbox.size() );
+        assertNull( outbox.nextBatch( now ) );
+    }
+
+
+    @Test
+    public void testNextBatchSize() throws Exception
+    {
+        for ( int i = 0; i < PeerOutbox.MAX_BATCH_SIZE + 1; i++ )
+        {
+            outbox.offer( createEnvelope( now, TIME_TO_LIVE ) );
+        }
+
+        assertEquals( PeerOutbox.MAX_BATCH_SIZE, outbox.nextBatch( now ).size() );
+    }
+
+
+    @Test
+    public void testBackoff() throws Exception
+    {
+        outbox.offer( createEnvelope( now, TIME_TO_LIVE ) );
+
+        outbox.complete( outbox.nextBatch( now ), now );
+
+        assertNull( outbox.nextBatch( now + PeerOutbox.INITIAL_BACKOFF_MS - 1 ) );
+
+        Set<Envelope> batch = outbox.nextBatch( now + PeerOutbox.INITIAL_BACKOFF_MS );
+        assertEquals( 1, batch.size() );
+
+        //backoff doubles after next failure
+        outbox.complete( batch, now );
+
+        assertNull( outbox.nextBatch( now + 2 * PeerOutbox.INITIAL_BACKOFF_MS - 1 ) );
+        assertEquals( 1, outbox.nextBatch( now + 2 * PeerOutbox.INITIAL_BACKOFF_MS ).size() );
+    }
+
+
+    @Test
+    public void testSentEnvelopeIsNotOfferedAgain() throws Exception
+    {
+        Envelope envelope = createEnvelope( now, TIME_TO_LIVE );
+        outbox.offer( envelope );
+
+        Set<Envelope> batch = outbox.nextBatch( now );
+
+        // DB reload reads the envelope while its batch is in flight
+        Envelope reloaded = new Envelope( envelope.getMessage(), TARGET_PEER_ID, RECIPIENT, TIME_TO_LIVE, HEADERS );
+        reloaded.setCreateDate( envelope.getCreateDate() );
+
+        assertTrue( outbox.offer( reloaded ) );
+        assertEquals( 1, outbox.size() );
+
+        envelope.setSent( true );
+        outbox.complete( batch, now );
+
+        assertTrue( outbox.offer( reloaded ) );
+        assertEquals( 0, outbox.size() );
+        assertNull( outbox.nextBatch( now ) );
+    }
+
+
+    @Test
+    public void testSentEnvelopeIsForgotten() throws Exception
+    {
+        Envelope envelope = createEnvelope( now, TIME_TO_LIVE );
+        outbox.offer( envelope );
+
+        Set<Envelope> batch = outbox.nextBatch( now );
+        envelope.setSent( true );
+        outbox.complete( batch, now - PeerOutbox.SENT_RETENTION_MS - 1 );
+
+        Envelope reloaded = new Envelope( envelope.getMessage(), TARGET_PEER_ID, RECIPIENT, TIME_TO_LIVE, HEADERS );
+
+        assertTrue( outbox.offer( reloaded ) );
+        assertEquals( 1, outbox.size() );
+    }
+}
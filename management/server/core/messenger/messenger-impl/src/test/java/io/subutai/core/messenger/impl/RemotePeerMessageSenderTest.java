@@ -14,17 +14,23 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import org.apache.cxf.jaxrs.client.WebClient;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import io.subutai.common.peer.Peer;
 import io.subutai.common.peer.PeerInfo;
 
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -57,6 +63,7 @@ public class RemotePeerMessageSenderTest
 
 
     RemotePeerMessageSender remotePeerMessageSender;
+    Cache<String, Boolean> batchUnsupportedPeers = CacheBuilder.newBuilder().build();
     Envelope envelope;
     String uuid = UUID.randomUUID().toString();
 
@@ -69,11 +76,12 @@ public class RemotePeerMessageSenderTest
 
         envelope = new Envelope( message, TARGET_PEER_ID, RECIPIENT, TIME_TO_LIVE, HEADERS );
         remotePeerMessageSender = spy( new RemotePeerMessageSender(
-                messengerDataService, peer, Sets.newHashSet( envelope ) ) );
+                messengerDataService, peer, Sets.newHashSet( envelope ), batchUnsupportedPeers ) );
 
+        when( peer.getId() ).thenReturn( TARGET_PEER_ID );
         when( peer.getPeerInfo() ).thenReturn( peerInfo );
         when( peerInfo.getIp() ).thenReturn( IP );
-        doReturn( webClient ).when( remotePeerMessageSender ).getWebClient( any( PeerInfo.class ) );
+        doReturn( webClient ).when( remotePeerMessageSender ).getWebClient( any( PeerInfo.class ), anyString() );
     }
 
 
@@ -86,7 +94,45 @@ public class RemotePeerMessageSenderTest
         remotePeerMessageSender.call();
 
         verify( webClient ).post( anyString() );
-        verify( messengerDataService ).markAsSent( envelope );
+        verify( messengerDataService ).markAsSent( anyCollection() );
+        verify( messengerDataService, never() ).incrementDeliveryAttempts( anyCollection() );
+    }
+
+
+    @Test
+    public void testCallFallsBackToSingleMessages() throws Exception
+    {
+        doReturn( response ).when( webClient ).post( anyString() );
+        when( response.getStatus() ).thenReturn( Response.Status.NOT_FOUND.getStatusCode() )
+                                    .thenReturn( Response.Status.ACCEPTED.getStatusCode() );
+
+        boolean result = remotePeerMessageSender.call();
+
+        assertTrue( result );
+        verify( remotePeerMessageSender ).getWebClient( peerInfo, "/messenger/message" );
+        verify( messengerDataService ).markAsSent( anyCollection() );
+    }
+
+
+    @Test
+    public void testSingleMessageFallbackIsRemembered() throws Exception
+    {
+        doReturn( response ).when( webClient ).post( anyString() );
+        when( response.getStatus() ).thenReturn( Response.Status.NOT_FOUND.getStatusCode() )
+                                    .thenReturn( Response.Status.ACCEPTED.getStatusCode() );
+
+        remotePeerMessageSender.call();
+
+        RemotePeerMessageSender nextSender = spy( new RemotePeerMessageSender( messengerDataService, peer,
+                Sets.newHashSet( new Envelope( new MessageImpl( SOURCE_PEER_ID, PAYLOAD ), TARGET_PEER_ID, RECIPIENT,
+                        TIME_TO_LIVE, HEADERS ) ), batchUnsupportedPeers ) );
+        doReturn( webClient ).when( nextSender ).getWebClient( any( PeerInfo.class ), anyString() );
+
+        assertTrue( nextSender.call() );
+
+        verify( nextSender, never() ).getWebClient( peerInfo, "/messenger/messages" );
+        verify( nextSender ).getWebClient( peerInfo, "/messenger/message" );
+        verify( webClient, times( 3 ) ).post( anyString() );
     }
 
 
@@ -97,6 +143,7 @@ public class RemotePeerMessageSenderTest
 
         remotePeerMessageSender.call();
 
-        verify( messengerDataService ).incrementDeliveryAttempts( envelope );
+        verify( messengerDataService ).incrementDeliveryAttempts( anyCollection() );
+        verify( messengerDataService, never() ).markAsSent( anyCollection() );
     }
 }
@@ -16,4 +16,9 @@ public interface RestService
     @POST
     @Path( "message" )
     public Response processMessage( String envelope );
+
+
+    @POST
+    @Path( "messages" )
+    public Response processMessages( String envelopes );
 }
@@ -43,4 +43,20 @@ public class RestServiceImpl implements RestService
             return Response.serverError().entity( e.getMessage() ).build();
         }
     }
+
+
+    @Override
+    public Response processMessages( final String envelopes )
+    {
+        try
+        {
+            messageProcessor.processMessages( envelopes );
+            return Response.accepted().build();
+        }
+        catch ( MessageException e )
+        {
+            LOG.error( "Error in processMessages", e );
+            return Response.serverError().entity( e.getMessage() ).build();
+        }
+    }
 }
@@ -2,9 +2,11 @@ package io.subutai.core.object.relation.impl;
 
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
@@ -14,6 +16,10 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -43,10 +49,19 @@ import io.subutai.core.security.api.crypto.KeyManager;
 public class RelationInfoManagerImpl implements RelationInfoManager
 {
     private static final Logger logger = LoggerFactory.getLogger( RelationInfoManagerImpl.class );
+    private static final int DECISION_CACHE_SIZE = 10000;
+    private static final String TOKEN_REQUIRED = "You should pass relation token challenge first.";
+    private static final String INSUFFICIENT_PERMISSIONS = "Your relation has insufficient permissions.";
+    private static final String NO_RELATION = "No relation exist.";
     private RelationDataService relationDataService;
     private IdentityManager identityManager;
     private SecurityManager securityManager;
 
+    // results of relation checks without token, valid while relation graph version stays the same
+    private final Cache<String, Decision> decisionCache =
+            CacheBuilder.newBuilder().maximumSize( DECISION_CACHE_SIZE ).recordStats().build();
+    private volatile long decisionCacheVersion = -1;
+
 
     public RelationInfoManagerImpl( final RelationDataService relationDataService,
                                     final IdentityManager identityManager, final SecurityManager securityManager )
@@ -179,7 +194,7 @@ public class RelationInfoManagerImpl implements RelationInfoManager
                            Set<RelationLink> relationLinks )
     {
 
-        List<Relation> byTargetRelations = relationDataService.findByTarget( target );
+        List<Relation> byTargetRelations = relationDataService.getGraphRelationsByTarget( target );
         relationLinks.add( target );
         // When relation info is found check that relation was granted from verified source
         for ( final Relation targetRelation : byTargetRelations )
@@ -309,16 +324,87 @@ public class RelationInfoManagerImpl implements RelationInfoManager
         if ( !StringUtils.isBlank( encodedToken ) )
         {
             decryptAndVerifyChallenge( encodedToken, source.getKeyId() );
+            verifyRelation( source, targetObject, relationInfoMeta, encodedToken );
+            return;
+        }
+
+        String decisionKey = getDecisionKey( source, targetObject, relationInfoMeta );
+        long graphVersion = getGraphVersion();
+
+        Decision decision = decisionCache.getIfPresent( decisionKey );
+        if ( decision != null && decision.graphVersion == graphVersion )
+        {
+            if ( decision.denialReason != null )
+            {
+                throw new RelationVerificationException( decision.denialReason );
+            }
+            return;
+        }
+
+        try
+        {
+            verifyRelation( source, targetObject, relationInfoMeta, null );
+
+            decisionCache.put( decisionKey, new Decision( graphVersion, null ) );
+        }
+        catch ( RelationVerificationException e )
+        {
+            decisionCache.put( decisionKey, new Decision( graphVersion, e.getMessage() ) );
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns hit and miss counts of relation check results cache
+     */
+    public CacheStats getDecisionCacheStats()
+    {
+        return decisionCache.stats();
+    }
+
+
+    /**
+     * Returns current relation graph version. Cached decisions are dropped once the version changes, since a relation
+     * or relation link has been modified and they can not be used anymore
+     */
+    private long getGraphVersion()
+    {
+        long graphVersion = relationDataService.getRelationGraphVersion();
+
+        if ( graphVersion != decisionCacheVersion )
+        {
+            decisionCache.invalidateAll();
+            decisionCacheVersion = graphVersion;
         }
 
+        return graphVersion;
+    }
+
+
+    private String getDecisionKey( final RelationLink source, final RelationLink targetObject,
+                                   final RelationInfoMeta relationInfoMeta )
+    {
+        Map<String, String> traits = relationInfoMeta.getRelationTraits() == null ? Maps.<String, String>newHashMap() :
+                                     relationInfoMeta.getRelationTraits();
+
+        return source.getUniqueIdentifier() + "|" + targetObject.getUniqueIdentifier() + "|" + new TreeMap<>( traits );
+    }
+
+
+    private void verifyRelation( final RelationLink source, final RelationLink targetObject,
+                                 final RelationInfoMeta relationInfoMeta, final String encodedToken )
+            throws RelationVerificationException
+    {
         Set<RelationLink> relationLinks = Sets.newHashSet();
         RelationInfo relationInfo = new RelationInfoImpl( relationInfoMeta );
 
         RelationLinkImpl target = new RelationLinkImpl( source );
-        List<Relation> byTargetRelations = relationDataService.findByTarget( target );
+        List<Relation> byTargetRelations = relationDataService.getGraphRelationsByTarget( target );
 
         RelationLinkImpl object = new RelationLinkImpl( targetObject );
-        List<Relation> bySourceRelations = relationDataService.findBySource( target );
+        List<Relation> bySourceRelations = relationDataService.getGraphRelationsBySource( target );
 
         // When relation info is found check that relation was granted from verified source
         for ( final Relation targetRelation : byTargetRelations )
@@ -326,7 +412,7 @@ public class RelationInfoManagerImpl implements RelationInfoManager
             if ( targetRelation.getRelationStatus() == RelationStatus.STATED && StringUtils.isBlank( encodedToken ) )
             {
                 logger.error( "You should pass relation token challenge first." );
-                throw new RelationVerificationException( "You should pass relation token challenge first." );
+                throw new RelationVerificationException( TOKEN_REQUIRED );
             }
             if ( targetRelation.getTrustedObject().equals( object ) )
             {
@@ -338,7 +424,7 @@ public class RelationInfoManagerImpl implements RelationInfoManager
                 else
                 {
                     logger.error( "Your relation has insufficient permissions." );
-                    throw new RelationVerificationException( "Your relation has insufficient permissions." );
+                    throw new RelationVerificationException( INSUFFICIENT_PERMISSIONS );
                 }
             }
             int result = getDeeper( relationInfo, targetRelation.getTrustedObject(), object, relationLinks );
@@ -351,7 +437,7 @@ public class RelationInfoManagerImpl implements RelationInfoManager
                 else
                 {
                     logger.error( "Your relation has insufficient permissions." );
-                    throw new RelationVerificationException( "Your relation has insufficient permissions." );
+                    throw new RelationVerificationException( INSUFFICIENT_PERMISSIONS );
                 }
             }
         }
@@ -366,7 +452,7 @@ public class RelationInfoManagerImpl implements RelationInfoManager
             if ( sourceRelation.getRelationStatus() == RelationStatus.STATED && StringUtils.isBlank( encodedToken ) )
             {
                 logger.error( "You should pass relation token challenge first." );
-                throw new RelationVerificationException( "You should pass relation token challenge first." );
+                throw new RelationVerificationException( TOKEN_REQUIRED );
             }
             if ( sourceRelation.getTrustedObject().equals( object ) )
             {
@@ -378,11 +464,211 @@ public class RelationInfoManagerImpl implements RelationInfoManager
                 else
                 {
                     logger.error( "Your relation has insufficient permissions" );
-                    throw new RelationVerificationException( "Your relation has insufficient permissions." );
+                    throw new RelationVerificationException( INSUFFICIENT_PERMISSIONS );
                 }
             }
         }
         logger.error( "No relation exist." );
-        throw new RelationVerificationException( "No relation exist." );
+        throw new RelationVerificationException( NO_RELATION );
+    }
+
+
+    @Override
+    public <T extends RelationLink> List<T> filterPermitted( final RelationLink source,
+                                                            final Collection<T> targetObjects,
+                                                            final RelationInfoMeta relationInfoMeta )
+    {
+        List<T> permitted = Lists.newArrayList();
+
+        RelationLink checkSource = source;
+        if ( checkSource == null )
+        {
+            if ( identityManager.getActiveUser() == null )
+            {
+                // owner is looked up by each object separately
+                for ( final T targetObject : targetObjects )
+                {
+                    try
+                    {
+                        checkRelation( targetObject, relationInfoMeta, null );
+                        permitted.add( targetObject );
+                    }
+                    catch ( RelationVerificationException e )
+                    {
+                        logger.debug( "Relation check failed: {}", e.getMessage() );
+                    }
+                }
+                return permitted;
+            }
+
+            try
+            {
+                checkSource = getDelegatedUserLink( null );
+            }
+            catch ( RelationVerificationException e )
+            {
+                logger.warn( "Relation check failed: {}", e.getMessage() );
+                return permitted;
+            }
+        }
+
+        long graphVersion = getGraphVersion();
+        Map<String, String> denialReasons = Maps.newHashMap();
+        Set<String> uncheckedIds = Sets.newHashSet();
+
+        for ( final T targetObject : targetObjects )
+        {
+            Decision decision =
+                    decisionCache.getIfPresent( getDecisionKey( checkSource, targetObject, relationInfoMeta ) );
+            if ( decision != null && decision.graphVersion == graphVersion )
+            {
+                denialReasons.put( targetObject.getUniqueIdentifier(), decision.denialReason );
+            }
+            else
+            {
+                uncheckedIds.add( targetObject.getUniqueIdentifier() );
+            }
+        }
+
+        uncheckedIds.removeAll( denialReasons.keySet() );
+
+        if ( !uncheckedIds.isEmpty() )
+        {
+            Map<String, String> checked = verifyRelations( checkSource, uncheckedIds, relationInfoMeta );
+            denialReasons.putAll( checked );
+
+            for ( final T targetObject : targetObjects )
+            {
+                if ( uncheckedIds.contains( targetObject.getUniqueIdentifier() ) )
+                {
+                    decisionCache.put( getDecisionKey( checkSource, targetObject, relationInfoMeta ),
+                            new Decision( graphVersion, checked.get( targetObject.getUniqueIdentifier() ) ) );
+                }
+            }
+        }
+
+        for ( final T targetObject : targetObjects )
+        {
+            if ( denialReasons.get( targetObject.getUniqueIdentifier() ) == null )
+            {
+                permitted.add( targetObject );
+            }
+        }
+
+        logger.debug( "{} of {} objects permitted", permitted.size(), targetObjects.size() );
+
+        return permitted;
+    }
+
+
+    /**
+     * Does the same walk over relations as {@link #verifyRelation(RelationLink, RelationLink, RelationInfoMeta,
+     * String)} for many objects at once. The walk does not depend on the object being looked for, so each object gets
+     * the result of the first relation that leads to it, as it would when checked alone.
+     *
+     * @return denial reason by object id, null reason for permitted objects
+     */
+    private Map<String, String> verifyRelations( final RelationLink source, final Set<String> objectIds,
+                                                 final RelationInfoMeta relationInfoMeta )
+    {
+        Map<String, String> denialReasons = Maps.newHashMap();
+        Set<RelationLink> relationLinks = Sets.newHashSet();
+        RelationInfo relationInfo = new RelationInfoImpl( relationInfoMeta );
+
+        RelationLinkImpl target = new RelationLinkImpl( source );
+
+        for ( final Relation targetRelation : relationDataService.getGraphRelationsByTarget( target ) )
+        {
+            if ( targetRelation.getRelationStatus() == RelationStatus.STATED )
+            {
+                return denyUndecided( denialReasons, objectIds, TOKEN_REQUIRED );
+            }
+            decide( denialReasons, objectIds, targetRelation.getTrustedObject(),
+                    compareRelationships( targetRelation.getRelationInfo(), relationInfo ) );
+
+            walkDeeper( relationInfo, targetRelation.getTrustedObject(), objectIds, relationLinks, denialReasons );
+
+            if ( denialReasons.size() == objectIds.size() )
+            {
+                return denialReasons;
+            }
+        }
+
+        for ( final Relation sourceRelation : relationDataService.getGraphRelationsBySource( target ) )
+        {
+            if ( sourceRelation.getRelationStatus() == RelationStatus.STATED )
+            {
+                return denyUndecided( denialReasons, objectIds, TOKEN_REQUIRED );
+            }
+            decide( denialReasons, objectIds, sourceRelation.getTrustedObject(),
+                    compareRelationships( sourceRelation.getRelationInfo(), relationInfo ) );
+        }
+
+        return denyUndecided( denialReasons, objectIds, NO_RELATION );
+    }
+
+
+    private void walkDeeper( final RelationInfo relationInfo, final RelationLink target, final Set<String> objectIds,
+                             final Set<RelationLink> relationLinks, final Map<String, String> denialReasons )
+    {
+        relationLinks.add( target );
+
+        for ( final Relation targetRelation : relationDataService.getGraphRelationsByTarget( target ) )
+        {
+            if ( denialReasons.size() == objectIds.size() )
+            {
+                return;
+            }
+
+            int compare = compareRelationships( targetRelation.getRelationInfo(), relationInfo );
+            decide( denialReasons, objectIds, targetRelation.getTrustedObject(), compare );
+
+            if ( compare >= 0 && !relationLinks.contains( targetRelation.getTrustedObject() ) )
+            {
+                walkDeeper( relationInfo, targetRelation.getTrustedObject(), objectIds, relationLinks,
+                        denialReasons );
+            }
+        }
+    }
+
+
+    private void decide( final Map<String, String> denialReasons, final Set<String> objectIds,
+                         final RelationLink object, final int compare )
+    {
+        String objectId = object.getUniqueIdentifier();
+
+        if ( objectIds.contains( objectId ) && !denialReasons.containsKey( objectId ) )
+        {
+            denialReasons.put( objectId, compare >= 0 ? null : INSUFFICIENT_PERMISSIONS );
+        }
+    }
+
+
+    private Map<String, String> denyUndecided( final Map<String, String> denialReasons, final Set<String> objectIds,
+                                               final String reason )
+    {
+        for ( final String objectId : objectIds )
+        {
+            if ( !denialReasons.containsKey( objectId ) )
+            {
+                denialReasons.put( objectId, reason );
+            }
+        }
+
+        return denialReasons;
+    }
+
+
+    private static class Decision
+    {
+        private final long graphVersion;
+        private final String denialReason;
+
+
+        Decision( final long graphVersion, final String denialReason )
+        {
+            this.graphVersion = graphVersion;
+            this.denialReason = denialReason;
+        }
     }
 }
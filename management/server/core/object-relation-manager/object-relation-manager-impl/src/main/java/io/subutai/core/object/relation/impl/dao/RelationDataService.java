@@ -3,6 +3,7 @@ package io.subutai.core.object.relation.impl.dao;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -27,6 +28,8 @@ public class RelationDataService
 {
     private static final Logger logger = LoggerFactory.getLogger( RelationDataService.class );
     private DaoManager daoManager = null;
+    private final RelationGraph relationGraph = new RelationGraph();
+    private final AtomicBoolean graphLoading = new AtomicBoolean( false );
 
 
     public RelationDataService( final DaoManager daoManager )
@@ -44,6 +47,8 @@ public class RelationDataService
             daoManager.startTransaction( em );
             em.persist( relationLink );
             daoManager.commitTransaction( em );
+
+            updateGraph( relationLink );
         }
         catch ( Exception ex )
         {
@@ -66,6 +71,8 @@ public class RelationDataService
             daoManager.startTransaction( em );
             em.merge( relationLink );
             daoManager.commitTransaction( em );
+
+            updateGraph( relationLink );
         }
         catch ( Exception ex )
         {
@@ -94,6 +101,11 @@ public class RelationDataService
             }
 
             daoManager.commitTransaction( em );
+
+            for ( Object relationLink : relationLinks )
+            {
+                updateGraph( relationLink );
+            }
         }
         catch ( Exception ex )
         {
@@ -122,6 +134,11 @@ public class RelationDataService
             }
 
             daoManager.commitTransaction( em );
+
+            for ( Object relationLink : relationLinks )
+            {
+                updateGraph( relationLink );
+            }
         }
         catch ( Exception ex )
         {
@@ -149,6 +166,8 @@ public class RelationDataService
             qr.executeUpdate();
 
             daoManager.commitTransaction( em );
+
+            relationGraph.remove( trustRelationId );
         }
         catch ( Exception ex )
         {
@@ -179,6 +198,9 @@ public class RelationDataService
             qr.executeUpdate();
 
             daoManager.commitTransaction( em );
+
+            //bulk delete, relations removed from database are not known one by one
+            relationGraph.invalidate();
         }
         catch ( Exception ex )
         {
@@ -283,22 +305,112 @@ public class RelationDataService
 
     public List<Relation> getAllRelations()
     {
-        EntityManager em = daoManager.getEntityManagerFactory().createEntityManager();
         List<Relation> result = Lists.newArrayList();
         try
         {
-            Query qr = em.createQuery( "SELECT ss FROM RelationImpl AS ss ORDER BY ss.relationStatus DESC" );
-            result.addAll( qr.getResultList() );
+            result.addAll( loadAllRelations() );
         }
         catch ( Exception ex )
         {
             logger.warn( "Error querying for trust relation.", ex );
         }
+        return result;
+    }
+
+
+    private List<Relation> loadAllRelations()
+    {
+        EntityManager em = daoManager.getEntityManagerFactory().createEntityManager();
+        try
+        {
+            Query qr = em.createQuery( "SELECT ss FROM RelationImpl AS ss ORDER BY ss.relationStatus DESC" );
+            return Lists.<Relation>newArrayList( qr.getResultList() );
+        }
         finally
         {
             daoManager.closeEntityManager( em );
         }
-        return result;
+    }
+
+
+    /**
+     * Returns relations by source from in-memory relation graph, falls back to database if graph can not be loaded.
+     * Returned relations are shared and must not be modified.
+     */
+    public List<Relation> getGraphRelationsBySource( final RelationLink source )
+    {
+        return loadRelationGraph() ? relationGraph.getBySource( source ) : findBySource( source );
+    }
+
+
+    /**
+     * Returns relations by target from in-memory relation graph, falls back to database if graph can not be loaded.
+     * Returned relations are shared and must not be modified.
+     */
+    public List<Relation> getGraphRelationsByTarget( final RelationLink target )
+    {
+        return loadRelationGraph() ? relationGraph.getByTarget( target ) : findByTarget( target );
+    }
+
+
+    /**
+     * Returns version of relation graph, which changes on every relation or relation link modification
+     */
+    public long getRelationGraphVersion()
+    {
+        return relationGraph.getVersion();
+    }
+
+
+    /**
+     * Loads relation graph unless it is loaded already. Only one thread loads the graph at a time, other threads
+     * fall back to database queries until it is loaded
+     */
+    private boolean loadRelationGraph()
+    {
+        if ( relationGraph.isLoaded() )
+        {
+            return true;
+        }
+
+        if ( !graphLoading.compareAndSet( false, true ) )
+        {
+            return false;
+        }
+
+        try
+        {
+            long version = relationGraph.getVersion();
+
+            return relationGraph.load( loadAllRelations(), version );
+        }
+        catch ( Exception ex )
+        {
+            logger.warn( "Error loading relation graph.", ex );
+
+            return false;
+        }
+        finally
+        {
+            graphLoading.set( false );
+        }
+    }
+
+
+    /**
+     * Applies committed write of a relation to relation graph. Relation links are referenced by many relations, so
+     * their update drops the graph
+     */
+    private void updateGraph( Object entity )
+    {
+        if ( entity instanceof Relation )
+        {
+            relationGraph.put( ( Relation ) entity );
+        }
+        else if ( entity instanceof RelationLink )
+        {
+            relationGraph.invalidate();
+        }
     }
 
 
@@ -0,0 +1,214 @@
+package io.subutai.core.object.relation.impl.dao;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import io.subutai.common.security.relation.RelationLink;
+import io.subutai.common.security.relation.model.Relation;
+
+
+/**
+ * In-memory copy of relation table indexed by source and target link, used to walk relation chains without querying
+ * database at every hop. Relations are kept in the order database returns them: VERIFIED ones first.
+ *
+ * Single relation writes are applied to the graph in place, changes that can not be tracked relation by relation
+ * (relation link updates, bulk deletes) drop the graph, which is then reloaded on next use. Every change bumps graph
+ * version, so that results computed from the graph can be invalidated too.
+ */
+class RelationGraph
+{
+    private static final Comparator<Relation> RELATION_ORDER = new Comparator<Relation>()
+    {
+        @Override
+        public int compare( final Relation o1, final Relation o2 )
+        {
+            //same as ORDER BY relationStatus DESC on status names
+            int result = o2.getRelationStatus().name().compareTo( o1.getRelationStatus().name() );
+
+            return result != 0 ? result : Long.compare( o1.getId(), o2.getId() );
+        }
+    };
+
+    private final Map<Long, Relation> relationsById = Maps.newHashMap();
+    private final Map<String, List<Relation>> relationsBySource = Maps.newHashMap();
+    private final Map<String, List<Relation>> relationsByTarget = Maps.newHashMap();
+
+    private boolean loaded = false;
+    private long version = 0;
+
+
+    synchronized boolean isLoaded()
+    {
+        return loaded;
+    }
+
+
+    synchronized long getVersion()
+    {
+        return version;
+    }
+
+
+    /**
+     * Fills graph with relations read from database, unless graph has changed since the given version was obtained
+     *
+     * @return true if graph was loaded
+     */
+    synchronized boolean load( Collection<Relation> relations, long loadVersion )
+    {
+        if ( loadVersion != version )
+        {
+            return false;
+        }
+
+        clear();
+
+        for ( final Relation relation : relations )
+        {
+            index( relation );
+        }
+
+        loaded = true;
+
+        return true;
+    }
+
+
+    synchronized List<Relation> getBySource( RelationLink source )
+    {
+        return get( relationsBySource, source );
+    }
+
+
+    synchronized List<Relation> getByTarget( RelationLink target )
+    {
+        return get( relationsByTarget, target );
+    }
+
+
+    /**
+     * Adds relation or replaces relation with the same id
+     */
+    synchronized void put( Relation relation )
+    {
+        version++;
+
+        if ( loaded )
+        {
+            unindex( relation.getId() );
+            index( relation );
+        }
+    }
+
+
+    synchronized void remove( long relationId )
+    {
+        version++;
+
+        if ( loaded )
+        {
+            unindex( relationId );
+        }
+    }
+
+
+    /**
+     * Drops graph contents, graph is reloaded from database on next use
+     */
+    synchronized void invalidate()
+    {
+        version++;
+        loaded = false;
+        clear();
+    }
+
+
+    private void clear()
+    {
+        relationsById.clear();
+        relationsBySource.clear();
+        relationsByTarget.clear();
+    }
+
+
+    private List<Relation> get( Map<String, List<Relation>> index, RelationLink link )
+    {
+        List<Relation> relations = index.get( getKey( link ) );
+
+        return relations == null ? Collections.<Relation>emptyList() : ImmutableList.copyOf( relations );
+    }
+
+
+    private void index( Relation relation )
+    {
+        relationsById.put( relation.getId(), relation );
+        addToIndex( relationsBySource, getKey( relation.getSource() ), relation );
+        addToIndex( relationsByTarget, getKey( relation.getTarget() ), relation );
+    }
+
+
+    private void unindex( long relationId )
+    {
+        Relation relation = relationsById.remove( relationId );
+
+        if ( relation != null )
+        {
+            removeFromIndex( relationsBySource, getKey( relation.getSource() ), relationId );
+            removeFromIndex( relationsByTarget, getKey( relation.getTarget() ), relationId );
+        }
+    }
+
+
+    private void addToIndex( Map<String, List<Relation>> index, String key, Relation relation )
+    {
+        List<Relation> relations = index.get( key );
+
+        if ( relations == null )
+        {
+            relations = Lists.newArrayList();
+            index.put( key, relations );
+        }
+
+        int position = Collections.binarySearch( relations, relation, RELATION_ORDER );
+        relations.add( position < 0 ? -position - 1 : position, relation );
+    }
+
+
+    private void removeFromIndex( Map<String, List<Relation>> index, String key, long relationId )
+    {
+        List<Relation> relations = index.get( key );
+
+        if ( relations == null )
+        {
+            return;
+        }
+
+        for ( final Iterator<Relation> iterator = relations.iterator(); iterator.hasNext(); )
+        {
+            if ( iterator.next().getId() == relationId )
+            {
+                iterator.remove();
+            }
+        }
+
+        if ( relations.isEmpty() )
+        {
+            index.remove( key );
+        }
+    }
+
+
+    private static String getKey( RelationLink link )
+    {
+        return link == null ? null : link.getUniqueIdentifier();
+    }
+}
@@ -0,0 +1,191 @@
+package io.subutai.core.object.relation.impl;
+
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import io.subutai.common.security.objects.Ownership;
+import io.subutai.common.security.relation.RelationLink;
+import io.subutai.common.security.relation.RelationVerificationException;
+import io.subutai.common.security.relation.model.Relation;
+import io.subutai.common.security.relation.model.RelationInfoMeta;
+import io.subutai.common.security.relation.model.RelationStatus;
+import io.subutai.core.identity.api.IdentityManager;
+import io.subutai.core.object.relation.impl.dao.RelationDataService;
+import io.subutai.core.object.relation.impl.model.RelationInfoImpl;
+import io.subutai.core.object.relation.impl.model.RelationLinkImpl;
+import io.subutai.core.security.api.SecurityManager;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class RelationInfoManagerImplTest
+{
+    @Mock
+    RelationDataService relationDataService;
+    @Mock
+    IdentityManager identityManager;
+    @Mock
+    SecurityManager securityManager;
+    @Mock
+    Relation relation;
+
+    RelationLink user = new RelationLinkImpl( "user", "User", "Identity-Management" );
+    RelationLink environment = new RelationLinkImpl( "environment", "Environment", "Environment-Management" );
+    RelationInfoMeta relationInfoMeta;
+
+    RelationInfoManagerImpl relationInfoManager;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        relationInfoMeta = new RelationInfoMeta( true, false, false, false, Ownership.USER.getLevel() );
+        Map<String, String> traits = Maps.newHashMap();
+        traits.put( "read", "true" );
+        relationInfoMeta.setRelationTraits( traits );
+
+        doReturn( RelationStatus.VERIFIED ).when( relation ).getRelationStatus();
+        doReturn( environment ).when( relation ).getTrustedObject();
+        doReturn( new RelationInfoImpl( relationInfoMeta ) ).when( relation ).getRelationInfo();
+
+        doReturn( 1L ).when( relationDataService ).getRelationGraphVersion();
+        doReturn( Lists.newArrayList( relation ) ).when( relationDataService )
+                                                  .getGraphRelationsByTarget( any( RelationLink.class ) );
+
+        relationInfoManager = new RelationInfoManagerImpl( relationDataService, identityManager, securityManager );
+    }
+
+
+    @Test
+    public void testDecisionIsCached() throws Exception
+    {
+        relationInfoManager.checkRelation( user, environment, relationInfoMeta, null );
+        relationInfoManager.checkRelation( user, environment, relationInfoMeta, null );
+
+        verify( relationDataService, times( 1 ) ).getGraphRelationsByTarget( any( RelationLink.class ) );
+        assertEquals( 1, relationInfoManager.getDecisionCacheStats().hitCount() );
+    }
+
+
+    @Test
+    public void testDecisionIsDroppedAfterRelationChange() throws Exception
+    {
+        relationInfoManager.checkRelation( user, environment, relationInfoMeta, null );
+
+        // relation has been removed
+        doReturn( 2L ).when( relationDataService ).getRelationGraphVersion();
+        doReturn( Lists.<Relation>newArrayList() ).when( relationDataService )
+                                                  .getGraphRelationsByTarget( any( RelationLink.class ) );
+
+        try
+        {
+            relationInfoManager.checkRelation( user, environment, relationInfoMeta, null );
+            fail( "Expected RelationVerificationException" );
+        }
+        catch ( RelationVerificationException e )
+        {
+            verify( relationDataService, times( 2 ) ).getGraphRelationsByTarget( any( RelationLink.class ) );
+        }
+
+        assertEquals( 0, relationInfoManager.getDecisionCacheStats().hitCount() );
+    }
+
+
+    private Relation relation( RelationLink trustedObject, RelationStatus status, String traitKey )
+    {
+        Map<String, String> traits = Maps.newHashMap();
+        traits.put( traitKey, "true" );
+        RelationInfoMeta meta = new RelationInfoMeta();
+        meta.setRelationTraits( traits );
+
+        Relation result = mock( Relation.class );
+        doReturn( status ).when( result ).getRelationStatus();
+        doReturn( trustedObject ).when( result ).getTrustedObject();
+        doReturn( new RelationInfoImpl( meta ) ).when( result ).getRelationInfo();
+
+        return result;
+    }
+
+
+    @Test
+    public void testFilterPermittedMatchesSingleChecks() throws Exception
+    {
+        RelationLink readable = new RelationLinkImpl( "readable", "Container", "Environment-Management" );
+        RelationLink writable = new RelationLinkImpl( "writable", "Container", "Environment-Management" );
+        RelationLink owned = new RelationLinkImpl( "owned", "Environment", "Environment-Management" );
+        RelationLink unrelated = new RelationLinkImpl( "unrelated", "Container", "Environment-Management" );
+
+        doReturn( Lists.<Relation>newArrayList() ).when( relationDataService )
+                                                  .getGraphRelationsByTarget( any( RelationLink.class ) );
+        // user -> environment -> {readable, writable}, user is source of relation to owned
+        doReturn( Lists.newArrayList( relation( environment, RelationStatus.VERIFIED, "read" ) ) )
+                .when( relationDataService ).getGraphRelationsByTarget( user );
+        doReturn( Lists.newArrayList( relation( readable, RelationStatus.VERIFIED, "read" ),
+                relation( writable, RelationStatus.VERIFIED, "write" ) ) ).when( relationDataService )
+                                                                          .getGraphRelationsByTarget( environment );
+        doReturn( Lists.newArrayList( relation( owned, RelationStatus.VERIFIED, "read" ) ) )
+                .when( relationDataService ).getGraphRelationsBySource( user );
+
+        List<RelationLink> objects = Lists.newArrayList( environment, readable, writable, owned, unrelated );
+
+        List<RelationLink> expected = Lists.newArrayList();
+        for ( final RelationLink object : objects )
+        {
+            RelationInfoManagerImpl singleCheckManager =
+                    new RelationInfoManagerImpl( relationDataService, identityManager, securityManager );
+            try
+            {
+                singleCheckManager.checkRelation( user, object, relationInfoMeta, null );
+                expected.add( object );
+            }
+            catch ( RelationVerificationException e )
+            {
+                // not permitted
+            }
+        }
+
+        assertEquals( Lists.newArrayList( environment, readable, owned ), expected );
+        assertEquals( expected, relationInfoManager.filterPermitted( user, objects, relationInfoMeta ) );
+
+        // decisions of the batch are shared with single checks
+        relationInfoManager.checkRelation( user, readable, relationInfoMeta, null );
+        assertEquals( 1, relationInfoManager.getDecisionCacheStats().hitCount() );
+    }
+
+
+    @Test
+    public void testFilterPermittedWithStatedRelation() throws Exception
+    {
+        doReturn( Lists.newArrayList( relation( environment, RelationStatus.STATED, "read" ) ) )
+                .when( relationDataService ).getGraphRelationsByTarget( user );
+
+        try
+        {
+            new RelationInfoManagerImpl( relationDataService, identityManager, securityManager )
+                    .checkRelation( user, environment, relationInfoMeta, null );
+            fail( "Expected RelationVerificationException" );
+        }
+        catch ( RelationVerificationException e )
+        {
+            assertEquals( Lists.<RelationLink>newArrayList(),
+                    relationInfoManager.filterPermitted( user, Lists.newArrayList( environment ), relationInfoMeta ) );
+        }
+    }
+}
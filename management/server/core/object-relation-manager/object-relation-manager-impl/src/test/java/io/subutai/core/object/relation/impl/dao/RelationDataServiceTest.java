@@ -0,0 +1,224 @@
+package io.subutai.core.object.relation.impl.dao;
+
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import io.subutai.common.dao.DaoManager;
+import io.subutai.common.security.relation.RelationLink;
+import io.subutai.common.security.relation.model.Relation;
+import io.subutai.common.security.relation.model.RelationStatus;
+import io.subutai.core.object.relation.impl.model.RelationChallengeImpl;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class RelationDataServiceTest
+{
+    private static final String LOAD_QUERY = "SELECT ss FROM RelationImpl AS ss ORDER BY ss.relationStatus DESC";
+
+    @Mock
+    DaoManager daoManager;
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    Query query;
+    @Mock
+    RelationLink source;
+    @Mock
+    RelationLink target;
+    @Mock
+    Relation relation;
+
+    RelationDataService relationDataService;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        doReturn( entityManagerFactory ).when( daoManager ).getEntityManagerFactory();
+        doReturn( entityManager ).when( entityManagerFactory ).createEntityManager();
+        doReturn( query ).when( entityManager ).createQuery( anyString() );
+        doReturn( Lists.newArrayList( relation ) ).when( query ).getResultList();
+
+        doReturn( "source" ).when( source ).getUniqueIdentifier();
+        doReturn( "target" ).when( target ).getUniqueIdentifier();
+        doReturn( 1L ).when( relation ).getId();
+        doReturn( source ).when( relation ).getSource();
+        doReturn( target ).when( relation ).getTarget();
+        doReturn( RelationStatus.VERIFIED ).when( relation ).getRelationStatus();
+
+        relationDataService = new RelationDataService( daoManager );
+    }
+
+
+    private void assertGraphReloaded( int loads )
+    {
+        assertEquals( Lists.newArrayList( relation ), relationDataService.getGraphRelationsBySource( source ) );
+
+        verify( entityManager, times( loads ) ).createQuery( LOAD_QUERY );
+    }
+
+
+    @Test
+    public void testGraphIsLoadedOnce() throws Exception
+    {
+        long version = relationDataService.getRelationGraphVersion();
+
+        assertGraphReloaded( 1 );
+        assertEquals( Lists.newArrayList( relation ), relationDataService.getGraphRelationsByTarget( target ) );
+
+        verify( entityManager, times( 1 ) ).createQuery( LOAD_QUERY );
+        assertEquals( version, relationDataService.getRelationGraphVersion() );
+    }
+
+
+    @Test
+    public void testRelationWritesUpdateGraph() throws Exception
+    {
+        assertGraphReloaded( 1 );
+
+        long version = relationDataService.getRelationGraphVersion();
+
+        Relation other = mock( Relation.class );
+        doReturn( 2L ).when( other ).getId();
+        doReturn( source ).when( other ).getSource();
+        doReturn( target ).when( other ).getTarget();
+        doReturn( RelationStatus.STATED ).when( other ).getRelationStatus();
+
+        relationDataService.save( other );
+
+        assertTrue( version != relationDataService.getRelationGraphVersion() );
+        assertEquals( Lists.newArrayList( relation, other ), relationDataService.getGraphRelationsBySource( source ) );
+
+        doReturn( RelationStatus.VERIFIED ).when( other ).getRelationStatus();
+        doReturn( RelationStatus.STATED ).when( relation ).getRelationStatus();
+
+        relationDataService.updateBatch( Sets.<Object>newHashSet( relation, other ) );
+
+        assertEquals( Lists.newArrayList( other, relation ), relationDataService.getGraphRelationsByTarget( target ) );
+
+        relationDataService.remove( 2L );
+
+        assertGraphReloaded( 1 );
+    }
+
+
+    @Test
+    public void testLinkUpdateAndBulkDeleteInvalidateGraph() throws Exception
+    {
+        assertGraphReloaded( 1 );
+
+        long version = relationDataService.getRelationGraphVersion();
+
+        relationDataService.update( source );
+
+        assertTrue( version != relationDataService.getRelationGraphVersion() );
+        assertGraphReloaded( 2 );
+
+        relationDataService.saveBatch( Lists.<Object>newArrayList( relation, target ) );
+        assertGraphReloaded( 3 );
+
+        relationDataService.removeAllRelationsWithLink( target );
+        assertGraphReloaded( 4 );
+    }
+
+
+    @Test
+    public void testFailedWriteKeepsGraph() throws Exception
+    {
+        assertGraphReloaded( 1 );
+
+        long version = relationDataService.getRelationGraphVersion();
+
+        doThrow( new RuntimeException() ).when( entityManager ).merge( source );
+
+        relationDataService.update( source );
+
+        verify( daoManager ).rollBackTransaction( entityManager );
+        assertEquals( version, relationDataService.getRelationGraphVersion() );
+        assertGraphReloaded( 1 );
+    }
+
+
+    @Test
+    public void testGraphIsLoadedByOneThread() throws Exception
+    {
+        final CountDownLatch loadStarted = new CountDownLatch( 1 );
+        final CountDownLatch loadReleased = new CountDownLatch( 1 );
+        Query loadQuery = mock( Query.class );
+        doReturn( loadQuery ).when( entityManager ).createQuery( LOAD_QUERY );
+        doAnswer( new Answer<List<Relation>>()
+        {
+            @Override
+            public List<Relation> answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                loadStarted.countDown();
+                loadReleased.await();
+
+                return Lists.newArrayList( relation );
+            }
+        } ).when( loadQuery ).getResultList();
+
+        Thread loader = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                relationDataService.getGraphRelationsBySource( source );
+            }
+        } );
+        loader.start();
+        loadStarted.await();
+
+        // graph is being loaded by another thread, relations are queried directly
+        assertEquals( Lists.newArrayList( relation ), relationDataService.getGraphRelationsBySource( source ) );
+        verify( query ).getResultList();
+
+        loadReleased.countDown();
+        loader.join();
+
+        assertGraphReloaded( 1 );
+        verify( query ).getResultList();
+    }
+
+
+    @Test
+    public void testTokenWriteKeepsGraph() throws Exception
+    {
+        assertGraphReloaded( 1 );
+
+        long version = relationDataService.getRelationGraphVersion();
+
+        relationDataService.update( mock( RelationChallengeImpl.class ) );
+
+        assertEquals( version, relationDataService.getRelationGraphVersion() );
+        assertGraphReloaded( 1 );
+    }
+}
@@ -0,0 +1,169 @@
+package io.subutai.core.object.relation.impl.dao;
+
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.Lists;
+
+import io.subutai.common.security.relation.RelationLink;
+import io.subutai.common.security.relation.model.Relation;
+import io.subutai.common.security.relation.model.RelationStatus;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class RelationGraphTest
+{
+    @Mock
+    RelationLink user;
+    @Mock
+    RelationLink environment;
+    @Mock
+    RelationLink container;
+
+    RelationGraph relationGraph;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        doReturn( "user" ).when( user ).getUniqueIdentifier();
+        doReturn( "environment" ).when( environment ).getUniqueIdentifier();
+        doReturn( "container" ).when( container ).getUniqueIdentifier();
+
+        relationGraph = new RelationGraph();
+    }
+
+
+    private Relation relation( long id, RelationLink source, RelationLink target, RelationStatus status )
+    {
+        Relation relation = mock( Relation.class );
+        doReturn( id ).when( relation ).getId();
+        doReturn( source ).when( relation ).getSource();
+        doReturn( target ).when( relation ).getTarget();
+        doReturn( status ).when( relation ).getRelationStatus();
+
+        return relation;
+    }
+
+
+    @Test
+    public void testTraversal() throws Exception
+    {
+        Relation userToEnvironment = relation( 1, user, environment, RelationStatus.VERIFIED );
+        Relation environmentToContainer = relation( 2, environment, container, RelationStatus.VERIFIED );
+
+        assertTrue( relationGraph.load( Lists.newArrayList( userToEnvironment, environmentToContainer ),
+                relationGraph.getVersion() ) );
+
+        // walk user -> environment -> container
+        List<Relation> bySource = relationGraph.getBySource( user );
+        assertEquals( 1, bySource.size() );
+        assertEquals( userToEnvironment, bySource.get( 0 ) );
+
+        bySource = relationGraph.getBySource( bySource.get( 0 ).getTarget() );
+        assertEquals( 1, bySource.size() );
+        assertEquals( environmentToContainer, bySource.get( 0 ) );
+
+        assertTrue( relationGraph.getBySource( container ).isEmpty() );
+
+        assertEquals( environmentToContainer, relationGraph.getByTarget( container ).get( 0 ) );
+        assertTrue( relationGraph.getByTarget( user ).isEmpty() );
+    }
+
+
+    @Test
+    public void testVerifiedRelationsFirst() throws Exception
+    {
+        Relation stated = relation( 1, user, environment, RelationStatus.STATED );
+        Relation verified = relation( 2, user, container, RelationStatus.VERIFIED );
+
+        relationGraph.load( Lists.newArrayList( stated, verified ), relationGraph.getVersion() );
+
+        assertEquals( Lists.newArrayList( verified, stated ), relationGraph.getBySource( user ) );
+    }
+
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        relationGraph.load( Lists.newArrayList( relation( 1, user, environment, RelationStatus.VERIFIED ) ),
+                relationGraph.getVersion() );
+
+        long version = relationGraph.getVersion();
+
+        relationGraph.invalidate();
+
+        assertFalse( relationGraph.isLoaded() );
+        assertTrue( relationGraph.getVersion() != version );
+        assertTrue( relationGraph.getBySource( user ).isEmpty() );
+    }
+
+
+    @Test
+    public void testLoadAfterInvalidateIsRejected() throws Exception
+    {
+        long version = relationGraph.getVersion();
+
+        // relations were read from database before a relation has changed
+        relationGraph.invalidate();
+
+        assertFalse( relationGraph.load( Lists.newArrayList( relation( 1, user, environment,
+                RelationStatus.VERIFIED ) ), version ) );
+        assertFalse( relationGraph.isLoaded() );
+
+        assertTrue( relationGraph.load( Lists.<Relation>newArrayList(), relationGraph.getVersion() ) );
+        assertTrue( relationGraph.isLoaded() );
+    }
+
+
+    @Test
+    public void testPutAndRemove() throws Exception
+    {
+        Relation userToEnvironment = relation( 1, user, environment, RelationStatus.STATED );
+        relationGraph.load( Lists.newArrayList( userToEnvironment ), relationGraph.getVersion() );
+
+        long version = relationGraph.getVersion();
+
+        Relation userToContainer = relation( 2, user, container, RelationStatus.VERIFIED );
+        relationGraph.put( userToContainer );
+
+        assertTrue( relationGraph.getVersion() != version );
+        assertEquals( Lists.newArrayList( userToContainer, userToEnvironment ), relationGraph.getBySource( user ) );
+
+        // replaces relation with the same id
+        Relation verified = relation( 1, user, environment, RelationStatus.VERIFIED );
+        relationGraph.put( verified );
+
+        assertEquals( Lists.newArrayList( verified ), relationGraph.getByTarget( environment ) );
+        assertEquals( 2, relationGraph.getBySource( user ).size() );
+
+        relationGraph.remove( 2 );
+
+        assertEquals( Lists.newArrayList( verified ), relationGraph.getBySource( user ) );
+        assertTrue( relationGraph.getByTarget( container ).isEmpty() );
+    }
+
+
+    @Test
+    public void testLoadAfterPutIsRejected() throws Exception
+    {
+        long version = relationGraph.getVersion();
+
+        relationGraph.put( relation( 1, user, environment, RelationStatus.VERIFIED ) );
+
+        assertFalse( relationGraph.load( Lists.<Relation>newArrayList(), version ) );
+        assertFalse( relationGraph.isLoaded() );
+    }
+}
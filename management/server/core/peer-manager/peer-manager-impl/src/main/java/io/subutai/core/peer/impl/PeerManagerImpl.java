@@ -29,6 +29,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 
 import io.subutai.common.dao.DaoManager;
 import io.subutai.common.exception.NetworkException;
@@ -47,6 +48,8 @@ import io.subutai.common.peer.PeerPolicy;
 import io.subutai.common.peer.RegistrationData;
 import io.subutai.common.peer.RegistrationStatus;
 import io.subutai.common.peer.RemotePeer;
+import io.subutai.common.security.PeerClientStats;
+import io.subutai.common.security.WebClientBuilder;
 import io.subutai.common.security.crypto.pgp.PGPKeyUtil;
 import io.subutai.common.security.objects.SecurityKeyType;
 import io.subutai.common.security.objects.TokenType;
@@ -70,6 +73,7 @@ import io.subutai.core.peer.api.PeerActionType;
 import io.subutai.core.peer.api.PeerManager;
 import io.subutai.core.peer.api.RegistrationClient;
 import io.subutai.core.peer.impl.command.CommandResponseListener;
+import io.subutai.core.peer.impl.command.LatencyHistogram;
 import io.subutai.core.peer.impl.dao.PeerDataService;
 import io.subutai.core.peer.impl.dao.PeerRegistrationDataService;
 import io.subutai.core.peer.impl.entity.PeerData;
@@ -87,6 +91,7 @@ public class PeerManagerImpl implements PeerManager, HeartbeatListener
     private static final Logger LOG = LoggerFactory.getLogger( PeerManagerImpl.class );
     private static final int MAX_CONTAINER_LIMIT = 20;
     private static final int MAX_ENVIRONMENT_LIMIT = 20;
+    private static final long STATS_LOG_INTERVAL_MIN = 5;
     private PeerDataService peerDataService;
     private PeerRegistrationDataService peerRegistrationDataService;
     private final LocalPeer localPeer;
@@ -163,6 +168,9 @@ public class PeerManagerImpl implements PeerManager, HeartbeatListener
 
 
             localIpSetter.scheduleWithFixedDelay( new IpDetectionJob(), 1, 5, TimeUnit.SECONDS );
+
+            localIpSetter.scheduleWithFixedDelay( new StatsLoggingJob(), STATS_LOG_INTERVAL_MIN,
+                    STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES );
         }
         catch ( Exception e )
         {
@@ -179,6 +187,18 @@ public class PeerManagerImpl implements PeerManager, HeartbeatListener
     }
 
 
+    /**
+     * Returns latencies between sending commands to remote peers and receiving their first responses, by channel
+     */
+    public Map<String, LatencyHistogram> getCommandLatencies()
+    {
+        Map<String, LatencyHistogram> latencies = Maps.newLinkedHashMap();
+        latencies.put( "direct", commandResponseListener.getDirectLatency() );
+        latencies.put( "messenger", commandResponseListener.getMessengerLatency() );
+        return latencies;
+    }
+
+
     public void setRelationManager( final RelationManager relationManager )
     {
         this.relationManager = relationManager;
@@ -1537,5 +1557,30 @@ public class PeerManagerImpl implements PeerManager, HeartbeatListener
             }
         }
     }
-}
 
+
+    /**
+     * Periodically logs statistics of peer communication
+     */
+    private class StatsLoggingJob implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            if ( !LOG.isDebugEnabled() )
+            {
+                return;
+            }
+
+            for ( Map.Entry<String, PeerClientStats> statsEntry : WebClientBuilder.getPeerClientStats().entrySet() )
+            {
+                LOG.debug( "Requests to peer {}: {}", statsEntry.getKey(), statsEntry.getValue() );
+            }
+
+            for ( Map.Entry<String, LatencyHistogram> latencyEntry : getCommandLatencies().entrySet() )
+            {
+                LOG.debug( "Command response latency via {}: {}", latencyEntry.getKey(), latencyEntry.getValue() );
+            }
+        }
+    }
+}
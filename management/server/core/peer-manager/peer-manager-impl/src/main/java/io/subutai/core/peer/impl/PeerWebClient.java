@@ -23,6 +23,7 @@ import io.subutai.common.network.NetworkResourceImpl;
 import io.subutai.common.network.UsedNetworkResources;
 import io.subutai.common.peer.AlertEvent;
 import io.subutai.common.peer.EnvironmentId;
+import io.subutai.common.peer.MessageRequest;
 import io.subutai.common.peer.PeerException;
 import io.subutai.common.peer.PeerId;
 import io.subutai.common.peer.PeerInfo;
@@ -34,6 +35,7 @@ import io.subutai.common.security.WebClientBuilder;
 import io.subutai.common.security.relation.RelationLinkDto;
 import io.subutai.common.security.relation.RelationVerificationException;
 import io.subutai.common.util.DateTimeParam;
+import io.subutai.common.util.JsonUtil;
 import io.subutai.bazaar.share.resource.PeerResources;
 
 
@@ -357,6 +359,34 @@ public class PeerWebClient
     }
 
 
+    /**
+     * Delivers command request or response directly to the peer, bypassing the messenger
+     */
+    public void sendCommandMessage( final MessageRequest messageRequest ) throws PeerException
+    {
+        WebClient client = null;
+        Response response;
+        try
+        {
+            String path = "/commands";
+
+            client = WebClientBuilder.buildPeerWebClient( peerInfo, path, provider, 3000, 15000, 1 );
+            client.type( MediaType.APPLICATION_JSON );
+            response = client.post( JsonUtil.toJson( messageRequest ) );
+
+            WebClientBuilder.checkResponse( response, Response.Status.ACCEPTED );
+        }
+        catch ( Exception e )
+        {
+            throw new PeerException( String.format( "Error sending command message: %s", e.getMessage() ) );
+        }
+        finally
+        {
+            WebClientBuilder.close( client );
+        }
+    }
+
+
     public void alert( final AlertEvent alert ) throws PeerException
     {
         WebClient client = null;
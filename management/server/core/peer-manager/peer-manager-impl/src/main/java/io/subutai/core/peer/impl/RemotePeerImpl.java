@@ -4,7 +4,9 @@ package io.subutai.core.peer.impl;
 import java.io.IOException;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
@@ -17,6 +19,8 @@ import org.slf4j.LoggerFactory;
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 
 import io.subutai.bazaar.share.quota.ContainerQuota;
@@ -24,6 +28,7 @@ import io.subutai.bazaar.share.resource.PeerResources;
 import io.subutai.common.command.CommandCallback;
 import io.subutai.common.command.CommandException;
 import io.subutai.common.command.CommandRequest;
+import io.subutai.common.command.CommandResponse;
 import io.subutai.common.command.CommandResult;
 import io.subutai.common.command.CommandResultImpl;
 import io.subutai.common.command.CommandStatus;
@@ -103,6 +108,7 @@ import io.subutai.core.security.api.SecurityManager;
 public class RemotePeerImpl implements RemotePeer
 {
     private static final Logger LOG = LoggerFactory.getLogger( RemotePeerImpl.class );
+    static final long DIRECT_DELIVERY_RETRY_AFTER_MS = TimeUnit.MINUTES.toMillis( 1 );
 
     private transient final SecurityManager securityManager;
     protected transient final Messenger messenger;
@@ -112,8 +118,14 @@ public class RemotePeerImpl implements RemotePeer
     private transient IdentityManager identityManager;
     private transient RelationManager relationManager;
     private transient PeerManager peerManager;
-    private transient PeerWebClient peerWebClient;
+    transient PeerWebClient peerWebClient;
     private transient EnvironmentWebClient environmentWebClient;
+    // commands whose messages go through the messenger after direct delivery failed, keeps their responses in order
+    private transient final Cache<UUID, Boolean> messengerCommands =
+            CacheBuilder.newBuilder().expireAfterAccess( Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT * 2, TimeUnit.SECONDS )
+                        .build();
+    // direct delivery is not tried before this time after it failed, so commands do not wait for its timeouts
+    transient volatile long directDeliveryRetryTime;
 
     private final String localPeerId;
     protected final PeerInfo peerInfo;
@@ -603,9 +615,18 @@ public class RemotePeerImpl implements RemotePeer
             Map<String, String> headers = Maps.newHashMap();
             //************************************************************************
 
+            long sentTime = System.currentTimeMillis();
 
-            sendRequest( request, RecipientType.COMMAND_REQUEST.name(), Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT,
-                    headers );
+            commandResponseListener.onCommandSent( request.getRequestId(), sentTime, true );
+
+            if ( !sendCommandMessage( request, RecipientType.COMMAND_REQUEST.name(), request.getRequestId(),
+                    headers ) )
+            {
+                commandResponseListener.onCommandSent( request.getRequestId(), sentTime, false );
+
+                sendRequestInternal( request, RecipientType.COMMAND_REQUEST.name(),
+                        Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+            }
         }
         catch ( PeerException e )
         {
@@ -653,11 +674,58 @@ public class RemotePeerImpl implements RemotePeer
     public <T> void sendRequest( final T request, final String recipient, final int requestTimeout,
                                  final Map<String, String> headers ) throws PeerException
     {
+        if ( request instanceof CommandResponse && sendCommandMessage( request, recipient,
+                ( ( CommandResponse ) request ).getRequestId(), headers ) )
+        {
+            return;
+        }
 
         sendRequestInternal( request, recipient, requestTimeout, headers );
     }
 
 
+    /**
+     * Sends command request or response straight to the peer. Returns false if the message has to go through the
+     * messenger instead. Once direct delivery of a command failed, its later messages use the messenger too, so they
+     * do not overtake the ones waiting there. After a failure the peer is reached through the messenger only for
+     * {@link #DIRECT_DELIVERY_RETRY_AFTER_MS}.
+     */
+    protected <T> boolean sendCommandMessage( final T request, final String recipient, final UUID commandId,
+                                              final Map<String, String> headers )
+    {
+        if ( messengerCommands.getIfPresent( commandId ) != null )
+        {
+            return false;
+        }
+
+        if ( System.currentTimeMillis() < directDeliveryRetryTime )
+        {
+            messengerCommands.put( commandId, true );
+
+            return false;
+        }
+
+        try
+        {
+            peerWebClient.sendCommandMessage(
+                    new MessageRequest( new Payload( request, localPeerId ), recipient, headers ) );
+
+            return true;
+        }
+        catch ( PeerException e )
+        {
+            LOG.warn( "Direct delivery of command {} to peer {} failed, using messenger: {}", commandId,
+                    peerInfo.getId(), e.getMessage() );
+
+            directDeliveryRetryTime = System.currentTimeMillis() + DIRECT_DELIVERY_RETRY_AFTER_MS;
+
+            messengerCommands.put( commandId, true );
+
+            return false;
+        }
+    }
+
+
     protected <T> MessageRequest sendRequestInternal( final T request, final String recipient, final int requestTimeout,
                                                       final Map<String, String> headers ) throws PeerException
     {
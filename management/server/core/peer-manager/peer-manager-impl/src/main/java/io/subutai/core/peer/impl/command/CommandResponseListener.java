@@ -3,10 +3,14 @@ package io.subutai.core.peer.impl.command;
 
 import java.util.UUID;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import io.subutai.common.cache.EntryExpiryCallback;
 import io.subutai.common.cache.ExpiringCache;
 import io.subutai.common.command.CommandCallback;
@@ -21,15 +25,28 @@ import io.subutai.common.protocol.Disposable;
 public class CommandResponseListener extends RequestListener implements Disposable
 {
     private static final Logger LOG = LoggerFactory.getLogger( CommandResponseListener.class.getName() );
+    private static final int MAX_TRACKED_COMMANDS = 10000;
+    private static final int MAX_TRACKED_RESPONSES = 100000;
 
 
     protected ExpiringCache<UUID, CommandCallback> callbacks;
 
+    // commands sent to remote peers awaiting their first response
+    private final Cache<UUID, CommandDispatch> dispatches =
+            CacheBuilder.newBuilder().maximumSize( MAX_TRACKED_COMMANDS ).expireAfterWrite( 1, TimeUnit.HOURS )
+                        .build();
+    // response chunks already passed to callbacks, a chunk may arrive both directly and through the messenger
+    private final Cache<String, Boolean> receivedResponses =
+            CacheBuilder.newBuilder().maximumSize( MAX_TRACKED_RESPONSES )
+                        .expireAfterWrite( Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT * 2, TimeUnit.SECONDS ).build();
+    private final LatencyHistogram directLatency = new LatencyHistogram();
+    private final LatencyHistogram messengerLatency = new LatencyHistogram();
+
 
     public CommandResponseListener()
     {
         super( RecipientType.COMMAND_RESPONSE.name() );
-        callbacks = new ExpiringCache<>();
+        callbacks = new ExpiringCache<>( "CommandResponseCallbacks" );
     }
 
 
@@ -50,6 +67,33 @@ public class CommandResponseListener extends RequestListener implements Disposab
     }
 
 
+    /**
+     * Remembers when and through which channel the command was sent, to measure time to its first response
+     */
+    public void onCommandSent( UUID commandId, long sentTimeMs, boolean direct )
+    {
+        dispatches.put( commandId, new CommandDispatch( sentTimeMs, direct ) );
+    }
+
+
+    /**
+     * Returns round-trip latencies of commands sent through the direct peer channel
+     */
+    public LatencyHistogram getDirectLatency()
+    {
+        return directLatency;
+    }
+
+
+    /**
+     * Returns round-trip latencies of commands sent through the messenger
+     */
+    public LatencyHistogram getMessengerLatency()
+    {
+        return messengerLatency;
+    }
+
+
     @Override
     public Object onRequest( final Payload payload )
     {
@@ -57,6 +101,25 @@ public class CommandResponseListener extends RequestListener implements Disposab
 
         if ( commandResponse != null )
         {
+            if ( isDuplicate( commandResponse ) )
+            {
+                LOG.debug( "Ignoring repeated response {} of command {}",
+                        commandResponse.getResponse().getResponseNumber(), commandResponse.getRequestId() );
+
+                return null;
+            }
+
+            CommandDispatch dispatch = dispatches.getIfPresent( commandResponse.getRequestId() );
+
+            if ( dispatch != null )
+            {
+                dispatches.invalidate( commandResponse.getRequestId() );
+
+                long latency = System.currentTimeMillis() - dispatch.sentTimeMs;
+
+                ( dispatch.direct ? directLatency : messengerLatency ).record( latency );
+            }
+
 
             CommandCallback callback = callbacks.get( commandResponse.getRequestId() );
 
@@ -73,6 +136,33 @@ public class CommandResponseListener extends RequestListener implements Disposab
     }
 
 
+    private boolean isDuplicate( CommandResponse commandResponse )
+    {
+        if ( commandResponse.getResponse() == null || commandResponse.getResponse().getResponseNumber() == null )
+        {
+            return false;
+        }
+
+        String key = commandResponse.getRequestId() + ":" + commandResponse.getResponse().getResponseNumber();
+
+        return receivedResponses.asMap().putIfAbsent( key, Boolean.TRUE ) != null;
+    }
+
+
+    private static class CommandDispatch
+    {
+        private final long sentTimeMs;
+        private final boolean direct;
+
+
+        private CommandDispatch( final long sentTimeMs, final boolean direct )
+        {
+            this.sentTimeMs = sentTimeMs;
+            this.direct = direct;
+        }
+    }
+
+
     protected static class CommandResponseExpiryCallback implements EntryExpiryCallback<CommandCallback>
     {
 
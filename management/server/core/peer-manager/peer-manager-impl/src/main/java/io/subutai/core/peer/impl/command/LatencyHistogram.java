@@ -0,0 +1,75 @@
+package io.subutai.core.peer.impl.command;
+
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Counts latencies into fixed buckets. Last bucket counts latencies above the highest bound.
+ */
+public class LatencyHistogram
+{
+    private static final long[] BOUNDS_MS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+    private final AtomicLongArray counts = new AtomicLongArray( BOUNDS_MS.length + 1 );
+
+
+    public void record( long latencyMs )
+    {
+        int bucket = 0;
+        while ( bucket < BOUNDS_MS.length && latencyMs > BOUNDS_MS[bucket] )
+        {
+            bucket++;
+        }
+
+        counts.incrementAndGet( bucket );
+    }
+
+
+    /**
+     * Returns upper bounds of buckets in milliseconds
+     */
+    public long[] getBounds()
+    {
+        return BOUNDS_MS.clone();
+    }
+
+
+    /**
+     * Returns count of each bucket, one more than bounds
+     */
+    public long[] getCounts()
+    {
+        long[] result = new long[counts.length()];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = counts.get( i );
+        }
+        return result;
+    }
+
+
+    public long getTotalCount()
+    {
+        long total = 0;
+        for ( long count : getCounts() )
+        {
+            total += count;
+        }
+        return total;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        long[] snapshot = getCounts();
+        StringBuilder sb = new StringBuilder( "{" );
+        for ( int i = 0; i < BOUNDS_MS.length; i++ )
+        {
+            sb.append( "<=" ).append( BOUNDS_MS[i] ).append( "ms: " ).append( snapshot[i] ).append( ", " );
+        }
+        return sb.append( ">" ).append( BOUNDS_MS[BOUNDS_MS.length - 1] ).append( "ms: " )
+                 .append( snapshot[BOUNDS_MS.length] ).append( "}" ).toString();
+    }
+}
@@ -28,7 +28,7 @@ public class MessageResponseListener extends MessageListener implements Disposab
 
     private Messenger messenger;
     protected Map<UUID, Semaphore> semaphoreMap = new ConcurrentHashMap<>();
-    protected ExpiringCache<UUID, MessageResponse> responses = new ExpiringCache<>();
+    protected ExpiringCache<UUID, MessageResponse> responses = new ExpiringCache<>( "MessageResponses" );
 
 
     public MessageResponseListener( Messenger messenger )
@@ -0,0 +1,132 @@
+package io.subutai.core.peer.impl;
+
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.Maps;
+
+import io.subutai.common.command.CommandResponse;
+import io.subutai.common.peer.MessageRequest;
+import io.subutai.common.peer.PeerException;
+import io.subutai.common.peer.PeerInfo;
+import io.subutai.common.peer.RecipientType;
+import io.subutai.common.peer.Timeouts;
+import io.subutai.core.messenger.api.Messenger;
+import io.subutai.core.peer.impl.command.CommandResponseListener;
+import io.subutai.core.peer.impl.request.MessageResponseListener;
+import io.subutai.core.security.api.SecurityManager;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class RemotePeerImplCommandMessageTest
+{
+    private static final String LOCAL_PEER_ID = UUID.randomUUID().toString();
+    private static final String RECIPIENT = RecipientType.COMMAND_RESPONSE.name();
+
+    @Mock
+    SecurityManager securityManager;
+    @Mock
+    PeerInfo peerInfo;
+    @Mock
+    Messenger messenger;
+    @Mock
+    CommandResponseListener commandResponseListener;
+    @Mock
+    MessageResponseListener messageResponseListener;
+    @Mock
+    PeerManagerImpl peerManager;
+    @Mock
+    PeerWebClient peerWebClient;
+
+    Map<String, String> headers = Maps.newHashMap();
+
+    RemotePeerImpl remotePeer;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        remotePeer = spy( new RemotePeerImpl( LOCAL_PEER_ID, securityManager, peerInfo, messenger,
+                commandResponseListener, messageResponseListener, new Object(), peerManager ) );
+        remotePeer.peerWebClient = peerWebClient;
+
+        doReturn( null ).when( remotePeer )
+                        .sendRequestInternal( any(), anyString(), anyInt(), anyMapOf( String.class, String.class ) );
+    }
+
+
+    private CommandResponse createResponse()
+    {
+        return new CommandResponse( UUID.randomUUID(), null, null );
+    }
+
+
+    @Test
+    public void testDirectDelivery() throws Exception
+    {
+        remotePeer.sendRequest( createResponse(), RECIPIENT, Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+
+        verify( peerWebClient ).sendCommandMessage( any( MessageRequest.class ) );
+        verify( remotePeer, never() )
+                .sendRequestInternal( any(), anyString(), anyInt(), anyMapOf( String.class, String.class ) );
+    }
+
+
+    @Test
+    public void testFallbackIsRememberedForPeer() throws Exception
+    {
+        doThrow( new PeerException( "timeout" ) ).when( peerWebClient )
+                                                 .sendCommandMessage( any( MessageRequest.class ) );
+        CommandResponse response = createResponse();
+
+        remotePeer.sendRequest( response, RECIPIENT, Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+        remotePeer.sendRequest( createResponse(), RECIPIENT, Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+
+        // the second command does not wait for direct delivery to fail again
+        verify( peerWebClient ).sendCommandMessage( any( MessageRequest.class ) );
+        verify( remotePeer, times( 2 ) )
+                .sendRequestInternal( any(), eq( RECIPIENT ), anyInt(), anyMapOf( String.class, String.class ) );
+    }
+
+
+    @Test
+    public void testDirectDeliveryIsRetriedAfterInterval() throws Exception
+    {
+        doThrow( new PeerException( "timeout" ) ).doNothing().when( peerWebClient )
+                                                             .sendCommandMessage( any( MessageRequest.class ) );
+        CommandResponse response = createResponse();
+
+        remotePeer.sendRequest( response, RECIPIENT, Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+
+        // retry interval has passed
+        remotePeer.directDeliveryRetryTime = 0;
+
+        remotePeer.sendRequest( createResponse(), RECIPIENT, Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+
+        // messages of the command that fell back keep using the messenger
+        remotePeer.sendRequest( response, RECIPIENT, Timeouts.COMMAND_REQUEST_MESSAGE_TIMEOUT, headers );
+
+        verify( peerWebClient, times( 2 ) ).sendCommandMessage( any( MessageRequest.class ) );
+        verify( remotePeer, times( 2 ) )
+                .sendRequestInternal( any(), eq( RECIPIENT ), anyInt(), anyMapOf( String.class, String.class ) );
+    }
+}
@@ -16,12 +16,16 @@ import io.subutai.common.command.CommandCallback;
 import io.subutai.common.command.CommandResponse;
 import io.subutai.common.command.CommandResult;
 import io.subutai.common.command.Response;
+import io.subutai.common.command.ResponseImpl;
 import io.subutai.common.peer.Payload;
 import io.subutai.common.peer.Timeouts;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -92,6 +96,42 @@ public class CommandResponseListenerTest
     }
 
 
+    @Test
+    public void testCommandLatency() throws Exception
+    {
+        commandResponseListener.onCommandSent( COMMAND_ID, System.currentTimeMillis(), true );
+
+        commandResponseListener.onRequest( payload );
+        commandResponseListener.onRequest( payload );
+
+        assertEquals( 1, commandResponseListener.getDirectLatency().getTotalCount() );
+        assertEquals( 0, commandResponseListener.getMessengerLatency().getTotalCount() );
+    }
+
+
+    @Test
+    public void testRepeatedResponseIsIgnored() throws Exception
+    {
+        ResponseImpl response = mock( ResponseImpl.class );
+        ResponseImpl nextResponse = mock( ResponseImpl.class );
+        when( response.getResponseNumber() ).thenReturn( 1 );
+        when( nextResponse.getResponseNumber() ).thenReturn( 2 );
+        when( commandResponse.getResponse() ).thenReturn( response );
+
+        commandResponseListener.onRequest( payload );
+        commandResponseListener.onRequest( payload );
+
+        verify( callback ).onResponse( response, null );
+
+        when( commandResponse.getResponse() ).thenReturn( nextResponse );
+
+        commandResponseListener.onRequest( payload );
+
+        verify( callback ).onResponse( nextResponse, null );
+        verify( callback, times( 2 ) ).onResponse( any( Response.class ), any( CommandResult.class ) );
+    }
+
+
     @Test
     public void testCommandResponseExpiryCallback() throws Exception
     {
@@ -0,0 +1,38 @@
+package io.subutai.core.peer.impl.command;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class LatencyHistogramTest
+{
+    LatencyHistogram histogram;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        histogram = new LatencyHistogram();
+    }
+
+
+    @Test
+    public void testRecord() throws Exception
+    {
+        histogram.record( 0 );
+        histogram.record( 10 );
+        histogram.record( 11 );
+        histogram.record( Long.MAX_VALUE );
+
+        long[] counts = histogram.getCounts();
+
+        assertEquals( histogram.getBounds().length + 1, counts.length );
+        assertEquals( 2, counts[0] );
+        assertEquals( 1, counts[1] );
+        assertEquals( 1, counts[counts.length - 1] );
+        assertEquals( 4, histogram.getTotalCount() );
+    }
+}
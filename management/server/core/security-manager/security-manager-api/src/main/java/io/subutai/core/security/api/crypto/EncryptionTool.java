@@ -1,6 +1,9 @@
 package io.subutai.core.security.api.crypto;
 
 
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRing;
@@ -60,12 +63,25 @@ public interface EncryptionTool
     byte[] decrypt( final byte[] message, PGPSecretKeyRing keyRing, String pwd ) throws PGPException;
 
 
+    /* **********************************************
+     * Returns stream of decrypted message content, message is decrypted as the stream is read
+     */
+    InputStream decrypt( final InputStream message, PGPSecretKeyRing keyRing, String pwd ) throws PGPException;
+
+
     /* *****************************************
      *
      */
     byte[] encrypt( final byte[] message, final PGPPublicKey publicKey, boolean armored );
 
 
+    /* *****************************************
+     * Returns stream encrypting data written to it into the given stream, see
+     * PGPEncryptionUtil#encrypt(OutputStream, PGPPublicKey, boolean)
+     */
+    OutputStream encrypt( final OutputStream out, final PGPPublicKey publicKey, boolean armored ) throws PGPException;
+
+
     /* *****************************************
      *
      */
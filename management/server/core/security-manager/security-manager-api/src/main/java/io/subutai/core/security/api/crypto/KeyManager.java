@@ -10,6 +10,8 @@ import org.bouncycastle.openpgp.PGPPublicKeyRing;
 import org.bouncycastle.openpgp.PGPSecretKey;
 import org.bouncycastle.openpgp.PGPSecretKeyRing;
 
+import com.google.common.cache.CacheStats;
+
 import io.subutai.common.peer.PeerInfo;
 import io.subutai.common.security.crypto.pgp.KeyPair;
 import io.subutai.core.security.api.model.SecurityKey;
@@ -280,4 +282,10 @@ public interface KeyManager
     void updatePublicKeyRing( PGPPublicKeyRing publicKeyRing );
 
     PGPPublicKey getRemoteHostPublicKey( String hostIdTarget );
+
+
+    /* *****************************
+     * Returns hit and miss counts of parsed keys cache
+     */
+    CacheStats getKeyRingCacheStats();
 }
@@ -2,6 +2,8 @@ package io.subutai.core.security.impl.crypto;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.SignatureException;
 
 import org.bouncycastle.openpgp.PGPException;
@@ -148,6 +150,21 @@ public class EncryptionToolImpl implements EncryptionTool
     }
 
 
+    /* *****************************************
+     *
+     */
+    @Override
+    public InputStream decrypt( final InputStream message, PGPSecretKeyRing keyRing, String pwd ) throws PGPException
+    {
+        if ( StringUtils.isBlank( pwd ) )
+        {
+            pwd = keyManager.getSecurityKeyData().getSecretKeyringPwd();
+        }
+
+        return PGPEncryptionUtil.decrypt( message, keyRing, pwd );
+    }
+
+
     /* *****************************************
      *
      */
@@ -165,6 +182,17 @@ public class EncryptionToolImpl implements EncryptionTool
     }
 
 
+    /* *****************************************
+     *
+     */
+    @Override
+    public OutputStream encrypt( final OutputStream out, final PGPPublicKey publicKey, final boolean armored )
+            throws PGPException
+    {
+        return PGPEncryptionUtil.encrypt( out, publicKey, armored );
+    }
+
+
     @Override
     public byte[] encrypt( final byte[] message, final String publicKeyHostId, final boolean armored )
     {
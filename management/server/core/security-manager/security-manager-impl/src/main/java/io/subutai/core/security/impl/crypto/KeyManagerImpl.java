@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.cxf.jaxrs.client.WebClient;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Sets;
 
 import io.subutai.common.peer.PeerInfo;
@@ -57,6 +58,7 @@ public class KeyManagerImpl implements KeyManager
     private KeyServer keyServer = null;
     private SecurityKeyData keyData = null;
     private EncryptionTool encryptionTool = null;
+    final KeyRingCache keyRingCache = new KeyRingCache();
 
 
     /* *****************************
@@ -436,6 +438,8 @@ public class KeyManagerImpl implements KeyManager
                 securityDataService.saveSecretKeyData( fingerprint, secretKeyRing.getEncoded(), pwd, type );
                 securityDataService.saveKeyData( identityId, fingerprint, "", type );
                 //*******************
+
+                keyRingCache.invalidateIdentity( identityId );
             }
         }
         catch ( Exception ex )
@@ -491,6 +495,9 @@ public class KeyManagerImpl implements KeyManager
                 String fingerprint = PGPKeyUtil.getFingerprint( publicKey.getFingerprint() );
                 securityDataService.saveKeyData( identityId, "", fingerprint, type );
                 //*************************
+
+                keyRingCache.invalidateIdentity( identityId );
+                keyRingCache.invalidateFingerprint( fingerprint );
             }
         }
         catch ( Exception ex )
@@ -513,6 +520,9 @@ public class KeyManagerImpl implements KeyManager
                 String fingerprint = getFingerprint( identityId );
                 securityDataService.removeKeyData( identityId );
                 securityDataService.removeKeyAllTrustData( fingerprint );
+
+                keyRingCache.invalidateIdentity( identityId );
+                keyRingCache.invalidateFingerprint( fingerprint );
             }
 
             //Remove from KeyStore
@@ -542,6 +552,8 @@ public class KeyManagerImpl implements KeyManager
                     securityDataService.removeSecretKeyData( keyIden.getSecretKeyFingerprint() );
                     securityDataService.removeKeyData( identityId );
                     securityDataService.removeKeyAllTrustData( keyIden.getSecretKeyFingerprint() );
+
+                    keyRingCache.invalidateIdentity( identityId );
                 }
             }
             else
@@ -615,6 +627,9 @@ public class KeyManagerImpl implements KeyManager
                     securityDataService.removeKeyData( identityId );
                     securityDataService.removeSecretKeyData( identityId );
                     securityDataService.removeKeyAllTrustData( fingerprint );
+
+                    keyRingCache.invalidateIdentity( identityId );
+                    keyRingCache.invalidateFingerprint( fingerprint );
                 }
             }
         }
@@ -660,13 +675,26 @@ public class KeyManagerImpl implements KeyManager
     @Override
     public PGPPublicKeyRing getPublicKeyRingByFingerprint( String fingerprint )
     {
+        PGPPublicKeyRing cachedPublicKeyRing = keyRingCache.getPublicKeyRingByFingerprint( fingerprint );
+
+        if ( cachedPublicKeyRing != null )
+        {
+            return cachedPublicKeyRing;
+        }
+
+        long generation = keyRingCache.getGeneration();
+
         try
         {
             byte[] aKeyData = keyServer.getPublicKeyByFingerprint( fingerprint ).getKeyData();
 
             if ( aKeyData != null )
             {
-                return PGPKeyUtil.readPublicKeyRing( aKeyData );
+                PGPPublicKeyRing publicKeyRing = PGPKeyUtil.readPublicKeyRing( aKeyData );
+
+                keyRingCache.putPublicKeyRingByFingerprint( fingerprint, publicKeyRing, generation );
+
+                return publicKeyRing;
             }
         }
         catch ( Exception e )
@@ -725,6 +753,15 @@ public class KeyManagerImpl implements KeyManager
             identityId = keyData.getManHostId();
         }
 
+        PGPPublicKeyRing cachedPublicKeyRing = keyRingCache.getPublicKeyRing( identityId );
+
+        if ( cachedPublicKeyRing != null )
+        {
+            return cachedPublicKeyRing;
+        }
+
+        long generation = keyRingCache.getGeneration();
+
         try
         {
             SecurityKey keyIden = securityDataService.getKeyData( identityId );
@@ -742,6 +779,8 @@ public class KeyManagerImpl implements KeyManager
 
                 publicKeyRing = PGPKeyUtil.readPublicKeyRing( aKeyData );
 
+                keyRingCache.putPublicKeyRing( identityId, publicKeyRing, generation );
+
                 return publicKeyRing;
             }
         }
@@ -789,6 +828,15 @@ public class KeyManagerImpl implements KeyManager
             identityId = keyData.getManHostId();
         }
 
+        PGPSecretKeyRing cachedSecretKeyRing = keyRingCache.getSecretKeyRing( identityId );
+
+        if ( cachedSecretKeyRing != null )
+        {
+            return cachedSecretKeyRing;
+        }
+
+        long generation = keyRingCache.getGeneration();
+
         try
         {
             PGPSecretKeyRing secretKeyRing;
@@ -807,6 +855,8 @@ public class KeyManagerImpl implements KeyManager
 
                 if ( secretKeyRing != null )
                 {
+                    keyRingCache.putSecretKeyRing( identityId, secretKeyRing, generation );
+
                     return secretKeyRing;
                 }
                 else
@@ -901,13 +951,26 @@ public class KeyManagerImpl implements KeyManager
             identityId = keyData.getManHostId();
         }
 
+        PGPPrivateKey cachedPrivateKey = keyRingCache.getPrivateKey( identityId );
+
+        if ( cachedPrivateKey != null )
+        {
+            return cachedPrivateKey;
+        }
+
+        long generation = keyRingCache.getGeneration();
+
         try
         {
             PGPSecretKey secretKey = getSecretKey( identityId );
 
             if ( secretKey != null )
             {
-                return PGPEncryptionUtil.getPrivateKey( secretKey, keyData.getSecretKeyringPwd() );
+                PGPPrivateKey privateKey = PGPEncryptionUtil.getPrivateKey( secretKey, keyData.getSecretKeyringPwd() );
+
+                keyRingCache.putPrivateKey( identityId, privateKey, generation );
+
+                return privateKey;
             }
             else
             {
@@ -936,6 +999,9 @@ public class KeyManagerImpl implements KeyManager
         {
             LOG.warn( e.getMessage() );
         }
+
+        keyRingCache
+                .invalidateFingerprint( PGPKeyUtil.getFingerprint( publicKeyRing.getPublicKey().getFingerprint() ) );
     }
 
 
@@ -989,6 +1055,16 @@ public class KeyManagerImpl implements KeyManager
     }
 
 
+    /* *****************************
+     * Returns hit and miss counts of parsed keys cache
+     */
+    @Override
+    public CacheStats getKeyRingCacheStats()
+    {
+        return keyRingCache.getStats();
+    }
+
+
     /* *****************************
      *
      */
@@ -0,0 +1,173 @@
+package io.subutai.core.security.impl.crypto;
+
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import io.subutai.common.security.crypto.pgp.PGPKeyUtil;
+
+
+/**
+ * Bounded cache of parsed key rings and extracted private keys, so that encrypting and decrypting messages does not
+ * read and parse keys from database on every call.
+ *
+ * Each invalidation bumps a generation counter. A value loaded from database is cached only if no invalidation has
+ * happened since its loading started, so a concurrent update can not be shadowed by the value it replaced. Entries also
+ * expire after a while, to pick up keys changed bypassing the key manager, e.g. via key server REST.
+ */
+class KeyRingCache
+{
+    static final int MAX_SIZE = 1000;
+    static final long TTL_SEC = 60;
+
+    private final Cache<String, PGPPublicKeyRing> publicKeyRingsByIdentity = newCache();
+    private final Cache<String, PGPPublicKeyRing> publicKeyRingsByFingerprint = newCache();
+    private final Cache<String, PGPSecretKeyRing> secretKeyRingsByIdentity = newCache();
+    private final Cache<String, PGPPrivateKey> privateKeysByIdentity = newCache();
+
+    private long generation = 0;
+
+
+    private static <V> Cache<String, V> newCache()
+    {
+        return CacheBuilder.newBuilder().maximumSize( MAX_SIZE ).expireAfterWrite( TTL_SEC, TimeUnit.SECONDS )
+                           .recordStats().build();
+    }
+
+
+    /**
+     * Returns generation to be passed to put methods along with value loaded after this call
+     */
+    synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+
+    PGPPublicKeyRing getPublicKeyRing( String identityId )
+    {
+        return publicKeyRingsByIdentity.getIfPresent( identityId );
+    }
+
+
+    PGPPublicKeyRing getPublicKeyRingByFingerprint( String fingerprint )
+    {
+        return publicKeyRingsByFingerprint.getIfPresent( fingerprint );
+    }
+
+
+    PGPSecretKeyRing getSecretKeyRing( String identityId )
+    {
+        return secretKeyRingsByIdentity.getIfPresent( identityId );
+    }
+
+
+    PGPPrivateKey getPrivateKey( String identityId )
+    {
+        return privateKeysByIdentity.getIfPresent( identityId );
+    }
+
+
+    void putPublicKeyRing( String identityId, PGPPublicKeyRing publicKeyRing, long loadGeneration )
+    {
+        put( publicKeyRingsByIdentity, identityId, publicKeyRing, loadGeneration );
+    }
+
+
+    void putPublicKeyRingByFingerprint( String fingerprint, PGPPublicKeyRing publicKeyRing, long loadGeneration )
+    {
+        put( publicKeyRingsByFingerprint, fingerprint, publicKeyRing, loadGeneration );
+    }
+
+
+    void putSecretKeyRing( String identityId, PGPSecretKeyRing secretKeyRing, long loadGeneration )
+    {
+        put( secretKeyRingsByIdentity, identityId, secretKeyRing, loadGeneration );
+    }
+
+
+    void putPrivateKey( String identityId, PGPPrivateKey privateKey, long loadGeneration )
+    {
+        put( privateKeysByIdentity, identityId, privateKey, loadGeneration );
+    }
+
+
+    private synchronized <V> void put( Cache<String, V> cache, String key, V value, long loadGeneration )
+    {
+        if ( key != null && value != null && loadGeneration == generation )
+        {
+            cache.put( key, value );
+        }
+    }
+
+
+    /**
+     * Drops all keys of identity
+     */
+    synchronized void invalidateIdentity( String identityId )
+    {
+        generation++;
+
+        if ( identityId != null )
+        {
+            publicKeyRingsByIdentity.invalidate( identityId );
+            secretKeyRingsByIdentity.invalidate( identityId );
+            privateKeysByIdentity.invalidate( identityId );
+        }
+    }
+
+
+    /**
+     * Drops public key ring with the fingerprint wherever it is cached
+     */
+    synchronized void invalidateFingerprint( String fingerprint )
+    {
+        generation++;
+
+        if ( fingerprint == null )
+        {
+            return;
+        }
+
+        for ( Map.Entry<String, PGPPublicKeyRing> entry : publicKeyRingsByFingerprint.asMap().entrySet() )
+        {
+            if ( fingerprint.equalsIgnoreCase( entry.getKey() ) )
+            {
+                publicKeyRingsByFingerprint.invalidate( entry.getKey() );
+            }
+        }
+
+        for ( Map.Entry<String, PGPPublicKeyRing> entry : publicKeyRingsByIdentity.asMap().entrySet() )
+        {
+            if ( fingerprint.equalsIgnoreCase( getFingerprint( entry.getValue() ) ) )
+            {
+                publicKeyRingsByIdentity.invalidate( entry.getKey() );
+            }
+        }
+    }
+
+
+    /**
+     * Returns hit and miss counts summed up over all cached key types
+     */
+    CacheStats getStats()
+    {
+        return publicKeyRingsByIdentity.stats().plus( publicKeyRingsByFingerprint.stats() )
+                                       .plus( secretKeyRingsByIdentity.stats() )
+                                       .plus( privateKeysByIdentity.stats() );
+    }
+
+
+    private static String getFingerprint( PGPPublicKeyRing publicKeyRing )
+    {
+        return PGPKeyUtil.getFingerprint( publicKeyRing.getPublicKey().getFingerprint() );
+    }
+}
@@ -3,6 +3,7 @@ package io.subutai.core.security.impl.crypto;
 
 import java.security.KeyStore;
 
+import io.subutai.common.security.WebClientBuilder;
 import io.subutai.common.security.crypto.keystore.KeyStoreData;
 import io.subutai.common.security.crypto.keystore.KeyStoreTool;
 import io.subutai.common.settings.Common;
@@ -42,6 +43,8 @@ public class KeyStoreManagerImpl implements KeyStoreManager
         keyStore = keyStoreTool.load( keyStoreData );
 
         keyStoreTool.importCertificateInPem( keyStore, keyStoreData );
+
+        WebClientBuilder.invalidateTlsContext();
     }
 
 
@@ -106,6 +109,8 @@ public class KeyStoreManagerImpl implements KeyStoreManager
         keyStore = keyStoreTool.load( keyStoreData );
 
         keyStoreTool.deleteEntry( keyStore, keyStoreData );
+
+        WebClientBuilder.invalidateTlsContext();
         //***********************************************************************
     }
 }
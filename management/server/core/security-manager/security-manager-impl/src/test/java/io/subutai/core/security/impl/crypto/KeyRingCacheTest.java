@@ -0,0 +1,109 @@
+package io.subutai.core.security.impl.crypto;
+
+
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import io.subutai.common.security.crypto.pgp.PGPKeyUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+
+@RunWith( MockitoJUnitRunner.class )
+public class KeyRingCacheTest
+{
+    private static final String IDENTITY_ID = "identity";
+    private static final byte[] FINGERPRINT = { 0x0A, 0x1B, 0x2C };
+
+    @Mock
+    PGPPublicKeyRing publicKeyRing;
+    @Mock
+    PGPPublicKey publicKey;
+    @Mock
+    PGPSecretKeyRing secretKeyRing;
+    @Mock
+    PGPPrivateKey privateKey;
+
+    private KeyRingCache keyRingCache;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        keyRingCache = new KeyRingCache();
+
+        when( publicKeyRing.getPublicKey() ).thenReturn( publicKey );
+        when( publicKey.getFingerprint() ).thenReturn( FINGERPRINT );
+    }
+
+
+    @Test
+    public void testGet() throws Exception
+    {
+        assertNull( keyRingCache.getPublicKeyRing( IDENTITY_ID ) );
+
+        keyRingCache.putPublicKeyRing( IDENTITY_ID, publicKeyRing, keyRingCache.getGeneration() );
+
+        assertSame( publicKeyRing, keyRingCache.getPublicKeyRing( IDENTITY_ID ) );
+        assertEquals( 1, keyRingCache.getStats().hitCount() );
+        assertEquals( 1, keyRingCache.getStats().missCount() );
+    }
+
+
+    @Test
+    public void testValueLoadedBeforeInvalidationIsNotCached() throws Exception
+    {
+        long generation = keyRingCache.getGeneration();
+
+        keyRingCache.invalidateIdentity( IDENTITY_ID );
+
+        keyRingCache.putSecretKeyRing( IDENTITY_ID, secretKeyRing, generation );
+
+        assertNull( keyRingCache.getSecretKeyRing( IDENTITY_ID ) );
+    }
+
+
+    @Test
+    public void testInvalidateIdentity() throws Exception
+    {
+        long generation = keyRingCache.getGeneration();
+
+        keyRingCache.putPublicKeyRing( IDENTITY_ID, publicKeyRing, generation );
+        keyRingCache.putSecretKeyRing( IDENTITY_ID, secretKeyRing, generation );
+        keyRingCache.putPrivateKey( IDENTITY_ID, privateKey, generation );
+
+        keyRingCache.invalidateIdentity( IDENTITY_ID );
+
+        assertNull( keyRingCache.getPublicKeyRing( IDENTITY_ID ) );
+        assertNull( keyRingCache.getSecretKeyRing( IDENTITY_ID ) );
+        assertNull( keyRingCache.getPrivateKey( IDENTITY_ID ) );
+    }
+
+
+    @Test
+    public void testInvalidateFingerprint() throws Exception
+    {
+        String fingerprint = PGPKeyUtil.getFingerprint( FINGERPRINT );
+        long generation = keyRingCache.getGeneration();
+
+        keyRingCache.putPublicKeyRing( IDENTITY_ID, publicKeyRing, generation );
+        keyRingCache.putPublicKeyRingByFingerprint( fingerprint.toLowerCase(), publicKeyRing, generation );
+        keyRingCache.putSecretKeyRing( IDENTITY_ID, secretKeyRing, generation );
+
+        keyRingCache.invalidateFingerprint( fingerprint );
+
+        assertNull( keyRingCache.getPublicKeyRing( IDENTITY_ID ) );
+        assertNull( keyRingCache.getPublicKeyRingByFingerprint( fingerprint.toLowerCase() ) );
+        assertSame( secretKeyRing, keyRingCache.getSecretKeyRing( IDENTITY_ID ) );
+    }
+}
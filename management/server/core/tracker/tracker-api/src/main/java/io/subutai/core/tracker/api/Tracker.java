@@ -31,6 +31,19 @@ public interface Tracker
      */
     TrackerOperationView getTrackerOperation( String source, UUID operationTrackId );
 
+    /**
+     * Get view of operation by operation id with a part of its log, one log entry per line, so that a client polling
+     * the operation fetches only lines added since its previous call
+     *
+     * @param source - source of operation, usually this is a module name
+     * @param operationTrackId - id of operation
+     * @param offset - number of log lines to skip
+     * @param limit - max number of log lines to return
+     *
+     * @return - operation view
+     */
+    TrackerOperationView getTrackerOperation( String source, UUID operationTrackId, int offset, int limit );
+
     /**
      * Creates operation and save it to DB
      *
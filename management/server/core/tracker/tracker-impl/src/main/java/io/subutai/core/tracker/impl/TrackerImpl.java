@@ -5,7 +5,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +29,7 @@ import io.subutai.core.identity.api.IdentityManager;
 import io.subutai.core.identity.api.model.User;
 import io.subutai.core.tracker.api.Tracker;
 import io.subutai.core.tracker.impl.dao.TrackerOperationDataService;
+import io.subutai.core.tracker.impl.entity.TrackerOperationLogEntity;
 
 
 /**
@@ -44,6 +47,10 @@ public class TrackerImpl implements Tracker
     private DaoManager daoManager;
     private IdentityManager identityManager;
     private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledExecutorService logFlusher = Executors.newSingleThreadScheduledExecutor();
+    final TrackerLogWriter logWriter = new TrackerLogWriter();
+    // completed operations whose state is saved once their log is written
+    final Map<UUID, DeferredOperation> deferredOperations = new ConcurrentHashMap<>();
 
 
     /**
@@ -69,6 +76,34 @@ public class TrackerImpl implements Tracker
     }
 
 
+    /**
+     * Get view of tracker operation by operation id, with a part of its log
+     *
+     * @param source - source of tracker operation, usually this is a module name
+     * @param operationTrackId - id of operation
+     * @param offset - number of log lines to skip
+     * @param limit - max number of log lines to return
+     *
+     * @return - tracker operation view
+     */
+    @Override
+    public TrackerOperationView getTrackerOperation( String source, UUID operationTrackId, int offset, int limit )
+    {
+        Preconditions.checkArgument( !StringUtils.isBlank( source ), SOURCE_IS_EMPTY_MSG );
+        Preconditions.checkNotNull( operationTrackId, "Operation track id is null" );
+        Preconditions.checkArgument( offset >= 0, "Offset must not be negative" );
+        Preconditions.checkArgument( limit > 0, "Limit must be greater than 0" );
+
+        if ( identityManager.isAdmin() )
+        {
+            return dataService.getTrackerOperation( source, operationTrackId, offset, limit );
+        }
+
+        return dataService.getTrackerUserOperation( source, operationTrackId, identityManager.getActiveUser().getId(),
+                offset, limit );
+    }
+
+
     /**
      * Saves tracker operation o DB
      *
@@ -99,6 +134,14 @@ public class TrackerImpl implements Tracker
 
             //*********************************
 
+            // operation state must not be ahead of its log
+            if ( !flushLogs() && po.getState() != OperationState.RUNNING )
+            {
+                deferredOperations.put( po.getId(), new DeferredOperation( source, po, userId ) );
+
+                return false;
+            }
+
             dataService.saveTrackerOperation( source, po, userId );
             return true;
         }
@@ -111,6 +154,61 @@ public class TrackerImpl implements Tracker
     }
 
 
+    /**
+     * Queues log line of tracker operation to be written to DB
+     *
+     * @param po - tracker operation
+     * @param lineNo - number of line in operation log
+     * @param line - log line
+     */
+    void appendLog( TrackerOperationImpl po, int lineNo, String line )
+    {
+        if ( logWriter.append(
+                new TrackerOperationLogEntity( po.getId().toString(), lineNo, System.currentTimeMillis(), line ) ) )
+        {
+            flushLogs();
+        }
+    }
+
+
+    /**
+     * Writes queued log lines, then saves operations which were deferred until their log is written
+     *
+     * @return - false if log lines could not be written
+     */
+    boolean flushLogs()
+    {
+        try
+        {
+            logWriter.flush( dataService );
+        }
+        catch ( Exception e )
+        {
+            LOG.error( "Error in flushLogs", e );
+
+            return false;
+        }
+
+        for ( Map.Entry<UUID, DeferredOperation> entry : deferredOperations.entrySet() )
+        {
+            DeferredOperation operation = entry.getValue();
+
+            try
+            {
+                dataService.saveTrackerOperation( operation.source, operation.po, operation.userId );
+
+                deferredOperations.remove( entry.getKey(), operation );
+            }
+            catch ( Exception e )
+            {
+                LOG.error( "Error in saveTrackerOperation", e );
+            }
+        }
+
+        return true;
+    }
+
+
     /**
      * Creates tracker operation and save it to DB
      *
@@ -279,12 +377,23 @@ public class TrackerImpl implements Tracker
                 }
             }
         }, 0, 1, TimeUnit.DAYS );
+
+        logFlusher.scheduleWithFixedDelay( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flushLogs();
+            }
+        }, TrackerLogWriter.FLUSH_INTERVAL_MS, TrackerLogWriter.FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS );
     }
 
 
     public void dispose()
     {
         purger.shutdown();
+        logFlusher.shutdown();
+        flushLogs();
     }
 
 
@@ -298,4 +407,20 @@ public class TrackerImpl implements Tracker
     {
         this.identityManager = identityManager;
     }
-}
\ No newline at end of file
+
+
+    static class DeferredOperation
+    {
+        private final String source;
+        private final TrackerOperationImpl po;
+        private final long userId;
+
+
+        DeferredOperation( final String source, final TrackerOperationImpl po, final long userId )
+        {
+            this.source = source;
+            this.po = po;
+            this.userId = userId;
+        }
+    }
+}
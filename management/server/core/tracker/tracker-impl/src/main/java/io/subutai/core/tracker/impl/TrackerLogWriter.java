@@ -0,0 +1,77 @@
+package io.subutai.core.tracker.impl;
+
+
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+
+import io.subutai.core.tracker.impl.dao.TrackerOperationDataService;
+import io.subutai.core.tracker.impl.entity.TrackerOperationLogEntity;
+
+
+/**
+ * Collects log lines of tracker operations and writes them to DB in batches, so that an operation logging thousands
+ * of lines does not cost a transaction per line
+ */
+class TrackerLogWriter
+{
+    static final long FLUSH_INTERVAL_MS = 500;
+    static final int MAX_PENDING_LINES = 500;
+
+    private final Deque<TrackerOperationLogEntity> pending = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+
+    /**
+     * Queues line, returns true if there are enough lines queued to write them right away
+     */
+    boolean append( TrackerOperationLogEntity line )
+    {
+        pending.add( line );
+
+        return pendingCount.incrementAndGet() >= MAX_PENDING_LINES;
+    }
+
+
+    /**
+     * Writes all queued lines. Serialized, so lines written by a caller are in DB when this returns, even if another
+     * thread took them from the queue. Lines which failed to be written are put back at the head of the queue, in
+     * their order, to be written by next flush.
+     */
+    synchronized void flush( TrackerOperationDataService dataService ) throws SQLException
+    {
+        List<TrackerOperationLogEntity> lines = Lists.newArrayList();
+
+        TrackerOperationLogEntity line;
+        while ( ( line = pending.poll() ) != null )
+        {
+            lines.add( line );
+        }
+
+        if ( lines.isEmpty() )
+        {
+            return;
+        }
+
+        pendingCount.addAndGet( -lines.size() );
+
+        try
+        {
+            dataService.saveTrackerOperationLogs( lines );
+        }
+        catch ( SQLException e )
+        {
+            for ( int i = lines.size() - 1; i >= 0; i-- )
+            {
+                pending.addFirst( lines.get( i ) );
+            }
+            pendingCount.addAndGet( lines.size() );
+
+            throw e;
+        }
+    }
+}
@@ -34,9 +34,13 @@ public class TrackerOperationImpl implements TrackerOperation
     private final transient TrackerImpl tracker;
 
     /**
-     * log of operation
+     * log of operation, stored line by line apart from operation
      */
     private final StringBuilder log;
+    /**
+     * number of log lines
+     */
+    private transient int logLines;
     /**
      * Creation date of operation
      */
@@ -84,7 +88,8 @@ public class TrackerOperationImpl implements TrackerOperation
     @Override
     public synchronized String getLog()
     {
-        return log.toString();
+        // operations read from DB have no log
+        return log == null ? "" : log.toString();
     }
 
 
@@ -140,17 +145,26 @@ public class TrackerOperationImpl implements TrackerOperation
 
         if ( !StringUtils.isBlank( logString ) )
         {
+            String line = String.format( "{\"date\" : %s, \"log\" : \"%s\", \"state\" : \"%s\"},",
+                    new Timestamp( System.currentTimeMillis() ).getTime(),
+                    logString.replaceAll( "\r", "" ).replaceAll( "\n", "" ).replaceAll( "\\\\", "" )
+                             .replaceAll( "\"", "" ).replaceAll( "\\{", "" ).replaceAll( "}", "" ), state );
+
             if ( log.length() > 0 )
             {
                 log.append( "\n" );
             }
-            log.append( String.format( "{\"date\" : %s, \"log\" : \"%s\", \"state\" : \"%s\"},",
-                    new Timestamp( System.currentTimeMillis() ).getTime(),
-                    logString.replaceAll( "\r", "" ).replaceAll( "\n", "" ).replaceAll( "\\\\", "" )
-                             .replaceAll( "\"", "" ).replaceAll( "\\{", "" ).replaceAll( "}", "" ), state ) );
+            log.append( line );
+
+            tracker.appendLog( this, logLines++, line );
+        }
+
+        // operation itself is saved only when its state changes, lines are appended separately
+        if ( this.state != state )
+        {
+            this.state = state;
+            tracker.saveTrackerOperation( source, this );
         }
-        this.state = state;
-        tracker.saveTrackerOperation( source, this );
     }
 
 
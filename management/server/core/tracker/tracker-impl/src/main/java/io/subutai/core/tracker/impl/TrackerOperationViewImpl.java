@@ -43,12 +43,21 @@ public class TrackerOperationViewImpl implements TrackerOperationView
 
 
     public TrackerOperationViewImpl( TrackerOperation po )
+    {
+        this( po, Preconditions.checkNotNull( po, "Operation is null" ).getLog() );
+    }
+
+
+    /**
+     * Creates view of operation with the given log, e.g. a part of operation log
+     */
+    public TrackerOperationViewImpl( TrackerOperation po, String log )
     {
         Preconditions.checkNotNull( po, "Operation is null" );
 
         id = po.getId();
         description = po.getDescription();
-        log = Base64Util.toBase64( po.getLog() );
+        this.log = Base64Util.toBase64( log );
         state = po.getState();
         createDate = po.createDate();
         source = po.getSource().toUpperCase();
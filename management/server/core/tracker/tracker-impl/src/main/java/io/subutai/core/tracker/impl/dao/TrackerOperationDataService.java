@@ -2,6 +2,8 @@ package io.subutai.core.tracker.impl.dao;
 
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -15,9 +17,14 @@ import javax.persistence.TypedQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.cxf.common.util.CollectionUtils;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.ListMultimap;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -25,6 +32,7 @@ import io.subutai.common.tracker.TrackerOperationView;
 import io.subutai.core.tracker.impl.TrackerOperationImpl;
 import io.subutai.core.tracker.impl.TrackerOperationViewImpl;
 import io.subutai.core.tracker.impl.entity.TrackerOperationEntity;
+import io.subutai.core.tracker.impl.entity.TrackerOperationLogEntity;
 import io.subutai.core.tracker.impl.entity.TrackerOperationPK;
 
 
@@ -32,6 +40,24 @@ public class TrackerOperationDataService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger( TrackerOperationDataService.class );
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    // log is stored line by line in its own table, operations saved before that keep log in info
+    private static final Gson INFO_GSON =
+            new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().setExclusionStrategies( new ExclusionStrategy()
+            {
+                @Override
+                public boolean shouldSkipField( final FieldAttributes f )
+                {
+                    return f.getDeclaringClass() == TrackerOperationImpl.class && "log".equals( f.getName() );
+                }
+
+
+                @Override
+                public boolean shouldSkipClass( final Class<?> clazz )
+                {
+                    return false;
+                }
+            } ).create();
+    private static final int MAX_IN_PARAMS = 500;
     private EntityManagerFactory emf;
 
 
@@ -74,7 +100,17 @@ public class TrackerOperationDataService
 
     public TrackerOperationView getTrackerOperation( String source, final UUID operationTrackId )
     {
-        TrackerOperationEntity result = null;
+        return getTrackerOperation( source, operationTrackId, 0, 0 );
+    }
+
+
+    /**
+     * Returns operation with log lines from offset, at most limit of them, all if limit is 0
+     */
+    public TrackerOperationView getTrackerOperation( String source, final UUID operationTrackId, final int offset,
+                                                     final int limit )
+    {
+        TrackerOperationView result = null;
         source = source.toUpperCase();
         EntityManager em = emf.createEntityManager();
         try
@@ -90,7 +126,7 @@ public class TrackerOperationDataService
 
             if ( !CollectionUtils.isEmpty( operations ) )
             {
-                result = operations.get( 0 );
+                result = createTrackerOperation( em, operations.get( 0 ).getInfo(), offset, limit );
             }
 
             em.getTransaction().commit();
@@ -107,20 +143,23 @@ public class TrackerOperationDataService
         {
             em.close();
         }
-        if ( result != null )
-        {
-            return createTrackerOperation( result.getInfo() );
-        }
-        else
-        {
-            return null;
-        }
+        return result;
     }
 
 
     public TrackerOperationView getTrackerUserOperation( String source, final UUID operationTrackId, long userId )
     {
-        TrackerOperationEntity result = null;
+        return getTrackerUserOperation( source, operationTrackId, userId, 0, 0 );
+    }
+
+
+    /**
+     * Returns operation of user with log lines from offset, at most limit of them, all if limit is 0
+     */
+    public TrackerOperationView getTrackerUserOperation( String source, final UUID operationTrackId, long userId,
+                                                         final int offset, final int limit )
+    {
+        TrackerOperationView result = null;
         source = source.toUpperCase();
         EntityManager em = emf.createEntityManager();
         try
@@ -138,7 +177,7 @@ public class TrackerOperationDataService
 
             if ( !CollectionUtils.isEmpty( operations ) )
             {
-                result = operations.get( 0 );
+                result = createTrackerOperation( em, operations.get( 0 ).getInfo(), offset, limit );
             }
 
             em.getTransaction().commit();
@@ -155,25 +194,106 @@ public class TrackerOperationDataService
         {
             em.close();
         }
-        if ( result != null )
+        return result;
+    }
+
+
+    private TrackerOperationImpl parseTrackerOperation( String infoClob )
+    {
+        if ( infoClob != null && infoClob.length() > 0 )
         {
-            return createTrackerOperation( result.getInfo() );
+            return GSON.fromJson( infoClob, TrackerOperationImpl.class );
         }
-        else
+        return null;
+    }
+
+
+    private TrackerOperationViewImpl createTrackerOperation( EntityManager em, String infoClob, int offset, int limit )
+    {
+        TrackerOperationImpl po = parseTrackerOperation( infoClob );
+
+        if ( po == null )
         {
             return null;
         }
+
+        List<String> lines;
+        if ( po.getLog().isEmpty() )
+        {
+            TypedQuery<String> query = em.createQuery(
+                    "select l.log from TrackerOperationLogEntity l where l.operationTrackId = :operationTrackId "
+                            + "and l.lineNo >= :offset order by l.lineNo", String.class );
+            query.setParameter( "operationTrackId", po.getId().toString() );
+            query.setParameter( "offset", offset );
+            if ( limit > 0 )
+            {
+                query.setMaxResults( limit );
+            }
+            lines = query.getResultList();
+        }
+        else
+        {
+            lines = Arrays.asList( po.getLog().split( "\n" ) );
+            int to = limit > 0 ? Math.min( lines.size(), offset + limit ) : lines.size();
+            lines = lines.subList( Math.min( offset, to ), to );
+        }
+
+        return new TrackerOperationViewImpl( po, StringUtils.join( lines, "\n" ) );
     }
 
 
-    private TrackerOperationViewImpl createTrackerOperation( String infoClob )
+    /**
+     * Creates operations with whole logs, lines of all of them are read at once
+     */
+    private List<TrackerOperationView> createTrackerOperations( EntityManager em, List<String> infoList )
     {
-        if ( infoClob != null && infoClob.length() > 0 )
+        List<TrackerOperationImpl> operations = Lists.newArrayList();
+        List<String> operationIds = Lists.newArrayList();
+
+        for ( final String info : infoList )
         {
-            TrackerOperationImpl po = GSON.fromJson( infoClob, TrackerOperationImpl.class );
-            return new TrackerOperationViewImpl( po );
+            TrackerOperationImpl po = parseTrackerOperation( info );
+            operations.add( po );
+
+            if ( po != null && po.getLog().isEmpty() )
+            {
+                operationIds.add( po.getId().toString() );
+            }
         }
-        return null;
+
+        ListMultimap<String, String> lines = ArrayListMultimap.create();
+        for ( List<String> ids : Lists.partition( operationIds, MAX_IN_PARAMS ) )
+        {
+            TypedQuery<TrackerOperationLogEntity> query = em.createQuery(
+                    "select l from TrackerOperationLogEntity l where l.operationTrackId in :operationTrackIds "
+                            + "order by l.lineNo", TrackerOperationLogEntity.class );
+            query.setParameter( "operationTrackIds", ids );
+
+            for ( TrackerOperationLogEntity line : query.getResultList() )
+            {
+                lines.put( line.getOperationTrackId(), line.getLog() );
+            }
+        }
+
+        List<TrackerOperationView> result = Lists.newArrayList();
+        for ( TrackerOperationImpl po : operations )
+        {
+            if ( po == null )
+            {
+                result.add( null );
+            }
+            else if ( po.getLog().isEmpty() )
+            {
+                result.add( new TrackerOperationViewImpl( po,
+                        StringUtils.join( lines.get( po.getId().toString() ), "\n" ) ) );
+            }
+            else
+            {
+                result.add( new TrackerOperationViewImpl( po ) );
+            }
+        }
+
+        return result;
     }
 
 
@@ -210,8 +330,41 @@ public class TrackerOperationDataService
                                                                     long userId )
     {
         source = source.toUpperCase();
-        return new TrackerOperationEntity( source, po.getId().toString(), po.createDate().getTime(), GSON.toJson( po ),
-                userId );
+        return new TrackerOperationEntity( source, po.getId().toString(), po.createDate().getTime(),
+                INFO_GSON.toJson( po ), userId );
+    }
+
+
+    /**
+     * Appends log lines of operations in one transaction
+     */
+    public void saveTrackerOperationLogs( final Collection<TrackerOperationLogEntity> lines ) throws SQLException
+    {
+        EntityManager em = emf.createEntityManager();
+        try
+        {
+            em.getTransaction().begin();
+
+            for ( final TrackerOperationLogEntity line : lines )
+            {
+                em.persist( line );
+            }
+
+            em.getTransaction().commit();
+        }
+        catch ( Exception e )
+        {
+            LOGGER.error( "Error saving TrackerOperationLogEntity.", e );
+            if ( em.getTransaction().isActive() )
+            {
+                em.getTransaction().rollback();
+            }
+            throw new SQLException( e );
+        }
+        finally
+        {
+            em.close();
+        }
     }
 
 
@@ -232,11 +385,7 @@ public class TrackerOperationDataService
             query.setParameter( "fromDate", fromDate.getTime() );
             query.setParameter( "toDate", toDate.getTime() );
             query.setMaxResults( limit );
-            List<String> infoList = query.getResultList();
-            for ( final String info : infoList )
-            {
-                result.add( createTrackerOperation( info ) );
-            }
+            result.addAll( createTrackerOperations( em, query.getResultList() ) );
 
             em.getTransaction().commit();
         }
@@ -306,11 +455,7 @@ public class TrackerOperationDataService
             query.setParameter( "toDate", toDate.getTime() );
             query.setParameter( "userId", userId );
             query.setMaxResults( limit );
-            List<String> infoList = query.getResultList();
-            for ( final String info : infoList )
-            {
-                result.add( createTrackerOperation( info ) );
-            }
+            result.addAll( createTrackerOperations( em, query.getResultList() ) );
 
             em.getTransaction().commit();
         }
@@ -421,11 +566,7 @@ public class TrackerOperationDataService
                             + "order by to.ts desc", String.class );
             query.setParameter( "userId", userId );
 
-            List<String> infoList = query.getResultList();
-            for ( final String info : infoList )
-            {
-                result.add( createTrackerOperation( info ) );
-            }
+            result.addAll( createTrackerOperations( em, query.getResultList() ) );
 
             em.getTransaction().commit();
         }
@@ -447,9 +588,12 @@ public class TrackerOperationDataService
     }
 
 
+    /**
+     * Deletes operations created at least the given number of days ago, together with their logs, in one transaction
+     */
     public void deleteOldTrackerOperations( long daysOld ) throws SQLException
     {
-        List<TrackerOperationView> operationViews = Lists.newArrayList();
+        long createdBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis( daysOld );
 
         EntityManager em = emf.createEntityManager();
 
@@ -457,20 +601,22 @@ public class TrackerOperationDataService
         {
             em.getTransaction().begin();
 
-            TypedQuery<String> query = em.createQuery( "select to.info from TrackerOperationEntity to", String.class );
-
-            List<String> infoList = query.getResultList();
+            Query query = em.createQuery( "delete from TrackerOperationLogEntity l where l.operationTrackId in "
+                    + "(select to.operationTrackId from TrackerOperationEntity to where to.ts <= :createdBefore)" );
+            query.setParameter( "createdBefore", createdBefore );
+            query.executeUpdate();
 
-            for ( final String info : infoList )
-            {
-                operationViews.add( createTrackerOperation( info ) );
-            }
+            query = em.createQuery( "delete from TrackerOperationEntity to where to.ts <= :createdBefore" );
+            query.setParameter( "createdBefore", createdBefore );
+            int deleted = query.executeUpdate();
 
             em.getTransaction().commit();
+
+            LOGGER.info( "Deleted {} tracker operations older than {} days", deleted, daysOld );
         }
         catch ( Exception e )
         {
-            LOGGER.error( "Error in getTrackerOperations.", e );
+            LOGGER.error( "Error in deleteOldTrackerOperations.", e );
             if ( em.getTransaction().isActive() )
             {
                 em.getTransaction().rollback();
@@ -481,18 +627,6 @@ public class TrackerOperationDataService
         {
             em.close();
         }
-
-        for ( TrackerOperationView operationView : operationViews )
-        {
-            long operationDaysOld =
-                    TimeUnit.MILLISECONDS.toDays( new Date().getTime() - operationView.getCreateDate().getTime() );
-
-            if ( operationDaysOld >= daysOld )
-            {
-                deleteTrackerOperation(
-                        new TrackerOperationPK( operationView.getSource(), operationView.getId().toString() ) );
-            }
-        }
     }
 
 
@@ -510,6 +644,11 @@ public class TrackerOperationDataService
             query.setParameter( "operationTrackId", operationId.getOperationTrackId() );
             query.executeUpdate();
 
+            query = em.createQuery(
+                    "delete from TrackerOperationLogEntity l where l.operationTrackId = :operationTrackId" );
+            query.setParameter( "operationTrackId", operationId.getOperationTrackId() );
+            query.executeUpdate();
+
             em.getTransaction().commit();
         }
         catch ( Exception e )
@@ -12,6 +12,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
+import org.apache.openjpa.persistence.jdbc.Index;
+
 
 @Entity
 @Table( name = "tracker_operation" )
@@ -37,6 +39,8 @@ public class TrackerOperationEntity
     @Column( name = "operation_track_id" )
     private String operationTrackId;
 
+    // create date of operation
+    @Index( name = "tracker_operation_ts" )
     @Column( name = "ts" )
     private Long ts;
 
@@ -44,6 +48,7 @@ public class TrackerOperationEntity
     @Column( name = "info" )
     private String info;
 
+    @Index( name = "tracker_operation_user" )
     @Column( name = "user_id" )
     private long userId;
 
@@ -79,6 +84,12 @@ public class TrackerOperationEntity
     }
 
 
+    public Long getTs()
+    {
+        return ts;
+    }
+
+
     public boolean isviewState()
     {
         return viewState;
@@ -0,0 +1,82 @@
+package io.subutai.core.tracker.impl.entity;
+
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import org.apache.openjpa.persistence.jdbc.Index;
+
+
+/**
+ * One line of tracker operation log. Lines are only appended, so adding a line does not rewrite the operation.
+ */
+@Entity
+@Table( name = "tracker_operation_log" )
+@Access( AccessType.FIELD )
+public class TrackerOperationLogEntity
+{
+    @Id
+    @GeneratedValue( strategy = GenerationType.IDENTITY )
+    @Column( name = "id" )
+    private Long id;
+
+    @Index( name = "tracker_operation_log_operation" )
+    @Column( name = "operation_track_id", nullable = false )
+    private String operationTrackId;
+
+    @Column( name = "line_no" )
+    private int lineNo;
+
+    @Column( name = "ts" )
+    private long ts;
+
+    @Lob
+    @Column( name = "log" )
+    private String log;
+
+
+    public TrackerOperationLogEntity( final String operationTrackId, final int lineNo, final long ts,
+                                      final String log )
+    {
+        this.operationTrackId = operationTrackId;
+        this.lineNo = lineNo;
+        this.ts = ts;
+        this.log = log;
+    }
+
+
+    public TrackerOperationLogEntity()
+    {
+    }
+
+
+    public String getOperationTrackId()
+    {
+        return operationTrackId;
+    }
+
+
+    public int getLineNo()
+    {
+        return lineNo;
+    }
+
+
+    public long getTs()
+    {
+        return ts;
+    }
+
+
+    public String getLog()
+    {
+        return log;
+    }
+}
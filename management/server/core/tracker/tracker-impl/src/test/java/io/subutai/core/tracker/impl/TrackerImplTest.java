@@ -6,7 +6,10 @@
 package io.subutai.core.tracker.impl;
 
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
@@ -15,6 +18,7 @@ import javax.persistence.EntityManagerFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -25,14 +29,24 @@ import io.subutai.common.tracker.TrackerOperationView;
 import io.subutai.core.identity.api.IdentityManager;
 import io.subutai.core.identity.api.model.User;
 import io.subutai.core.tracker.impl.dao.TrackerOperationDataService;
+import io.subutai.core.tracker.impl.entity.TrackerOperationLogEntity;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -110,6 +124,74 @@ public class TrackerImplTest extends SystemOutRedirectTest
     }
 
 
+    @Test
+    public void testAppendLog() throws Exception
+    {
+        doReturn( OPERATION_ID ).when( productOperation ).getId();
+
+        tracker.appendLog( productOperation, 0, "log" );
+
+        verify( dataService, never() ).saveTrackerOperationLogs( anyCollection() );
+
+        tracker.saveTrackerOperation( SOURCE, productOperation );
+
+        verify( dataService ).saveTrackerOperationLogs( anyCollection() );
+    }
+
+
+    @Test
+    public void testFailedLogFlushDefersFinalState() throws Exception
+    {
+        doReturn( OPERATION_ID ).when( productOperation ).getId();
+        doReturn( OperationState.SUCCEEDED ).when( productOperation ).getState();
+        doThrow( new SQLException() ).doNothing().when( dataService ).saveTrackerOperationLogs( anyCollection() );
+
+        tracker.appendLog( productOperation, 0, "first" );
+
+        assertFalse( tracker.saveTrackerOperation( SOURCE, productOperation ) );
+        verify( dataService, never() ).saveTrackerOperation( anyString(), any( TrackerOperationImpl.class ), anyLong() );
+
+        tracker.appendLog( productOperation, 1, "second" );
+
+        assertTrue( tracker.flushLogs() );
+
+        // failed line is written first, then operation state
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass( Collection.class );
+        verify( dataService, times( 2 ) ).saveTrackerOperationLogs( captor.capture() );
+        List<TrackerOperationLogEntity> lines = ( List<TrackerOperationLogEntity> ) captor.getAllValues().get( 1 );
+        assertEquals( 2, lines.size() );
+        assertEquals( 0, lines.get( 0 ).getLineNo() );
+        assertEquals( 1, lines.get( 1 ).getLineNo() );
+
+        verify( dataService ).saveTrackerOperation( SOURCE, productOperation, 1L );
+        assertTrue( tracker.deferredOperations.isEmpty() );
+    }
+
+
+    @Test
+    public void testFailedLogFlushKeepsRunningState() throws Exception
+    {
+        doReturn( OPERATION_ID ).when( productOperation ).getId();
+        doReturn( OperationState.RUNNING ).when( productOperation ).getState();
+        doThrow( new SQLException() ).when( dataService ).saveTrackerOperationLogs( anyCollection() );
+
+        tracker.appendLog( productOperation, 0, "log" );
+
+        assertTrue( tracker.saveTrackerOperation( SOURCE, productOperation ) );
+        verify( dataService ).saveTrackerOperation( SOURCE, productOperation, 1L );
+    }
+
+
+    @Test
+    public void testGetTrackerOperationLog() throws Exception
+    {
+        doReturn( true ).when( identityManager ).isAdmin();
+        tracker.getTrackerOperation( SOURCE, OPERATION_ID, 10, 100 );
+
+        verify( dataService ).getTrackerOperation( SOURCE, OPERATION_ID, 10, 100 );
+    }
+
+
     @Test
     public void testCreateTrackerOperation() throws Exception
     {
@@ -9,6 +9,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.PersistenceException;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 import org.junit.Before;
@@ -22,9 +23,11 @@ import com.google.common.collect.Lists;
 import io.subutai.core.tracker.impl.dao.TrackerOperationDataService;
 import io.subutai.core.tracker.impl.entity.TrackerOperationEntity;
 
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,6 +49,8 @@ public class TrackerOperationDataServiceTest
     @Mock
     TypedQuery typedQuery;
     @Mock
+    Query query;
+    @Mock
     TrackerOperationEntity trackerOperationEntity;
     @Mock
     TrackerImpl tracker;
@@ -155,4 +160,17 @@ public class TrackerOperationDataServiceTest
         trackerOperationDataService.getTrackerOperationSources();
 
     }
+
+
+    @Test
+    public void testDeleteOldTrackerOperations() throws Exception
+    {
+        when( entityManager.createQuery( anyString() ) ).thenReturn( query );
+
+        trackerOperationDataService.deleteOldTrackerOperations( 30L );
+
+        verify( query, times( 2 ) ).setParameter( eq( "createdBefore" ), anyLong() );
+        verify( query, times( 2 ) ).executeUpdate();
+        verify( entityTransaction ).commit();
+    }
 }
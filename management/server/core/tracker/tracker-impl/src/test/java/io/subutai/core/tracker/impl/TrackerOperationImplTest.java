@@ -21,7 +21,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -132,6 +135,21 @@ public class TrackerOperationImplTest
     }
 
 
+    @Test
+    public void shouldAppendLogLines()
+    {
+        TrackerImpl ti = mock( TrackerImpl.class );
+        TrackerOperationImpl poi = new TrackerOperationImpl( SOURCE, DESCRIPTION, ti );
+
+        poi.addLog( DUMMY_LOG );
+        poi.addLog( DUMMY_LOG );
+
+        verify( ti ).appendLog( eq( poi ), eq( 0 ), contains( DUMMY_LOG ) );
+        verify( ti ).appendLog( eq( poi ), eq( 1 ), contains( DUMMY_LOG ) );
+        verify( ti, never() ).saveTrackerOperation( SOURCE, poi );
+    }
+
+
     @Test
     public void testHashCodeNEquals() throws Exception
     {
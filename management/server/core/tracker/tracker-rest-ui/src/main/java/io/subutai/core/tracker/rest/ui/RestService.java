@@ -2,10 +2,12 @@ package io.subutai.core.tracker.rest.ui;
 
 
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -19,6 +21,14 @@ public interface RestService
     Response getTrackerOperation(@PathParam("source") String source, @PathParam("uuid") String uuid);
 
 
+    @GET
+    @Path( "operations/{source}/{uuid}/log" )
+    @Produces( { MediaType.APPLICATION_JSON } )
+    Response getTrackerOperationLog( @PathParam( "source" ) String source, @PathParam( "uuid" ) String uuid,
+                                     @QueryParam( "offset" ) @DefaultValue( "0" ) int offset,
+                                     @QueryParam( "limit" ) @DefaultValue( "1000" ) int limit );
+
+
     @GET
     @Path( "operations/{source}/{dateFrom}/{dateTo}/{limit}" )
     @Produces( { MediaType.APPLICATION_JSON } )
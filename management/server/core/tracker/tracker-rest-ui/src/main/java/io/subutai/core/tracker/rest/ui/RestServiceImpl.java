@@ -61,6 +61,33 @@ public class RestServiceImpl implements RestService
     }
 
 
+    @Override
+    public Response getTrackerOperationLog( final String source, final String uuid, final int offset,
+                                            final int limit )
+    {
+        try
+        {
+            UUID poUUID = UUID.fromString( uuid );
+
+            TrackerOperationView trackerOperationView = tracker.getTrackerOperation( source, poUUID, offset, limit );
+
+            if ( trackerOperationView != null )
+            {
+                return Response.ok().entity( JsonUtil.toJson( trackerOperationView ) ).build();
+            }
+            else
+            {
+                return Response.status( Response.Status.NOT_FOUND ).build();
+            }
+        }
+        catch ( NullPointerException | IllegalArgumentException e )
+        {
+            LOG.error( "Error in getTrackerOperationLog", e );
+            return Response.status( Response.Status.BAD_REQUEST ).entity( e.getMessage() ).build();
+        }
+    }
+
+
     @Override
     public Response getTrackerOperations( final String source, final String fromDate, final String toDate,
                                           final int limit )
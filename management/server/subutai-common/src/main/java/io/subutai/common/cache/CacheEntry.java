@@ -34,6 +34,23 @@ public class CacheEntry<V>
 
     private ReentrantLock lock = new ReentrantLock( true );
 
+    /**
+     * expiry check of this entry in the shared expiry wheel
+     */
+    private volatile ExpiryWheel.Timeout<?, ?> timeout;
+
+
+    ExpiryWheel.Timeout<?, ?> getTimeout()
+    {
+        return timeout;
+    }
+
+
+    void setTimeout( final ExpiryWheel.Timeout<?, ?> timeout )
+    {
+        this.timeout = timeout;
+    }
+
 
     void lock()
     {
@@ -92,6 +109,17 @@ public class CacheEntry<V>
      */
     public boolean isExpired()
     {
-        return System.nanoTime() > createTimestamp.get() + TimeUnit.MILLISECONDS.toNanos( ttlMs );
+        return System.nanoTime() > getDeadlineNanos();
+    }
+
+
+    /**
+     * Returns the {@code System.nanoTime()} based moment after which the entry is considered expired
+     *
+     * @return expiration moment in nanoseconds
+     */
+    long getDeadlineNanos()
+    {
+        return createTimestamp.get() + TimeUnit.MILLISECONDS.toNanos( ttlMs );
     }
 }
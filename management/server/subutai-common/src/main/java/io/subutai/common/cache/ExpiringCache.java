@@ -10,88 +10,113 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.google.common.base.Preconditions;
 
 
 /**
  * This is a cache with entries having time-to-live setting. After the specified interval entry gets evicted (expires).
- * It is possible to add expiry callback to an entry to handle the expiration event
+ * It is possible to add expiry callback to an entry to handle the expiration event.
+ *
+ * All caches share a single {@code ExpiryWheel} which tracks entry deadlines, so a cache does not own any threads and
+ * eviction cost does not depend on the number of entries.
  */
 public class ExpiringCache<K, V>
 {
-    private static final Logger LOG = LoggerFactory.getLogger( ExpiringCache.class.getName() );
+    private static final String DEFAULT_NAME = "ExpiringCache";
+    /**
+     * smoothing factor of expiry rate, corresponds to one minute moving average of per second samples
+     */
+    private static final double RATE_ALPHA = 1 - Math.exp( -1 / 60.0 );
 
-    private static final long EVICTION_RUN_INTERVAL_MS = 100;
     private final Map<K, CacheEntry<V>> entries = new ConcurrentHashMap<>();
 
-    private final ScheduledExecutorService evictor;
-    private final ExecutorService expirationNotifier;
+    private final String name;
+    private final ExpiryWheel wheel;
+
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicInteger scheduledTimeouts = new AtomicInteger();
+    private long lastSampledExpirations = 0;
+    private volatile double expiryRate = 0;
 
 
     /**
-     * Initializes {@code ExpiringCache}. Starts evictor executor service
+     * Initializes {@code ExpiringCache}. Registers cache with the shared expiry wheel
      */
     public ExpiringCache()
     {
-        evictor = Executors.newSingleThreadScheduledExecutor();
+        this( DEFAULT_NAME );
+    }
 
-        expirationNotifier = Executors.newCachedThreadPool();
 
-        evictor.scheduleWithFixedDelay( new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                try
-                {
-                    evictExpiredEntries();
-                }
-                catch ( Exception e )
-                {
-                    LOG.error( "Error in eviction task", e );
-                }
-            }
-        }, 0, EVICTION_RUN_INTERVAL_MS, TimeUnit.MILLISECONDS );
+    /**
+     * Initializes {@code ExpiringCache}. Registers cache with the shared expiry wheel
+     *
+     * @param name - name of cache used in metrics
+     */
+    public ExpiringCache( final String name )
+    {
+        Preconditions.checkNotNull( name, "Name is null" );
+
+        this.name = name;
+        this.wheel = ExpiryWheel.getInstance();
+
+        wheel.register( this );
     }
 
 
-    private void evictExpiredEntries()
+    /**
+     * Returns true if the given entry is still mapped to the key
+     */
+    boolean holds( K key, CacheEntry<V> entry )
     {
-        for ( Iterator<Map.Entry<K, CacheEntry<V>>> it = entries.entrySet().iterator(); it.hasNext(); )
-        {
-            final Map.Entry<K, CacheEntry<V>> entry = it.next();
+        return entries.get( key ) == entry;
+    }
 
-            entry.getValue().lock();
 
-            try
-            {
-                if ( entry.getValue().isExpired() )
-                {
-                    it.remove();
+    /**
+     * Evicts entry if it has expired. Called by the expiry wheel when entry deadline is reached.
+     *
+     * @return true if entry has been evicted or is not in the cache anymore, false if entry lifespan was prolonged
+     */
+    boolean expire( K key, CacheEntry<V> entry )
+    {
+        entry.lock();
 
-                    if ( entry.getValue() instanceof CacheEntryWithExpiryCallback )
-                    {
-                        evictEntry( ( CacheEntryWithExpiryCallback ) entry.getValue() );
-                    }
-                }
+        try
+        {
+            if ( !entry.isExpired() )
+            {
+                return false;
             }
-            finally
+
+            if ( entries.remove( key, entry ) )
             {
-                entry.getValue().unlock();
+                expirations.incrementAndGet();
+
+                if ( entry instanceof CacheEntryWithExpiryCallback )
+                {
+                    evictEntry( ( CacheEntryWithExpiryCallback ) entry );
+                }
             }
+
+            return true;
+        }
+        finally
+        {
+            entry.unlock();
         }
     }
 
 
     private void evictEntry( final CacheEntryWithExpiryCallback callback )
     {
-        expirationNotifier.execute( new Runnable()
+        wheel.executeCallback( new Runnable()
         {
             @Override
             public void run()
@@ -102,6 +127,41 @@ public class ExpiringCache<K, V>
     }
 
 
+    void timeoutScheduled()
+    {
+        scheduledTimeouts.incrementAndGet();
+    }
+
+
+    void timeoutFinished()
+    {
+        scheduledTimeouts.decrementAndGet();
+    }
+
+
+    /**
+     * Returns number of expiry checks of this cache held by the expiry wheel
+     */
+    int getScheduledTimeouts()
+    {
+        return scheduledTimeouts.get();
+    }
+
+
+    /**
+     * Updates expiry rate with the number of expirations since the previous sample. Called by the expiry wheel once a
+     * second.
+     */
+    void sampleExpiryRate()
+    {
+        long current = expirations.get();
+        long delta = current - lastSampledExpirations;
+        lastSampledExpirations = current;
+
+        expiryRate += RATE_ALPHA * ( delta - expiryRate );
+    }
+
+
     /**
      * Returns entry or null if missing or expired. Resets lifespan of entry
      *
@@ -124,6 +184,7 @@ public class ExpiringCache<K, V>
                     if ( !entry.isExpired() )
                     {
                         entry.resetCreationTimestamp();
+                        hits.incrementAndGet();
                         return entry.getValue();
                     }
                 }
@@ -133,6 +194,7 @@ public class ExpiringCache<K, V>
                 }
             }
         }
+        misses.incrementAndGet();
         return null;
     }
 
@@ -178,7 +240,7 @@ public class ExpiringCache<K, V>
     {
         if ( key != null && value != null && ttlMs > 0 )
         {
-            entries.put( key, new CacheEntry<>( value, ttlMs ) );
+            add( key, new CacheEntry<>( value, ttlMs ) );
             return true;
         }
         return false;
@@ -199,13 +261,26 @@ public class ExpiringCache<K, V>
     {
         if ( key != null && value != null && ttlMs > 0 )
         {
-            entries.put( key, new CacheEntryWithExpiryCallback<>( value, ttlMs, callback ) );
+            add( key, new CacheEntryWithExpiryCallback<>( value, ttlMs, callback ) );
             return true;
         }
         return false;
     }
 
 
+    private void add( K key, CacheEntry<V> entry )
+    {
+        CacheEntry<V> replaced = entries.put( key, entry );
+        puts.incrementAndGet();
+        wheel.schedule( this, key, entry );
+
+        if ( replaced != null )
+        {
+            wheel.cancel( replaced );
+        }
+    }
+
+
     /**
      * Removes and return value from the cache by key or null if missing.
      *
@@ -220,6 +295,8 @@ public class ExpiringCache<K, V>
             CacheEntry<V> entry = entries.remove( key );
             if ( entry != null )
             {
+                wheel.cancel( entry );
+
                 return entry.getValue();
             }
         }
@@ -243,7 +320,14 @@ public class ExpiringCache<K, V>
      */
     public void clear()
     {
-        entries.clear();
+        for ( Iterator<CacheEntry<V>> iterator = entries.values().iterator(); iterator.hasNext(); )
+        {
+            CacheEntry<V> entry = iterator.next();
+
+            iterator.remove();
+
+            wheel.cancel( entry );
+        }
     }
 
 
@@ -259,12 +343,34 @@ public class ExpiringCache<K, V>
 
 
     /**
-     * Disposes cache
+     * Returns name of cache
+     *
+     * @return name of cache
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Returns snapshot of cache metrics.
+     *
+     * @return cache metrics
+     */
+    public ExpiringCacheMetrics getMetrics()
+    {
+        return new ExpiringCacheMetrics( name, entries.size(), puts.get(), hits.get(), misses.get(),
+                expirations.get(), expiryRate, wheel.getCallbackQueueSize() );
+    }
+
+
+    /**
+     * Disposes cache. Unregisters cache from the shared expiry wheel
      */
     public void dispose()
     {
-        evictor.shutdown();
-        expirationNotifier.shutdown();
+        wheel.unregister( this );
         entries.clear();
     }
 }
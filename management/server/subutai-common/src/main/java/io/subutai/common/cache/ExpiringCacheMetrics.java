@@ -0,0 +1,104 @@
+package io.subutai.common.cache;
+
+
+import com.google.common.base.MoreObjects;
+
+
+/**
+ * Point-in-time snapshot of {@code ExpiringCache} metrics
+ */
+public class ExpiringCacheMetrics
+{
+    private final String name;
+    private final int size;
+    private final long puts;
+    private final long hits;
+    private final long misses;
+    private final long expirations;
+    private final double expirationsPerSecond;
+    private final int pendingCallbacks;
+
+
+    ExpiringCacheMetrics( final String name, final int size, final long puts, final long hits, final long misses,
+                          final long expirations, final double expirationsPerSecond, final int pendingCallbacks )
+    {
+        this.name = name;
+        this.size = size;
+        this.puts = puts;
+        this.hits = hits;
+        this.misses = misses;
+        this.expirations = expirations;
+        this.expirationsPerSecond = expirationsPerSecond;
+        this.pendingCallbacks = pendingCallbacks;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Returns number of entries in cache
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    public long getPuts()
+    {
+        return puts;
+    }
+
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+
+    public long getMisses()
+    {
+        return misses;
+    }
+
+
+    /**
+     * Returns total number of entries evicted due to expiration
+     */
+    public long getExpirations()
+    {
+        return expirations;
+    }
+
+
+    /**
+     * Returns one minute moving average of expirations per second
+     */
+    public double getExpirationsPerSecond()
+    {
+        return expirationsPerSecond;
+    }
+
+
+    /**
+     * Returns number of expiry callbacks waiting for execution in the shared callback pool
+     */
+    public int getPendingCallbacks()
+    {
+        return pendingCallbacks;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this ).add( "name", name ).add( "size", size ).add( "puts", puts )
+                          .add( "hits", hits ).add( "misses", misses ).add( "expirations", expirations )
+                          .add( "expirationsPerSecond", expirationsPerSecond )
+                          .add( "pendingCallbacks", pendingCallbacks ).toString();
+    }
+}
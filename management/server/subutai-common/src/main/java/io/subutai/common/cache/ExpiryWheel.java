@@ -0,0 +1,453 @@
+package io.subutai.common.cache;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+
+/**
+ * Hierarchical timing wheel shared by all {@code ExpiringCache} instances.
+ *
+ * Scheduling an entry is O(1): the caller only enqueues it, and the single ticker thread places it into a slot of the
+ * wheel level matching its remaining time. Each tick processes just the slot that became due, and higher levels are
+ * cascaded down when the lower level wraps around. Entries whose lifespan was prolonged in the meantime are simply
+ * rescheduled when their original slot fires, so cache reads never touch the wheel.
+ *
+ * Timeouts of entries removed or replaced in their cache are cancelled and unlinked from the wheel on the next tick, so
+ * they do not keep keys, values and caches reachable until the original deadline.
+ *
+ * Expiry callbacks are queued to a fixed size pool and never run on the ticker thread, so slow callbacks can not stall
+ * the wheel or spawn unbounded threads.
+ */
+final class ExpiryWheel
+{
+    private static final Logger LOG = LoggerFactory.getLogger( ExpiryWheel.class.getName() );
+
+    static final long TICK_MS = 100;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos( TICK_MS );
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = ( 1L << ( SLOT_BITS * LEVELS ) ) - 1;
+    private static final int TICKS_PER_RATE_SAMPLE = ( int ) ( 1000 / TICK_MS );
+
+    private static final int CALLBACK_THREADS = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+
+    private static final ExpiryWheel INSTANCE = new ExpiryWheel();
+
+    /**
+     * slots of each level, owned exclusively by the ticker thread
+     */
+    private final List<List<Slot>> levels = new ArrayList<>( LEVELS );
+    /**
+     * timeouts submitted by cache threads and not yet placed into the wheel
+     */
+    private final Queue<Timeout<?, ?>> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * timeouts cancelled by cache threads and not yet unlinked from the wheel
+     */
+    private final Queue<Timeout<?, ?>> cancelled = new ConcurrentLinkedQueue<>();
+    /**
+     * unregistered caches whose timeouts are to be purged from the wheel
+     */
+    private final Queue<ExpiringCache<?, ?>> purged = new ConcurrentLinkedQueue<>();
+    private final Set<ExpiringCache<?, ?>> caches =
+            Collections.newSetFromMap( new ConcurrentHashMap<ExpiringCache<?, ?>, Boolean>() );
+
+    private final ScheduledExecutorService ticker;
+    private final ThreadPoolExecutor callbackExecutor;
+    private final long startNanos;
+    private long currentTick = 0;
+
+
+    private ExpiryWheel()
+    {
+        for ( int i = 0; i < LEVELS; i++ )
+        {
+            List<Slot> slots = new ArrayList<>( SLOTS );
+            for ( int j = 0; j < SLOTS; j++ )
+            {
+                slots.add( new Slot() );
+            }
+            levels.add( slots );
+        }
+
+        startNanos = System.nanoTime();
+
+        callbackExecutor = new ThreadPoolExecutor( CALLBACK_THREADS, CALLBACK_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat( "expiring-cache-callback-%d" ).setDaemon( true ).build() );
+        callbackExecutor.allowCoreThreadTimeOut( true );
+
+        ticker = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat( "expiring-cache-wheel" ).setDaemon( true ).build() );
+
+        ticker.scheduleAtFixedRate( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    advance();
+                }
+                catch ( Exception e )
+                {
+                    LOG.error( "Error in expiry wheel", e );
+                }
+            }
+        }, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS );
+    }
+
+
+    static ExpiryWheel getInstance()
+    {
+        return INSTANCE;
+    }
+
+
+    void register( ExpiringCache<?, ?> cache )
+    {
+        caches.add( cache );
+    }
+
+
+    /**
+     * Unregisters cache and purges its timeouts from the wheel on the next tick
+     */
+    void unregister( ExpiringCache<?, ?> cache )
+    {
+        caches.remove( cache );
+
+        purged.add( cache );
+    }
+
+
+    /**
+     * Schedules expiry check of the entry. The entry is examined no earlier than its current expiration time.
+     */
+    <K, V> void schedule( ExpiringCache<K, V> cache, K key, CacheEntry<V> entry )
+    {
+        Timeout<K, V> timeout = new Timeout<>( cache, key, entry );
+
+        entry.setTimeout( timeout );
+
+        cache.timeoutScheduled();
+
+        pending.add( timeout );
+    }
+
+
+    /**
+     * Cancels expiry check of the entry which has been removed or replaced in its cache
+     */
+    void cancel( CacheEntry<?> entry )
+    {
+        Timeout<?, ?> timeout = entry.getTimeout();
+
+        if ( timeout != null )
+        {
+            timeout.cancelled = true;
+
+            cancelled.add( timeout );
+        }
+    }
+
+
+    /**
+     * Queues callback to the callback pool. Callbacks never run on the ticker thread.
+     */
+    void executeCallback( Runnable callback )
+    {
+        callbackExecutor.execute( callback );
+    }
+
+
+    int getCallbackQueueSize()
+    {
+        return callbackExecutor.getQueue().size();
+    }
+
+
+    /**
+     * Catches up with the wall clock, processing all ticks that have elapsed since the last run.
+     */
+    private void advance()
+    {
+        long targetTick = ( System.nanoTime() - startNanos ) / TICK_NANOS;
+
+        while ( currentTick < targetTick )
+        {
+            currentTick++;
+
+            cascade();
+
+            unlinkCancelled();
+
+            Timeout<?, ?> timeout;
+            while ( ( timeout = pending.poll() ) != null )
+            {
+                place( timeout );
+            }
+
+            for ( Timeout<?, ?> dueTimeout : levels.get( 0 ).get( ( int ) ( currentTick & SLOT_MASK ) ).drain() )
+            {
+                if ( dueTimeout.expire() )
+                {
+                    finish( dueTimeout );
+                }
+                else
+                {
+                    place( dueTimeout );
+                }
+            }
+
+            if ( currentTick % TICKS_PER_RATE_SAMPLE == 0 )
+            {
+                for ( ExpiringCache<?, ?> cache : caches )
+                {
+                    cache.sampleExpiryRate();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Moves timeouts of the higher level slot which became current down to the lower levels
+     */
+    private void cascade()
+    {
+        for ( int level = 1; level < LEVELS; level++ )
+        {
+            if ( ( currentTick & ( ( 1L << ( SLOT_BITS * level ) ) - 1 ) ) != 0 )
+            {
+                return;
+            }
+
+            Slot slot = levels.get( level ).get( ( int ) ( ( currentTick >>> ( SLOT_BITS * level ) ) & SLOT_MASK ) );
+
+            for ( Timeout<?, ?> timeout : slot.drain() )
+            {
+                place( timeout );
+            }
+        }
+    }
+
+
+    /**
+     * Unlinks cancelled timeouts from their slots and timeouts of unregistered caches from all slots
+     */
+    private void unlinkCancelled()
+    {
+        Timeout<?, ?> timeout;
+        while ( ( timeout = cancelled.poll() ) != null )
+        {
+            //timeouts still waiting in pending queue are dropped when placed
+            if ( timeout.slot != null )
+            {
+                timeout.slot.remove( timeout );
+
+                finish( timeout );
+            }
+        }
+
+        ExpiringCache<?, ?> cache;
+        while ( ( cache = purged.poll() ) != null )
+        {
+            for ( List<Slot> slots : levels )
+            {
+                for ( Slot slot : slots )
+                {
+                    for ( Timeout<?, ?> slotTimeout : slot.drain() )
+                    {
+                        if ( slotTimeout.cache == cache )
+                        {
+                            finish( slotTimeout );
+                        }
+                        else
+                        {
+                            slot.add( slotTimeout );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Drops timeout which is done with
+     */
+    private void finish( Timeout<?, ?> timeout )
+    {
+        if ( !timeout.done )
+        {
+            timeout.done = true;
+
+            timeout.cache.timeoutFinished();
+        }
+    }
+
+
+    private void place( Timeout<?, ?> timeout )
+    {
+        if ( timeout.isCancelled() )
+        {
+            finish( timeout );
+
+            return;
+        }
+
+        long remainingNanos = timeout.getDeadlineNanos() - startNanos;
+        // round up so that the entry is never examined before its deadline
+        long deadlineTick = remainingNanos <= 0 ? 0 : ( remainingNanos + TICK_NANOS - 1 ) / TICK_NANOS;
+        long delay = Math.min( Math.max( deadlineTick - currentTick, 0 ), MAX_DELAY_TICKS );
+        deadlineTick = currentTick + delay;
+
+        int level = 0;
+        while ( level < LEVELS - 1 && delay >= ( 1L << ( SLOT_BITS * ( level + 1 ) ) ) )
+        {
+            level++;
+        }
+
+        levels.get( level ).get( ( int ) ( ( deadlineTick >>> ( SLOT_BITS * level ) ) & SLOT_MASK ) ).add( timeout );
+    }
+
+
+    /**
+     * Doubly linked list of timeouts, so that a cancelled timeout is unlinked in constant time. Owned by the ticker
+     * thread
+     */
+    private static final class Slot
+    {
+        private Timeout<?, ?> head;
+
+
+        void add( Timeout<?, ?> timeout )
+        {
+            timeout.slot = this;
+            timeout.prev = null;
+            timeout.next = head;
+
+            if ( head != null )
+            {
+                head.prev = timeout;
+            }
+
+            head = timeout;
+        }
+
+
+        void remove( Timeout<?, ?> timeout )
+        {
+            if ( timeout.prev != null )
+            {
+                timeout.prev.next = timeout.next;
+            }
+            else
+            {
+                head = timeout.next;
+            }
+
+            if ( timeout.next != null )
+            {
+                timeout.next.prev = timeout.prev;
+            }
+
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+
+        /**
+         * Empties the slot and returns its former timeouts
+         */
+        List<Timeout<?, ?>> drain()
+        {
+            List<Timeout<?, ?>> timeouts = new ArrayList<>();
+
+            Timeout<?, ?> timeout = head;
+            while ( timeout != null )
+            {
+                Timeout<?, ?> next = timeout.next;
+
+                timeout.slot = null;
+                timeout.prev = null;
+                timeout.next = null;
+
+                timeouts.add( timeout );
+
+                timeout = next;
+            }
+
+            head = null;
+
+            return timeouts;
+        }
+    }
+
+
+    /**
+     * Binds cache entry to its cache and key for the time it sits in the wheel
+     */
+    static final class Timeout<K, V>
+    {
+        private final ExpiringCache<K, V> cache;
+        private final K key;
+        private final CacheEntry<V> entry;
+        private volatile boolean cancelled;
+
+        //owned by the ticker thread
+        private Slot slot;
+        private Timeout<?, ?> prev;
+        private Timeout<?, ?> next;
+        private boolean done;
+
+
+        Timeout( final ExpiringCache<K, V> cache, final K key, final CacheEntry<V> entry )
+        {
+            this.cache = cache;
+            this.key = key;
+            this.entry = entry;
+        }
+
+
+        long getDeadlineNanos()
+        {
+            return entry.getDeadlineNanos();
+        }
+
+
+        boolean isCancelled()
+        {
+            return cancelled || !cache.holds( key, entry );
+        }
+
+
+        /**
+         * Returns true if timeout is done with, either because entry expired or it is no longer in the cache
+         */
+        boolean expire()
+        {
+            return isCancelled() || cache.expire( key, entry );
+        }
+    }
+}
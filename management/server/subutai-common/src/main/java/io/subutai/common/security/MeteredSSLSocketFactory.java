@@ -0,0 +1,114 @@
+package io.subutai.common.security;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+
+/**
+ * SSL socket factory counting connections established to each peer. Connections are keyed by the host they were
+ * requested for, as given in the peer url, so they are counted together with requests to the peer
+ */
+class MeteredSSLSocketFactory extends SSLSocketFactory
+{
+    private static final HandshakeCompletedListener CONNECTION_COUNTER = new HandshakeCompletedListener()
+    {
+        @Override
+        public void handshakeCompleted( final HandshakeCompletedEvent event )
+        {
+            Socket socket = event.getSocket();
+            SSLSession session = event.getSession();
+
+            String host = session.getPeerHost() != null ? session.getPeerHost() :
+                          socket.getInetAddress().getHostAddress();
+            int port = session.getPeerPort() > 0 ? session.getPeerPort() : socket.getPort();
+
+            WebClientBuilder.onNewConnection( host, port );
+        }
+    };
+
+    private final SSLSocketFactory delegate;
+
+
+    MeteredSSLSocketFactory( final SSLSocketFactory delegate )
+    {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    public String[] getDefaultCipherSuites()
+    {
+        return delegate.getDefaultCipherSuites();
+    }
+
+
+    @Override
+    public String[] getSupportedCipherSuites()
+    {
+        return delegate.getSupportedCipherSuites();
+    }
+
+
+    @Override
+    public Socket createSocket() throws IOException
+    {
+        return meter( delegate.createSocket() );
+    }
+
+
+    @Override
+    public Socket createSocket( final Socket socket, final String host, final int port, final boolean autoClose )
+            throws IOException
+    {
+        return meter( delegate.createSocket( socket, host, port, autoClose ) );
+    }
+
+
+    @Override
+    public Socket createSocket( final String host, final int port ) throws IOException
+    {
+        return meter( delegate.createSocket( host, port ) );
+    }
+
+
+    @Override
+    public Socket createSocket( final String host, final int port, final InetAddress localHost, final int localPort )
+            throws IOException
+    {
+        return meter( delegate.createSocket( host, port, localHost, localPort ) );
+    }
+
+
+    @Override
+    public Socket createSocket( final InetAddress host, final int port ) throws IOException
+    {
+        return meter( delegate.createSocket( host, port ) );
+    }
+
+
+    @Override
+    public Socket createSocket( final InetAddress address, final int port, final InetAddress localAddress,
+                                final int localPort ) throws IOException
+    {
+        return meter( delegate.createSocket( address, port, localAddress, localPort ) );
+    }
+
+
+    private Socket meter( Socket socket )
+    {
+        if ( socket instanceof SSLSocket )
+        {
+            ( ( SSLSocket ) socket ).addHandshakeCompletedListener( CONNECTION_COUNTER );
+        }
+
+        return socket;
+    }
+}
@@ -0,0 +1,96 @@
+package io.subutai.common.security;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counters of REST requests sent to a peer. Comparing number of requests with number of new connections shows how
+ * well connections are reused.
+ */
+public class PeerClientStats
+{
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong newConnections = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+
+    void onResponse( long latencyNanos )
+    {
+        requests.incrementAndGet();
+        totalLatencyNanos.addAndGet( latencyNanos );
+
+        long max = maxLatencyNanos.get();
+
+        while ( latencyNanos > max && !maxLatencyNanos.compareAndSet( max, latencyNanos ) )
+        {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+
+    void onFailure()
+    {
+        requests.incrementAndGet();
+        failedRequests.incrementAndGet();
+    }
+
+
+    void onNewConnection()
+    {
+        newConnections.incrementAndGet();
+    }
+
+
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+
+    /**
+     * Returns number of requests which got no response, e.g. due to connection failure or timeout
+     */
+    public long getFailedRequests()
+    {
+        return failedRequests.get();
+    }
+
+
+    /**
+     * Returns number of TLS connections established to the peer
+     */
+    public long getNewConnections()
+    {
+        return newConnections.get();
+    }
+
+
+    /**
+     * Returns average time in milliseconds from sending a request till receiving its response
+     */
+    public double getAverageLatencyMs()
+    {
+        long responses = requests.get() - failedRequests.get();
+
+        return responses <= 0 ? 0 :
+               totalLatencyNanos.get() / ( double ) responses / TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+
+    public double getMaxLatencyMs()
+    {
+        return maxLatencyNanos.get() / ( double ) TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format( "{requests: %d, failed: %d, new connections: %d, avg: %.1fms, max: %.1fms}",
+                getRequests(), getFailedRequests(), getNewConnections(), getAverageLatencyMs(), getMaxLatencyMs() );
+    }
+}
@@ -0,0 +1,86 @@
+package io.subutai.common.security;
+
+
+import org.apache.cxf.jaxrs.client.ClientConfiguration;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+
+/**
+ * Interceptors recording latency and failures of client requests into {@link PeerClientStats}
+ */
+final class RequestTimingInterceptors
+{
+    private static final String REQUEST_STARTED = RequestTimingInterceptors.class.getName() + ".started";
+
+
+    private RequestTimingInterceptors()
+    {
+        throw new IllegalAccessError( "Utility class" );
+    }
+
+
+    static void install( ClientConfiguration config, PeerClientStats stats )
+    {
+        config.getOutInterceptors().add( new RequestInterceptor( stats ) );
+        config.getInInterceptors().add( new ResponseInterceptor( stats ) );
+    }
+
+
+    private static class RequestInterceptor extends AbstractPhaseInterceptor<Message>
+    {
+        private final PeerClientStats stats;
+
+
+        RequestInterceptor( final PeerClientStats stats )
+        {
+            super( Phase.SETUP );
+
+            this.stats = stats;
+        }
+
+
+        @Override
+        public void handleMessage( final Message message )
+        {
+            message.getExchange().put( REQUEST_STARTED, System.nanoTime() );
+        }
+
+
+        /**
+         * Called when sending fails, response is never received then
+         */
+        @Override
+        public void handleFault( final Message message )
+        {
+            stats.onFailure();
+        }
+    }
+
+
+    private static class ResponseInterceptor extends AbstractPhaseInterceptor<Message>
+    {
+        private final PeerClientStats stats;
+
+
+        ResponseInterceptor( final PeerClientStats stats )
+        {
+            super( Phase.RECEIVE );
+
+            this.stats = stats;
+        }
+
+
+        @Override
+        public void handleMessage( final Message message )
+        {
+            Object started = message.getExchange().get( REQUEST_STARTED );
+
+            if ( started instanceof Long )
+            {
+                stats.onResponse( System.nanoTime() - ( Long ) started );
+            }
+        }
+    }
+}
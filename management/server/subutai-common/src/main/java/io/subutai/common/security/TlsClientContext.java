@@ -0,0 +1,180 @@
+package io.subutai.common.security;
+
+
+import java.io.File;
+import java.security.KeyStore;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509KeyManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.transport.https.AliasedX509ExtendedKeyManager;
+
+import io.subutai.common.security.crypto.keystore.KeyStoreData;
+import io.subutai.common.security.crypto.keystore.KeyStoreTool;
+import io.subutai.common.security.crypto.ssl.SSLManager;
+
+
+/**
+ * TLS client parameters built once from the keystore and truststore and shared by all REST clients.
+ *
+ * Parameters carry a single SSL socket factory, so connections opened by one client are kept alive and reused by the
+ * next ones to the same peer, and TLS sessions are resumed instead of negotiated from scratch. Parameters are rebuilt
+ * when either store file changes on disk or on {@link #invalidate()}.
+ */
+class TlsClientContext
+{
+    private static final Logger LOG = LoggerFactory.getLogger( TlsClientContext.class );
+
+    private final KeyStoreData keyStoreData;
+    private final KeyStoreData trustStoreData;
+
+    private volatile Entry entry;
+
+
+    TlsClientContext( final KeyStoreData keyStoreData, final KeyStoreData trustStoreData )
+    {
+        this.keyStoreData = keyStoreData;
+        this.trustStoreData = trustStoreData;
+    }
+
+
+    TLSClientParameters getTlsClientParameters()
+    {
+        Entry current = entry;
+
+        if ( current != null && current.isUpToDate() )
+        {
+            return current.tlsClientParameters;
+        }
+
+        synchronized ( this )
+        {
+            current = entry;
+
+            if ( current == null || !current.isUpToDate() )
+            {
+                current = load();
+
+                entry = current;
+            }
+
+            return current.tlsClientParameters;
+        }
+    }
+
+
+    /**
+     * Makes next client rebuild parameters from the stores
+     */
+    void invalidate()
+    {
+        entry = null;
+    }
+
+
+    private Entry load()
+    {
+        //stamps are taken first so that a change made while loading causes another reload
+        Entry loaded = new Entry( keyStoreData.getKeyStoreFile(), trustStoreData.getKeyStoreFile() );
+
+        KeyStoreTool keyStoreTool = new KeyStoreTool();
+        KeyStore keyStore = keyStoreTool.load( keyStoreData );
+        KeyStore trustStore = keyStoreTool.load( trustStoreData );
+
+        SSLManager sslManager = new SSLManager( keyStore, keyStoreData, trustStore, trustStoreData );
+
+        TLSClientParameters tlsClientParameters = new TLSClientParameters();
+        tlsClientParameters.setDisableCNCheck( true );
+        tlsClientParameters.setTrustManagers( sslManager.getClientTrustManagers() );
+        tlsClientParameters.setKeyManagers( sslManager.getClientKeyManagers() );
+        tlsClientParameters.setCertAlias( keyStoreData.getAlias() );
+
+        try
+        {
+            SSLContext sslContext = SSLContext.getInstance( "TLS" );
+            sslContext.init( withAlias( tlsClientParameters.getKeyManagers(), keyStoreData.getAlias() ),
+                    tlsClientParameters.getTrustManagers(), null );
+
+            tlsClientParameters.setSSLSocketFactory( new MeteredSSLSocketFactory( sslContext.getSocketFactory() ) );
+        }
+        catch ( Exception e )
+        {
+            //each client builds its own socket factory from the key and trust managers then
+            LOG.error( "Error creating shared SSL context: {}", e.getMessage() );
+        }
+
+        LOG.debug( "Loaded TLS client parameters from {} and {}", keyStoreData.getKeyStoreFile(),
+                trustStoreData.getKeyStoreFile() );
+
+        loaded.tlsClientParameters = tlsClientParameters;
+
+        return loaded;
+    }
+
+
+    private KeyManager[] withAlias( KeyManager[] keyManagers, String alias ) throws Exception
+    {
+        if ( keyManagers == null || alias == null )
+        {
+            return keyManagers;
+        }
+
+        KeyManager[] aliasedKeyManagers = new KeyManager[keyManagers.length];
+
+        for ( int i = 0; i < keyManagers.length; i++ )
+        {
+            aliasedKeyManagers[i] = keyManagers[i] instanceof X509KeyManager ?
+                                    new AliasedX509ExtendedKeyManager( alias, ( X509KeyManager ) keyManagers[i] ) :
+                                    keyManagers[i];
+        }
+
+        return aliasedKeyManagers;
+    }
+
+
+    /**
+     * Parameters along with modification stamps of the store files they were built from
+     */
+    private static class Entry
+    {
+        private final String keyStoreFile;
+        private final String trustStoreFile;
+        private final long keyStoreModified;
+        private final long keyStoreLength;
+        private final long trustStoreModified;
+        private final long trustStoreLength;
+
+        private TLSClientParameters tlsClientParameters;
+
+
+        Entry( final String keyStoreFile, final String trustStoreFile )
+        {
+            this.keyStoreFile = keyStoreFile;
+            this.trustStoreFile = trustStoreFile;
+
+            File keyStore = new File( keyStoreFile );
+            File trustStore = new File( trustStoreFile );
+
+            this.keyStoreModified = keyStore.lastModified();
+            this.keyStoreLength = keyStore.length();
+            this.trustStoreModified = trustStore.lastModified();
+            this.trustStoreLength = trustStore.length();
+        }
+
+
+        boolean isUpToDate()
+        {
+            File keyStore = new File( keyStoreFile );
+            File trustStore = new File( trustStoreFile );
+
+            return keyStore.lastModified() == keyStoreModified && keyStore.length() == keyStoreLength
+                    && trustStore.lastModified() == trustStoreModified && trustStore.length() == trustStoreLength;
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package io.subutai.common.security;
 
 
-import java.security.KeyStore;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.client.ResponseProcessingException;
 import javax.ws.rs.core.MediaType;
@@ -12,22 +12,27 @@ import javax.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.jaxrs.client.ClientConfiguration;
 import org.apache.cxf.jaxrs.client.WebClient;
 import org.apache.cxf.transport.http.HTTPConduit;
 import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import io.subutai.common.peer.PeerException;
 import io.subutai.common.peer.PeerInfo;
 import io.subutai.common.security.crypto.keystore.KeyStoreData;
-import io.subutai.common.security.crypto.keystore.KeyStoreTool;
-import io.subutai.common.security.crypto.ssl.SSLManager;
 import io.subutai.common.settings.Common;
 import io.subutai.common.settings.SecuritySettings;
 
 
 /**
- * Subutai REST client builder
+ * Subutai REST client builder.
+ *
+ * Clients share TLS parameters loaded once from the keystores, so connections to a peer are kept alive and reused
+ * across clients. Requests are counted per peer, see {@link #getPeerClientStats(PeerInfo)}. Counters of a peer not
+ * contacted for {@link #PEER_CLIENT_STATS_TTL_MIN} minutes are dropped.
  */
 public class WebClientBuilder
 {
@@ -37,6 +42,10 @@ public class WebClientBuilder
     public static final int DEFAULT_MAX_RETRANSMITS = Common.DEFAULT_MAX_RETRANSMITS;
     private static final String PEER_URL_TEMPLATE = "https://%s:%s/rest/v1/peer%s";
     private static final String ENVIRONMENT_URL_TEMPLATE = "https://%s:%s/rest/v1/env%s";
+    private static final TlsClientContext TLS_CLIENT_CONTEXT = createTlsClientContext();
+    private static final long PEER_CLIENT_STATS_TTL_MIN = 60;
+    private static final Cache<String, PeerClientStats> PEER_CLIENT_STATS =
+            CacheBuilder.newBuilder().expireAfterAccess( PEER_CLIENT_STATS_TTL_MIN, TimeUnit.MINUTES ).build();
 
 
     private WebClientBuilder()
@@ -45,10 +54,56 @@ public class WebClientBuilder
     }
 
 
+    private static TlsClientContext createTlsClientContext()
+    {
+        KeyStoreData keyStoreData = new KeyStoreData();
+        keyStoreData.setupKeyStorePx2();
+        keyStoreData.setAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
+
+        KeyStoreData trustStoreData = new KeyStoreData();
+        trustStoreData.setupTrustStorePx2();
+
+        return new TlsClientContext( keyStoreData, trustStoreData );
+    }
+
+
     public static WebClient buildPeerWebClient( final PeerInfo peerInfo, final String path, final Object provider,
                                                 long connectTimeoutMs, long readTimeoutMs, int maxAttempts )
     {
-        String effectiveUrl = String.format( PEER_URL_TEMPLATE, peerInfo.getIp(), peerInfo.getPublicSecurePort(),
+        return buildWebClient( PEER_URL_TEMPLATE, peerInfo, path, provider, connectTimeoutMs, readTimeoutMs,
+                maxAttempts );
+    }
+
+
+    public static WebClient buildPeerWebClient( final PeerInfo peerInfo, final String path, final Object provider )
+    {
+        return buildPeerWebClient( peerInfo, path, provider, DEFAULT_CONNECTION_TIMEOUT, DEFAULT_RECEIVE_TIMEOUT,
+                DEFAULT_MAX_RETRANSMITS );
+    }
+
+
+    public static WebClient buildEnvironmentWebClient( final PeerInfo peerInfo, final String path,
+                                                       final Object provider, long connectTimeoutMs, long readTimeoutMs,
+                                                       int maxAttempts )
+    {
+        return buildWebClient( ENVIRONMENT_URL_TEMPLATE, peerInfo, path, provider, connectTimeoutMs, readTimeoutMs,
+                maxAttempts );
+    }
+
+
+    public static WebClient buildEnvironmentWebClient( final PeerInfo peerInfo, final String path,
+                                                       final Object provider )
+    {
+        return buildEnvironmentWebClient( peerInfo, path, provider, DEFAULT_CONNECTION_TIMEOUT,
+                DEFAULT_RECEIVE_TIMEOUT, DEFAULT_MAX_RETRANSMITS );
+    }
+
+
+    private static WebClient buildWebClient( final String urlTemplate, final PeerInfo peerInfo, final String path,
+                                             final Object provider, long connectTimeoutMs, long readTimeoutMs,
+                                             int maxAttempts )
+    {
+        String effectiveUrl = String.format( urlTemplate, peerInfo.getIp(), peerInfo.getPublicSecurePort(),
                 path.startsWith( "/" ) ? path : "/" + path );
         WebClient client;
         if ( provider == null )
@@ -62,7 +117,8 @@ public class WebClientBuilder
         client.type( MediaType.APPLICATION_JSON );
         client.accept( MediaType.APPLICATION_JSON );
 
-        HTTPConduit httpConduit = ( HTTPConduit ) WebClient.getConfig( client ).getConduit();
+        ClientConfiguration config = WebClient.getConfig( client );
+        HTTPConduit httpConduit = ( HTTPConduit ) config.getConduit();
 
         HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
         httpClientPolicy.setConnectionTimeout( connectTimeoutMs );
@@ -71,120 +127,80 @@ public class WebClientBuilder
 
         httpConduit.setClient( httpClientPolicy );
 
-        KeyStoreTool keyStoreManager = new KeyStoreTool();
-        KeyStoreData keyStoreData = new KeyStoreData();
-        keyStoreData.setupKeyStorePx2();
-        keyStoreData.setAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
-        KeyStore keyStore = keyStoreManager.load( keyStoreData );
+        httpConduit.setTlsClientParameters( TLS_CLIENT_CONTEXT.getTlsClientParameters() );
 
-        LOG.debug( String.format( "Getting key with alias: %s for url: %s", SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS,
-                effectiveUrl ) );
+        RequestTimingInterceptors.install( config, getStats( peerInfo.getIp(), peerInfo.getPublicSecurePort() ) );
 
-        KeyStoreData trustStoreData = new KeyStoreData();
-        trustStoreData.setupTrustStorePx2();
-        KeyStore trustStore = keyStoreManager.load( trustStoreData );
-
-        SSLManager sslManager = new SSLManager( keyStore, keyStoreData, trustStore, trustStoreData );
-
-        TLSClientParameters tlsClientParameters = new TLSClientParameters();
-        tlsClientParameters.setDisableCNCheck( true );
-        tlsClientParameters.setTrustManagers( sslManager.getClientTrustManagers() );
-        tlsClientParameters.setKeyManagers( sslManager.getClientKeyManagers() );
-        tlsClientParameters.setCertAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
-        httpConduit.setTlsClientParameters( tlsClientParameters );
         return client;
     }
 
 
-    public static WebClient buildPeerWebClient( final PeerInfo peerInfo, final String path, final Object provider )
+    /**
+     * Makes clients reload keystore and truststore, to be called after the stores are modified
+     */
+    public static void invalidateTlsContext()
     {
-        return buildPeerWebClient( peerInfo, path, provider, DEFAULT_CONNECTION_TIMEOUT, DEFAULT_RECEIVE_TIMEOUT,
-                DEFAULT_MAX_RETRANSMITS );
+        TLS_CLIENT_CONTEXT.invalidate();
     }
 
 
-    public static WebClient buildEnvironmentWebClient( final PeerInfo peerInfo, final String path,
-                                                       final Object provider, long connectTimeoutMs, long readTimeoutMs,
-                                                       int maxAttempts )
+    /**
+     * Returns counters of requests sent to the peer or null if nothing has been sent to it yet
+     */
+    public static PeerClientStats getPeerClientStats( final PeerInfo peerInfo )
     {
-        String effectiveUrl = String.format( ENVIRONMENT_URL_TEMPLATE, peerInfo.getIp(), peerInfo.getPublicSecurePort(),
-                path.startsWith( "/" ) ? path : "/" + path );
-        WebClient client = WebClient.create( effectiveUrl, Arrays.asList( provider ) );
-        client.type( MediaType.APPLICATION_JSON );
-        client.accept( MediaType.APPLICATION_JSON );
-        HTTPConduit httpConduit = ( HTTPConduit ) WebClient.getConfig( client ).getConduit();
-
-        HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
-        httpClientPolicy.setConnectionTimeout( connectTimeoutMs );
-        httpClientPolicy.setReceiveTimeout( readTimeoutMs );
-        httpClientPolicy.setMaxRetransmits( maxAttempts );
-
-        httpConduit.setClient( httpClientPolicy );
+        return PEER_CLIENT_STATS.getIfPresent( getAddress( peerInfo.getIp(), peerInfo.getPublicSecurePort() ) );
+    }
 
-        KeyStoreTool keyStoreManager = new KeyStoreTool();
-        KeyStoreData keyStoreData = new KeyStoreData();
-        keyStoreData.setupKeyStorePx2();
-        keyStoreData.setAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
-        KeyStore keyStore = keyStoreManager.load( keyStoreData );
 
-        LOG.debug( String.format( "Getting key with alias: %s for url: %s", SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS,
-                effectiveUrl ) );
+    /**
+     * Returns counters of requests by peer address in host:port format, host as in the peer url
+     */
+    public static Map<String, PeerClientStats> getPeerClientStats()
+    {
+        return Collections.unmodifiableMap( PEER_CLIENT_STATS.asMap() );
+    }
 
-        KeyStoreData trustStoreData = new KeyStoreData();
-        trustStoreData.setupTrustStorePx2();
-        KeyStore trustStore = keyStoreManager.load( trustStoreData );
 
-        SSLManager sslManager = new SSLManager( keyStore, keyStoreData, trustStore, trustStoreData );
+    /**
+     * Counts new connection to the address, connections to hosts other than peers are not counted
+     */
+    static void onNewConnection( String host, int port )
+    {
+        PeerClientStats stats = PEER_CLIENT_STATS.getIfPresent( getAddress( host, port ) );
 
-        TLSClientParameters tlsClientParameters = new TLSClientParameters();
-        tlsClientParameters.setDisableCNCheck( true );
-        tlsClientParameters.setTrustManagers( sslManager.getClientTrustManagers() );
-        tlsClientParameters.setKeyManagers( sslManager.getClientKeyManagers() );
-        tlsClientParameters.setCertAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
-        httpConduit.setTlsClientParameters( tlsClientParameters );
-        return client;
+        if ( stats != null )
+        {
+            stats.onNewConnection();
+        }
     }
 
 
-    public static WebClient buildEnvironmentWebClient( final PeerInfo peerInfo, final String path,
-                                                       final Object provider )
+    static PeerClientStats getStats( String host, int port )
     {
-        String effectiveUrl = String.format( ENVIRONMENT_URL_TEMPLATE, peerInfo.getIp(), peerInfo.getPublicSecurePort(),
-                path.startsWith( "/" ) ? path : "/" + path );
-        WebClient client = WebClient.create( effectiveUrl, Arrays.asList( provider ) );
-        client.type( MediaType.APPLICATION_JSON );
-        client.accept( MediaType.APPLICATION_JSON );
-        HTTPConduit httpConduit = ( HTTPConduit ) WebClient.getConfig( client ).getConduit();
+        String address = getAddress( host, port );
 
-        HTTPClientPolicy httpClientPolicy = new HTTPClientPolicy();
-        httpClientPolicy.setConnectionTimeout( DEFAULT_CONNECTION_TIMEOUT );
-        httpClientPolicy.setReceiveTimeout( DEFAULT_RECEIVE_TIMEOUT );
-        httpClientPolicy.setMaxRetransmits( DEFAULT_MAX_RETRANSMITS );
+        PeerClientStats stats = PEER_CLIENT_STATS.getIfPresent( address );
 
-        httpConduit.setClient( httpClientPolicy );
+        if ( stats == null )
+        {
+            PeerClientStats newStats = new PeerClientStats();
 
-        KeyStoreTool keyStoreManager = new KeyStoreTool();
-        KeyStoreData keyStoreData = new KeyStoreData();
-        keyStoreData.setupKeyStorePx2();
-        keyStoreData.setAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
-        KeyStore keyStore = keyStoreManager.load( keyStoreData );
+            stats = PEER_CLIENT_STATS.asMap().putIfAbsent( address, newStats );
 
-        LOG.debug( String.format( "Getting key with alias: %s for url: %s", SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS,
-                effectiveUrl ) );
+            if ( stats == null )
+            {
+                stats = newStats;
+            }
+        }
 
-        KeyStoreData trustStoreData = new KeyStoreData();
-        trustStoreData.setupTrustStorePx2();
-        KeyStore trustStore = keyStoreManager.load( trustStoreData );
+        return stats;
+    }
 
-        SSLManager sslManager = new SSLManager( keyStore, keyStoreData, trustStore, trustStoreData );
 
-        TLSClientParameters tlsClientParameters = new TLSClientParameters();
-        tlsClientParameters.setDisableCNCheck( true );
-        tlsClientParameters.setTrustManagers( sslManager.getClientTrustManagers() );
-        tlsClientParameters.setKeyManagers( sslManager.getClientKeyManagers() );
-        tlsClientParameters.setCertAlias( SecuritySettings.KEYSTORE_PX2_ROOT_ALIAS );
-        httpConduit.setTlsClientParameters( tlsClientParameters );
-        return client;
+    private static String getAddress( String host, int port )
+    {
+        return host.toLowerCase() + ":" + port;
     }
 
 
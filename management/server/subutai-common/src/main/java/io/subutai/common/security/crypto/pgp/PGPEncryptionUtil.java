@@ -3,6 +3,8 @@ package io.subutai.common.security.crypto.pgp;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -95,6 +97,7 @@ public class PGPEncryptionUtil
     private static final Logger LOG = LoggerFactory.getLogger( PGPEncryptionUtil.class );
     private static final BouncyCastleProvider provider = new BouncyCastleProvider();
     private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
+    private static final int STREAM_BUFFER_SIZE = 1 << 14;
 
     static
     {
@@ -174,6 +177,145 @@ public class PGPEncryptionUtil
     }
 
 
+    /**
+     * Returns stream encrypting everything written to it into the given output stream. Data is compressed and
+     * encrypted as it is written using buffers of bounded size, so the whole message never has to be held in memory.
+     * Closing the returned stream completes the encrypted message but leaves the output stream open.
+     */
+    public static OutputStream encrypt( final OutputStream out, final PGPPublicKey publicKey, final boolean armored )
+            throws PGPException
+    {
+        try
+        {
+            final OutputStream theOut = armored ? new ArmoredOutputStream( out ) : out;
+            final PGPEncryptedDataGenerator generator = new PGPEncryptedDataGenerator(
+                    new JcePGPDataEncryptorBuilder( SymmetricKeyAlgorithmTags.AES_256 ).setWithIntegrityPacket( true )
+                                                                                       .setSecureRandom(
+                                                                                               new SecureRandom() )
+                                                                                       .setProvider( provider ) );
+            generator.addMethod( new JcePublicKeyKeyEncryptionMethodGenerator( publicKey ).setProvider( provider ) );
+            final OutputStream cOut = generator.open( theOut, new byte[STREAM_BUFFER_SIZE] );
+            final PGPCompressedDataGenerator comData = new PGPCompressedDataGenerator( CompressionAlgorithmTags.ZIP );
+            final PGPLiteralDataGenerator literal = new PGPLiteralDataGenerator();
+            final OutputStream pOut =
+                    literal.open( comData.open( cOut, new byte[STREAM_BUFFER_SIZE] ), PGPLiteralData.BINARY,
+                            "filename", new Date(), new byte[STREAM_BUFFER_SIZE] );
+
+            return new FilterOutputStream( pOut )
+            {
+                private boolean closed = false;
+
+
+                @Override
+                public void write( final byte[] b, final int off, final int len ) throws IOException
+                {
+                    out.write( b, off, len );
+                }
+
+
+                @Override
+                public void close() throws IOException
+                {
+                    if ( closed )
+                    {
+                        return;
+                    }
+
+                    closed = true;
+
+                    pOut.close();
+                    comData.close();
+                    generator.close();
+
+                    if ( armored )
+                    {
+                        //writes armor footer, underlying stream is not closed
+                        theOut.close();
+                    }
+                }
+            };
+        }
+        catch ( Exception e )
+        {
+            throw new PGPException( "Error in encrypt", e );
+        }
+    }
+
+
+    /**
+     * Returns stream of decrypted content of the encrypted message. Message is read and decrypted as the returned
+     * stream is consumed, integrity of the message is checked once its end is reached.
+     */
+    public static InputStream decrypt( final InputStream encryptedMessage, final PGPSecretKeyRing secretKeyRing,
+                                       final String secretPwd ) throws PGPException
+    {
+        try
+        {
+            PGPPrivateKey key = null;
+            PGPPublicKeyEncryptedData encrypted = null;
+
+            for ( final Iterator<PGPPublicKeyEncryptedData> i = getEncryptedObjects( encryptedMessage );
+                  ( key == null ) && i.hasNext(); )
+            {
+                encrypted = i.next();
+
+                final PGPSecretKey secretKey = secretKeyRing.getSecretKey( encrypted.getKeyID() );
+                if ( secretKey != null )
+                {
+                    key = getPrivateKey( secretKey, secretPwd );
+                }
+            }
+            if ( key == null )
+            {
+                throw new IllegalArgumentException( "secret key for message not found." );
+            }
+
+            final PGPPublicKeyEncryptedData encryptedData = encrypted;
+            final InputStream literal = asLiteral( encryptedData.getDataStream(
+                    new JcePublicKeyDataDecryptorFactoryBuilder().setProvider( provider ).build( key ) ) )
+                    .getInputStream();
+
+            return new FilterInputStream( literal )
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    return checkIntegrity( super.read() );
+                }
+
+
+                @Override
+                public int read( final byte[] b, final int off, final int len ) throws IOException
+                {
+                    return checkIntegrity( super.read( b, off, len ) );
+                }
+
+
+                private int checkIntegrity( int result ) throws IOException
+                {
+                    try
+                    {
+                        if ( result == -1 && encryptedData.isIntegrityProtected() && !encryptedData.verify() )
+                        {
+                            throw new IOException( "Message failed integrity check" );
+                        }
+                    }
+                    catch ( PGPException e )
+                    {
+                        throw new IOException( "Error checking message integrity", e );
+                    }
+
+                    return result;
+                }
+            };
+        }
+        catch ( Exception e )
+        {
+            throw new PGPException( "Error in decrypt", e );
+        }
+    }
+
+
     private static PGPLiteralData asLiteral( final byte[] message, final InputStream secretKeyRing,
                                              final String secretPwd ) throws IOException, PGPException
     {
@@ -198,14 +340,20 @@ public class PGPEncryptionUtil
     }
 
 
-    @SuppressWarnings( "unchecked" )
     private static Iterator<PGPPublicKeyEncryptedData> getEncryptedObjects( final byte[] message ) throws IOException
+    {
+        return getEncryptedObjects( new ByteArrayInputStream( message ) );
+    }
+
+
+    @SuppressWarnings( "unchecked" )
+    private static Iterator<PGPPublicKeyEncryptedData> getEncryptedObjects( final InputStream message )
+            throws IOException
     {
         try
         {
             final PGPObjectFactory factory =
-                    new PGPObjectFactory( PGPUtil.getDecoderStream( new ByteArrayInputStream( message ) ),
-                            new JcaKeyFingerprintCalculator() );
+                    new PGPObjectFactory( PGPUtil.getDecoderStream( message ), new JcaKeyFingerprintCalculator() );
             final Object first = factory.nextObject();
             final Object list = ( first instanceof PGPEncryptedDataList ) ? first : factory.nextObject();
             return ( ( PGPEncryptedDataList ) list ).getEncryptedDataObjects();
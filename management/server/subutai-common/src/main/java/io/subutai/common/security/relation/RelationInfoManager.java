@@ -1,6 +1,9 @@
 package io.subutai.common.security.relation;
 
 
+import java.util.Collection;
+import java.util.List;
+
 import io.subutai.common.security.relation.model.RelationInfoMeta;
 import io.subutai.common.security.relation.model.RelationMeta;
 
@@ -18,6 +21,15 @@ public interface RelationInfoManager
                         final RelationInfoMeta relationInfoMeta, final String encodedToken )
             throws RelationVerificationException;
 
+    /**
+     * Returns target objects which pass {@link #checkRelation(RelationLink, RelationLink, RelationInfoMeta, String)}
+     * without token, keeping their order. Relations are walked once for all objects instead of once per object.
+     *
+     * @param source - relation source, if null then active user is used
+     */
+    <T extends RelationLink> List<T> filterPermitted( final RelationLink source, final Collection<T> targetObjects,
+                                                      final RelationInfoMeta relationInfoMeta );
+
     /**
      * Used to check group write permissions
      *
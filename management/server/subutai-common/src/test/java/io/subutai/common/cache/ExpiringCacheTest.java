@@ -12,6 +12,12 @@ import io.subutai.common.cache.ExpiringCache;
 import io.subutai.common.command.CommandStatus;
 import io.subutai.common.command.ResponseType;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
 
 @RunWith( MockitoJUnitRunner.class )
 public class ExpiringCacheTest
@@ -85,6 +91,87 @@ public class ExpiringCacheTest
         expiringCache.dispose();
     }
 
+    @Test
+    public void testExpiry() throws Exception
+    {
+        expiringCache.put( object, object, 100, entryExpiryCallback );
+
+        verify( entryExpiryCallback, timeout( 2000 ) ).onEntryExpiry( object );
+
+        assertNull( expiringCache.get( object ) );
+        assertEquals( 0, expiringCache.size() );
+        assertEquals( 1, expiringCache.getMetrics().getExpirations() );
+    }
+
+
+    @Test
+    public void testGetProlongsLifespan() throws Exception
+    {
+        expiringCache.put( object, object, 300 );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            Thread.sleep( 150 );
+
+            assertTrue( expiringCache.keyExists( object ) );
+            expiringCache.get( object );
+        }
+
+        assertEquals( 1, expiringCache.size() );
+    }
+
+
+    private void waitForScheduledTimeouts( int expected ) throws InterruptedException
+    {
+        for ( int i = 0; i < 20 && expiringCache.getScheduledTimeouts() != expected; i++ )
+        {
+            Thread.sleep( ExpiryWheel.TICK_MS );
+        }
+
+        assertEquals( expected, expiringCache.getScheduledTimeouts() );
+    }
+
+
+    @Test
+    public void testRemoveCancelsTimeout() throws Exception
+    {
+        expiringCache.put( object, object, 3600000 );
+
+        waitForScheduledTimeouts( 1 );
+
+        expiringCache.remove( object );
+
+        waitForScheduledTimeouts( 0 );
+    }
+
+
+    @Test
+    public void testReplaceCancelsTimeout() throws Exception
+    {
+        expiringCache.put( object, object, 3600000 );
+        expiringCache.put( object, object, 3600000 );
+        expiringCache.put( object, object, 3600000 );
+
+        waitForScheduledTimeouts( 1 );
+
+        assertEquals( 1, expiringCache.size() );
+    }
+
+
+    @Test
+    public void testDisposePurgesTimeouts() throws Exception
+    {
+        expiringCache.put( object, object, 3600000 );
+        expiringCache.put( entryExpiryCallback, object, 3600000 );
+
+        waitForScheduledTimeouts( 2 );
+
+        expiringCache.dispose();
+
+        waitForScheduledTimeouts( 0 );
+    }
+
+
     @Test
     public void test()
     {
@@ -0,0 +1,87 @@
+package io.subutai.common.security;
+
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+
+import io.subutai.common.security.crypto.keystore.KeyStoreData;
+import io.subutai.common.security.crypto.keystore.KeyStoreType;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class TlsClientContextTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File trustStoreFile;
+    private TlsClientContext tlsClientContext;
+
+
+    @Before
+    public void setUp() throws Exception
+    {
+        File keyStoreFile = new File( temporaryFolder.getRoot(), "keystore.jks" );
+        trustStoreFile = new File( temporaryFolder.getRoot(), "truststore.jks" );
+
+        tlsClientContext = new TlsClientContext( createStoreData( keyStoreFile, "alias" ),
+                createStoreData( trustStoreFile, null ) );
+
+        //first load creates missing store files
+        tlsClientContext.getTlsClientParameters();
+    }
+
+
+    private KeyStoreData createStoreData( File file, String alias )
+    {
+        KeyStoreData keyStoreData = new KeyStoreData();
+        keyStoreData.setKeyStoreType( KeyStoreType.JKS );
+        keyStoreData.setKeyStoreFile( file.getPath() );
+        keyStoreData.setPassword( "password" );
+        keyStoreData.setAlias( alias );
+
+        return keyStoreData;
+    }
+
+
+    @Test
+    public void testParametersAreShared() throws Exception
+    {
+        TLSClientParameters tlsClientParameters = tlsClientContext.getTlsClientParameters();
+
+        assertSame( tlsClientParameters, tlsClientContext.getTlsClientParameters() );
+        assertTrue( tlsClientParameters.getSSLSocketFactory() instanceof MeteredSSLSocketFactory );
+        assertTrue( tlsClientParameters.isDisableCNCheck() );
+    }
+
+
+    @Test
+    public void testReloadOnStoreChange() throws Exception
+    {
+        TLSClientParameters tlsClientParameters = tlsClientContext.getTlsClientParameters();
+
+        assertTrue( trustStoreFile.setLastModified( trustStoreFile.lastModified() - 10000 ) );
+
+        assertNotSame( tlsClientParameters, tlsClientContext.getTlsClientParameters() );
+    }
+
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        TLSClientParameters tlsClientParameters = tlsClientContext.getTlsClientParameters();
+
+        tlsClientContext.invalidate();
+
+        assertNotSame( tlsClientParameters, tlsClientContext.getTlsClientParameters() );
+    }
+}
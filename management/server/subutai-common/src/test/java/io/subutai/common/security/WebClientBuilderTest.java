@@ -0,0 +1,41 @@
+package io.subutai.common.security;
+
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+
+public class WebClientBuilderTest
+{
+    private static final int PORT = 8443;
+
+
+    @Test
+    public void testConnectionsAreCountedWithRequests() throws Exception
+    {
+        String host = "Peer-" + UUID.randomUUID().toString() + ".local";
+
+        PeerClientStats stats = WebClientBuilder.getStats( host, PORT );
+
+        WebClientBuilder.onNewConnection( host.toLowerCase(), PORT );
+
+        assertSame( stats, WebClientBuilder.getStats( host.toLowerCase(), PORT ) );
+        assertEquals( 1, stats.getNewConnections() );
+    }
+
+
+    @Test
+    public void testConnectionsToOtherHostsAreNotCounted() throws Exception
+    {
+        String host = UUID.randomUUID().toString();
+
+        WebClientBuilder.onNewConnection( host, PORT );
+
+        assertFalse( WebClientBuilder.getPeerClientStats().containsKey( host + ":" + PORT ) );
+    }
+}
@@ -2,8 +2,10 @@ package io.subutai.common.security.crypto.pgp;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
@@ -11,6 +13,7 @@ import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.Random;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openpgp.PGPException;
@@ -88,6 +91,32 @@ public class PGPEncryptionUtilTest
     }
 
 
+    @Test
+    public void testStreamEncryptAndDecrypt() throws Exception
+    {
+        //larger than stream buffer to span several partial packets
+        byte[] message = new byte[100000];
+        new Random( 1 ).nextBytes( message );
+        PGPPublicKey publicKey = PGPEncryptionUtil.findPublicKeyById( findFile( PUBLIC_KEYRING ), PUBLIC_KEY_ID );
+        PGPSecretKeyRing secretKeyRing = PGPKeyUtil.readSecretKeyRing( findFile( SECRET_KEYRING ) );
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        OutputStream encryptingStream = PGPEncryptionUtil.encrypt( encrypted, publicKey, true );
+        encryptingStream.write( message );
+        encryptingStream.close();
+
+        assertTrue( Arrays.equals( message,
+                PGPEncryptionUtil.decrypt( encrypted.toByteArray(), secretKeyRing, SECRET_PWD ) ) );
+
+        byte[] encryptedMessage = PGPEncryptionUtil.encrypt( message, publicKey, true );
+
+        InputStream decryptingStream =
+                PGPEncryptionUtil.decrypt( new ByteArrayInputStream( encryptedMessage ), secretKeyRing, SECRET_PWD );
+
+        assertTrue( Arrays.equals( message, IOUtils.toByteArray( decryptingStream ) ) );
+    }
+
+
     @Test
     public void testSignEncryptAndDecryptVerify() throws Exception
     {